@@ -3,6 +3,7 @@ package com.zzjj.consistency.annotation;
 import java.lang.annotation.*;
 
 import com.zzjj.consistency.enums.ExecuteEnum;
+import com.zzjj.consistency.enums.RetryPolicyEnum;
 import com.zzjj.consistency.enums.ThreadWayEnum;
 
 /**
@@ -71,4 +72,68 @@ public @interface ConsistencyTask {
      * @return 线程模型
      */
     ThreadWayEnum threadWay() default ThreadWayEnum.ASYNC;
+
+    /**
+     * 开启隔离舱时，该任务方法同时执行的最大任务数 小于等于0时使用全局配置
+     *
+     * @return 最大并发数
+     */
+    int maxConcurrency() default 0;
+
+    /**
+     * 开启隔离舱时，该任务方法排队等待执行的最大任务数 小于等于0时使用全局配置
+     *
+     * @return 队列大小
+     */
+    int queueDepth() default 0;
+
+    /**
+     * 批量执行时每批的最大任务数 大于1且配置了batchMethod时，调度器把同一任务方法到期的任务按批次合并，调用一次批量方法
+     *
+     * @return 每批的最大任务数
+     */
+    int batchSize() default 0;
+
+    /**
+     * 批量方法的方法名 批量方法和任务方法在同一个类中，入参为任务方法入参的List，
+     * 返回值为void或者和入参一一对应的List&lt;Boolean&gt;，返回false的任务标记为执行失败，等待重试
+     *
+     * @return 批量方法的方法名
+     */
+    String batchMethod() default "";
+
+    /**
+     * 任务执行失败后的重试策略 默认按执行次数线性增加重试间隔
+     *
+     * @return 重试策略
+     */
+    RetryPolicyEnum retryPolicy() default RetryPolicyEnum.LINEAR;
+
+    /**
+     * 自定义重试策略的beanName 重试策略为CUSTOM时使用，需要实现RetryPolicy接口并注入spring容器
+     *
+     * @return 自定义重试策略的beanName
+     */
+    String retryPolicyBeanName() default "";
+
+    /**
+     * 指数退避时重试间隔的上限 单位秒
+     *
+     * @return 重试间隔的上限
+     */
+    int maxRetryIntervalSec() default 3600;
+
+    /**
+     * 最大执行次数 达到后任务标记为重试耗尽，不再执行 小于等于0时不限制
+     *
+     * @return 最大执行次数
+     */
+    int maxAttempts() default 0;
+
+    /**
+     * 不需要重试的异常类型 任务方法抛出这些异常(包括子类)时，任务直接标记为重试耗尽
+     *
+     * @return 不需要重试的异常类型
+     */
+    Class<? extends Throwable>[] noRetryFor() default {};
 }
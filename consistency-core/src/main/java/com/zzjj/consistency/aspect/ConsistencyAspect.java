@@ -9,12 +9,14 @@ import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
 
 import com.zzjj.consistency.annotation.ConsistencyTask;
+import com.zzjj.consistency.codec.TaskParameterCodecs;
 import com.zzjj.consistency.config.ConsistencyConfiguration;
 import com.zzjj.consistency.custom.shard.SnowflakeShardingKeyGenerator;
 import com.zzjj.consistency.election.PeerElectionHandler;
@@ -27,7 +29,6 @@ import com.zzjj.consistency.utils.ThreadLocalUtil;
 import com.zzjj.consistency.utils.TimeUtils;
 
 import cn.hutool.core.util.ReflectUtil;
-import cn.hutool.json.JSONUtil;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -66,6 +67,11 @@ public class ConsistencyAspect {
      */
     @Autowired
     private PeerElectionHandler peerElectionHandler;
+    /**
+     * 任务参数编解码组件
+     */
+    @Autowired
+    private TaskParameterCodecs taskParameterCodecs;
 
     /**
      * 标注了ConsistencyTask的注解的方法执行前要做的工作
@@ -112,7 +118,9 @@ public class ConsistencyAspect {
         final ConsistencyTaskInstance instance =
             ConsistencyTaskInstance.builder().taskId(StringUtils.isEmpty(task.id()) ? fullyQualifiedName : task.id())
                 .methodName(point.getSignature().getName()).parameterTypes(parameterTypes)
-                .methodSignName(fullyQualifiedName).taskParameter(JSONUtil.toJsonStr(point.getArgs()))
+                .methodSignName(fullyQualifiedName)
+                .taskParameter(
+                    this.taskParameterCodecs.encode(((MethodSignature)point.getSignature()).getMethod(), point.getArgs()))
                 .executeWay(task.executeWay().getCode()).threadWay(task.threadWay().getCode())
                 .executeIntervalSec(task.executeIntervalSec()).delayTime(task.delayTime()).executeTimes(0)
                 .taskStatus(ConsistencyTaskStatusEnum.INIT.getCode()).errorMsg("")
@@ -0,0 +1,96 @@
+package com.zzjj.consistency.codec;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.zzjj.consistency.exceptions.ConsistencyException;
+
+/**
+ * 基于Jackson的任务参数编解码 入参编码为数组，解码时按方法的泛型参数类型逐个读取，每个方法的ObjectReader只创建一次
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+public abstract class AbstractJacksonTaskParameterCodec implements TaskParameterCodec {
+
+    /**
+     * 编解码使用的ObjectMapper 不使用业务服务的ObjectMapper，保证任务参数的格式不受业务配置影响
+     */
+    protected final ObjectMapper objectMapper;
+    /**
+     * 按入参的运行时类型编码的ObjectWriter
+     */
+    private final ObjectWriter writer;
+    /**
+     * 每个任务方法各个入参的ObjectReader
+     */
+    private final ConcurrentMap<Method, ObjectReader[]> readers = new ConcurrentHashMap<>();
+
+    protected AbstractJacksonTaskParameterCodec(final ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper.findAndRegisterModules()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.writer = this.objectMapper.writer();
+    }
+
+    @Override
+    public String encode(final Method method, final Object[] args) {
+        try {
+            return this.toText(this.writer.writeValueAsBytes(args));
+        } catch (final IOException e) {
+            throw new ConsistencyException(e);
+        }
+    }
+
+    @Override
+    public Object[] decode(final Method method, final String taskParameter) {
+        final ObjectReader[] parameterReaders = this.readers.computeIfAbsent(method, this::createReaders);
+        try (final JsonParser parser = this.objectMapper.getFactory().createParser(this.toBytes(taskParameter))) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new ConsistencyException("[一致性任务框架] 任务参数不是数组格式: " + taskParameter);
+            }
+            final Object[] args = new Object[parameterReaders.length];
+            for (int i = 0; i < parameterReaders.length; i++) {
+                parser.nextToken();
+                args[i] = parameterReaders[i].readValue(parser);
+            }
+            return args;
+        } catch (final IOException e) {
+            throw new ConsistencyException(e);
+        }
+    }
+
+    private ObjectReader[] createReaders(final Method method) {
+        final Type[] parameterTypes = method.getGenericParameterTypes();
+        final ObjectReader[] parameterReaders = new ObjectReader[parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            parameterReaders[i] = this.objectMapper.readerFor(this.objectMapper.constructType(parameterTypes[i]));
+        }
+        return parameterReaders;
+    }
+
+    /**
+     * 将编码后的字节转换为写入任务表的字符串
+     *
+     * @param bytes 编码后的字节
+     * @return 任务参数
+     */
+    protected abstract String toText(byte[] bytes);
+
+    /**
+     * 将任务表中的字符串转换为编码后的字节
+     *
+     * @param taskParameter 任务参数
+     * @return 编码后的字节
+     */
+    protected abstract byte[] toBytes(String taskParameter);
+
+}
@@ -0,0 +1,47 @@
+package com.zzjj.consistency.codec;
+
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * JSON格式的任务参数编解码 与之前使用hutool写入的任务参数格式兼容
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+@Component
+public class JsonTaskParameterCodec extends AbstractJacksonTaskParameterCodec {
+
+    /**
+     * 编码格式名称
+     */
+    public static final String NAME = "JSON";
+
+    public JsonTaskParameterCodec() {
+        super(new ObjectMapper());
+    }
+
+    @Override
+    public String getName() {
+        return JsonTaskParameterCodec.NAME;
+    }
+
+    @Override
+    public boolean canDecode(final String taskParameter) {
+        return taskParameter.startsWith("[");
+    }
+
+    @Override
+    protected String toText(final byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    protected byte[] toBytes(final String taskParameter) {
+        return taskParameter.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
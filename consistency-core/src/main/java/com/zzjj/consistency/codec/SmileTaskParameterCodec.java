@@ -0,0 +1,54 @@
+package com.zzjj.consistency.codec;
+
+import java.util.Base64;
+
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * SMILE二进制格式的任务参数编解码 任务表的task_parameter是字符串列，二进制内容使用Base64保存
+ * <p>
+ * SMILE会复用重复出现的字段名和短字符串，适合集合类参数，参数只有少量字段时Base64之后可能比JSON更长
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+@Component
+public class SmileTaskParameterCodec extends AbstractJacksonTaskParameterCodec {
+
+    /**
+     * 编码格式名称
+     */
+    public static final String NAME = "SMILE";
+    /**
+     * SMILE头部 ":)\n" 经过Base64编码后的前缀
+     */
+    private static final String BASE64_HEADER = "OikK";
+
+    public SmileTaskParameterCodec() {
+        super(new ObjectMapper(new SmileFactory()));
+    }
+
+    @Override
+    public String getName() {
+        return SmileTaskParameterCodec.NAME;
+    }
+
+    @Override
+    public boolean canDecode(final String taskParameter) {
+        return taskParameter.startsWith(SmileTaskParameterCodec.BASE64_HEADER);
+    }
+
+    @Override
+    protected String toText(final byte[] bytes) {
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+
+    @Override
+    protected byte[] toBytes(final String taskParameter) {
+        return Base64.getDecoder().decode(taskParameter);
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.zzjj.consistency.codec;
+
+import java.lang.reflect.Method;
+
+/**
+ * 任务参数编解码接口 任务方法的入参在写入任务表前编码为字符串，执行任务前再按方法的泛型参数类型解码
+ * <p>
+ * 框架内置了JSON和SMILE两种实现，业务服务也可以实现该接口并注册为spring bean，通过consistency.store.parameter-codec指定使用的编码格式
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+public interface TaskParameterCodec {
+
+    /**
+     * 获取编码格式的名称
+     *
+     * @return 编码格式的名称
+     */
+    String getName();
+
+    /**
+     * 是否能解码指定的任务参数 任务表中可能同时存在不同编码格式写入的任务，解码时按内容选择编码器
+     *
+     * @param taskParameter 编码后的任务参数
+     * @return 是否能解码
+     */
+    boolean canDecode(String taskParameter);
+
+    /**
+     * 编码任务方法的入参
+     *
+     * @param method 任务方法
+     * @param args 方法入参
+     * @return 编码后的任务参数
+     */
+    String encode(Method method, Object[] args);
+
+    /**
+     * 按任务方法的泛型参数类型解码任务参数
+     *
+     * @param method 任务方法
+     * @param taskParameter 编码后的任务参数
+     * @return 方法入参
+     */
+    Object[] decode(Method method, String taskParameter);
+
+}
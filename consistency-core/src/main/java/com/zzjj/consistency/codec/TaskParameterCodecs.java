@@ -0,0 +1,90 @@
+package com.zzjj.consistency.codec;
+
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.zzjj.consistency.config.ConsistencyConfiguration;
+import com.zzjj.consistency.exceptions.ConsistencyException;
+
+/**
+ * 任务参数编解码器的选择组件 编码时使用配置的编码格式，解码时按任务参数的内容选择编码器
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+@Component
+public class TaskParameterCodecs {
+
+    /**
+     * 编码后的任务参数的最大字节数 与task_parameter列的text类型保持一致
+     */
+    public static final int MAX_TASK_PARAMETER_BYTES = 65535;
+
+    /**
+     * 所有的任务参数编解码器 包括业务服务注册的实现
+     */
+    @Autowired
+    private List<TaskParameterCodec> codecs;
+    /**
+     * 一致性框架配置
+     */
+    @Autowired
+    private ConsistencyConfiguration consistencyConfiguration;
+
+    /**
+     * 写入任务时使用的编码器
+     */
+    private TaskParameterCodec encodeCodec;
+
+    @PostConstruct
+    public void init() {
+        final String codecName = this.consistencyConfiguration.getParameterCodec();
+        this.encodeCodec = this.codecs.stream().filter(codec -> codec.getName().equals(codecName)).findFirst()
+            .orElseThrow(() -> new ConsistencyException("[一致性任务框架] 未找到名称为 [" + codecName
+                + "] 的任务参数编解码器，请检查 consistency.store.parameter-codec 配置"));
+    }
+
+    /**
+     * 编码任务方法的入参
+     *
+     * @param method 任务方法
+     * @param args 方法入参
+     * @return 编码后的任务参数
+     */
+    public String encode(final Method method, final Object[] args) {
+        final String taskParameter = this.encodeCodec.encode(method, args);
+        // 超长的任务参数写入时会失败，或者被截断后无法解码，这里直接拒绝
+        final int length = taskParameter.getBytes(StandardCharsets.UTF_8).length;
+        if (length > TaskParameterCodecs.MAX_TASK_PARAMETER_BYTES) {
+            throw new ConsistencyException("[一致性任务框架] 任务方法 [" + method.getName() + "] 的参数编码后为 [" + length
+                + "] 字节，超过了task_parameter列的上限 [" + TaskParameterCodecs.MAX_TASK_PARAMETER_BYTES + "] 字节");
+        }
+        return taskParameter;
+    }
+
+    /**
+     * 解码任务参数
+     *
+     * @param method 任务方法
+     * @param taskParameter 编码后的任务参数
+     * @return 方法入参
+     */
+    public Object[] decode(final Method method, final String taskParameter) {
+        if (this.encodeCodec.canDecode(taskParameter)) {
+            return this.encodeCodec.decode(method, taskParameter);
+        }
+        for (final TaskParameterCodec codec : this.codecs) {
+            if (codec.canDecode(taskParameter)) {
+                return codec.decode(method, taskParameter);
+            }
+        }
+        throw new ConsistencyException("[一致性任务框架] 没有可以解码该任务参数的编解码器: " + taskParameter);
+    }
+
+}
@@ -3,6 +3,7 @@ package com.zzjj.consistency.config;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -14,8 +15,15 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
 
+import com.zzjj.consistency.codec.JsonTaskParameterCodec;
 import com.zzjj.consistency.custom.query.TaskTimeRangeQuery;
 import com.zzjj.consistency.custom.shard.ShardingKeyGenerator;
+import com.zzjj.consistency.enums.ClaimModeEnum;
+import com.zzjj.consistency.enums.CompletionModeEnum;
+import com.zzjj.consistency.enums.RocksDBProfileEnum;
+import com.zzjj.consistency.enums.StoreTypeEnum;
+import com.zzjj.consistency.enums.ThreadExecutorModeEnum;
+import com.zzjj.consistency.enums.WalSyncModeEnum;
 import com.zzjj.consistency.exceptions.ConsistencyException;
 import com.zzjj.consistency.utils.DefaultValueUtils;
 import com.zzjj.consistency.utils.ReflectTools;
@@ -34,7 +42,7 @@ import lombok.extern.slf4j.Slf4j;
 @Configuration
 @EnableConfigurationProperties(value = {ConsistencyParallelTaskConfigProperties.class,
     ConsistencyFallbackConfigProperties.class, SchedulerConfigProperties.class, ShardModeConfigProperties.class,
-    PeerNodeConfigProperties.class, RocksDBConfigProperties.class})
+    PeerNodeConfigProperties.class, RocksDBConfigProperties.class, TaskStoreConfigProperties.class})
 public class ConsistencyAutoConfiguration {
     /**
      * 执行调度任务的线程池的配置
@@ -66,6 +74,11 @@ public class ConsistencyAutoConfiguration {
      */
     @Autowired
     private SchedulerConfigProperties schedulerConfigProperties;
+    /**
+     * 任务存储相关的配置
+     */
+    @Autowired
+    private TaskStoreConfigProperties taskStoreConfigProperties;
 
     /**
      *
@@ -78,7 +91,10 @@ public class ConsistencyAutoConfiguration {
     public ConsistencyConfiguration tendConsistencyConfigService() {
         // 对配置进行检查
         this.doConfigCheck(this.consistencyParallelTaskConfigProperties, this.shardModeConfigProperties,
-            this.rocksDBConfigProperties, this.peerNodeConfigProperties);
+            this.rocksDBConfigProperties, this.peerNodeConfigProperties, this.taskStoreConfigProperties);
+        // RocksDB没有单独配置的参数使用预设配置中的值
+        final RocksDBProfileEnum rocksProfile = RocksDBProfileEnum.valueOf(
+            DefaultValueUtils.getOrDefault(this.rocksDBConfigProperties.profile, RocksDBProfileEnum.LOW_LATENCY.name()));
 
         return ConsistencyConfiguration.builder()
             .threadCorePoolSize(
@@ -91,6 +107,46 @@ public class ConsistencyAutoConfiguration {
                 .getOrDefault(this.consistencyParallelTaskConfigProperties.getThreadPoolKeepAliveTime(), 60L))
             .threadPoolKeepAliveTimeUnit(DefaultValueUtils
                 .getOrDefault(this.consistencyParallelTaskConfigProperties.getThreadPoolKeepAliveTimeUnit(), "SECONDS"))
+            .threadExecutorMode(DefaultValueUtils.getOrDefault(
+                this.consistencyParallelTaskConfigProperties.getThreadExecutorMode(), ThreadExecutorModeEnum.PLATFORM.name()))
+            .virtualThreadMaxConcurrency(DefaultValueUtils
+                .getOrDefault(this.consistencyParallelTaskConfigProperties.getVirtualThreadMaxConcurrency(), 1000))
+            .dispatchPipelineEnabled(DefaultValueUtils
+                .getOrDefault(this.consistencyParallelTaskConfigProperties.getDispatchPipelineEnabled(), false))
+            .dispatchMaxInFlight(
+                DefaultValueUtils.getOrDefault(this.consistencyParallelTaskConfigProperties.getDispatchMaxInFlight(), 100))
+            .bulkheadEnabled(
+                DefaultValueUtils.getOrDefault(this.consistencyParallelTaskConfigProperties.getBulkheadEnabled(), false))
+            .bulkheadMaxConcurrency(
+                DefaultValueUtils.getOrDefault(this.consistencyParallelTaskConfigProperties.getBulkheadMaxConcurrency(), 3))
+            .bulkheadQueueDepth(
+                DefaultValueUtils.getOrDefault(this.consistencyParallelTaskConfigProperties.getBulkheadQueueDepth(), 100))
+            .bulkheads(
+                ObjectUtil.defaultIfNull(this.consistencyParallelTaskConfigProperties.getBulkheads(), new HashMap<>()))
+            .adaptiveLimitEnabled(
+                DefaultValueUtils.getOrDefault(this.consistencyParallelTaskConfigProperties.getAdaptiveLimitEnabled(), false))
+            .adaptiveLimitInitial(
+                DefaultValueUtils.getOrDefault(this.consistencyParallelTaskConfigProperties.getAdaptiveLimitInitial(), 5))
+            .adaptiveLimitMin(
+                DefaultValueUtils.getOrDefault(this.consistencyParallelTaskConfigProperties.getAdaptiveLimitMin(), 1))
+            .adaptiveLimitMax(
+                DefaultValueUtils.getOrDefault(this.consistencyParallelTaskConfigProperties.getAdaptiveLimitMax(), 100))
+            .adaptiveLimitBackoffRatio(
+                ObjectUtil.defaultIfNull(this.consistencyParallelTaskConfigProperties.getAdaptiveLimitBackoffRatio(), 0.9))
+            .adaptiveLimitLatencyThresholdMillis(DefaultValueUtils
+                .getOrDefault(this.consistencyParallelTaskConfigProperties.getAdaptiveLimitLatencyThresholdMillis(), 1000L))
+            .circuitBreakerEnabled(
+                DefaultValueUtils.getOrDefault(this.consistencyParallelTaskConfigProperties.getCircuitBreakerEnabled(), false))
+            .circuitBreakerWindowSize(
+                DefaultValueUtils.getOrDefault(this.consistencyParallelTaskConfigProperties.getCircuitBreakerWindowSize(), 20))
+            .circuitBreakerFailureRatio(
+                ObjectUtil.defaultIfNull(this.consistencyParallelTaskConfigProperties.getCircuitBreakerFailureRatio(), 0.5))
+            .circuitBreakerOpenSeconds(
+                DefaultValueUtils.getOrDefault(this.consistencyParallelTaskConfigProperties.getCircuitBreakerOpenSeconds(), 30))
+            .circuitBreakerHalfOpenProbes(DefaultValueUtils
+                .getOrDefault(this.consistencyParallelTaskConfigProperties.getCircuitBreakerHalfOpenProbes(), 3))
+            .circuitBreakerRampUpSeconds(DefaultValueUtils
+                .getOrDefault(this.consistencyParallelTaskConfigProperties.getCircuitBreakerRampUpSeconds(), 30))
             .taskScheduleTimeRangeClassName(DefaultValueUtils
                 .getOrDefault(this.consistencyParallelTaskConfigProperties.getTaskScheduleTimeRangeClassName(), ""))
             .failCountThreshold(
@@ -100,7 +156,38 @@ public class ConsistencyAutoConfiguration {
                 DefaultValueUtils.getOrDefault(this.shardModeConfigProperties.getShardingKeyGeneratorClassName(), ""))
             .peersConfig(this.peerNodeConfigProperties.getPeersConfig())
             .taskShardingCount(this.getTaskShardingCountOrDefault())
+            .shardIndexPushDown(
+                DefaultValueUtils.getOrDefault(this.shardModeConfigProperties.getShardIndexPushDown(), false))
+            .claimMode(DefaultValueUtils.getOrDefault(this.shardModeConfigProperties.getClaimMode(),
+                ClaimModeEnum.SHARD.name()))
+            .leaseDurationSeconds(
+                DefaultValueUtils.getOrDefault(this.shardModeConfigProperties.getLeaseDurationSeconds(), 60))
+            .claimBatchSize(DefaultValueUtils.getOrDefault(this.shardModeConfigProperties.getClaimBatchSize(), 100))
             .rocksPath(this.getOrCreate(this.rocksDBConfigProperties.rocksPath))
+            .rocksWriteBufferSizeMb(DefaultValueUtils.getOrDefault(this.rocksDBConfigProperties.writeBufferSizeMb,
+                rocksProfile.getWriteBufferSizeMb()))
+            .rocksMaxWriteBufferNumber(DefaultValueUtils.getOrDefault(this.rocksDBConfigProperties.maxWriteBufferNumber,
+                rocksProfile.getMaxWriteBufferNumber()))
+            .rocksWriteBufferManagerMb(DefaultValueUtils.getOrDefault(this.rocksDBConfigProperties.writeBufferManagerMb,
+                rocksProfile.getWriteBufferManagerMb()))
+            .rocksBlockCacheMb(
+                DefaultValueUtils.getOrDefault(this.rocksDBConfigProperties.blockCacheMb, rocksProfile.getBlockCacheMb()))
+            .rocksBloomFilterBitsPerKey(DefaultValueUtils.getOrDefault(this.rocksDBConfigProperties.bloomFilterBitsPerKey,
+                rocksProfile.getBloomFilterBitsPerKey()))
+            .rocksCompactionStyle(DefaultValueUtils.getOrDefault(this.rocksDBConfigProperties.compactionStyle,
+                rocksProfile.getCompactionStyle()))
+            .rocksMaxBackgroundJobs(DefaultValueUtils.getOrDefault(this.rocksDBConfigProperties.maxBackgroundJobs,
+                rocksProfile.getMaxBackgroundJobs()))
+            .rocksWalSyncMode(DefaultValueUtils.getOrDefault(this.rocksDBConfigProperties.walSyncMode,
+                rocksProfile.getWalSyncMode().name()))
+            .rocksWalSyncIntervalMillis(DefaultValueUtils.getOrDefault(this.rocksDBConfigProperties.walSyncIntervalMillis,
+                rocksProfile.getWalSyncIntervalMillis()))
+            .rocksDrainEnabled(DefaultValueUtils.getOrDefault(this.rocksDBConfigProperties.drainEnabled, false))
+            .rocksDrainBatchSize(DefaultValueUtils.getOrDefault(this.rocksDBConfigProperties.drainBatchSize, 100))
+            .rocksDrainRatePerSecond(
+                DefaultValueUtils.getOrDefault(this.rocksDBConfigProperties.drainRatePerSecond, 500))
+            .rocksDrainIntervalSeconds(
+                DefaultValueUtils.getOrDefault(this.rocksDBConfigProperties.drainIntervalSeconds, 10))
             .consistencyTaskExecuteIntervalSeconds(DefaultValueUtils
                 .getOrDefault(this.schedulerConfigProperties.getConsistencyTaskExecuteIntervalSeconds(), 10))
             .followerAliveCheckIntervalSeconds(DefaultValueUtils
@@ -115,6 +202,36 @@ public class ConsistencyAutoConfiguration {
                 .getOrDefault(this.schedulerConfigProperties.getJudgeFollowerDownSecondsThreshold(), 120))
             .judgeLeaderDownSecondsThreshold(DefaultValueUtils
                 .getOrDefault(this.schedulerConfigProperties.getJudgeLeaderDownSecondsThreshold(), 120))
+            .timingWheelEnabled(
+                DefaultValueUtils.getOrDefault(this.schedulerConfigProperties.getTimingWheelEnabled(), false))
+            .timingWheelHorizonSeconds(
+                DefaultValueUtils.getOrDefault(this.schedulerConfigProperties.getTimingWheelHorizonSeconds(), 60))
+            .timingWheelTickMillis(
+                DefaultValueUtils.getOrDefault(this.schedulerConfigProperties.getTimingWheelTickMillis(), 10L))
+            .timingWheelSize(DefaultValueUtils.getOrDefault(this.schedulerConfigProperties.getTimingWheelSize(), 64))
+            .storeType(
+                DefaultValueUtils.getOrDefault(this.taskStoreConfigProperties.getStoreType(), StoreTypeEnum.JDBC.name()))
+            .completionBatchEnabled(
+                DefaultValueUtils.getOrDefault(this.taskStoreConfigProperties.getCompletionBatchEnabled(), false))
+            .completionBatchSize(
+                DefaultValueUtils.getOrDefault(this.taskStoreConfigProperties.getCompletionBatchSize(), 200))
+            .completionLingerMillis(
+                DefaultValueUtils.getOrDefault(this.taskStoreConfigProperties.getCompletionLingerMillis(), 50L))
+            .twoPhaseScanEnabled(
+                DefaultValueUtils.getOrDefault(this.taskStoreConfigProperties.getTwoPhaseScanEnabled(), false))
+            .hydrateBatchSize(DefaultValueUtils.getOrDefault(this.taskStoreConfigProperties.getHydrateBatchSize(), 100))
+            .completionMode(DefaultValueUtils.getOrDefault(this.taskStoreConfigProperties.getCompletionMode(),
+                CompletionModeEnum.DELETE.name()))
+            .archiveRetentionDays(
+                DefaultValueUtils.getOrDefault(this.taskStoreConfigProperties.getArchiveRetentionDays(), 7))
+            .archivePrecreateDays(
+                DefaultValueUtils.getOrDefault(this.taskStoreConfigProperties.getArchivePrecreateDays(), 3))
+            .archiveMaintainIntervalMinutes(
+                DefaultValueUtils.getOrDefault(this.taskStoreConfigProperties.getArchiveMaintainIntervalMinutes(), 60))
+            .singleRoundTripEnabled(
+                DefaultValueUtils.getOrDefault(this.taskStoreConfigProperties.getSingleRoundTripEnabled(), false))
+            .parameterCodec(DefaultValueUtils.getOrDefault(this.taskStoreConfigProperties.getParameterCodec(),
+                JsonTaskParameterCodec.NAME))
             .build();
     }
 
@@ -141,11 +258,13 @@ public class ConsistencyAutoConfiguration {
      * @param shardModeConfigProperties 分片模式相关配置
      * @param rocksDBConfigProperties rocksDB属性配置
      * @param peerNodeConfigProperties 集群节点配置的属性
+     * @param taskStoreConfigProperties 任务存储相关配置
      */
     private void doConfigCheck(final ConsistencyParallelTaskConfigProperties consistencyParallelTaskConfigProperties,
         final ShardModeConfigProperties shardModeConfigProperties,
         final RocksDBConfigProperties rocksDBConfigProperties,
-        final PeerNodeConfigProperties peerNodeConfigProperties) {
+        final PeerNodeConfigProperties peerNodeConfigProperties,
+        final TaskStoreConfigProperties taskStoreConfigProperties) {
         TimeUnit timeUnit = null;
         if (!StringUtils.isEmpty(consistencyParallelTaskConfigProperties.getThreadPoolKeepAliveTimeUnit())) {
             try {
@@ -158,6 +277,14 @@ public class ConsistencyAutoConfiguration {
             }
         }
 
+        if (!StringUtils.isEmpty(consistencyParallelTaskConfigProperties.getThreadExecutorMode())) {
+            try {
+                ThreadExecutorModeEnum.valueOf(consistencyParallelTaskConfigProperties.getThreadExecutorMode());
+            } catch (final IllegalArgumentException e) {
+                throw new ConsistencyException("threadExecutorMode配置错误！注意：请在[PLATFORM,VIRTUAL]任选其中之一");
+            }
+        }
+
         if (!StringUtils.isEmpty(consistencyParallelTaskConfigProperties.getTaskScheduleTimeRangeClassName())) {
             // 校验是否存在该类
             final Class<?> taskScheduleTimeRangeClass = ReflectTools
@@ -196,6 +323,52 @@ public class ConsistencyAutoConfiguration {
             }
         }
 
+        if (!StringUtils.isEmpty(shardModeConfigProperties.getClaimMode())) {
+            try {
+                ClaimModeEnum.valueOf(shardModeConfigProperties.getClaimMode());
+            } catch (final IllegalArgumentException e) {
+                throw new ConsistencyException("claimMode配置错误！注意：请在[SHARD,LEASE]任选其中之一");
+            }
+        }
+
+        if (!StringUtils.isEmpty(taskStoreConfigProperties.getStoreType())) {
+            try {
+                StoreTypeEnum.valueOf(taskStoreConfigProperties.getStoreType());
+            } catch (final IllegalArgumentException e) {
+                throw new ConsistencyException("storeType配置错误！注意：请在[JDBC,MYBATIS]任选其中之一");
+            }
+        }
+
+        if (!StringUtils.isEmpty(taskStoreConfigProperties.getCompletionMode())) {
+            try {
+                CompletionModeEnum.valueOf(taskStoreConfigProperties.getCompletionMode());
+            } catch (final IllegalArgumentException e) {
+                throw new ConsistencyException("completionMode配置错误！注意：请在[DELETE,ARCHIVE]任选其中之一");
+            }
+        }
+
+        if (!StringUtils.isEmpty(rocksDBConfigProperties.profile)) {
+            try {
+                RocksDBProfileEnum.valueOf(rocksDBConfigProperties.profile);
+            } catch (final IllegalArgumentException e) {
+                throw new ConsistencyException("rocksdb.profile配置错误！注意：请在[LOW_LATENCY,BULK_BUFFER,LOW_MEMORY]任选其中之一");
+            }
+        }
+
+        if (!StringUtils.isEmpty(rocksDBConfigProperties.compactionStyle)
+            && !"LEVEL".equals(rocksDBConfigProperties.compactionStyle)
+            && !"UNIVERSAL".equals(rocksDBConfigProperties.compactionStyle)) {
+            throw new ConsistencyException("rocksdb.compactionStyle配置错误！注意：请在[LEVEL,UNIVERSAL]任选其中之一");
+        }
+
+        if (!StringUtils.isEmpty(rocksDBConfigProperties.walSyncMode)) {
+            try {
+                WalSyncModeEnum.valueOf(rocksDBConfigProperties.walSyncMode);
+            } catch (final IllegalArgumentException e) {
+                throw new ConsistencyException("rocksdb.walSyncMode配置错误！注意：请在[SYNC,GROUP_COMMIT]任选其中之一");
+            }
+        }
+
         if (StringUtils.isEmpty(rocksDBConfigProperties.rocksPath)) {
             throw new ConsistencyException("请指定RocksDB文件存储的路径，配置文件中的配置项为：consistency.rocksdb.rocks-path");
         }
@@ -1,5 +1,7 @@
 package com.zzjj.consistency.config;
 
+import java.util.Map;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -36,6 +38,86 @@ public class ConsistencyConfiguration {
      * 可选值:[SECONDS,MINUTES,HOURS,DAYS,NANOSECONDS,MICROSECONDS,MILLISECONDS] 线程池中无任务时线程存活时间单位
      */
     public String threadPoolKeepAliveTimeUnit;
+    /**
+     * 可选值:[PLATFORM,VIRTUAL] 任务执行线程的创建方式
+     */
+    public String threadExecutorMode;
+    /**
+     * VIRTUAL模式下同时执行的最大任务数
+     */
+    public Integer virtualThreadMaxConcurrency;
+    /**
+     * 是否开启流水线调度
+     */
+    public Boolean dispatchPipelineEnabled;
+    /**
+     * 流水线调度时，已经提交但尚未执行完成的最大任务数
+     */
+    public Integer dispatchMaxInFlight;
+    /**
+     * 是否开启按任务方法隔离
+     */
+    public Boolean bulkheadEnabled;
+    /**
+     * 开启隔离时，每个任务方法默认的最大并发数
+     */
+    public Integer bulkheadMaxConcurrency;
+    /**
+     * 开启隔离时，每个任务方法默认的队列大小
+     */
+    public Integer bulkheadQueueDepth;
+    /**
+     * 单独配置的任务方法隔离舱 key为methodSignName或者任务id
+     */
+    public Map<String, ConsistencyParallelTaskConfigProperties.Bulkhead> bulkheads;
+    /**
+     * 是否开启自适应并发限制
+     */
+    public Boolean adaptiveLimitEnabled;
+    /**
+     * 自适应并发限制的初始并发数
+     */
+    public Integer adaptiveLimitInitial;
+    /**
+     * 自适应并发限制的最小并发数
+     */
+    public Integer adaptiveLimitMin;
+    /**
+     * 自适应并发限制的最大并发数
+     */
+    public Integer adaptiveLimitMax;
+    /**
+     * 任务执行失败或者超过耗时阈值时，并发数乘以该比例
+     */
+    public Double adaptiveLimitBackoffRatio;
+    /**
+     * 任务执行耗时阈值 单位毫秒
+     */
+    public Long adaptiveLimitLatencyThresholdMillis;
+    /**
+     * 是否开启按任务方法的熔断
+     */
+    public Boolean circuitBreakerEnabled;
+    /**
+     * 计算失败率的滑动窗口大小
+     */
+    public Integer circuitBreakerWindowSize;
+    /**
+     * 熔断的失败比例
+     */
+    public Double circuitBreakerFailureRatio;
+    /**
+     * 熔断的持续时间 单位秒
+     */
+    public Integer circuitBreakerOpenSeconds;
+    /**
+     * 半开状态下允许同时执行的探测任务数
+     */
+    public Integer circuitBreakerHalfOpenProbes;
+    /**
+     * 关闭熔断后逐步恢复执行的时间 单位秒
+     */
+    public Integer circuitBreakerRampUpSeconds;
     /**
      * 触发降级逻辑的阈值 任务执行次数 如果大于该值 就会进行降级
      */
@@ -43,14 +125,17 @@ public class ConsistencyConfiguration {
     /**
      * 任务表是否进行分库
      */
+    @Builder.Default
     public Boolean taskSharded = false;
     /**
      * 这里要配置类型全路径且类要实现com.zzjj.consistency.query.TaskTimeRangeQuery接口 如：com.xxx.TaskTimeLineQuery
      */
+    @Builder.Default
     private String taskScheduleTimeRangeClassName = "";
     /**
      * 生成任务表分片key的ClassName 这里要配置类型全路径且类要实现com.zzjj.consistency.custom.shard.ShardingKeyGenerator接口
      */
+    @Builder.Default
     private String shardingKeyGeneratorClassName = "";
     /**
      * 集群节点的配置信息 格式: ip1:port:peerId1,ip2:port:peerId2,ip3:port:peerId3
@@ -60,38 +145,199 @@ public class ConsistencyConfiguration {
      * 任务分片数
      */
     public Long taskShardingCount;
+    /**
+     * 是否将分片过滤条件下推到SQL中
+     */
+    @Builder.Default
+    public Boolean shardIndexPushDown = false;
+    /**
+     * 任务认领模式 SHARD或LEASE
+     */
+    @Builder.Default
+    public String claimMode = "SHARD";
+    /**
+     * [单位秒] LEASE模式下，认领任务的租约时长
+     */
+    @Builder.Default
+    public Integer leaseDurationSeconds = 60;
+    /**
+     * LEASE模式下，每次最多认领的任务数
+     */
+    @Builder.Default
+    public Integer claimBatchSize = 100;
     /**
      * RocksDB的存储文件夹目录
      */
     public String rocksPath;
+    /**
+     * [单位MB] RocksDB每个memtable的大小
+     */
+    public Integer rocksWriteBufferSizeMb;
+    /**
+     * RocksDB每个列族最多保留的memtable个数
+     */
+    public Integer rocksMaxWriteBufferNumber;
+    /**
+     * [单位MB] RocksDB所有列族的memtable占用的内存上限
+     */
+    public Integer rocksWriteBufferManagerMb;
+    /**
+     * [单位MB] RocksDB所有列族共享的LRU块缓存大小
+     */
+    public Integer rocksBlockCacheMb;
+    /**
+     * RocksDB索引列族布隆过滤器每个key占用的位数
+     */
+    public Integer rocksBloomFilterBitsPerKey;
+    /**
+     * RocksDB的合并方式 LEVEL或UNIVERSAL
+     */
+    public String rocksCompactionStyle;
+    /**
+     * RocksDB后台flush和合并的最大线程数
+     */
+    public Integer rocksMaxBackgroundJobs;
+    /**
+     * RocksDB预写日志的同步方式 SYNC或GROUP_COMMIT
+     */
+    public String rocksWalSyncMode;
+    /**
+     * [单位毫秒] GROUP_COMMIT方式下，RocksDB预写日志落盘的间隔
+     */
+    public Long rocksWalSyncIntervalMillis;
+    /**
+     * 数据库恢复后，是否把RocksDB中积压的任务迁移回任务表
+     */
+    public Boolean rocksDrainEnabled;
+    /**
+     * RocksDB积压任务迁移时每批写入任务表的最大任务数
+     */
+    public Integer rocksDrainBatchSize;
+    /**
+     * RocksDB积压任务迁移时每秒最多写入任务表的任务数
+     */
+    public Integer rocksDrainRatePerSecond;
+    /**
+     * [单位秒] 检测数据库是否恢复并迁移RocksDB积压任务的间隔
+     */
+    public Integer rocksDrainIntervalSeconds;
 
     // ------------------------------------------------调度器相关的配置--------------------------------------------------
     /**
      * [单位秒] leader检测follower是否存活的调度器每隔多长时间执行一次检查
      */
+    @Builder.Default
     public Integer followerAliveCheckIntervalSeconds = 10;
     /**
      * [单位秒] leader判定follower宕机的阈值
      */
+    @Builder.Default
     private Integer judgeFollowerDownSecondsThreshold = 120;
     /**
      * [单位秒] follower用于检测leader是否存活的调度器每隔多长时间执行一次检查
      */
+    @Builder.Default
     public Integer leaderAliveCheckIntervalSeconds = 10;
     /**
      * [单位秒] follower判定leader宕机的阈值
      */
+    @Builder.Default
     private Integer judgeLeaderDownSecondsThreshold = 120;
     /**
      * [单位秒] leader定时发给follower的心跳的调度器，同时也会将leader对任务的分片信息发送给各个follower节点每隔多长时间执行一次
      */
+    @Builder.Default
     public Integer leaderToFollowerHeartbeatIntervalSeconds = 10;
     /**
      * [单位秒] follower对leader发送心跳的调度器
      */
+    @Builder.Default
     public Integer followerHeartbeatIntervalSeconds = 10;
     /**
      * [单位秒] 一致性框架自身的/内置的执行任务时的调度器执行任务的频率，每隔多长时间调度一次
      */
+    @Builder.Default
     public Integer consistencyTaskExecuteIntervalSeconds = 10;
+    /**
+     * 是否开启时间轮
+     */
+    @Builder.Default
+    public Boolean timingWheelEnabled = false;
+    /**
+     * [单位秒] 时间轮负责的时间范围
+     */
+    @Builder.Default
+    public Integer timingWheelHorizonSeconds = 60;
+    /**
+     * [单位毫秒] 时间轮第一层每格的跨度
+     */
+    @Builder.Default
+    public Long timingWheelTickMillis = 10L;
+    /**
+     * 时间轮每层的格数
+     */
+    @Builder.Default
+    public Integer timingWheelSize = 64;
+
+    // ------------------------------------------------任务存储相关的配置--------------------------------------------------
+    /**
+     * 任务持久化的实现方式 JDBC或MYBATIS
+     */
+    @Builder.Default
+    public String storeType = "JDBC";
+    /**
+     * 是否开启任务完成状态的异步批量写入
+     */
+    @Builder.Default
+    public Boolean completionBatchEnabled = false;
+    /**
+     * 异步批量写入时，每批最多包含多少个任务状态变更
+     */
+    @Builder.Default
+    public Integer completionBatchSize = 200;
+    /**
+     * [单位毫秒] 异步批量写入时，任务状态变更在队列中最多停留多长时间就会被刷入数据库
+     */
+    @Builder.Default
+    public Long completionLingerMillis = 50L;
+    /**
+     * 是否开启两阶段扫描 先只查询任务的索引信息，执行前再批量加载完整的任务信息
+     */
+    @Builder.Default
+    public Boolean twoPhaseScanEnabled = false;
+    /**
+     * 两阶段扫描时，每批加载完整任务信息的任务数
+     */
+    @Builder.Default
+    public Integer hydrateBatchSize = 100;
+    /**
+     * 任务执行成功后的处理方式 DELETE或ARCHIVE
+     */
+    @Builder.Default
+    public String completionMode = "DELETE";
+    /**
+     * ARCHIVE模式下，执行成功的任务保留多少天
+     */
+    @Builder.Default
+    public Integer archiveRetentionDays = 7;
+    /**
+     * ARCHIVE模式下，提前创建未来多少天的分区
+     */
+    @Builder.Default
+    public Integer archivePrecreateDays = 3;
+    /**
+     * [单位分钟] ARCHIVE模式下，分区维护任务每隔多长时间执行一次
+     */
+    @Builder.Default
+    public Integer archiveMaintainIntervalMinutes = 60;
+    /**
+     * 是否开启单次往返的任务状态流转 开启后在写入或扫描时批量启动任务，执行时不再单独启动任务
+     */
+    @Builder.Default
+    public Boolean singleRoundTripEnabled = false;
+    /**
+     * 任务参数的编码格式
+     */
+    @Builder.Default
+    public String parameterCodec = "JSON";
 }
@@ -1,5 +1,8 @@
 package com.zzjj.consistency.config;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 import lombok.Data;
@@ -34,9 +37,104 @@ public class ConsistencyParallelTaskConfigProperties {
      * 可选值:[SECONDS,MINUTES,HOURS,DAYS,NANOSECONDS,MICROSECONDS,MILLISECONDS] 线程池中无任务时线程存活时间单位
      */
     public String threadPoolKeepAliveTimeUnit = "SECONDS";
+    /**
+     * 可选值:[PLATFORM,VIRTUAL] 任务执行线程的创建方式 VIRTUAL表示每个任务使用一个虚拟线程执行，JVM不支持虚拟线程时使用平台线程池
+     */
+    public String threadExecutorMode = "PLATFORM";
+    /**
+     * VIRTUAL模式下同时执行的最大任务数
+     */
+    public Integer virtualThreadMaxConcurrency = 1000;
+    /**
+     * 是否开启流水线调度 开启后调度器不再等待每一页任务全部执行完成，而是在在途任务数达到上限时阻塞扫描，任务执行完成后继续扫描
+     */
+    public Boolean dispatchPipelineEnabled = false;
+    /**
+     * 流水线调度时，已经提交但尚未执行完成的最大任务数
+     */
+    public Integer dispatchMaxInFlight = 100;
+    /**
+     * 是否开启按任务方法隔离 开启后每个任务方法有自己的并发上限和队列，各方法之间轮询使用线程池
+     */
+    public Boolean bulkheadEnabled = false;
+    /**
+     * 开启隔离时，每个任务方法默认的最大并发数
+     */
+    public Integer bulkheadMaxConcurrency = 3;
+    /**
+     * 开启隔离时，每个任务方法默认的队列大小
+     */
+    public Integer bulkheadQueueDepth = 100;
+    /**
+     * 单独配置的任务方法隔离舱 key为methodSignName或者任务id，优先级高于@ConsistencyTask注解上的配置
+     */
+    public Map<String, Bulkhead> bulkheads = new HashMap<>();
+    /**
+     * 是否开启自适应并发限制 开启后按任务方法根据执行耗时和失败情况调整允许同时执行的任务数（AIMD算法）
+     */
+    public Boolean adaptiveLimitEnabled = false;
+    /**
+     * 自适应并发限制的初始并发数
+     */
+    public Integer adaptiveLimitInitial = 5;
+    /**
+     * 自适应并发限制的最小并发数
+     */
+    public Integer adaptiveLimitMin = 1;
+    /**
+     * 自适应并发限制的最大并发数
+     */
+    public Integer adaptiveLimitMax = 100;
+    /**
+     * 任务执行失败或者超过耗时阈值时，并发数乘以该比例
+     */
+    public Double adaptiveLimitBackoffRatio = 0.9;
+    /**
+     * 任务执行耗时阈值 单位毫秒 超过该耗时认为下游已经过载
+     */
+    public Long adaptiveLimitLatencyThresholdMillis = 1000L;
+    /**
+     * 是否开启按任务方法的熔断 开启后某个任务方法的失败率过高时暂停执行该方法的任务，并把该方法到期的任务整体推迟
+     */
+    public Boolean circuitBreakerEnabled = false;
+    /**
+     * 计算失败率的滑动窗口大小 最近多少次执行
+     */
+    public Integer circuitBreakerWindowSize = 20;
+    /**
+     * 滑动窗口中的失败比例达到该值时熔断
+     */
+    public Double circuitBreakerFailureRatio = 0.5;
+    /**
+     * 熔断的持续时间 单位秒 到期后进入半开状态
+     */
+    public Integer circuitBreakerOpenSeconds = 30;
+    /**
+     * 半开状态下允许同时执行的探测任务数 探测任务全部成功后关闭熔断
+     */
+    public Integer circuitBreakerHalfOpenProbes = 3;
+    /**
+     * 关闭熔断后逐步恢复执行的时间 单位秒 期间允许执行的任务比例从10%线性增加到100%
+     */
+    public Integer circuitBreakerRampUpSeconds = 30;
     /**
      * 这里要配置类型全路径且类要实现com.zzjj.consistency.custom.query.TaskTimeRangeQuery接口 如：com.xxx.TaskTimeLineQuery
      */
     private String taskScheduleTimeRangeClassName = "";
 
+    /**
+     * 任务方法的隔离舱配置
+     */
+    @Data
+    public static class Bulkhead {
+        /**
+         * 同时执行的最大任务数
+         */
+        private Integer maxConcurrency;
+        /**
+         * 排队等待执行的最大任务数
+         */
+        private Integer queueDepth;
+    }
+
 }
@@ -20,6 +20,6 @@ public class RocksDBConfig {
 
     @Bean
     public RocksLocalStorage rocksStore() throws RocksDBException {
-        return new RocksLocalStorage(this.tendConsistencyConfiguration.getRocksPath());
+        return new RocksLocalStorage(this.tendConsistencyConfiguration);
     }
 }
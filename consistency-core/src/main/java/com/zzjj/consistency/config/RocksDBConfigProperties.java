@@ -18,5 +18,61 @@ public class RocksDBConfigProperties {
      * RocksDB的存储文件夹目录
      */
     public String rocksPath;
+    /**
+     * 预设配置 LOW_LATENCY: 低延迟 BULK_BUFFER: 数据库故障期间承接大量积压 LOW_MEMORY: 低内存 下面没有配置的参数使用预设配置中的值
+     */
+    public String profile = "LOW_LATENCY";
+    /**
+     * [单位MB] 每个memtable的大小
+     */
+    public Integer writeBufferSizeMb;
+    /**
+     * 每个列族最多保留的memtable个数
+     */
+    public Integer maxWriteBufferNumber;
+    /**
+     * [单位MB] 所有列族的memtable占用的内存上限 memtable占用的内存计入块缓存
+     */
+    public Integer writeBufferManagerMb;
+    /**
+     * [单位MB] 所有列族共享的LRU块缓存大小
+     */
+    public Integer blockCacheMb;
+    /**
+     * 索引列族布隆过滤器每个key占用的位数 小于等于0时不使用布隆过滤器
+     */
+    public Integer bloomFilterBitsPerKey;
+    /**
+     * 合并方式 LEVEL或UNIVERSAL
+     */
+    public String compactionStyle;
+    /**
+     * 后台flush和合并的最大线程数
+     */
+    public Integer maxBackgroundJobs;
+    /**
+     * 预写日志的同步方式 SYNC: 每次写入同步落盘 GROUP_COMMIT: 后台线程按间隔批量落盘
+     */
+    public String walSyncMode;
+    /**
+     * [单位毫秒] GROUP_COMMIT方式下，预写日志落盘的间隔
+     */
+    public Long walSyncIntervalMillis;
+    /**
+     * 数据库恢复后，是否把RocksDB中积压的任务迁移回任务表
+     */
+    public Boolean drainEnabled = false;
+    /**
+     * 迁移时每批写入任务表的最大任务数
+     */
+    public Integer drainBatchSize = 100;
+    /**
+     * 迁移时每秒最多写入任务表的任务数
+     */
+    public Integer drainRatePerSecond = 500;
+    /**
+     * [单位秒] 检测数据库是否恢复并迁移积压任务的间隔
+     */
+    public Integer drainIntervalSeconds = 10;
 
 }
@@ -42,5 +42,21 @@ public class SchedulerConfigProperties {
      * [单位秒] 一致性框架自身的执行任务时的调度器执行任务的频率，每隔多长时间调度一次
      */
     public Integer consistencyTaskExecuteIntervalSeconds = 10;
+    /**
+     * 是否开启时间轮 开启后扫描时把未来一段时间内到期的任务放入时间轮，在到期时间执行
+     */
+    public Boolean timingWheelEnabled = false;
+    /**
+     * [单位秒] 时间轮负责的时间范围 每次扫描加载未来多长时间内到期的任务
+     */
+    public Integer timingWheelHorizonSeconds = 60;
+    /**
+     * [单位毫秒] 时间轮第一层每格的跨度 即任务到期时间的精度
+     */
+    public Long timingWheelTickMillis = 10L;
+    /**
+     * 时间轮每层的格数
+     */
+    public Integer timingWheelSize = 64;
 
 }
@@ -27,5 +27,22 @@ public class ShardModeConfigProperties {
      * 任务分片数
      */
     public Long taskShardingCount;
+    /**
+     * 是否将分片过滤条件下推到SQL中 开启后任务表需要有shard_index列，写入任务时会计算好分片索引，
+     * 扫描时每个节点只查询属于自己分片的、已经到执行时间的任务
+     */
+    public Boolean shardIndexPushDown = false;
+    /**
+     * 任务认领模式 SHARD: 按leader下发的分片执行 LEASE: 各节点通过租约竞争认领任务，任务表需要有owner_peer_id和lease_until列
+     */
+    public String claimMode = "SHARD";
+    /**
+     * [单位秒] LEASE模式下，认领任务的租约时长 需要大于任务的最长执行时间，租约过期后任务可以被其他节点重新认领
+     */
+    public Integer leaseDurationSeconds = 60;
+    /**
+     * LEASE模式下，每次最多认领的任务数
+     */
+    public Integer claimBatchSize = 100;
 
 }
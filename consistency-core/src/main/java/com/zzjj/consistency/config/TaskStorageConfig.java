@@ -0,0 +1,40 @@
+package com.zzjj.consistency.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.zzjj.consistency.enums.StoreTypeEnum;
+import com.zzjj.consistency.storage.JdbcTaskStorage;
+import com.zzjj.consistency.storage.MybatisTaskStorage;
+import com.zzjj.consistency.storage.TaskStorage;
+
+/**
+ * 任务持久化配置
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+@Configuration
+public class TaskStorageConfig {
+
+    /**
+     * 获取框架级的配置
+     */
+    @Autowired
+    private ConsistencyConfiguration consistencyConfiguration;
+
+    /**
+     * 根据配置的store-type创建任务持久化的实现
+     *
+     * @return 任务持久化的实现
+     */
+    @Bean
+    public TaskStorage taskStorage() {
+        if (StoreTypeEnum.MYBATIS.name().equals(this.consistencyConfiguration.getStoreType())) {
+            return new MybatisTaskStorage();
+        }
+        return new JdbcTaskStorage();
+    }
+
+}
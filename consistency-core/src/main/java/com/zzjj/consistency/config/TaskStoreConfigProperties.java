@@ -0,0 +1,69 @@
+package com.zzjj.consistency.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * 任务存储相关配置
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+@Data
+@ConfigurationProperties(prefix = "consistency.store")
+public class TaskStoreConfigProperties {
+
+    /**
+     * 任务持久化的实现方式 JDBC: 基于JDBC的实现 MYBATIS: 基于MyBatis mapper的实现
+     */
+    public String storeType = "JDBC";
+    /**
+     * 是否开启任务完成状态的异步批量写入 开启后markSuccess/markFail会先进入队列，再按批次刷入数据库
+     */
+    public Boolean completionBatchEnabled = false;
+    /**
+     * 异步批量写入时，每批最多包含多少个任务状态变更
+     */
+    public Integer completionBatchSize = 200;
+    /**
+     * [单位毫秒] 异步批量写入时，任务状态变更在队列中最多停留多长时间就会被刷入数据库
+     */
+    public Long completionLingerMillis = 50L;
+    /**
+     * 是否开启两阶段扫描 开启后调度器扫描时只查询id、shard_key、execute_time、method_sign_name，
+     * 在任务交给执行器之前，再按批次加载任务参数等完整信息
+     */
+    public Boolean twoPhaseScanEnabled = false;
+    /**
+     * 两阶段扫描时，每批加载完整任务信息的任务数
+     */
+    public Integer hydrateBatchSize = 100;
+    /**
+     * 任务执行成功后的处理方式 DELETE: 删除任务记录 ARCHIVE: 将任务状态修改为执行成功，由归档清理任务按天删除整个分区，
+     * ARCHIVE模式下任务表需要按gmt_create以天为单位进行分区
+     */
+    public String completionMode = "DELETE";
+    /**
+     * ARCHIVE模式下，执行成功的任务保留多少天
+     */
+    public Integer archiveRetentionDays = 7;
+    /**
+     * ARCHIVE模式下，提前创建未来多少天的分区
+     */
+    public Integer archivePrecreateDays = 3;
+    /**
+     * [单位分钟] ARCHIVE模式下，分区维护任务每隔多长时间执行一次
+     */
+    public Integer archiveMaintainIntervalMinutes = 60;
+    /**
+     * 是否开启单次往返的任务状态流转 开启后立即执行的任务在写入时、调度的任务在扫描后按页批量标记为开始执行，
+     * 执行时不再单独启动任务，也不再开启包裹任务执行的外层事务，执行成功或失败只需要一条语句，适用于执行时间短且幂等的任务
+     */
+    public Boolean singleRoundTripEnabled = false;
+    /**
+     * 任务参数的编码格式 JSON: Jackson JSON SMILE: Jackson SMILE二进制格式(Base64保存)，也可以是业务服务自定义的TaskParameterCodec的名称
+     */
+    public String parameterCodec = "JSON";
+
+}
@@ -8,7 +8,9 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import com.zzjj.consistency.controller.data.RegisterOrCancelResponse;
-import com.zzjj.consistency.model.ConsistencyTaskInstance;
+import com.zzjj.consistency.enums.ThreadExecutorModeEnum;
+
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * 线程池配置
@@ -16,6 +18,7 @@ import com.zzjj.consistency.model.ConsistencyTaskInstance;
  * @author zengjin
  * @date 2023/11/19
  **/
+@Slf4j
 @Configuration
 public class ThreadPoolConfig {
 
@@ -40,12 +43,26 @@ public class ThreadPoolConfig {
     private ConsistencyConfiguration consistencyConfiguration;
 
     /**
-     * 一致性任务执行的并行任务执行线程池
+     * 一致性任务执行的并行任务执行线程池 VIRTUAL模式下每个任务使用一个虚拟线程执行
+     * <p>
+     * 提交任务的地方都不关心执行结果，这里直接提供执行器，不再包装为CompletionService，避免执行完成的Future堆积在完成队列中。
+     * 线程池已满时抛出RejectedExecutionException，由提交任务的线程自己执行，以此对调度进行限速。
      *
      * @return 并行任务线程池
      */
     @Bean
-    public CompletionService<ConsistencyTaskInstance> consistencyTaskPool() {
+    public Executor consistencyTaskPool() {
+        if (ThreadExecutorModeEnum.VIRTUAL.name().equals(this.consistencyConfiguration.getThreadExecutorMode())) {
+            final VirtualThreadTaskExecutor virtualThreadTaskExecutor =
+                VirtualThreadTaskExecutor.create(ThreadPoolConfig.CONSISTENCY_TASK_THREAD_POOL_PREFIX,
+                    this.consistencyConfiguration.getVirtualThreadMaxConcurrency());
+            if (virtualThreadTaskExecutor != null) {
+                log.info("[一致性任务框架] 一致性任务使用虚拟线程执行，最大并发数为 [{}]",
+                    this.consistencyConfiguration.getVirtualThreadMaxConcurrency());
+                return virtualThreadTaskExecutor;
+            }
+            log.warn("[一致性任务框架] 一致性任务退回到平台线程池执行");
+        }
         final LinkedBlockingQueue<Runnable> asyncConsistencyTaskThreadPoolQueue =
             new LinkedBlockingQueue<>(this.consistencyConfiguration.getThreadPoolQueueSize());
         final ThreadPoolExecutor asyncReleaseResourceExecutorPool =
@@ -55,7 +72,7 @@ public class ThreadPoolConfig {
                 TimeUnit.valueOf(this.consistencyConfiguration.getThreadPoolKeepAliveTimeUnit()),
                 asyncConsistencyTaskThreadPoolQueue,
                 this.createThreadFactory(ThreadPoolConfig.CONSISTENCY_TASK_THREAD_POOL_PREFIX));
-        return new ExecutorCompletionService<>(asyncReleaseResourceExecutorPool);
+        return asyncReleaseResourceExecutorPool;
     }
 
     @Bean
@@ -0,0 +1,87 @@
+package com.zzjj.consistency.config;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 基于虚拟线程的一致性任务执行器
+ * <p>
+ * 每个任务都在一个新的虚拟线程中执行，同时执行的任务数由信号量限制，而不是由线程池大小限制。许可用完时不创建线程，
+ * 直接抛出RejectedExecutionException：调度器在提交任务的线程中执行该任务，立即执行的任务撤销启动后留给调度器执行。
+ * 任务大多阻塞在HTTP、MQ调用上，等待IO的虚拟线程不会占用平台线程，因此可以同时执行成千上万个任务。
+ * 框架按Java 11编译，这里通过反射调用Thread.ofVirtual()，JVM不支持虚拟线程时{@link #create}返回null。
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+@Slf4j
+public class VirtualThreadTaskExecutor implements Executor {
+
+    /**
+     * 创建虚拟线程的线程工厂
+     */
+    private final ThreadFactory threadFactory;
+    /**
+     * 限制同时执行任务数的信号量
+     */
+    private final Semaphore permits;
+
+    private VirtualThreadTaskExecutor(final ThreadFactory threadFactory, final int maxConcurrency) {
+        this.threadFactory = threadFactory;
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    /**
+     * 创建虚拟线程执行器
+     *
+     * @param threadNamePrefix 线程名称前缀
+     * @param maxConcurrency 同时执行的最大任务数
+     * @return 虚拟线程执行器 JVM不支持虚拟线程时返回null
+     */
+    public static VirtualThreadTaskExecutor create(final String threadNamePrefix, final int maxConcurrency) {
+        try {
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, threadNamePrefix, 1L);
+            final Method factoryMethod = builderClass.getMethod("factory");
+            final ThreadFactory threadFactory = (ThreadFactory)factoryMethod.invoke(builder);
+            // 预览版本的JVM中虚拟线程默认不可用，这里提前创建一次以便退回到平台线程池
+            threadFactory.newThread(() -> {});
+            return new VirtualThreadTaskExecutor(threadFactory, maxConcurrency);
+        } catch (final ReflectiveOperationException | UnsupportedOperationException e) {
+            log.warn("[一致性任务框架] 当前JVM [{}] 不支持虚拟线程 {}", System.getProperty("java.version"), e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * 在新的虚拟线程中执行任务 许可已经用完时抛出RejectedExecutionException，与平台线程池的队列已满时保持一致，
+     * 不会无限制地创建等待许可的虚拟线程
+     *
+     * @param command 任务
+     */
+    @Override
+    public void execute(final Runnable command) {
+        if (!this.permits.tryAcquire()) {
+            throw new RejectedExecutionException("[一致性任务框架] 虚拟线程执行器的并发数已达到上限");
+        }
+        try {
+            this.threadFactory.newThread(() -> {
+                try {
+                    command.run();
+                } finally {
+                    this.permits.release();
+                }
+            }).start();
+        } catch (final RuntimeException | Error e) {
+            this.permits.release();
+            throw e;
+        }
+    }
+
+}
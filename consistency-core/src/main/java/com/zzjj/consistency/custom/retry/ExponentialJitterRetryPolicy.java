@@ -0,0 +1,47 @@
+package com.zzjj.consistency.custom.retry;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.zzjj.consistency.model.ConsistencyTaskInstance;
+import com.zzjj.consistency.utils.TimeUtils;
+
+/**
+ * 指数退避加随机抖动的重试策略
+ * <p>
+ * 第n次执行失败后，重试间隔在 [执行间隔, min(重试间隔上限, 执行间隔 * 3^n)] 内随机取值。下游故障期间同时失败的任务，
+ * 重试时间会分散开，不会在恢复后的同一时刻集中重试。上一次的重试间隔没有保存在任务表中，这里按执行次数计算随机范围的上界。
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+public class ExponentialJitterRetryPolicy implements RetryPolicy {
+
+    /**
+     * 每次执行失败后随机范围上界的增长倍数
+     */
+    private static final long MULTIPLIER = 3L;
+
+    /**
+     * 重试间隔的上限 单位毫秒
+     */
+    private final long maxIntervalMillis;
+
+    public ExponentialJitterRetryPolicy(final long maxIntervalMillis) {
+        this.maxIntervalMillis = maxIntervalMillis;
+    }
+
+    @Override
+    public long getNextExecuteTime(final ConsistencyTaskInstance taskInstance, final Exception exception) {
+        final long baseMillis = Math.max(TimeUtils.secToMill(taskInstance.getExecuteIntervalSec()), 1L);
+        if (baseMillis >= this.maxIntervalMillis) {
+            return taskInstance.getExecuteTime() + this.maxIntervalMillis;
+        }
+        long upperMillis = baseMillis;
+        for (int i = 0; i <= taskInstance.getExecuteTimes() && upperMillis < this.maxIntervalMillis; i++) {
+            upperMillis *= ExponentialJitterRetryPolicy.MULTIPLIER;
+        }
+        upperMillis = Math.min(upperMillis, this.maxIntervalMillis);
+        return taskInstance.getExecuteTime() + ThreadLocalRandom.current().nextLong(baseMillis, upperMillis + 1);
+    }
+
+}
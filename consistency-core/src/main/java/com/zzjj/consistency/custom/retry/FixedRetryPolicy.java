@@ -0,0 +1,19 @@
+package com.zzjj.consistency.custom.retry;
+
+import com.zzjj.consistency.model.ConsistencyTaskInstance;
+import com.zzjj.consistency.utils.TimeUtils;
+
+/**
+ * 固定间隔重试策略
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+public class FixedRetryPolicy implements RetryPolicy {
+
+    @Override
+    public long getNextExecuteTime(final ConsistencyTaskInstance taskInstance, final Exception exception) {
+        return taskInstance.getExecuteTime() + TimeUtils.secToMill(taskInstance.getExecuteIntervalSec());
+    }
+
+}
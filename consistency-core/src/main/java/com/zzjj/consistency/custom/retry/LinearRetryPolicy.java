@@ -0,0 +1,21 @@
+package com.zzjj.consistency.custom.retry;
+
+import com.zzjj.consistency.model.ConsistencyTaskInstance;
+import com.zzjj.consistency.utils.TimeUtils;
+
+/**
+ * 线性重试策略 重试间隔随执行次数线性增加
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+public class LinearRetryPolicy implements RetryPolicy {
+
+    @Override
+    public long getNextExecuteTime(final ConsistencyTaskInstance taskInstance, final Exception exception) {
+        // 上次执行时间 + （下一次执行的次数 * 执行间隔）
+        return taskInstance.getExecuteTime()
+            + ((taskInstance.getExecuteTimes() + 1) * TimeUtils.secToMill(taskInstance.getExecuteIntervalSec()));
+    }
+
+}
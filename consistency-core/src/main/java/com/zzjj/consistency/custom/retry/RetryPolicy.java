@@ -0,0 +1,33 @@
+package com.zzjj.consistency.custom.retry;
+
+import com.zzjj.consistency.model.ConsistencyTaskInstance;
+
+/**
+ * 任务执行失败后的重试策略接口 自定义重试策略需要实现该接口并注入spring容器，在@ConsistencyTask注解中通过retryPolicyBeanName指定
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+public interface RetryPolicy {
+
+    /**
+     * 计算任务下一次的执行时间
+     *
+     * @param taskInstance 执行失败的任务实例 executeTimes为本次执行之前已经执行的次数，executeTime为本次执行的开始时间
+     * @param exception 任务执行失败的异常
+     * @return 下一次执行时间的时间戳
+     */
+    long getNextExecuteTime(ConsistencyTaskInstance taskInstance, Exception exception);
+
+    /**
+     * 任务执行失败后是否需要重试 可以按异常类型区分可以重试的异常和不需要重试的异常
+     *
+     * @param taskInstance 执行失败的任务实例
+     * @param exception 任务执行失败的异常
+     * @return 返回false时任务标记为重试耗尽，不再执行
+     */
+    default boolean isRetryable(final ConsistencyTaskInstance taskInstance, final Exception exception) {
+        return true;
+    }
+
+}
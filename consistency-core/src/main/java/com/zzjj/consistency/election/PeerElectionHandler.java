@@ -48,6 +48,10 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 @Component
 public class PeerElectionHandler implements ApplicationListener<WebServerInitializedEvent>, DisposableBean {
+    /**
+     * 本机回环地址 单机运行时节点列表中可以直接配置该地址
+     */
+    private static final String LOOPBACK_ADDRESS = "127.0.0.1";
     /**
      * 当前节点的ip地址
      */
@@ -226,7 +230,7 @@ public class PeerElectionHandler implements ApplicationListener<WebServerInitial
     private List<RegisterOrCancelResponse> checkIsExistLeaderAndNotifyAddOrCancel(final Integer peerOpType) {
 
         // 获取当前节点在集群中的唯一标识
-        final String currentPeerIdentify = NetUtils.getCurrentPeerAddress() + ":" + this.currentServerPort + ":"
+        final String currentPeerIdentify = this.getCurrentPeerAddress() + ":" + this.currentServerPort + ":"
             + this.consistencyTaskShardingContext.getCurrentPeerId();
 
         // 发送注册请求给除自己以外的其他节点
@@ -284,7 +288,7 @@ public class PeerElectionHandler implements ApplicationListener<WebServerInitial
         final RestTemplateUtils restTemplateUtils = new RestTemplateUtils();
         // 构造请求对象
         // 构造的其实就是你的一个http请求，封装当前你的这个节点的ip、port、id、op=online，当前节点是否为leader
-        final RegisterOrCancelRequest request = RegisterOrCancelRequest.builder().ip(NetUtils.getCurrentPeerAddress())
+        final RegisterOrCancelRequest request = RegisterOrCancelRequest.builder().ip(this.getCurrentPeerAddress())
             .port(String.valueOf(this.currentServerPort)).peerId(this.consistencyTaskShardingContext.getCurrentPeerId())
             .opType(peerOpType).leaderOffline(this.consistencyTaskShardingContext.getCurrentPeerId()
                 .equals(this.consistencyTaskShardingContext.getCurrentLeaderPeerId()))
@@ -362,7 +366,7 @@ public class PeerElectionHandler implements ApplicationListener<WebServerInitial
      */
     private void setCurrentPeerId(final List<String> peersConfigList) {
         // 当前节点的ip+端口
-        final String currentPeerAddress = NetUtils.getCurrentPeerAddress() + ":" + this.currentServerPort;
+        final String currentPeerAddress = this.getCurrentPeerAddress() + ":" + this.currentServerPort;
         for (final String peerAddress : peersConfigList) {
             if (peerAddress.contains(currentPeerAddress)) {
                 final String currentPeerId = peerAddress.replaceAll(currentPeerAddress + ":", "");
@@ -588,7 +592,7 @@ public class PeerElectionHandler implements ApplicationListener<WebServerInitial
      * @return 结果
      */
     private boolean leaderIsMySelf(final String leaderPeerId, final Map<String, String> peerInfoMap) {
-        final String currentPeerAddress = NetUtils.getCurrentPeerAddress() + ":" + this.currentServerPort;
+        final String currentPeerAddress = this.getCurrentPeerAddress() + ":" + this.currentServerPort;
         final String leaderIpAndPort = peerInfoMap.get(leaderPeerId);
         return currentPeerAddress.equals(leaderIpAndPort);
     }
@@ -678,10 +682,36 @@ public class PeerElectionHandler implements ApplicationListener<WebServerInitial
      * @return 当前节点的分片索引好列表
      */
     public List<Long> getMyTaskShardIndexes() {
-        return this.consistencyTaskShardingContext.getTaskSharingResult().get(NetUtils.getCurrentPeerAddress() + ":"
+        return this.consistencyTaskShardingContext.getTaskSharingResult().get(this.getCurrentPeerAddress() + ":"
             + this.currentServerPort + ":" + this.consistencyTaskShardingContext.getCurrentPeerId());
     }
 
+    /**
+     * 当前节点的ip 节点列表中配置了本机回环地址和当前端口时(单机运行)使用回环地址，否则使用本机网卡的ip
+     *
+     * @return 当前节点的ip
+     */
+    private String getCurrentPeerAddress() {
+        final String loopbackPeer = PeerElectionHandler.LOOPBACK_ADDRESS + ":" + this.currentServerPort + ":";
+        if (this.peersConfigList != null && this.peersConfigList.stream().anyMatch(e -> e.startsWith(loopbackPeer))) {
+            return PeerElectionHandler.LOOPBACK_ADDRESS;
+        }
+        return NetUtils.getCurrentPeerAddress();
+    }
+
+    /**
+     * 当前节点的标识 格式: ip:port:peerId
+     *
+     * @return 当前节点的标识 节点尚未启动完成时返回null
+     */
+    public String getCurrentPeerIdentify() {
+        if (StringUtils.isEmpty(this.consistencyTaskShardingContext.getCurrentPeerId())) {
+            return null;
+        }
+        return this.getCurrentPeerAddress() + ":" + this.currentServerPort + ":"
+            + this.consistencyTaskShardingContext.getCurrentPeerId();
+    }
+
     /**
      * 获取一致性任务分片上下文
      *
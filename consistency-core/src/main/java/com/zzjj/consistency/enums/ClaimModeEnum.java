@@ -0,0 +1,30 @@
+package com.zzjj.consistency.enums;
+
+/**
+ * 任务认领模式
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+public enum ClaimModeEnum {
+
+    /**
+     * 按leader下发的分片结果执行任务
+     */
+    SHARD("按分片执行"),
+    /**
+     * 各节点竞争认领任务 通过owner_peer_id和lease_until列持有任务的租约
+     */
+    LEASE("按租约认领");
+
+    private final String desc;
+
+    ClaimModeEnum(final String desc) {
+        this.desc = desc;
+    }
+
+    public String getDesc() {
+        return this.desc;
+    }
+
+}
@@ -0,0 +1,30 @@
+package com.zzjj.consistency.enums;
+
+/**
+ * 任务执行成功后的处理方式
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+public enum CompletionModeEnum {
+
+    /**
+     * 执行成功后删除任务记录
+     */
+    DELETE("删除任务"),
+    /**
+     * 执行成功后将任务状态修改为执行成功，由归档清理任务按天删除整个分区
+     */
+    ARCHIVE("归档任务");
+
+    private final String desc;
+
+    CompletionModeEnum(final String desc) {
+        this.desc = desc;
+    }
+
+    public String getDesc() {
+        return this.desc;
+    }
+
+}
@@ -9,9 +9,9 @@ package com.zzjj.consistency.enums;
 public enum ConsistencyTaskStatusEnum {
 
     /**
-     * 0:初始化 1:开始执行 2:执行失败 3:执行成功
+     * 0:初始化 1:开始执行 2:执行失败 3:执行成功 4:达到最大执行次数或者遇到不重试的异常，不再重试
      */
-    INIT(0), START(1), FAIL(2), SUCCESS(3);
+    INIT(0), START(1), FAIL(2), SUCCESS(3), EXHAUSTED(4);
 
     private final Integer code;
 
@@ -0,0 +1,38 @@
+package com.zzjj.consistency.enums;
+
+/**
+ * 任务执行失败后的重试策略
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+public enum RetryPolicyEnum {
+
+    /**
+     * 上次执行时间 + (执行次数 * 执行间隔)
+     */
+    LINEAR("线性增加重试间隔"),
+    /**
+     * 上次执行时间 + 执行间隔
+     */
+    FIXED("固定重试间隔"),
+    /**
+     * 重试间隔在 [执行间隔, min(重试间隔上限, 执行间隔 * 3^执行次数)] 内随机 同时失败的任务会分散到不同的时间重试
+     */
+    EXPONENTIAL("指数退避加随机抖动"),
+    /**
+     * 使用retryPolicyBeanName指定的RetryPolicy实现类
+     */
+    CUSTOM("自定义重试策略");
+
+    private final String desc;
+
+    RetryPolicyEnum(final String desc) {
+        this.desc = desc;
+    }
+
+    public String getDesc() {
+        return this.desc;
+    }
+
+}
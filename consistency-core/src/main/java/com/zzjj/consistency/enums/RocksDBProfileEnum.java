@@ -0,0 +1,118 @@
+package com.zzjj.consistency.enums;
+
+/**
+ * RocksDB的预设配置 单独配置的参数会覆盖预设配置中的值
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+public enum RocksDBProfileEnum {
+
+    /**
+     * 低延迟 memtable和块缓存较大，按较短的间隔批量落盘
+     */
+    LOW_LATENCY("低延迟", 64, 3, 256, 256, 10, "LEVEL", 4, WalSyncModeEnum.GROUP_COMMIT, 100L),
+    /**
+     * 大量积压 数据库故障期间承接全部写入，memtable较大，使用写放大较小的UNIVERSAL合并方式
+     */
+    BULK_BUFFER("大量积压", 256, 4, 1024, 64, 10, "UNIVERSAL", 8, WalSyncModeEnum.GROUP_COMMIT, 1000L),
+    /**
+     * 低内存 memtable和块缓存都较小
+     */
+    LOW_MEMORY("低内存", 8, 2, 32, 8, 10, "LEVEL", 2, WalSyncModeEnum.GROUP_COMMIT, 1000L);
+
+    private final String desc;
+    /**
+     * [单位MB] 每个memtable的大小
+     */
+    private final int writeBufferSizeMb;
+    /**
+     * 每个列族最多保留的memtable个数
+     */
+    private final int maxWriteBufferNumber;
+    /**
+     * [单位MB] 所有列族的memtable占用的内存上限
+     */
+    private final int writeBufferManagerMb;
+    /**
+     * [单位MB] 所有列族共享的块缓存大小
+     */
+    private final int blockCacheMb;
+    /**
+     * 索引列族布隆过滤器每个key占用的位数
+     */
+    private final int bloomFilterBitsPerKey;
+    /**
+     * 合并方式 LEVEL或UNIVERSAL
+     */
+    private final String compactionStyle;
+    /**
+     * 后台flush和合并的最大线程数
+     */
+    private final int maxBackgroundJobs;
+    /**
+     * 预写日志的同步方式
+     */
+    private final WalSyncModeEnum walSyncMode;
+    /**
+     * [单位毫秒] GROUP_COMMIT方式下，预写日志落盘的间隔
+     */
+    private final long walSyncIntervalMillis;
+
+    RocksDBProfileEnum(final String desc, final int writeBufferSizeMb, final int maxWriteBufferNumber,
+        final int writeBufferManagerMb, final int blockCacheMb, final int bloomFilterBitsPerKey,
+        final String compactionStyle, final int maxBackgroundJobs, final WalSyncModeEnum walSyncMode,
+        final long walSyncIntervalMillis) {
+        this.desc = desc;
+        this.writeBufferSizeMb = writeBufferSizeMb;
+        this.maxWriteBufferNumber = maxWriteBufferNumber;
+        this.writeBufferManagerMb = writeBufferManagerMb;
+        this.blockCacheMb = blockCacheMb;
+        this.bloomFilterBitsPerKey = bloomFilterBitsPerKey;
+        this.compactionStyle = compactionStyle;
+        this.maxBackgroundJobs = maxBackgroundJobs;
+        this.walSyncMode = walSyncMode;
+        this.walSyncIntervalMillis = walSyncIntervalMillis;
+    }
+
+    public String getDesc() {
+        return this.desc;
+    }
+
+    public int getWriteBufferSizeMb() {
+        return this.writeBufferSizeMb;
+    }
+
+    public int getMaxWriteBufferNumber() {
+        return this.maxWriteBufferNumber;
+    }
+
+    public int getWriteBufferManagerMb() {
+        return this.writeBufferManagerMb;
+    }
+
+    public int getBlockCacheMb() {
+        return this.blockCacheMb;
+    }
+
+    public int getBloomFilterBitsPerKey() {
+        return this.bloomFilterBitsPerKey;
+    }
+
+    public String getCompactionStyle() {
+        return this.compactionStyle;
+    }
+
+    public int getMaxBackgroundJobs() {
+        return this.maxBackgroundJobs;
+    }
+
+    public WalSyncModeEnum getWalSyncMode() {
+        return this.walSyncMode;
+    }
+
+    public long getWalSyncIntervalMillis() {
+        return this.walSyncIntervalMillis;
+    }
+
+}
@@ -0,0 +1,30 @@
+package com.zzjj.consistency.enums;
+
+/**
+ * 任务持久化的实现方式
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+public enum StoreTypeEnum {
+
+    /**
+     * 基于JDBC的实现
+     */
+    JDBC("JDBC实现"),
+    /**
+     * 基于MyBatis mapper的实现
+     */
+    MYBATIS("MyBatis实现");
+
+    private final String desc;
+
+    StoreTypeEnum(final String desc) {
+        this.desc = desc;
+    }
+
+    public String getDesc() {
+        return this.desc;
+    }
+
+}
@@ -0,0 +1,30 @@
+package com.zzjj.consistency.enums;
+
+/**
+ * 一致性任务执行线程的创建方式
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+public enum ThreadExecutorModeEnum {
+
+    /**
+     * 使用固定大小的平台线程池执行任务
+     */
+    PLATFORM("平台线程池"),
+    /**
+     * 每个任务使用一个虚拟线程执行，并发数由信号量控制 JVM不支持虚拟线程时退回到平台线程池
+     */
+    VIRTUAL("虚拟线程");
+
+    private final String desc;
+
+    ThreadExecutorModeEnum(final String desc) {
+        this.desc = desc;
+    }
+
+    public String getDesc() {
+        return this.desc;
+    }
+
+}
@@ -0,0 +1,30 @@
+package com.zzjj.consistency.enums;
+
+/**
+ * RocksDB预写日志的同步方式
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+public enum WalSyncModeEnum {
+
+    /**
+     * 每次写入都等待预写日志落盘 同时写入的多个线程由RocksDB合并为一次落盘
+     */
+    SYNC("每次写入同步落盘"),
+    /**
+     * 写入不等待预写日志落盘 后台线程按固定间隔把预写日志落盘，机器掉电时最多丢失一个间隔内的写入
+     */
+    GROUP_COMMIT("按间隔批量落盘");
+
+    private final String desc;
+
+    WalSyncModeEnum(final String desc) {
+        this.desc = desc;
+    }
+
+    public String getDesc() {
+        return this.desc;
+    }
+
+}
@@ -0,0 +1,25 @@
+package com.zzjj.consistency.invoker;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 一致性任务的批量方法调用器 同一任务方法的多个任务合并为一批，调用一次批量方法
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+@Getter
+@AllArgsConstructor
+public class ConsistencyTaskBatchInvoker {
+
+    /**
+     * 每批的最大任务数
+     */
+    private final int batchSize;
+    /**
+     * 批量方法的调用器
+     */
+    private final ConsistencyTaskInvoker invoker;
+
+}
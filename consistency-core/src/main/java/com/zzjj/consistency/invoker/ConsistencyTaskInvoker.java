@@ -0,0 +1,71 @@
+package com.zzjj.consistency.invoker;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+
+import org.springframework.util.ReflectionUtils;
+
+import com.zzjj.consistency.exceptions.ConsistencyException;
+
+import lombok.Getter;
+
+/**
+ * 一致性任务方法或降级方法的调用器 启动时预先解析好目标bean和方法句柄，执行任务时直接调用
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+public class ConsistencyTaskInvoker {
+
+    /**
+     * 统一的方法句柄类型 (bean, 参数数组) -> 返回值
+     */
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+    /**
+     * 目标bean 如果bean被代理了，这里是代理对象，调用时会经过切面
+     */
+    private final Object bean;
+    /**
+     * 任务方法 用于按方法的泛型参数类型解码任务参数
+     */
+    @Getter
+    private final Method method;
+    /**
+     * 目标方法的句柄
+     */
+    private final MethodHandle methodHandle;
+
+    public ConsistencyTaskInvoker(final Object bean, final Method method) {
+        this.bean = bean;
+        this.method = method;
+        try {
+            ReflectionUtils.makeAccessible(method);
+            this.methodHandle = MethodHandles.lookup().unreflect(method)
+                .asSpreader(Object[].class, method.getParameterCount()).asType(ConsistencyTaskInvoker.INVOKER_TYPE);
+        } catch (final IllegalAccessException e) {
+            throw new ConsistencyException(e);
+        }
+    }
+
+    /**
+     * 调用目标方法 目标方法抛出的异常会原样抛出
+     *
+     * @param args 方法入参
+     * @return 方法返回值
+     * @throws Exception 目标方法抛出的异常
+     */
+    public Object invoke(final Object[] args) throws Exception {
+        try {
+            return (Object)this.methodHandle.invokeExact(this.bean, args);
+        } catch (final Exception | Error e) {
+            throw e;
+        } catch (final Throwable t) {
+            throw new UndeclaredThrowableException(t);
+        }
+    }
+
+}
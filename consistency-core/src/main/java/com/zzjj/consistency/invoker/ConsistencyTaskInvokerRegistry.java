@@ -0,0 +1,243 @@
+package com.zzjj.consistency.invoker;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import com.zzjj.consistency.annotation.ConsistencyTask;
+import com.zzjj.consistency.exceptions.ConsistencyException;
+import com.zzjj.consistency.model.ConsistencyTaskInstance;
+import com.zzjj.consistency.utils.ReflectTools;
+import com.zzjj.consistency.utils.SpringBeanUtil;
+
+import cn.hutool.core.util.ReflectUtil;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 一致性任务方法调用器的注册中心
+ * <p>
+ * 所有单例bean初始化完成后，扫描标注了@ConsistencyTask的方法，为任务方法和降级方法预先解析好bean和方法句柄，
+ * 执行任务时只需要一次map查找。降级类中没有对应的降级方法、或降级类不是spring bean时，应用启动直接失败。
+ * 启动时没有扫描到的方法(例如懒加载的bean)会在第一次执行时解析并缓存。配置了批量执行的任务方法，同时注册其批量方法的调用器，
+ * 批量方法不可用时应用启动直接失败；懒加载bean中的任务方法不会批量执行。
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+@Slf4j
+@Component
+public class ConsistencyTaskInvokerRegistry implements SmartInitializingSingleton {
+
+    /**
+     * 方法调用器 key: 类路径#方法名(参数1的类型,参数2的类型,...参数N的类型)
+     */
+    private final Map<String, ConsistencyTaskInvoker> invokers = new ConcurrentHashMap<>();
+    /**
+     * 批量方法调用器 key: 任务方法的 类路径#方法名(参数1的类型,参数2的类型,...参数N的类型)
+     */
+    private final Map<String, ConsistencyTaskBatchInvoker> batchInvokers = new ConcurrentHashMap<>();
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        final ConfigurableListableBeanFactory beanFactory = SpringBeanUtil.getConfigurableBeanFactory();
+        for (final String beanName : beanFactory.getBeanDefinitionNames()) {
+            // 只处理已经创建好的单例bean，不触发懒加载bean的初始化
+            if (!beanFactory.containsSingleton(beanName)) {
+                continue;
+            }
+            final Object bean = beanFactory.getSingleton(beanName);
+            if (bean == null) {
+                continue;
+            }
+            final Class<?> targetClass = ClassUtils.getUserClass(AopUtils.getTargetClass(bean));
+            final Map<Method, ConsistencyTask> taskMethods = MethodIntrospector.selectMethods(targetClass,
+                (MethodIntrospector.MetadataLookup<ConsistencyTask>)method -> AnnotatedElementUtils
+                    .findMergedAnnotation(method, ConsistencyTask.class));
+            taskMethods.forEach((method, consistencyTask) -> this.register(bean, targetClass, method, consistencyTask));
+        }
+        log.info("[一致性任务框架] 一致性任务方法调用器注册完成，共 [{}] 个", this.invokers.size());
+    }
+
+    /**
+     * 注册任务方法及其降级方法的调用器
+     *
+     * @param bean 任务方法所在的bean
+     * @param targetClass 任务方法所在的类
+     * @param method 任务方法
+     * @param consistencyTask 任务注解
+     */
+    private void register(final Object bean, final Class<?> targetClass, final Method method,
+        final ConsistencyTask consistencyTask) {
+        final Class<?>[] parameterClasses = method.getParameterTypes();
+        final String parameterTypes =
+            Arrays.stream(parameterClasses).map(Class::getName).collect(Collectors.joining(","));
+        this.invokers.putIfAbsent(this.getKey(targetClass.getName(), method.getName(), parameterTypes),
+            new ConsistencyTaskInvoker(bean, AopUtils.selectInvocableMethod(method, bean.getClass())));
+        this.registerBatchInvoker(bean, targetClass, method, consistencyTask, parameterTypes);
+
+        final Class<?> fallbackClass = consistencyTask.fallbackClass();
+        if (void.class.equals(fallbackClass)) {
+            return;
+        }
+        final String fallbackKey = this.getKey(fallbackClass.getName(), method.getName(), parameterTypes);
+        if (this.invokers.containsKey(fallbackKey)) {
+            return;
+        }
+        try {
+            this.invokers.put(fallbackKey,
+                this.createInvoker(fallbackClass, method.getName(), parameterClasses, true));
+        } catch (final Exception e) {
+            throw new ConsistencyException(String.format("[一致性任务框架] 任务方法 [%s] 的降级类 [%s] 不可用: %s",
+                this.getKey(targetClass.getName(), method.getName(), parameterTypes), fallbackClass.getName(),
+                e.getMessage()));
+        }
+    }
+
+    /**
+     * 注册任务方法的批量方法调用器 批量方法的入参必须是任务方法入参的List，返回值必须是void或者List
+     *
+     * @param bean 任务方法所在的bean
+     * @param targetClass 任务方法所在的类
+     * @param method 任务方法
+     * @param consistencyTask 任务注解
+     * @param parameterTypes 任务方法的入参类型
+     */
+    private void registerBatchInvoker(final Object bean, final Class<?> targetClass, final Method method,
+        final ConsistencyTask consistencyTask, final String parameterTypes) {
+        if (consistencyTask.batchSize() <= 1 || StringUtils.isEmpty(consistencyTask.batchMethod())) {
+            return;
+        }
+        final String key = this.getKey(targetClass.getName(), method.getName(), parameterTypes);
+        final Method batchMethod =
+            ClassUtils.getMethodIfAvailable(targetClass, consistencyTask.batchMethod(), List.class);
+        if (method.getParameterCount() != 1 || batchMethod == null) {
+            throw new ConsistencyException(String.format(
+                "[一致性任务框架] 任务方法 [%s] 的批量方法不可用: 任务方法必须只有一个入参，且同一个类中存在入参为List的方法 [%s]", key,
+                consistencyTask.batchMethod()));
+        }
+        final Class<?> elementClass = ResolvableType.forMethodParameter(batchMethod, 0).getGeneric(0).resolve();
+        final boolean returnTypeValid =
+            void.class.equals(batchMethod.getReturnType()) || List.class.isAssignableFrom(batchMethod.getReturnType());
+        if (elementClass == null || !elementClass.isAssignableFrom(method.getParameterTypes()[0]) || !returnTypeValid) {
+            throw new ConsistencyException(String.format(
+                "[一致性任务框架] 任务方法 [%s] 的批量方法 [%s] 不可用: 入参必须是List<%s>，返回值必须是void或者List<Boolean>", key,
+                consistencyTask.batchMethod(), method.getParameterTypes()[0].getName()));
+        }
+        this.batchInvokers.putIfAbsent(key, new ConsistencyTaskBatchInvoker(consistencyTask.batchSize(),
+            new ConsistencyTaskInvoker(bean, AopUtils.selectInvocableMethod(batchMethod, bean.getClass()))));
+    }
+
+    /**
+     * 获取任务方法的批量方法调用器
+     *
+     * @param taskInstance 任务实例信息
+     * @return 批量方法调用器 任务方法没有配置批量执行时返回null
+     */
+    public ConsistencyTaskBatchInvoker getBatchInvoker(final ConsistencyTaskInstance taskInstance) {
+        if (this.batchInvokers.isEmpty()) {
+            return null;
+        }
+        final String methodSignName = taskInstance.getMethodSignName();
+        final String parameterTypes =
+            StringUtils.isEmpty(taskInstance.getParameterTypes()) ? "" : taskInstance.getParameterTypes();
+        return this.batchInvokers.get(this.getKey(methodSignName.substring(0, methodSignName.indexOf('#')),
+            taskInstance.getMethodName(), parameterTypes));
+    }
+
+    /**
+     * 获取任务方法的调用器
+     *
+     * @param taskInstance 任务实例信息
+     * @return 任务方法的调用器
+     */
+    public ConsistencyTaskInvoker getInvoker(final ConsistencyTaskInstance taskInstance) {
+        final String methodSignName = taskInstance.getMethodSignName();
+        final String className = methodSignName.substring(0, methodSignName.indexOf('#'));
+        return this.getOrCreateInvoker(className, taskInstance, false);
+    }
+
+    /**
+     * 获取任务方法上的@ConsistencyTask注解
+     *
+     * @param taskInstance 任务实例信息
+     * @return 任务注解 任务方法不可用时返回null
+     */
+    public ConsistencyTask findConsistencyTask(final ConsistencyTaskInstance taskInstance) {
+        try {
+            return AnnotatedElementUtils.findMergedAnnotation(this.getInvoker(taskInstance).getMethod(),
+                ConsistencyTask.class);
+        } catch (final Exception e) {
+            log.warn("[一致性任务框架] 获取任务方法 [{}] 的注解时，发生异常 {}", taskInstance.getMethodSignName(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 获取降级方法的调用器
+     *
+     * @param taskInstance 任务实例信息
+     * @return 降级方法的调用器
+     */
+    public ConsistencyTaskInvoker getFallbackInvoker(final ConsistencyTaskInstance taskInstance) {
+        return this.getOrCreateInvoker(taskInstance.getFallbackClassName(), taskInstance, true);
+    }
+
+    private ConsistencyTaskInvoker getOrCreateInvoker(final String className,
+        final ConsistencyTaskInstance taskInstance, final boolean fallback) {
+        final String parameterTypes =
+            StringUtils.isEmpty(taskInstance.getParameterTypes()) ? "" : taskInstance.getParameterTypes();
+        final String key = this.getKey(className, taskInstance.getMethodName(), parameterTypes);
+        final ConsistencyTaskInvoker invoker = this.invokers.get(key);
+        if (invoker != null) {
+            return invoker;
+        }
+        final Class<?> clazz = ReflectTools.checkClassByName(className);
+        if (clazz == null) {
+            throw new ConsistencyException("[一致性任务框架] 未找到任务方法所在的类: " + key);
+        }
+        final Class<?>[] parameterClasses = ReflectTools
+            .buildTypeClassArray(parameterTypes.isEmpty() ? new String[] {} : parameterTypes.split(","));
+        return this.invokers.computeIfAbsent(key,
+            k -> this.createInvoker(clazz, taskInstance.getMethodName(), parameterClasses, fallback));
+    }
+
+    /**
+     * 通过反射解析方法和bean，创建调用器
+     *
+     * @param clazz 方法所在的类
+     * @param methodName 方法名
+     * @param parameterClasses 方法入参的类数组
+     * @param fallback 是否为降级方法 降级方法的入参允许是任务方法入参的父类型
+     * @return 方法调用器
+     */
+    private ConsistencyTaskInvoker createInvoker(final Class<?> clazz, final String methodName,
+        final Class<?>[] parameterClasses, final boolean fallback) {
+        final Method method = fallback ? ReflectUtil.getMethod(clazz, methodName, parameterClasses)
+            : ClassUtils.getMethodIfAvailable(clazz, methodName, parameterClasses);
+        if (method == null) {
+            throw new ConsistencyException(
+                "[一致性任务框架] 未找到方法: " + this.getKey(clazz.getName(), methodName, Arrays.stream(parameterClasses)
+                    .map(Class::getName).collect(Collectors.joining(","))));
+        }
+        final Object bean = SpringBeanUtil.getBean(clazz);
+        return new ConsistencyTaskInvoker(bean, AopUtils.selectInvocableMethod(method, bean.getClass()));
+    }
+
+    private String getKey(final String className, final String methodName, final String parameterTypes) {
+        return className + "#" + methodName + "(" + parameterTypes + ")";
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.zzjj.consistency.mapper;
+
+import java.util.List;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.springframework.stereotype.Repository;
+
+/**
+ * 一致性任务表的分区维护接口 ARCHIVE模式下使用，任务表需要按gmt_create以天为单位进行RANGE分区
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+@Mapper
+@Repository
+public interface TaskPartitionMapper {
+
+    /**
+     * 获取任务表的所有分区名称
+     *
+     * @return 按分区顺序排列的分区名称
+     */
+    @Select("SELECT PARTITION_NAME FROM information_schema.PARTITIONS WHERE TABLE_SCHEMA = DATABASE() "
+        + "AND TABLE_NAME = 'consistency_task' AND PARTITION_NAME IS NOT NULL ORDER BY PARTITION_ORDINAL_POSITION")
+    List<String> listPartitionNames();
+
+    /**
+     * 统计分区中未完成的任务数
+     *
+     * @param partitionName 分区名称
+     * @return 未完成的任务数
+     */
+    @Select("SELECT COUNT(*) FROM consistency_task PARTITION (${partitionName}) WHERE task_status IN (0,1,2)")
+    long countUnFinishTaskInPartition(@Param("partitionName") String partitionName);
+
+    /**
+     * 删除分区
+     *
+     * @param partitionName 分区名称
+     */
+    @Update("ALTER TABLE consistency_task DROP PARTITION ${partitionName}")
+    void dropPartition(@Param("partitionName") String partitionName);
+
+    /**
+     * 从MAXVALUE分区中拆分出新的一天的分区
+     *
+     * @param partitionName 新分区的名称
+     * @param lessThanDay 新分区的上界 格式: yyyy-MM-dd
+     */
+    @Update("ALTER TABLE consistency_task REORGANIZE PARTITION pmax INTO ("
+        + "PARTITION ${partitionName} VALUES LESS THAN (TO_DAYS('${lessThanDay}')), "
+        + "PARTITION pmax VALUES LESS THAN MAXVALUE)")
+    void addPartition(@Param("partitionName") String partitionName, @Param("lessThanDay") String lessThanDay);
+
+}
@@ -6,6 +6,7 @@ import org.apache.ibatis.annotations.*;
 import org.springframework.stereotype.Repository;
 
 import com.zzjj.consistency.model.ConsistencyTaskInstance;
+import com.zzjj.consistency.model.TaskScanQuery;
 
 /**
  * 一致性任务数据存储接口
@@ -23,18 +24,76 @@ public interface TaskStoreMapper {
      * @param consistencyTaskInstance 要存储的最终一致性任务的实例信息
      * @return 存储结果
      */
-    @Insert("INSERT INTO consistency_task(" + "task_id," + "task_status," + "execute_times," + "execute_time,"
-        + "parameter_types," + "method_name," + "method_sign_name," + "execute_interval_sec," + "delay_time,"
-        + "task_parameter," + "execute_way," + "thread_way," + "error_msg," + "alert_expression,"
-        + "alert_action_bean_name," + "fallback_class_name," + "fallback_error_msg," + "shard_key," + "gmt_create,"
-        + "gmt_modified" + ") VALUES(" + "#{taskId}," + "#{taskStatus}," + "#{executeTimes}," + "#{executeTime},"
-        + "#{parameterTypes}," + "#{methodName}," + "#{methodSignName}," + "#{executeIntervalSec}," + "#{delayTime},"
-        + "#{taskParameter}," + "#{executeWay}," + "#{threadWay}," + "#{errorMsg}," + "#{alertExpression},"
-        + "#{alertActionBeanName}," + "#{fallbackClassName}," + "#{fallbackErrorMsg}," + "#{shardKey},"
-        + "#{gmtCreate}," + "#{gmtModified}" + ")")
+    @Insert({"<script>", "INSERT INTO consistency_task(" + "task_id," + "task_status," + "execute_times,"
+        + "execute_time," + "parameter_types," + "method_name," + "method_sign_name," + "execute_interval_sec,"
+        + "delay_time," + "task_parameter," + "execute_way," + "thread_way," + "error_msg," + "alert_expression,"
+        + "alert_action_bean_name," + "fallback_class_name," + "fallback_error_msg," + "shard_key,",
+        "<if test='shardIndex != null'>shard_index,</if>",
+        "<if test='ownerPeerId != null'>owner_peer_id,lease_until,</if>", "gmt_create," + "gmt_modified" + ") VALUES("
+            + "#{taskId}," + "#{taskStatus}," + "#{executeTimes}," + "#{executeTime}," + "#{parameterTypes},"
+            + "#{methodName}," + "#{methodSignName}," + "#{executeIntervalSec}," + "#{delayTime}," + "#{taskParameter},"
+            + "#{executeWay}," + "#{threadWay}," + "#{errorMsg}," + "#{alertExpression}," + "#{alertActionBeanName},"
+            + "#{fallbackClassName}," + "#{fallbackErrorMsg}," + "#{shardKey},",
+        "<if test='shardIndex != null'>#{shardIndex},</if>",
+        "<if test='ownerPeerId != null'>#{ownerPeerId},#{leaseUntil},</if>", "#{gmtCreate}," + "#{gmtModified}" + ")", "</script>"})
     @Options(keyColumn = "id", keyProperty = "id", useGeneratedKeys = true)
     Long initTask(ConsistencyTaskInstance consistencyTaskInstance);
 
+    /**
+     * 批量保存最终一致性任务实例 使用一条多行INSERT语句写入，生成的主键会回填到各个任务实例中
+     *
+     * @param taskInstances 要存储的最终一致性任务的实例信息集合
+     * @param withShardIndex 是否写入shard_index列
+     * @param withLease 是否写入owner_peer_id和lease_until列
+     * @return 存储结果
+     */
+    @Insert({"<script>", "INSERT INTO consistency_task(" + "task_id," + "task_status," + "execute_times,"
+        + "execute_time," + "parameter_types," + "method_name," + "method_sign_name," + "execute_interval_sec,"
+        + "delay_time," + "task_parameter," + "execute_way," + "thread_way," + "error_msg," + "alert_expression,"
+        + "alert_action_bean_name," + "fallback_class_name," + "fallback_error_msg," + "shard_key,",
+        "<if test='withShardIndex'>shard_index,</if>", "<if test='withLease'>owner_peer_id,lease_until,</if>",
+        "gmt_create," + "gmt_modified" + ") VALUES ",
+        "<foreach collection='list' item='item' separator=','>",
+        "(" + "#{item.taskId}," + "#{item.taskStatus}," + "#{item.executeTimes}," + "#{item.executeTime},"
+            + "#{item.parameterTypes}," + "#{item.methodName}," + "#{item.methodSignName},"
+            + "#{item.executeIntervalSec}," + "#{item.delayTime}," + "#{item.taskParameter}," + "#{item.executeWay},"
+            + "#{item.threadWay}," + "#{item.errorMsg}," + "#{item.alertExpression}," + "#{item.alertActionBeanName},"
+            + "#{item.fallbackClassName}," + "#{item.fallbackErrorMsg}," + "#{item.shardKey},",
+        "<if test='withShardIndex'>#{item.shardIndex},</if>",
+        "<if test='withLease'>#{item.ownerPeerId},#{item.leaseUntil},</if>",
+        "#{item.gmtCreate}," + "#{item.gmtModified}" + ")",
+        "</foreach>", "</script>"})
+    @Options(keyColumn = "id", keyProperty = "list.id", useGeneratedKeys = true)
+    int batchInitTask(@Param("list") List<ConsistencyTaskInstance> taskInstances,
+        @Param("withShardIndex") boolean withShardIndex, @Param("withLease") boolean withLease);
+
+    /**
+     * 按任务实例中已经指定的id批量写回任务 使用一条多行INSERT语句写入
+     *
+     * @param taskInstances 已经指定了id的任务实例集合
+     * @param withShardIndex 是否写入shard_index列
+     * @param withLease 是否写入owner_peer_id和lease_until列
+     * @return 存储结果
+     */
+    @Insert({"<script>", "INSERT INTO consistency_task(" + "id," + "task_id," + "task_status," + "execute_times,"
+        + "execute_time," + "parameter_types," + "method_name," + "method_sign_name," + "execute_interval_sec,"
+        + "delay_time," + "task_parameter," + "execute_way," + "thread_way," + "error_msg," + "alert_expression,"
+        + "alert_action_bean_name," + "fallback_class_name," + "fallback_error_msg," + "shard_key,",
+        "<if test='withShardIndex'>shard_index,</if>", "<if test='withLease'>owner_peer_id,lease_until,</if>",
+        "gmt_create," + "gmt_modified" + ") VALUES ",
+        "<foreach collection='list' item='item' separator=','>",
+        "(" + "#{item.id}," + "#{item.taskId}," + "#{item.taskStatus}," + "#{item.executeTimes},"
+            + "#{item.executeTime}," + "#{item.parameterTypes}," + "#{item.methodName}," + "#{item.methodSignName},"
+            + "#{item.executeIntervalSec}," + "#{item.delayTime}," + "#{item.taskParameter}," + "#{item.executeWay},"
+            + "#{item.threadWay}," + "#{item.errorMsg}," + "#{item.alertExpression}," + "#{item.alertActionBeanName},"
+            + "#{item.fallbackClassName}," + "#{item.fallbackErrorMsg}," + "#{item.shardKey},",
+        "<if test='withShardIndex'>#{item.shardIndex},</if>",
+        "<if test='withLease'>#{item.ownerPeerId},#{item.leaseUntil},</if>",
+        "#{item.gmtCreate}," + "#{item.gmtModified}" + ")",
+        "</foreach>", "</script>"})
+    int batchRestoreTask(@Param("list") List<ConsistencyTaskInstance> taskInstances,
+        @Param("withShardIndex") boolean withShardIndex, @Param("withLease") boolean withLease);
+
     /**
      * 根据id获取任务实例信息
      *
@@ -47,7 +106,8 @@ public interface TaskStoreMapper {
         + "execute_interval_sec,delay_time,task_parameter,execute_way," + "thread_way, error_msg, alert_expression, "
         + "alert_action_bean_name, fallback_class_name, fallback_error_msg,shard_key," + "gmt_create, gmt_modified "
         + "FROM consistency_task " + "where " + "id = #{id} AND shard_key = #{shardKey}")
-    @Results({@Result(column = "id", property = "id", id = true), @Result(column = "task_id", property = "taskId"),
+    @Results(id = "consistencyTaskInstanceMap",
+        value = {@Result(column = "id", property = "id", id = true), @Result(column = "task_id", property = "taskId"),
         @Result(column = "task_status", property = "taskStatus"),
         @Result(column = "execute_times", property = "executeTimes"),
         @Result(column = "execute_time", property = "executeTime"),
@@ -64,7 +124,9 @@ public interface TaskStoreMapper {
         @Result(column = "alert_action_bean_name", property = "alertActionBeanName"),
         @Result(column = "fallback_class_name", property = "fallbackClassName"),
         @Result(column = "fallback_error_msg", property = "fallbackErrorMsg"),
-        @Result(column = "shard_key", property = "shardKey"), @Result(column = "gmt_create", property = "gmtCreate"),
+        @Result(column = "shard_key", property = "shardKey"), @Result(column = "shard_index", property = "shardIndex"),
+        @Result(column = "owner_peer_id", property = "ownerPeerId"),
+        @Result(column = "lease_until", property = "leaseUntil"), @Result(column = "gmt_create", property = "gmtCreate"),
         @Result(column = "gmt_modified", property = "gmtModified")})
     ConsistencyTaskInstance getTaskByIdAndShardKey(@Param("id") Long id, @Param("shardKey") Long shardKey);
 
@@ -80,7 +142,7 @@ public interface TaskStoreMapper {
         + "id,task_id,task_status,execute_times,execute_time,parameter_types,method_name,method_sign_name, "
         + "execute_interval_sec,delay_time,task_parameter,execute_way," + "thread_way, error_msg, alert_expression, "
         + "alert_action_bean_name, fallback_class_name, fallback_error_msg,shard_key," + "gmt_create, gmt_modified "
-        + "FROM consistency_task " + "WHERE " + "task_status <= 2 "
+        + "FROM consistency_task " + "WHERE " + "task_status IN (0,1,2) "
         + "AND execute_time>=#{startTime} AND execute_time<=#{endTime} " + "order by execute_time desc "
         + "LIMIT #{limitTaskCount}")
     @Results({@Result(column = "id", property = "id", id = true), @Result(column = "task_id", property = "taskId"),
@@ -104,6 +166,108 @@ public interface TaskStoreMapper {
     List<ConsistencyTaskInstance> listByUnFinishTask(@Param("startTime") Long startTime, @Param("endTime") Long endTime,
         @Param("limitTaskCount") Long limitTaskCount);
 
+    /**
+     * 按 (execute_time, id) 键集分页获取未完成的任务 每一页从上一页最后一条记录之后开始，不会因为LIMIT而看不到后面的任务
+     *
+     * @param scanQuery 分页扫描条件
+     * @return 当前页未完成的任务
+     */
+    @Select({"<script>", "SELECT "
+        + "id,task_id,task_status,execute_times,execute_time,parameter_types,method_name,method_sign_name, "
+        + "execute_interval_sec,delay_time,task_parameter,execute_way," + "thread_way, error_msg, alert_expression, "
+        + "alert_action_bean_name, fallback_class_name, fallback_error_msg,shard_key," + "gmt_create, gmt_modified ",
+        "<if test='shardIndexes != null'>, shard_index</if>", "FROM consistency_task WHERE task_status IN (0,1,2) ",
+        "<if test='shardIndexes != null'>", "AND shard_index IN ",
+        "<foreach collection='shardIndexes' item='shardIndex' open='(' separator=',' close=')'>#{shardIndex}</foreach>",
+        "</if>", "AND execute_time &gt;= #{startTime} AND execute_time &lt;= #{endTime} ",
+        "<if test='lastExecuteTime != null'>",
+        "AND (execute_time &gt; #{lastExecuteTime} OR (execute_time = #{lastExecuteTime} AND id &gt; #{lastId})) ",
+        "</if>", "order by execute_time, id " + "LIMIT #{pageSize}", "</script>"})
+    @Options(fetchSize = 500)
+    @ResultMap("consistencyTaskInstanceMap")
+    List<ConsistencyTaskInstance> listUnFinishTaskPage(TaskScanQuery scanQuery);
+
+    /**
+     * 按 (execute_time, id) 键集分页获取未完成任务的索引信息 只查询调度过滤需要的列，任务参数等大字段在执行前再加载
+     *
+     * @param scanQuery 分页扫描条件
+     * @return 当前页未完成任务的索引信息
+     */
+    @Select({"<script>", "SELECT " + "id,execute_time,method_sign_name,shard_key ",
+        "<if test='shardIndexes != null'>, shard_index</if>", "FROM consistency_task WHERE task_status IN (0,1,2) ",
+        "<if test='shardIndexes != null'>", "AND shard_index IN ",
+        "<foreach collection='shardIndexes' item='shardIndex' open='(' separator=',' close=')'>#{shardIndex}</foreach>",
+        "</if>", "AND execute_time &gt;= #{startTime} AND execute_time &lt;= #{endTime} ",
+        "<if test='lastExecuteTime != null'>",
+        "AND (execute_time &gt; #{lastExecuteTime} OR (execute_time = #{lastExecuteTime} AND id &gt; #{lastId})) ",
+        "</if>", "order by execute_time, id " + "LIMIT #{pageSize}", "</script>"})
+    @Options(fetchSize = 500)
+    @ResultMap("consistencyTaskInstanceMap")
+    List<ConsistencyTaskInstance> listUnFinishTaskKeyPage(TaskScanQuery scanQuery);
+
+    /**
+     * 根据id和分片键批量获取未完成任务的完整信息
+     *
+     * @param taskKeys 只包含id和shardKey的任务实例集合
+     * @return 任务实例信息 已经完成的任务不会被返回
+     */
+    @Select({"<script>", "SELECT "
+        + "id,task_id,task_status,execute_times,execute_time,parameter_types,method_name,method_sign_name, "
+        + "execute_interval_sec,delay_time,task_parameter,execute_way," + "thread_way, error_msg, alert_expression, "
+        + "alert_action_bean_name, fallback_class_name, fallback_error_msg,shard_key," + "gmt_create, gmt_modified "
+        + "FROM consistency_task " + "WHERE " + "task_status IN (0,1,2) AND (id, shard_key) IN ",
+        "<foreach collection='list' item='item' open='(' separator=',' close=')'>", "(#{item.id}, #{item.shardKey})",
+        "</foreach>", "</script>"})
+    @ResultMap("consistencyTaskInstanceMap")
+    List<ConsistencyTaskInstance> listTaskByIdsAndShardKeys(List<ConsistencyTaskInstance> taskKeys);
+
+    /**
+     * 根据id和分片键批量获取已经存在的任务的主键和任务标识 不区分任务状态
+     *
+     * @param taskKeys 只包含id和shardKey的任务实例集合
+     * @return 已经存在的任务 只包含id、shardKey、taskId和methodSignName
+     */
+    @Select({"<script>", "SELECT id,task_id,method_sign_name,shard_key FROM consistency_task WHERE (id, shard_key) IN ",
+        "<foreach collection='list' item='item' open='(' separator=',' close=')'>", "(#{item.id}, #{item.shardKey})",
+        "</foreach>", "</script>"})
+    @ResultMap("consistencyTaskInstanceMap")
+    List<ConsistencyTaskInstance> listTaskKeysByIdsAndShardKeys(List<ConsistencyTaskInstance> taskKeys);
+
+    /**
+     * 认领到期的任务 使用一条带条件的UPDATE语句，只认领未完成、已到执行时间、没有租约或租约已过期的任务，
+     * 认领的同时启动任务，并发认领时同一个任务只会被一个节点认领成功
+     *
+     * @param ownerPeerId 认领任务的节点
+     * @param leaseUntil 租约到期时间 同时作为本次认领的标识
+     * @param startTime 认领任务的开始时间
+     * @param now 当前时间
+     * @param limit 最多认领的任务数
+     * @return 认领成功的任务数
+     */
+    @Update("UPDATE consistency_task SET task_status=1, execute_times=execute_times+1, execute_time=#{now}, "
+        + "owner_peer_id=#{ownerPeerId}, lease_until=#{leaseUntil} "
+        + "WHERE task_status IN (0,1,2) AND execute_time>=#{startTime} AND execute_time<=#{now} "
+        + "AND (lease_until IS NULL OR lease_until<#{now}) " + "ORDER BY execute_time LIMIT #{limit}")
+    int claimTask(@Param("ownerPeerId") String ownerPeerId, @Param("leaseUntil") Long leaseUntil,
+        @Param("startTime") Long startTime, @Param("now") Long now, @Param("limit") Integer limit);
+
+    /**
+     * 获取某一次认领到的任务
+     *
+     * @param ownerPeerId 认领任务的节点
+     * @param leaseUntil 认领时的租约到期时间
+     * @return 认领到的任务
+     */
+    @Select("SELECT "
+        + "id,task_id,task_status,execute_times,execute_time,parameter_types,method_name,method_sign_name, "
+        + "execute_interval_sec,delay_time,task_parameter,execute_way," + "thread_way, error_msg, alert_expression, "
+        + "alert_action_bean_name, fallback_class_name, fallback_error_msg,shard_key,owner_peer_id,lease_until,"
+        + "gmt_create, gmt_modified " + "FROM consistency_task " + "WHERE "
+        + "owner_peer_id=#{ownerPeerId} AND lease_until=#{leaseUntil} AND task_status=1")
+    @ResultMap("consistencyTaskInstanceMap")
+    List<ConsistencyTaskInstance> listClaimedTask(@Param("ownerPeerId") String ownerPeerId,
+        @Param("leaseUntil") Long leaseUntil);
+
     /**
      * 启动任务 本次优化去掉了 and task_status!=1 的查询条件 之前是为了防止，多线程情况下，任务被抢占重复执行。 本次优化加入了任务分片执行，同一时间，可以保证，只有一个实例，在运行该一致性任务。
      * 
@@ -114,6 +278,19 @@ public interface TaskStoreMapper {
         + "execute_time=#{executeTime} " + "WHERE id=#{id} and shard_key=#{shardKey}")
     int turnOnTask(ConsistencyTaskInstance consistencyTaskInstance);
 
+    /**
+     * 启动未完成的任务 只启动执行次数和读取时相同的任务
+     *
+     * @param taskInstance 任务实例信息
+     * @param executeTime 任务的执行时间
+     * @return 启动的任务数
+     */
+    @Update("UPDATE consistency_task SET task_status=1, execute_times=execute_times+1, execute_time=#{executeTime} "
+        + "WHERE id=#{task.id} and shard_key=#{task.shardKey} AND task_status IN (0,1,2) "
+        + "AND execute_times=#{task.executeTimes}")
+    int turnOnUnchangedTask(@Param("task") ConsistencyTaskInstance taskInstance,
+        @Param("executeTime") Long executeTime);
+
     /**
      * 标记任务成功
      *
@@ -124,12 +301,47 @@ public interface TaskStoreMapper {
     int markSuccess(ConsistencyTaskInstance taskInstance);
 
     /**
-     * 标记任务为失败
+     * 批量标记任务成功
+     *
+     * @param taskInstances 一致性任务实例信息集合
+     * @return 标记结果
+     */
+    @Delete({"<script>", "DELETE FROM consistency_task WHERE (id, shard_key) IN ",
+        "<foreach collection='list' item='item' open='(' separator=',' close=')'>", "(#{item.id}, #{item.shardKey})",
+        "</foreach>", "</script>"})
+    int batchMarkSuccess(List<ConsistencyTaskInstance> taskInstances);
+
+    /**
+     * 将任务标记为已归档 ARCHIVE模式下使用，只修改任务状态，不删除任务记录
+     *
+     * @param taskInstance 一致性任务实例信息
+     * @return 标记结果
+     */
+    @Update("UPDATE consistency_task SET task_status=3 WHERE id=#{id} and shard_key=#{shardKey}")
+    int markArchived(ConsistencyTaskInstance taskInstance);
+
+    /**
+     * 批量将任务标记为已归档
+     *
+     * @param taskInstances 一致性任务实例信息集合
+     * @return 标记结果
+     */
+    @Update({"<script>", "UPDATE consistency_task SET task_status=3 WHERE (id, shard_key) IN ",
+        "<foreach collection='list' item='item' open='(' separator=',' close=')'>", "(#{item.id}, #{item.shardKey})",
+        "</foreach>", "</script>"})
+    int batchMarkArchived(List<ConsistencyTaskInstance> taskInstances);
+
+    /**
+     * 标记任务为失败或者重试耗尽 LEASE模式下会同时释放租约，且只有持有租约的节点才能标记
      *
      * @param taskInstance 一致性任务实例信息
      * @return 标记结果
      */
-    @Update("UPDATE consistency_task SET task_status=2, error_msg=#{errorMsg}, execute_time=#{executeTime} WHERE id=#{id} and shard_key=#{shardKey}")
+    @Update({"<script>",
+        "UPDATE consistency_task SET task_status=#{taskStatus}, error_msg=#{errorMsg}, execute_time=#{executeTime}",
+        "<if test='ownerPeerId != null'>, owner_peer_id=NULL, lease_until=NULL</if>",
+        "WHERE id=#{id} and shard_key=#{shardKey}", "<if test='ownerPeerId != null'>AND owner_peer_id=#{ownerPeerId}</if>",
+        "</script>"})
     int markFail(ConsistencyTaskInstance taskInstance);
 
     /**
@@ -141,4 +353,27 @@ public interface TaskStoreMapper {
     @Update("UPDATE consistency_task SET fallback_error_msg=#{fallbackErrorMsg} WHERE id=#{id} and shard_key=#{shardKey}")
     int markFallbackFail(ConsistencyTaskInstance taskInstance);
 
+    /**
+     * 按id和分片键推迟未完成的任务
+     *
+     * @param taskInstance 一致性任务实例信息 执行时间为推迟后的执行时间
+     * @return 推迟的任务数
+     */
+    @Update("UPDATE consistency_task SET execute_time=#{executeTime} "
+        + "WHERE id=#{id} and shard_key=#{shardKey} AND task_status IN (0,1,2)")
+    int deferTask(ConsistencyTaskInstance taskInstance);
+
+    /**
+     * 撤销没有被执行的任务的启动 恢复任务状态并减去启动时增加的执行次数，LEASE模式下同时释放租约
+     *
+     * @param taskInstance 一致性任务实例信息 任务状态为恢复后的状态
+     * @return 撤销的任务数
+     */
+    @Update({"<script>",
+        "UPDATE consistency_task SET task_status=#{taskStatus}, execute_times=execute_times-1",
+        "<if test='ownerPeerId != null'>, owner_peer_id=NULL, lease_until=NULL</if>",
+        "WHERE id=#{id} and shard_key=#{shardKey} AND task_status=1",
+        "<if test='ownerPeerId != null'>AND owner_peer_id=#{ownerPeerId}</if>", "</script>"})
+    int releaseTask(ConsistencyTaskInstance taskInstance);
+
 }
@@ -92,6 +92,26 @@ public class ConsistencyTaskInstance {
      * 分片键
      */
     private Long shardKey;
+    /**
+     * 分片索引 开启分片条件下推时，写入任务时计算好，扫描时直接按该列过滤
+     */
+    private Long shardIndex;
+    /**
+     * LEASE模式下，持有任务租约的节点
+     */
+    private String ownerPeerId;
+    /**
+     * LEASE模式下，任务租约的到期时间 同时作为一次认领的标识
+     */
+    private Long leaseUntil;
+    /**
+     * 任务是否已经在认领时被启动 为true时执行前不需要再调用turnOnTask 非数据库字段
+     */
+    private Boolean preStarted;
+    /**
+     * 本地存储序号 任务写入RocksDB时生成，和执行时间、分片键一起组成RocksDB的key 非数据库字段
+     */
+    private Long localSeq;
 
     private Date gmtCreate;
 
@@ -0,0 +1,57 @@
+package com.zzjj.consistency.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 未完成任务的分页扫描条件 按 (execute_time, id) 进行键集分页，每次从上一页最后一条记录之后继续扫描
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskScanQuery {
+
+    /**
+     * 扫描的开始时间
+     */
+    private Long startTime;
+    /**
+     * 扫描的结束时间
+     */
+    private Long endTime;
+    /**
+     * 每页最多扫描的条数
+     */
+    private Long pageSize;
+    /**
+     * 上一页最后一条记录的执行时间 为空表示从第一页开始扫描
+     */
+    private Long lastExecuteTime;
+    /**
+     * 上一页最后一条记录的id
+     */
+    private Long lastId;
+    /**
+     * 当前节点负责的分片索引 不为空时在SQL中按shard_index过滤
+     */
+    private List<Long> shardIndexes;
+
+    /**
+     * 将游标移动到给定任务之后 下一次扫描从该任务之后开始
+     *
+     * @param lastTaskInstance 当前页的最后一个任务
+     */
+    public void moveAfter(final ConsistencyTaskInstance lastTaskInstance) {
+        this.lastExecuteTime = lastTaskInstance.getExecuteTime();
+        this.lastId = lastTaskInstance.getId();
+    }
+
+}
@@ -0,0 +1,196 @@
+package com.zzjj.consistency.scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分层时间轮
+ * <p>
+ * 第一层时间轮每格的跨度为tickMillis，共wheelSize格，超出当前层范围的元素放到上一层时间轮中，上一层每格的跨度为下一层的整圈。
+ * 只有放入了元素的格子才会进入DelayQueue，取元素的线程在DelayQueue上等待最近一格到期，没有到期的元素时不会空转；
+ * 上层格子到期后，其中的元素重新放入下层时间轮，直到在第一层到期。到期时间的精度为tickMillis。
+ *
+ * @param <T> 元素类型
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+public class HierarchicalTimingWheel<T> {
+
+    /**
+     * 放入了元素的格子 按到期时间排序
+     */
+    private final DelayQueue<Bucket<T>> delayQueue = new DelayQueue<>();
+    /**
+     * 第一层时间轮
+     */
+    private final Wheel<T> wheel;
+
+    public HierarchicalTimingWheel(final long tickMillis, final int wheelSize) {
+        this.wheel = new Wheel<>(tickMillis, wheelSize, System.currentTimeMillis(), this.delayQueue);
+    }
+
+    /**
+     * 添加元素
+     *
+     * @param expirationMillis 元素的到期时间
+     * @param element 元素
+     * @return 元素已经到期时返回false，需要由调用方直接处理
+     */
+    public synchronized boolean add(final long expirationMillis, final T element) {
+        return this.wheel.add(expirationMillis, element);
+    }
+
+    /**
+     * 等待并取出到期的元素
+     *
+     * @param timeoutMillis 最长等待时间
+     * @return 到期的元素 等待超时时返回空集合
+     * @throws InterruptedException 等待时被中断
+     */
+    public List<T> poll(final long timeoutMillis) throws InterruptedException {
+        final List<T> expired = new ArrayList<>();
+        Bucket<T> bucket = this.delayQueue.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+        if (bucket == null) {
+            return expired;
+        }
+        synchronized (this) {
+            while (bucket != null) {
+                this.wheel.advanceClock(bucket.getExpiration());
+                // 上层格子中的元素重新放入时间轮，已经到期的直接取出
+                for (final Bucket.Entry<T> entry : bucket.flush()) {
+                    if (!this.wheel.add(entry.expirationMillis, entry.element)) {
+                        expired.add(entry.element);
+                    }
+                }
+                bucket = this.delayQueue.poll();
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * 一层时间轮
+     */
+    private static final class Wheel<T> {
+
+        private final long tickMillis;
+        private final int wheelSize;
+        /**
+         * 一整圈的跨度
+         */
+        private final long interval;
+        private final List<Bucket<T>> buckets;
+        private final DelayQueue<Bucket<T>> delayQueue;
+        /**
+         * 当前时间 tickMillis的整数倍
+         */
+        private long currentTime;
+        /**
+         * 上一层时间轮 需要时才创建
+         */
+        private Wheel<T> overflowWheel;
+
+        private Wheel(final long tickMillis, final int wheelSize, final long startMillis,
+            final DelayQueue<Bucket<T>> delayQueue) {
+            this.tickMillis = tickMillis;
+            this.wheelSize = wheelSize;
+            this.interval = tickMillis * wheelSize;
+            this.delayQueue = delayQueue;
+            this.currentTime = startMillis - startMillis % tickMillis;
+            this.buckets = new ArrayList<>(wheelSize);
+            for (int i = 0; i < wheelSize; i++) {
+                this.buckets.add(new Bucket<>());
+            }
+        }
+
+        private boolean add(final long expirationMillis, final T element) {
+            if (expirationMillis < this.currentTime + this.tickMillis) {
+                return false;
+            }
+            if (expirationMillis < this.currentTime + this.interval) {
+                final long virtualId = expirationMillis / this.tickMillis;
+                final Bucket<T> bucket = this.buckets.get((int)(virtualId % this.wheelSize));
+                bucket.add(expirationMillis, element);
+                // 格子被复用到新的一圈时，需要按新的到期时间重新放入DelayQueue
+                if (bucket.setExpiration(virtualId * this.tickMillis)) {
+                    this.delayQueue.offer(bucket);
+                }
+                return true;
+            }
+            if (this.overflowWheel == null) {
+                this.overflowWheel = new Wheel<>(this.interval, this.wheelSize, this.currentTime, this.delayQueue);
+            }
+            return this.overflowWheel.add(expirationMillis, element);
+        }
+
+        private void advanceClock(final long timeMillis) {
+            if (timeMillis >= this.currentTime + this.tickMillis) {
+                this.currentTime = timeMillis - timeMillis % this.tickMillis;
+                if (this.overflowWheel != null) {
+                    this.overflowWheel.advanceClock(this.currentTime);
+                }
+            }
+        }
+
+    }
+
+    /**
+     * 时间轮中的一格
+     */
+    private static final class Bucket<T> implements Delayed {
+
+        private List<Entry<T>> entries = new ArrayList<>();
+        /**
+         * 这一格的到期时间 -1表示没有元素
+         */
+        private volatile long expiration = -1L;
+
+        private void add(final long expirationMillis, final T element) {
+            this.entries.add(new Entry<>(expirationMillis, element));
+        }
+
+        private boolean setExpiration(final long expirationMillis) {
+            final boolean changed = this.expiration != expirationMillis;
+            this.expiration = expirationMillis;
+            return changed;
+        }
+
+        private long getExpiration() {
+            return this.expiration;
+        }
+
+        private List<Entry<T>> flush() {
+            final List<Entry<T>> flushed = this.entries;
+            this.entries = new ArrayList<>();
+            this.expiration = -1L;
+            return flushed;
+        }
+
+        @Override
+        public long getDelay(final TimeUnit unit) {
+            return unit.convert(Math.max(this.expiration - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(final Delayed other) {
+            return Long.compare(this.expiration, ((Bucket<?>)other).expiration);
+        }
+
+        private static final class Entry<T> {
+
+            private final long expirationMillis;
+            private final T element;
+
+            private Entry(final long expirationMillis, final T element) {
+                this.expirationMillis = expirationMillis;
+                this.element = element;
+            }
+
+        }
+
+    }
+
+}
@@ -0,0 +1,352 @@
+package com.zzjj.consistency.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.zzjj.consistency.config.ConsistencyConfiguration;
+import com.zzjj.consistency.model.ConsistencyTaskInstance;
+import com.zzjj.consistency.storage.RocksLocalStorage;
+import com.zzjj.consistency.storage.TaskStorage;
+
+import cn.hutool.core.collection.CollectionUtil;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * RocksDB积压任务的迁移组件
+ * <p>
+ * 数据库故障期间写入RocksDB的任务只有本节点可以执行。开启迁移后，后台线程每隔drainIntervalSeconds秒检测一次数据库是否恢复，
+ * 恢复后先停止在本地执行RocksDB中的任务，等待正在本地执行的任务执行完成，再按批次把积压的任务写回任务表，写入成功后删除这一批本地任务。
+ * 写回的任务使用由本地存储标识、本地存储序号和分片键计算出的负数id，写入前先按id和分片键查询已经存在的任务，
+ * 任务标识和方法签名都相同的记录才是上一次迁移写回的，写回任务表后、删除本地任务前宕机时，下一次迁移不会重复写入；
+ * id被其他任务占用时换下一个候选id，候选id都被占用的任务保留在本地，不会被删除。写入速度由令牌桶限制在每秒drainRatePerSecond个任务以内，
+ * 迁移回任务表的任务由集群中的各个节点按分片并行执行。已经有id的任务本来就在任务表中，把任务表中未完成的记录推迟到迁移时再删除本地的记录。
+ * 已经到期的任务写回时执行时间改为当前时间，保证落在调度器扫描的时间范围内。
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+@Slf4j
+@Component
+public class TaskBacklogDrainer implements DisposableBean {
+
+    /**
+     * 等待正在本地执行的任务执行完成时，每次检查的间隔 单位毫秒
+     */
+    private static final long AWAIT_LOCAL_TASKS_INTERVAL_MILLIS = 50;
+    /**
+     * 每个任务的候选迁移id个数
+     */
+    private static final int RESTORE_ID_CANDIDATES = 3;
+
+    /**
+     * 任务持久化组件
+     */
+    @Autowired
+    private TaskStorage taskStorage;
+    /**
+     * RocksDB工具类
+     */
+    @Autowired
+    private RocksLocalStorage rocksLocalStorage;
+    /**
+     * 一致性框架配置
+     */
+    @Autowired
+    private ConsistencyConfiguration consistencyConfiguration;
+
+    /**
+     * 是否正在迁移 迁移期间不在本地执行RocksDB中的任务，防止同一个任务在本地和任务表中各执行一次
+     */
+    private volatile boolean draining;
+    /**
+     * 正在本地执行的RocksDB中的任务 key: 本地存储序号
+     */
+    private final Set<Long> runningLocalTasks = ConcurrentHashMap.newKeySet();
+    /**
+     * 写入任务表的限速器
+     */
+    private RateLimiter rateLimiter;
+    /**
+     * 迁移线程
+     */
+    private ScheduledExecutorService drainScheduledExecutorService;
+
+    @PostConstruct
+    public void init() {
+        if (!this.isEnabled()) {
+            return;
+        }
+        this.rateLimiter = RateLimiter.create(Math.max(this.consistencyConfiguration.getRocksDrainRatePerSecond(), 1));
+        final long interval = Math.max(this.consistencyConfiguration.getRocksDrainIntervalSeconds(), 1);
+        this.drainScheduledExecutorService =
+            Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "rocksBacklogDrainer"));
+        this.drainScheduledExecutorService.scheduleWithFixedDelay(this::drain, interval, interval, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (this.drainScheduledExecutorService == null) {
+            return;
+        }
+        // 正在写入的一批任务写完后再关闭RocksDB
+        this.drainScheduledExecutorService.shutdown();
+        this.drainScheduledExecutorService.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 是否开启了积压任务迁移
+     *
+     * @return 是否开启
+     */
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(this.consistencyConfiguration.getRocksDrainEnabled());
+    }
+
+    /**
+     * 是否正在把RocksDB中的任务迁移回任务表
+     *
+     * @return 是否正在迁移
+     */
+    public boolean isDraining() {
+        return this.draining;
+    }
+
+    /**
+     * 开始在本地执行RocksDB中的任务 正在迁移时返回false，任务保留在RocksDB中等待迁移
+     *
+     * @param taskInstance 任务实例
+     * @return 是否可以在本地执行
+     */
+    public boolean tryStartLocalTask(final ConsistencyTaskInstance taskInstance) {
+        if (!this.isEnabled() || taskInstance.getLocalSeq() == null) {
+            return true;
+        }
+        // 先登记再检查迁移状态，迁移线程先设置迁移状态再等待登记的任务执行完成，两者不会同时错过对方
+        this.runningLocalTasks.add(taskInstance.getLocalSeq());
+        if (this.draining) {
+            this.runningLocalTasks.remove(taskInstance.getLocalSeq());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 在本地执行RocksDB中的任务完成
+     *
+     * @param taskInstance 任务实例
+     */
+    public void finishLocalTask(final ConsistencyTaskInstance taskInstance) {
+        if (taskInstance.getLocalSeq() != null) {
+            this.runningLocalTasks.remove(taskInstance.getLocalSeq());
+        }
+    }
+
+    /**
+     * 迁移RocksDB中积压的任务 直到没有任务、数据库写入失败或者停机
+     */
+    private void drain() {
+        int drained = 0;
+        try {
+            if (this.rocksLocalStorage.listTasks(1).isEmpty() || !this.isDatabaseAvailable()) {
+                return;
+            }
+            this.draining = true;
+            if (!this.awaitRunningLocalTasks()) {
+                log.warn("[一致性任务框架] 等待本地执行的任务完成超时，下一次再迁移RocksDB中积压的任务");
+                return;
+            }
+            final int batchSize = Math.max(this.consistencyConfiguration.getRocksDrainBatchSize(), 1);
+            while (!this.drainScheduledExecutorService.isShutdown()) {
+                final List<ConsistencyTaskInstance> batch = this.rocksLocalStorage.listTasks(batchSize);
+                if (CollectionUtil.isEmpty(batch)) {
+                    break;
+                }
+                this.rateLimiter.acquire(batch.size());
+                final List<ConsistencyTaskInstance> restored = this.restore(batch);
+                if (restored == null) {
+                    break;
+                }
+                this.rocksLocalStorage.deleteAll(restored);
+                drained += restored.size();
+                if (restored.size() < batch.size()) {
+                    break;
+                }
+            }
+        } catch (final Exception e) {
+            log.error("[一致性任务框架] 迁移RocksDB中积压的任务时，发生异常", e);
+        } finally {
+            this.draining = false;
+        }
+        if (drained > 0) {
+            log.info("[一致性任务框架] 已将RocksDB中积压的 [{}] 个任务迁移回任务表", drained);
+        }
+    }
+
+    /**
+     * 数据库是否可用 按主键查询一个不存在的任务
+     *
+     * @return 是否可用
+     */
+    private boolean isDatabaseAvailable() {
+        try {
+            this.taskStorage.getTaskByIdAndShardKey(0L, 0L);
+            return true;
+        } catch (final Exception e) {
+            log.debug("[一致性任务框架] 数据库仍然不可用，等待下一次迁移RocksDB中积压的任务 {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 等待正在本地执行的RocksDB中的任务执行完成 最多等待一个迁移间隔
+     *
+     * @return 是否全部执行完成
+     */
+    private boolean awaitRunningLocalTasks() throws InterruptedException {
+        final long deadline = System.currentTimeMillis()
+            + TimeUnit.SECONDS.toMillis(this.consistencyConfiguration.getRocksDrainIntervalSeconds());
+        while (!this.runningLocalTasks.isEmpty()) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            Thread.sleep(TaskBacklogDrainer.AWAIT_LOCAL_TASKS_INTERVAL_MILLIS);
+        }
+        return true;
+    }
+
+    /**
+     * 把一批本地任务写回任务表 没有id的任务使用迁移id，只写入任务表中还不存在的任务；已经有id的任务只把任务表中未完成的记录推迟到迁移时
+     * <p>
+     * 调度器只扫描最近一段时间内到期的任务，故障期间已经到期的任务如果保留原来的执行时间，写回任务表后不会再被任何节点扫描到，
+     * 这里把已经到期的任务的执行时间改为当前时间，还没有到期的任务保留原来的执行时间
+     * <p>
+     * 每个任务按顺序计算几个候选迁移id，一次查询出所有候选id对应的记录：任务标识和方法签名都相同的记录说明任务已经写回，
+     * 否则使用第一个没有记录的候选id写入；候选id都被其他任务占用时任务不写入、也不删除，留在本地由本节点执行
+     *
+     * @param batch 一批本地任务
+     * @return 已经写回任务表、可以删除的本地任务 写入失败说明数据库仍然不可用，返回null
+     */
+    private List<ConsistencyTaskInstance> restore(final List<ConsistencyTaskInstance> batch) {
+        final long now = System.currentTimeMillis();
+        final long storageId = this.rocksLocalStorage.getStorageId();
+        final List<ConsistencyTaskInstance> taskKeys = new ArrayList<>();
+        final List<ConsistencyTaskInstance> storedTaskInstances = new ArrayList<>();
+        for (final ConsistencyTaskInstance taskInstance : batch) {
+            if (taskInstance.getExecuteTime() == null || taskInstance.getExecuteTime() < now) {
+                taskInstance.setExecuteTime(now);
+            }
+            if (taskInstance.getId() != null) {
+                storedTaskInstances.add(taskInstance);
+                continue;
+            }
+            for (int candidate = 0; candidate < TaskBacklogDrainer.RESTORE_ID_CANDIDATES; candidate++) {
+                taskKeys.add(ConsistencyTaskInstance.builder()
+                    .id(TaskBacklogDrainer.getRestoreId(taskInstance, storageId, candidate))
+                    .shardKey(taskInstance.getShardKey()).build());
+            }
+        }
+        try {
+            if (!storedTaskInstances.isEmpty()) {
+                this.taskStorage.deferTasks(storedTaskInstances);
+            }
+            if (taskKeys.isEmpty()) {
+                return batch;
+            }
+            final Map<String, ConsistencyTaskInstance> existingTasks =
+                this.taskStorage.listTaskKeysByIdsAndShardKeys(taskKeys).stream()
+                    .collect(Collectors.toMap(e -> e.getId() + "_" + e.getShardKey(), e -> e, (a, b) -> a));
+            final List<ConsistencyTaskInstance> restored = new ArrayList<>(storedTaskInstances);
+            final List<ConsistencyTaskInstance> newTaskInstances = new ArrayList<>();
+            for (final ConsistencyTaskInstance taskInstance : batch) {
+                if (taskInstance.getId() != null) {
+                    continue;
+                }
+                final Long restoreId = this.resolveRestoreId(taskInstance, storageId, existingTasks);
+                if (restoreId == null) {
+                    log.error("[一致性任务框架] 任务 [{}] 的候选迁移id都被其他任务占用，保留在RocksDB中由本节点执行",
+                        taskInstance.getLocalSeq());
+                    continue;
+                }
+                restored.add(taskInstance);
+                if (restoreId != 0L) {
+                    taskInstance.setId(restoreId);
+                    newTaskInstances.add(taskInstance);
+                }
+            }
+            if (!newTaskInstances.isEmpty()) {
+                this.taskStorage.batchRestoreTask(newTaskInstances);
+            }
+            return restored;
+        } catch (final Exception e) {
+            log.warn("[一致性任务框架] 数据库仍然不可用，等待下一次迁移RocksDB中积压的任务 {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 在候选迁移id中为本地任务选择写入任务表使用的id
+     *
+     * @param taskInstance 本地任务
+     * @param storageId 本地存储标识
+     * @param existingTasks 候选id对应的已经存在的记录 key: id_分片键
+     * @return 第一个没有记录的候选id；任务已经写回时返回0；候选id都被其他任务占用时返回null
+     */
+    private Long resolveRestoreId(final ConsistencyTaskInstance taskInstance, final long storageId,
+        final Map<String, ConsistencyTaskInstance> existingTasks) {
+        Long restoreId = null;
+        for (int candidate = 0; candidate < TaskBacklogDrainer.RESTORE_ID_CANDIDATES; candidate++) {
+            final long candidateId = TaskBacklogDrainer.getRestoreId(taskInstance, storageId, candidate);
+            final ConsistencyTaskInstance existingTask =
+                existingTasks.get(candidateId + "_" + taskInstance.getShardKey());
+            if (existingTask == null) {
+                restoreId = restoreId == null ? candidateId : restoreId;
+            } else if (Objects.equals(existingTask.getTaskId(), taskInstance.getTaskId())
+                && Objects.equals(existingTask.getMethodSignName(), taskInstance.getMethodSignName())) {
+                return 0L;
+            }
+        }
+        return restoreId;
+    }
+
+    /**
+     * 计算迁移回任务表的任务id 同一个本地任务的同一个候选序号每次计算的结果相同
+     * <p>
+     * 本地存储序号只在一个本地存储内唯一，混入本地存储标识和分片键后再打散，不同节点的任务不会因为同时启动而得到相同的id；
+     * 使用负数，不会和自增主键冲突，也不会推高表的自增值
+     *
+     * @param taskInstance 本地任务
+     * @param storageId 本地存储标识
+     * @param candidate 候选序号
+     * @return 迁移id
+     */
+    static long getRestoreId(final ConsistencyTaskInstance taskInstance, final long storageId, final int candidate) {
+        final long shardKey = taskInstance.getShardKey() == null ? 0L : taskInstance.getShardKey();
+        long hash = TaskBacklogDrainer.mix(storageId + candidate);
+        hash = TaskBacklogDrainer.mix(hash ^ taskInstance.getLocalSeq());
+        hash = TaskBacklogDrainer.mix(hash ^ shardKey);
+        return -((hash & Long.MAX_VALUE) | 1L);
+    }
+
+    private static long mix(final long value) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+        hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+
+}
@@ -0,0 +1,247 @@
+package com.zzjj.consistency.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.zzjj.consistency.annotation.ConsistencyTask;
+import com.zzjj.consistency.config.ConsistencyConfiguration;
+import com.zzjj.consistency.config.ConsistencyParallelTaskConfigProperties;
+import com.zzjj.consistency.enums.ThreadExecutorModeEnum;
+import com.zzjj.consistency.invoker.ConsistencyTaskInvokerRegistry;
+import com.zzjj.consistency.model.ConsistencyTaskInstance;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 按任务方法隔离的任务执行组件
+ * <p>
+ * 每个methodSignName有自己的隔离舱，限制该方法同时执行的任务数和排队等待的任务数，队列满时不再接收该方法的任务，
+ * 任务仍然保留在任务表中，等待下一次调度。各个隔离舱按轮询的方式把任务交给consistencyTaskPool，
+ * 并且交给线程池的任务总数不超过线程池的执行能力，排队发生在各自的隔离舱中，一个方法变慢时只会占满自己的份额。
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+@Slf4j
+@Component
+public class TaskBulkheadExecutor {
+
+    /**
+     * 并行任务线程池
+     */
+    @Autowired
+    private Executor consistencyTaskPool;
+    /**
+     * 一致性框架配置
+     */
+    @Autowired
+    private ConsistencyConfiguration consistencyConfiguration;
+    /**
+     * 一致性任务方法调用器的注册中心 用于读取任务方法上的隔离舱配置
+     */
+    @Autowired
+    private ConsistencyTaskInvokerRegistry consistencyTaskInvokerRegistry;
+    /**
+     * 按任务方法自适应调整并发数的限流组件 隔离舱的并发上限不超过自适应并发上限
+     */
+    @Autowired
+    private TaskConcurrencyLimiter taskConcurrencyLimiter;
+
+    /**
+     * 各个任务方法的隔离舱 key: methodSignName
+     */
+    private final ConcurrentMap<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+    /**
+     * 有任务在排队且还没有达到并发上限的隔离舱 按轮询的方式从中取出任务
+     */
+    private final Deque<Bulkhead> readyBulkheads = new ArrayDeque<>();
+    /**
+     * 隔离舱锁
+     */
+    private final Object lock = new Object();
+    /**
+     * 已经交给线程池、尚未执行完成的任务数
+     */
+    private int running;
+
+    /**
+     * 提交任务到所属方法的隔离舱
+     *
+     * @param taskInstance 任务实例
+     * @param task 执行任务的动作
+     * @return 隔离舱的队列已满时返回false，任务不会被执行
+     */
+    public boolean submit(final ConsistencyTaskInstance taskInstance, final Runnable task) {
+        final Bulkhead bulkhead = this.bulkheads.computeIfAbsent(taskInstance.getMethodSignName(),
+            key -> this.createBulkhead(taskInstance));
+        synchronized (this.lock) {
+            if (bulkhead.queue.size() >= bulkhead.queueDepth) {
+                return false;
+            }
+            bulkhead.queue.addLast(task);
+            this.markReady(bulkhead);
+        }
+        this.drain();
+        return true;
+    }
+
+    /**
+     * 按轮询的方式从各个隔离舱中取出任务交给线程池，直到线程池的执行能力用完或者没有可以执行的任务
+     */
+    private void drain() {
+        final int capacity = this.getCapacity();
+        while (true) {
+            final Bulkhead bulkhead;
+            final Runnable task;
+            synchronized (this.lock) {
+                if (this.running >= capacity || this.readyBulkheads.isEmpty()) {
+                    return;
+                }
+                bulkhead = this.readyBulkheads.pollFirst();
+                bulkhead.ready = false;
+                task = bulkhead.queue.pollFirst();
+                bulkhead.running++;
+                this.running++;
+                // 还有任务排队时放到队尾，下一轮再从这个隔离舱取任务
+                this.markReady(bulkhead);
+            }
+            try {
+                this.consistencyTaskPool.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        this.release(bulkhead);
+                    }
+                });
+            } catch (final RejectedExecutionException e) {
+                // 线程池已满，任务放回隔离舱，等正在执行的任务完成后再提交
+                synchronized (this.lock) {
+                    bulkhead.running--;
+                    this.running--;
+                    bulkhead.queue.addFirst(task);
+                    this.markReady(bulkhead);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * 任务执行完成后释放隔离舱的并发名额，并继续提交排队的任务
+     *
+     * @param bulkhead 任务所属的隔离舱
+     */
+    private void release(final Bulkhead bulkhead) {
+        synchronized (this.lock) {
+            bulkhead.running--;
+            this.running--;
+            this.markReady(bulkhead);
+        }
+        this.drain();
+    }
+
+    /**
+     * 隔离舱中有任务排队且没有达到并发上限时，放入待执行的隔离舱队列 需要持有隔离舱锁
+     *
+     * @param bulkhead 隔离舱
+     */
+    private void markReady(final Bulkhead bulkhead) {
+        final int maxConcurrency =
+            Math.min(bulkhead.maxConcurrency, this.taskConcurrencyLimiter.getLimit(bulkhead.methodSignName));
+        if (!bulkhead.ready && !bulkhead.queue.isEmpty() && bulkhead.running < maxConcurrency) {
+            bulkhead.ready = true;
+            this.readyBulkheads.addLast(bulkhead);
+        }
+    }
+
+    /**
+     * 同时交给线程池的最大任务数
+     *
+     * @return 线程池的执行能力
+     */
+    private int getCapacity() {
+        if (ThreadExecutorModeEnum.VIRTUAL.name().equals(this.consistencyConfiguration.getThreadExecutorMode())) {
+            return this.consistencyConfiguration.getVirtualThreadMaxConcurrency();
+        }
+        return this.consistencyConfiguration.getThreadCorePoolSize();
+    }
+
+    /**
+     * 创建任务方法的隔离舱 配置文件中的配置优先，其次是@ConsistencyTask注解上的配置，最后使用全局默认值
+     *
+     * @param taskInstance 任务实例
+     * @return 隔离舱
+     */
+    private Bulkhead createBulkhead(final ConsistencyTaskInstance taskInstance) {
+        int maxConcurrency = this.consistencyConfiguration.getBulkheadMaxConcurrency();
+        int queueDepth = this.consistencyConfiguration.getBulkheadQueueDepth();
+        final ConsistencyTask consistencyTask = this.consistencyTaskInvokerRegistry.findConsistencyTask(taskInstance);
+        if (consistencyTask != null) {
+            maxConcurrency = consistencyTask.maxConcurrency() > 0 ? consistencyTask.maxConcurrency() : maxConcurrency;
+            queueDepth = consistencyTask.queueDepth() > 0 ? consistencyTask.queueDepth() : queueDepth;
+        }
+        final Map<String, ConsistencyParallelTaskConfigProperties.Bulkhead> bulkheadConfigs =
+            this.consistencyConfiguration.getBulkheads();
+        ConsistencyParallelTaskConfigProperties.Bulkhead bulkheadConfig =
+            bulkheadConfigs.get(taskInstance.getMethodSignName());
+        if (bulkheadConfig == null) {
+            bulkheadConfig = bulkheadConfigs.get(taskInstance.getTaskId());
+        }
+        if (bulkheadConfig != null) {
+            maxConcurrency = bulkheadConfig.getMaxConcurrency() != null && bulkheadConfig.getMaxConcurrency() > 0
+                ? bulkheadConfig.getMaxConcurrency() : maxConcurrency;
+            queueDepth = bulkheadConfig.getQueueDepth() != null && bulkheadConfig.getQueueDepth() > 0
+                ? bulkheadConfig.getQueueDepth() : queueDepth;
+        }
+        log.info("[一致性任务框架] 创建任务方法 [{}] 的隔离舱，最大并发数为 [{}]，队列大小为 [{}]", taskInstance.getMethodSignName(),
+            maxConcurrency, queueDepth);
+        return new Bulkhead(taskInstance.getMethodSignName(), maxConcurrency, queueDepth);
+    }
+
+    /**
+     * 一个任务方法的隔离舱 running、ready和queue需要持有隔离舱锁访问
+     */
+    private static final class Bulkhead {
+
+        /**
+         * 任务方法签名
+         */
+        private final String methodSignName;
+        /**
+         * 同时执行的最大任务数
+         */
+        private final int maxConcurrency;
+        /**
+         * 排队等待执行的最大任务数
+         */
+        private final int queueDepth;
+        /**
+         * 排队等待执行的任务
+         */
+        private final Deque<Runnable> queue = new ArrayDeque<>();
+        /**
+         * 正在执行的任务数
+         */
+        private int running;
+        /**
+         * 是否已经在待执行的隔离舱队列中
+         */
+        private boolean ready;
+
+        private Bulkhead(final String methodSignName, final int maxConcurrency, final int queueDepth) {
+            this.methodSignName = methodSignName;
+            this.maxConcurrency = maxConcurrency;
+            this.queueDepth = queueDepth;
+        }
+
+    }
+
+}
@@ -0,0 +1,320 @@
+package com.zzjj.consistency.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.zzjj.consistency.config.ConsistencyConfiguration;
+import com.zzjj.consistency.model.ConsistencyTaskInstance;
+import com.zzjj.consistency.utils.TimeUtils;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 按任务方法熔断的组件
+ * <p>
+ * 最近windowSize次执行中失败比例达到failureRatio时熔断：该方法的任务不再执行，调度器扫描到该方法在熔断结束前到期的任务时，
+ * 按id和分片键批量推迟到熔断结束之后，推迟时间在逐步恢复的时间范围内随机分布，熔断结束时这些任务不会同时到期，
+ * 调度器不会再扫描到这些任务，也不会逐个写入失败状态和触发告警。熔断结束后进入半开状态，只允许halfOpenProbes个任务执行，
+ * 全部成功后关闭熔断，有一个失败则重新熔断。关闭熔断后的rampUpSeconds秒内，允许执行的任务比例从10%线性增加到100%，没有执行的任务等待下一次调度。
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+@Slf4j
+@Component
+public class TaskCircuitBreaker {
+
+    /**
+     * 逐步恢复执行时允许执行的最小比例
+     */
+    private static final double MIN_RAMP_UP_RATIO = 0.1;
+
+    /**
+     * 一致性框架配置
+     */
+    @Autowired
+    private ConsistencyConfiguration consistencyConfiguration;
+    /**
+     * 一致性任务存储的service接口
+     */
+    @Autowired
+    private TaskStoreService taskStoreService;
+
+    /**
+     * 各个任务方法的熔断器 key: methodSignName
+     */
+    private final ConcurrentMap<String, Breaker> breakers = new ConcurrentHashMap<>();
+
+    /**
+     * 是否开启了熔断
+     *
+     * @return 是否开启
+     */
+    public boolean isEnabled() {
+        return this.consistencyConfiguration.getCircuitBreakerEnabled();
+    }
+
+    /**
+     * 推迟处于熔断中的任务方法在熔断结束前到期的任务 每个任务推迟到熔断结束时间加上一个随机的时间
+     *
+     * @param taskInstances 调度器扫描到的任务
+     * @return 不需要推迟的任务
+     */
+    public List<ConsistencyTaskInstance> deferOpenTasks(final List<ConsistencyTaskInstance> taskInstances) {
+        if (!this.isEnabled() || this.breakers.isEmpty()) {
+            return taskInstances;
+        }
+        final long now = System.currentTimeMillis();
+        final List<ConsistencyTaskInstance> remaining = new ArrayList<>(taskInstances.size());
+        final List<ConsistencyTaskInstance> deferred = new ArrayList<>();
+        for (final ConsistencyTaskInstance taskInstance : taskInstances) {
+            final Breaker breaker = this.breakers.get(taskInstance.getMethodSignName());
+            final long openUntil = breaker == null ? 0L : breaker.getOpenUntil(now);
+            if (openUntil <= 0) {
+                remaining.add(taskInstance);
+                continue;
+            }
+            if (taskInstance.getExecuteTime() != null && taskInstance.getExecuteTime() >= openUntil) {
+                continue;
+            }
+            taskInstance.setExecuteTime(openUntil + ThreadLocalRandom.current().nextLong(breaker.getJitterMillis()));
+            deferred.add(taskInstance);
+        }
+        if (deferred.isEmpty()) {
+            return remaining;
+        }
+        try {
+            this.taskStoreService.deferTasks(deferred);
+            log.info("[一致性任务框架] 任务方法熔断中，推迟了 [{}] 个到期的任务", deferred.size());
+        } catch (final Exception e) {
+            log.error("[一致性任务框架] 推迟熔断中的任务方法到期的任务，发生异常 {}", e.getMessage());
+        }
+        return remaining;
+    }
+
+    /**
+     * 尝试获取任务方法的执行许可
+     *
+     * @param taskInstance 任务实例
+     * @return 熔断中、半开状态下探测任务已满、或者逐步恢复期间没有被选中时返回false
+     */
+    public boolean tryAcquire(final ConsistencyTaskInstance taskInstance) {
+        if (!this.isEnabled()) {
+            return true;
+        }
+        return this.getOrCreateBreaker(taskInstance.getMethodSignName()).tryAcquire(System.currentTimeMillis());
+    }
+
+    /**
+     * 释放任务方法的执行许可
+     *
+     * @param taskInstance 任务实例
+     */
+    public void release(final ConsistencyTaskInstance taskInstance) {
+        if (!this.isEnabled()) {
+            return;
+        }
+        this.getOrCreateBreaker(taskInstance.getMethodSignName()).release();
+    }
+
+    /**
+     * 记录一次任务方法的执行结果 达到熔断条件时熔断，该方法到期的任务在调度器扫描到时推迟
+     *
+     * @param taskInstance 任务实例
+     * @param success 是否执行成功
+     */
+    public void onResult(final ConsistencyTaskInstance taskInstance, final boolean success) {
+        if (!this.isEnabled()) {
+            return;
+        }
+        final String methodSignName = taskInstance.getMethodSignName();
+        final long openUntil = this.getOrCreateBreaker(methodSignName).onResult(success, System.currentTimeMillis());
+        if (openUntil > 0) {
+            log.warn("[一致性任务框架] 任务方法 [{}] 失败率过高，熔断 [{}] 秒", methodSignName,
+                this.consistencyConfiguration.getCircuitBreakerOpenSeconds());
+        }
+    }
+
+    private Breaker getOrCreateBreaker(final String methodSignName) {
+        return this.breakers.computeIfAbsent(methodSignName,
+            key -> new Breaker(key, this.consistencyConfiguration.getCircuitBreakerWindowSize(),
+                this.consistencyConfiguration.getCircuitBreakerFailureRatio(),
+                TimeUtils.secToMill(this.consistencyConfiguration.getCircuitBreakerOpenSeconds()),
+                this.consistencyConfiguration.getCircuitBreakerHalfOpenProbes(),
+                TimeUtils.secToMill(this.consistencyConfiguration.getCircuitBreakerRampUpSeconds())));
+    }
+
+    /**
+     * 熔断器的状态
+     */
+    private enum State {
+        /**
+         * 正常执行
+         */
+        CLOSED,
+        /**
+         * 熔断中
+         */
+        OPEN,
+        /**
+         * 半开 只允许少量探测任务执行
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * 一个任务方法的熔断器
+     */
+    private static final class Breaker {
+
+        private final String methodSignName;
+        private final double failureRatio;
+        private final long openMillis;
+        private final int halfOpenProbes;
+        private final long rampUpMillis;
+        /**
+         * 最近几次执行是否失败的环形窗口
+         */
+        private final boolean[] window;
+        private int windowIndex;
+        private int windowCount;
+        private int failureCount;
+        private State state = State.CLOSED;
+        /**
+         * 熔断结束时间
+         */
+        private long openUntil;
+        /**
+         * 半开状态下正在执行的探测任务数
+         */
+        private int probesInFlight;
+        /**
+         * 半开状态下执行成功的探测任务数
+         */
+        private int probeSuccesses;
+        /**
+         * 最近一次关闭熔断的时间 0表示没有熔断过
+         */
+        private long closedAt;
+
+        private Breaker(final String methodSignName, final int windowSize, final double failureRatio,
+            final long openMillis, final int halfOpenProbes, final long rampUpMillis) {
+            this.methodSignName = methodSignName;
+            this.window = new boolean[Math.max(windowSize, 1)];
+            this.failureRatio = failureRatio;
+            this.openMillis = openMillis;
+            this.halfOpenProbes = Math.max(halfOpenProbes, 1);
+            this.rampUpMillis = rampUpMillis;
+        }
+
+        private synchronized boolean isOpen(final long now) {
+            return this.state == State.OPEN && now < this.openUntil;
+        }
+
+        /**
+         * 熔断结束时间
+         *
+         * @param now 当前时间
+         * @return 熔断中时返回熔断结束时间，否则返回0
+         */
+        private synchronized long getOpenUntil(final long now) {
+            return this.isOpen(now) ? this.openUntil : 0L;
+        }
+
+        /**
+         * 推迟任务时随机增加的时间上限 在逐步恢复的时间范围内分布，没有逐步恢复时在一个熔断时长内分布
+         *
+         * @return 随机时间的上限 单位毫秒
+         */
+        private long getJitterMillis() {
+            return Math.max(this.rampUpMillis > 0 ? this.rampUpMillis : this.openMillis, 1L);
+        }
+
+        private synchronized boolean tryAcquire(final long now) {
+            if (this.state == State.OPEN) {
+                if (now < this.openUntil) {
+                    return false;
+                }
+                this.state = State.HALF_OPEN;
+                this.probesInFlight = 0;
+                this.probeSuccesses = 0;
+                log.info("[一致性任务框架] 任务方法 [{}] 熔断结束，进入半开状态", this.methodSignName);
+            }
+            if (this.state == State.HALF_OPEN) {
+                if (this.probesInFlight >= this.halfOpenProbes) {
+                    return false;
+                }
+                this.probesInFlight++;
+                return true;
+            }
+            final long elapsed = now - this.closedAt;
+            if (this.closedAt <= 0 || elapsed >= this.rampUpMillis) {
+                return true;
+            }
+            final double ratio = Math.max(TaskCircuitBreaker.MIN_RAMP_UP_RATIO, (double)elapsed / this.rampUpMillis);
+            return ThreadLocalRandom.current().nextDouble() < ratio;
+        }
+
+        private synchronized void release() {
+            if (this.state == State.HALF_OPEN && this.probesInFlight > 0) {
+                this.probesInFlight--;
+            }
+        }
+
+        /**
+         * 记录一次执行结果
+         *
+         * @param success 是否执行成功
+         * @param now 当前时间
+         * @return 本次结果触发熔断时返回熔断结束时间，否则返回0
+         */
+        private synchronized long onResult(final boolean success, final long now) {
+            if (this.state == State.OPEN) {
+                // 熔断之前已经开始执行的任务
+                return 0L;
+            }
+            if (this.state == State.HALF_OPEN) {
+                if (!success) {
+                    return this.open(now);
+                }
+                if (++this.probeSuccesses >= this.halfOpenProbes) {
+                    this.state = State.CLOSED;
+                    this.closedAt = now;
+                    log.info("[一致性任务框架] 任务方法 [{}] 探测任务全部执行成功，关闭熔断并逐步恢复执行", this.methodSignName);
+                }
+                return 0L;
+            }
+            if (this.windowCount == this.window.length && this.window[this.windowIndex]) {
+                this.failureCount--;
+            }
+            this.window[this.windowIndex] = !success;
+            this.windowIndex = (this.windowIndex + 1) % this.window.length;
+            this.windowCount = Math.min(this.windowCount + 1, this.window.length);
+            if (!success) {
+                this.failureCount++;
+            }
+            if (this.windowCount == this.window.length
+                && this.failureCount >= this.failureRatio * this.window.length) {
+                return this.open(now);
+            }
+            return 0L;
+        }
+
+        private long open(final long now) {
+            this.state = State.OPEN;
+            this.openUntil = now + this.openMillis;
+            this.windowIndex = 0;
+            this.windowCount = 0;
+            this.failureCount = 0;
+            return this.openUntil;
+        }
+
+    }
+
+}
@@ -0,0 +1,276 @@
+package com.zzjj.consistency.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.zzjj.consistency.config.ConsistencyConfiguration;
+import com.zzjj.consistency.enums.CompletionModeEnum;
+import com.zzjj.consistency.model.ConsistencyTaskInstance;
+import com.zzjj.consistency.storage.TaskStorage;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 任务完成状态的异步批量写入组件
+ * <p>
+ * 执行线程只负责把markSuccess/markFail放入队列，由单独的刷新线程按批次(数量或等待时间先到者)写入数据库：
+ * 成功的任务使用一条 DELETE ... WHERE (id, shard_key) IN (...) 删除，失败的任务使用JDBC批量UPDATE。
+ * 在刷入数据库之前，任务记录仍然保留在任务表中，即使节点宕机，任务也会被重新扫描执行，由业务的幂等机制保障。
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+@Slf4j
+@Component
+public class TaskCompletionSink implements DisposableBean {
+
+    /**
+     * 队列中的任务状态变更超过批次大小的多少倍时，由调用线程直接写入数据库，防止队列无限增长
+     */
+    private static final int MAX_PENDING_BATCH_MULTIPLE = 10;
+
+    /**
+     * 任务持久化组件
+     */
+    @Autowired
+    private TaskStorage taskStorage;
+    /**
+     * 一致性框架配置
+     */
+    @Autowired
+    private ConsistencyConfiguration consistencyConfiguration;
+
+    /**
+     * 队列锁
+     */
+    private final Object lock = new Object();
+    /**
+     * 等待刷入数据库的任务状态变更 同一个任务只保留最后一次的状态变更 key: id_shardKey
+     */
+    private Map<String, Completion> pending = new LinkedHashMap<>();
+    /**
+     * 正在刷入数据库的任务状态变更
+     */
+    private volatile Map<String, Completion> flushing = Collections.emptyMap();
+    /**
+     * 刷新线程是否在运行
+     */
+    private volatile boolean running;
+    /**
+     * 刷新线程
+     */
+    private Thread flushThread;
+
+    @PostConstruct
+    public void init() {
+        if (!this.isEnabled()) {
+            return;
+        }
+        this.running = true;
+        this.flushThread = new Thread(this::flushLoop, "taskCompletionSink");
+        this.flushThread.setDaemon(true);
+        this.flushThread.start();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (!this.running) {
+            return;
+        }
+        this.running = false;
+        synchronized (this.lock) {
+            this.lock.notifyAll();
+        }
+        this.flushThread.join(TaskCompletionSink.MAX_PENDING_BATCH_MULTIPLE * this.getLingerMillis());
+        // 停机前把剩余的状态变更刷入数据库
+        final Map<String, Completion> remaining;
+        synchronized (this.lock) {
+            remaining = this.pending;
+            this.pending = new LinkedHashMap<>();
+        }
+        this.flush(remaining);
+    }
+
+    /**
+     * 是否开启了异步批量写入
+     *
+     * @return 是否开启
+     */
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(this.consistencyConfiguration.getCompletionBatchEnabled());
+    }
+
+    /**
+     * 标记任务成功 任务会在下一次刷新时被删除
+     *
+     * @param taskInstance 任务实例信息
+     */
+    public void markSuccess(final ConsistencyTaskInstance taskInstance) {
+        this.enqueue(new Completion(taskInstance, true));
+    }
+
+    /**
+     * 标记任务失败 任务的失败信息和下次执行时间会在下一次刷新时被更新
+     *
+     * @param taskInstance 任务实例信息
+     */
+    public void markFail(final ConsistencyTaskInstance taskInstance) {
+        this.enqueue(new Completion(taskInstance, false));
+    }
+
+    /**
+     * 任务是否还有未刷入数据库的状态变更 调度器重新扫描任务时，需要跳过这些任务，防止重复执行
+     *
+     * @param taskInstance 任务实例信息
+     * @return 是否有未刷入数据库的状态变更
+     */
+    public boolean isPending(final ConsistencyTaskInstance taskInstance) {
+        if (!this.running) {
+            return false;
+        }
+        final String key = this.getKey(taskInstance);
+        synchronized (this.lock) {
+            if (this.pending.containsKey(key)) {
+                return true;
+            }
+        }
+        return this.flushing.containsKey(key);
+    }
+
+    /**
+     * 将任务状态变更放入队列
+     *
+     * @param completion 任务状态变更
+     */
+    private void enqueue(final Completion completion) {
+        final String key = this.getKey(completion.taskInstance);
+        final int batchSize = this.consistencyConfiguration.getCompletionBatchSize();
+        synchronized (this.lock) {
+            if (this.running && this.pending.size() < batchSize * TaskCompletionSink.MAX_PENDING_BATCH_MULTIPLE) {
+                this.pending.put(key, completion);
+                if (this.pending.size() == 1 || this.pending.size() >= batchSize) {
+                    this.lock.notifyAll();
+                }
+                return;
+            }
+        }
+        // 队列已满或刷新线程已停止，由调用线程直接写入
+        this.flush(Collections.singletonMap(key, completion));
+    }
+
+    /**
+     * 刷新线程的主循环
+     */
+    private void flushLoop() {
+        final int batchSize = this.consistencyConfiguration.getCompletionBatchSize();
+        while (this.running) {
+            try {
+                final Map<String, Completion> batch;
+                synchronized (this.lock) {
+                    while (this.running && this.pending.isEmpty()) {
+                        this.lock.wait();
+                    }
+                    // 等待凑够一个批次，但最多等待linger时间
+                    final long deadline = System.currentTimeMillis() + this.getLingerMillis();
+                    long remaining = this.getLingerMillis();
+                    while (this.running && this.pending.size() < batchSize && remaining > 0) {
+                        this.lock.wait(remaining);
+                        remaining = deadline - System.currentTimeMillis();
+                    }
+                    batch = this.pending;
+                    this.pending = new LinkedHashMap<>();
+                    this.flushing = batch;
+                }
+                this.flush(batch);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (final Exception e) {
+                log.error("[一致性任务框架] 批量刷新任务状态时，发生异常", e);
+            } finally {
+                this.flushing = Collections.emptyMap();
+            }
+        }
+    }
+
+    /**
+     * 将一批任务状态变更写入数据库 写入失败时只记录日志，任务记录仍在任务表中，会被重新扫描执行
+     *
+     * @param batch 任务状态变更
+     */
+    private void flush(final Map<String, Completion> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        final List<ConsistencyTaskInstance> successList = new ArrayList<>();
+        final List<ConsistencyTaskInstance> failList = new ArrayList<>();
+        for (final Completion completion : batch.values()) {
+            if (completion.success) {
+                successList.add(completion.taskInstance);
+            } else {
+                failList.add(completion.taskInstance);
+            }
+        }
+        final int batchSize = this.consistencyConfiguration.getCompletionBatchSize();
+        // ARCHIVE模式下只修改任务状态，由归档清理任务按分区批量删除
+        final boolean archive =
+            CompletionModeEnum.ARCHIVE.name().equals(this.consistencyConfiguration.getCompletionMode());
+        for (int from = 0; from < successList.size(); from += batchSize) {
+            final List<ConsistencyTaskInstance> chunk =
+                successList.subList(from, Math.min(from + batchSize, successList.size()));
+            try {
+                final int result =
+                    archive ? this.taskStorage.batchMarkArchived(chunk) : this.taskStorage.batchMarkSuccess(chunk);
+                log.info("[一致性任务框架] 批量标记任务执行成功 任务数 [{}] 结果为 [{}]", chunk.size(), result);
+            } catch (final Exception e) {
+                log.error("[一致性任务框架] 批量标记任务执行成功时，发生异常，任务会被重新调度 任务数 [{}]", chunk.size(), e);
+            }
+        }
+        if (failList.isEmpty()) {
+            return;
+        }
+        try {
+            this.taskStorage.batchMarkFail(failList);
+            log.info("[一致性任务框架] 批量标记任务执行失败 任务数 [{}]", failList.size());
+        } catch (final Exception e) {
+            log.error("[一致性任务框架] 批量标记任务执行失败时，发生异常，任务会被重新调度 任务数 [{}]", failList.size(), e);
+        }
+    }
+
+    private long getLingerMillis() {
+        return this.consistencyConfiguration.getCompletionLingerMillis();
+    }
+
+    private String getKey(final ConsistencyTaskInstance taskInstance) {
+        return taskInstance.getId() + "_" + taskInstance.getShardKey();
+    }
+
+    /**
+     * 一次任务状态变更
+     */
+    private static class Completion {
+        /**
+         * 任务实例信息
+         */
+        private final ConsistencyTaskInstance taskInstance;
+        /**
+         * true: 执行成功 false: 执行失败
+         */
+        private final boolean success;
+
+        Completion(final ConsistencyTaskInstance taskInstance, final boolean success) {
+            this.taskInstance = taskInstance;
+            this.success = success;
+        }
+    }
+
+}
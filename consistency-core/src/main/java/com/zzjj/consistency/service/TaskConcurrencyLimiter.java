@@ -0,0 +1,208 @@
+package com.zzjj.consistency.service;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.zzjj.consistency.config.ConsistencyConfiguration;
+import com.zzjj.consistency.model.ConsistencyTaskInstance;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 按任务方法自适应调整并发数的限流组件
+ * <p>
+ * 使用AIMD算法：任务执行失败或者耗时超过阈值时，认为下游已经过载，并发上限乘以回退比例；
+ * 任务执行成功且当前并发已经用到上限的一半以上时，并发上限加一。超过并发上限的任务本次不执行，保留在任务表中等待下一次调度。
+ * 各个方法当前的并发上限和正在执行的任务数通过micrometer指标暴露，引入actuator后会自动绑定到MeterRegistry。
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+@Slf4j
+@Component
+public class TaskConcurrencyLimiter implements MeterBinder {
+
+    /**
+     * 当前并发上限的指标名称
+     */
+    private static final String LIMIT_METRIC_NAME = "consistency.task.concurrency.limit";
+    /**
+     * 正在执行的任务数的指标名称
+     */
+    private static final String IN_FLIGHT_METRIC_NAME = "consistency.task.concurrency.in.flight";
+
+    /**
+     * 一致性框架配置
+     */
+    @Autowired
+    private ConsistencyConfiguration consistencyConfiguration;
+
+    /**
+     * 各个任务方法的并发限制 key: methodSignName
+     */
+    private final ConcurrentMap<String, AimdLimit> limits = new ConcurrentHashMap<>();
+    /**
+     * 已经绑定的指标注册中心
+     */
+    private final List<MeterRegistry> meterRegistries = new CopyOnWriteArrayList<>();
+
+    /**
+     * 是否开启了自适应并发限制
+     *
+     * @return 是否开启
+     */
+    public boolean isEnabled() {
+        return this.consistencyConfiguration.getAdaptiveLimitEnabled();
+    }
+
+    /**
+     * 尝试获取任务方法的执行名额
+     *
+     * @param taskInstance 任务实例
+     * @return 超过并发上限时返回false
+     */
+    public boolean tryAcquire(final ConsistencyTaskInstance taskInstance) {
+        if (!this.isEnabled()) {
+            return true;
+        }
+        return this.getOrCreateLimit(taskInstance.getMethodSignName()).tryAcquire();
+    }
+
+    /**
+     * 释放任务方法的执行名额
+     *
+     * @param taskInstance 任务实例
+     */
+    public void release(final ConsistencyTaskInstance taskInstance) {
+        if (!this.isEnabled()) {
+            return;
+        }
+        this.getOrCreateLimit(taskInstance.getMethodSignName()).release();
+    }
+
+    /**
+     * 记录一次任务方法的执行结果，并调整并发上限
+     *
+     * @param taskInstance 任务实例
+     * @param latencyNanos 任务方法的执行耗时 单位纳秒
+     * @param success 是否执行成功
+     */
+    public void onSample(final ConsistencyTaskInstance taskInstance, final long latencyNanos, final boolean success) {
+        if (!this.isEnabled()) {
+            return;
+        }
+        final boolean overload = !success || TimeUnit.NANOSECONDS
+            .toMillis(latencyNanos) > this.consistencyConfiguration.getAdaptiveLimitLatencyThresholdMillis();
+        this.getOrCreateLimit(taskInstance.getMethodSignName()).onSample(overload);
+    }
+
+    /**
+     * 获取任务方法当前的并发上限
+     *
+     * @param methodSignName 任务方法签名
+     * @return 并发上限 没有开启自适应并发限制时返回Integer.MAX_VALUE
+     */
+    public int getLimit(final String methodSignName) {
+        if (!this.isEnabled()) {
+            return Integer.MAX_VALUE;
+        }
+        return this.getOrCreateLimit(methodSignName).getLimit();
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        synchronized (this.meterRegistries) {
+            this.meterRegistries.add(registry);
+            this.limits.forEach((methodSignName, limit) -> this.registerMetrics(registry, methodSignName, limit));
+        }
+    }
+
+    private AimdLimit getOrCreateLimit(final String methodSignName) {
+        final AimdLimit limit = this.limits.get(methodSignName);
+        if (limit != null) {
+            return limit;
+        }
+        synchronized (this.meterRegistries) {
+            return this.limits.computeIfAbsent(methodSignName, key -> {
+                final AimdLimit newLimit = new AimdLimit(this.consistencyConfiguration.getAdaptiveLimitInitial(),
+                    this.consistencyConfiguration.getAdaptiveLimitMin(),
+                    this.consistencyConfiguration.getAdaptiveLimitMax(),
+                    this.consistencyConfiguration.getAdaptiveLimitBackoffRatio());
+                this.meterRegistries.forEach(registry -> this.registerMetrics(registry, key, newLimit));
+                return newLimit;
+            });
+        }
+    }
+
+    private void registerMetrics(final MeterRegistry registry, final String methodSignName, final AimdLimit limit) {
+        Gauge.builder(LIMIT_METRIC_NAME, limit, AimdLimit::getLimit).tag("method", methodSignName)
+            .description("一致性任务方法当前的并发上限").register(registry);
+        Gauge.builder(IN_FLIGHT_METRIC_NAME, limit, AimdLimit::getInFlight).tag("method", methodSignName)
+            .description("一致性任务方法正在执行的任务数").register(registry);
+    }
+
+    /**
+     * 一个任务方法的AIMD并发限制
+     */
+    private static final class AimdLimit {
+
+        private final int minLimit;
+        private final int maxLimit;
+        private final double backoffRatio;
+        /**
+         * 当前并发上限
+         */
+        private int limit;
+        /**
+         * 正在执行的任务数
+         */
+        private int inFlight;
+
+        private AimdLimit(final int initialLimit, final int minLimit, final int maxLimit, final double backoffRatio) {
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.backoffRatio = backoffRatio;
+            this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        }
+
+        private synchronized boolean tryAcquire() {
+            if (this.inFlight >= this.limit) {
+                return false;
+            }
+            this.inFlight++;
+            return true;
+        }
+
+        private synchronized void release() {
+            this.inFlight--;
+        }
+
+        private synchronized void onSample(final boolean overload) {
+            if (overload) {
+                this.limit = Math.max(this.minLimit, (int)(this.limit * this.backoffRatio));
+            } else if (this.inFlight * 2 >= this.limit) {
+                // 并发没有用到上限的一半时，说明压力不在这里，不需要继续增加
+                this.limit = Math.min(this.maxLimit, this.limit + 1);
+            }
+        }
+
+        private synchronized int getLimit() {
+            return this.limit;
+        }
+
+        private synchronized int getInFlight() {
+            return this.inFlight;
+        }
+
+    }
+
+}
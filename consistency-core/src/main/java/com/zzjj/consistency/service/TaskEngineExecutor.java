@@ -1,5 +1,7 @@
 package com.zzjj.consistency.service;
 
+import java.util.List;
+
 import com.zzjj.consistency.model.ConsistencyTaskInstance;
 
 /**
@@ -17,6 +19,13 @@ public interface TaskEngineExecutor {
      */
     void executeTaskInstance(ConsistencyTaskInstance taskInstance);
 
+    /**
+     * 调用批量方法执行同一任务方法的一批任务实例，按每个任务的执行结果分别标记成功或失败
+     *
+     * @param taskInstances 同一任务方法的任务实例集合
+     */
+    void executeTaskInstances(List<ConsistencyTaskInstance> taskInstances);
+
     /**
      * 当执行任务失败的时候，执行该逻辑
      * 
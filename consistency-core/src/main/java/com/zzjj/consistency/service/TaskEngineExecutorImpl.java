@@ -1,9 +1,11 @@
 package com.zzjj.consistency.service;
 
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 import java.util.concurrent.ThreadPoolExecutor;
 
 import javax.annotation.Resource;
@@ -12,22 +14,21 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.CollectionUtils;
-import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
 
+import com.zzjj.consistency.codec.TaskParameterCodecs;
 import com.zzjj.consistency.config.ConsistencyConfiguration;
 import com.zzjj.consistency.custom.alerter.ConsistencyFrameworkAlerter;
 import com.zzjj.consistency.enums.ConsistencyTaskStatusEnum;
 import com.zzjj.consistency.exceptions.ConsistencyException;
+import com.zzjj.consistency.invoker.ConsistencyTaskInvoker;
+import com.zzjj.consistency.invoker.ConsistencyTaskInvokerRegistry;
 import com.zzjj.consistency.model.ConsistencyTaskInstance;
 import com.zzjj.consistency.storage.RocksLocalStorage;
 import com.zzjj.consistency.utils.ExpressionUtils;
-import com.zzjj.consistency.utils.ReflectTools;
 import com.zzjj.consistency.utils.SpringBeanUtil;
-import com.zzjj.consistency.utils.TimeUtils;
 
 import cn.hutool.core.util.ObjectUtil;
-import cn.hutool.core.util.ReflectUtil;
 import cn.hutool.json.JSONUtil;
 import lombok.extern.slf4j.Slf4j;
 
@@ -73,6 +74,46 @@ public class TaskEngineExecutorImpl implements TaskEngineExecutor {
      */
     @Autowired
     private RocksLocalStorage rocksLocalStorage;
+    /**
+     * 任务完成状态的异步批量写入组件
+     */
+    @Autowired
+    private TaskCompletionSink taskCompletionSink;
+    /**
+     * 一致性任务方法调用器的注册中心
+     */
+    @Autowired
+    private ConsistencyTaskInvokerRegistry consistencyTaskInvokerRegistry;
+    /**
+     * 任务参数编解码组件
+     */
+    @Autowired
+    private TaskParameterCodecs taskParameterCodecs;
+    /**
+     * 按任务方法自适应调整并发数的限流组件
+     */
+    @Autowired
+    private TaskConcurrencyLimiter taskConcurrencyLimiter;
+    /**
+     * 延迟任务和重试任务的时间轮
+     */
+    @Autowired
+    private TaskTimingWheel taskTimingWheel;
+    /**
+     * 按任务方法选择重试策略的组件
+     */
+    @Autowired
+    private TaskRetryPolicies taskRetryPolicies;
+    /**
+     * 按任务方法熔断的组件
+     */
+    @Autowired
+    private TaskCircuitBreaker taskCircuitBreaker;
+    /**
+     * RocksDB积压任务的迁移组件
+     */
+    @Autowired
+    private TaskBacklogDrainer taskBacklogDrainer;
 
     /**
      * 执行指定的任务实例 这里使用try catch 是因为需要将任务的错误信息也保存到任务表 正常情况下 不能进行try catch，不然事务是无法回滚的
@@ -86,6 +127,32 @@ public class TaskEngineExecutorImpl implements TaskEngineExecutor {
     // 但是在调度器调度执行任务的时候，因为加了@Transactional注解，spring会基于@Transactional注解的拦截器中，
     // 新建事务，这里不能加事务注解 需要使用手工开启注解的方式，来执行任务。
     public void executeTaskInstance(final ConsistencyTaskInstance taskInstance) {
+        // 本地存储的任务正在迁移回任务表时不在本地执行
+        if (!this.taskBacklogDrainer.tryStartLocalTask(taskInstance)) {
+            log.debug("[一致性任务框架] 正在迁移RocksDB中积压的任务，本地存储的任务 [{}] 不在本地执行", taskInstance.getLocalSeq());
+            return;
+        }
+        try {
+            if (!this.tryAcquire(taskInstance)) {
+                this.releaseTasks(Collections.singletonList(taskInstance));
+                return;
+            }
+            try {
+                this.doExecuteTaskInstanceInTransaction(taskInstance);
+            } finally {
+                this.release(taskInstance);
+            }
+        } finally {
+            this.taskBacklogDrainer.finishLocalTask(taskInstance);
+        }
+    }
+
+    private void doExecuteTaskInstanceInTransaction(final ConsistencyTaskInstance taskInstance) {
+        // 开启单次往返的任务状态流转时，已经启动的任务不再开启外层事务，执行成功或失败只需要一条语句
+        if (this.consistencyConfig.getSingleRoundTripEnabled() && Boolean.TRUE.equals(taskInstance.getPreStarted())) {
+            this.doExecuteTaskInstance(taskInstance);
+            return;
+        }
         try {
             this.transactionTemplate.execute(transactionStatus -> {
                 this.doExecuteTaskInstance(taskInstance);
@@ -96,52 +163,227 @@ public class TaskEngineExecutorImpl implements TaskEngineExecutor {
         }
     }
 
+    /**
+     * 获取任务方法的执行许可 没有获取到许可时本次不执行，任务保留在任务表中等待下一次调度
+     *
+     * @param taskInstance 任务实例 合并执行时为这批任务中的第一个
+     * @return 是否获取到许可
+     */
+    private boolean tryAcquire(final ConsistencyTaskInstance taskInstance) {
+        // 任务方法熔断中
+        if (!this.taskCircuitBreaker.tryAcquire(taskInstance)) {
+            log.debug("[一致性任务框架] 任务方法 [{}] 熔断中，任务 [{}] 等待下一次调度", taskInstance.getMethodSignName(),
+                taskInstance.getId());
+            return false;
+        }
+        // 超过任务方法当前的并发上限
+        if (!this.taskConcurrencyLimiter.tryAcquire(taskInstance)) {
+            this.taskCircuitBreaker.release(taskInstance);
+            log.warn("[一致性任务框架] 任务方法 [{}] 超过自适应并发上限，任务 [{}] 等待下一次调度", taskInstance.getMethodSignName(),
+                taskInstance.getId());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 撤销没有获取到许可的任务的启动 启动时增加的执行次数不计入重试次数，撤销失败时任务等待下一次调度
+     *
+     * @param taskInstances 没有获取到许可的任务实例集合
+     */
+    private void releaseTasks(final List<ConsistencyTaskInstance> taskInstances) {
+        try {
+            this.taskStoreService.releaseTasks(taskInstances);
+        } catch (final Exception e) {
+            log.error("[一致性任务框架] 撤销没有获取到执行许可的任务时，发生异常 {}", e.getMessage());
+        }
+    }
+
+    private void release(final ConsistencyTaskInstance taskInstance) {
+        this.taskConcurrencyLimiter.release(taskInstance);
+        this.taskCircuitBreaker.release(taskInstance);
+    }
+
+    /**
+     * 记录一次任务方法的执行结果 用于调整自适应并发上限和判断是否熔断
+     *
+     * @param taskInstance 任务实例 合并执行时为这批任务中的第一个
+     * @param latencyNanos 任务方法的执行耗时 单位纳秒
+     * @param success 是否执行成功
+     */
+    private void onSample(final ConsistencyTaskInstance taskInstance, final long latencyNanos, final boolean success) {
+        this.taskConcurrencyLimiter.onSample(taskInstance, latencyNanos, success);
+        this.taskCircuitBreaker.onResult(taskInstance, success);
+    }
+
     private void doExecuteTaskInstance(final ConsistencyTaskInstance taskInstance) {
 
         boolean isOpenLocalStorageMode = false;
         try {
             // 如果id是空的，说明：任务在初始化的时候，就出现了MySQL故障。任务实例会落到本地RocksDB的KV存储中。
-            if (ObjectUtil.isEmpty(taskInstance.getId())) {
+            // 有本地存储序号的任务是从RocksDB中读取的，同样按本地存储模式执行
+            if (ObjectUtil.isEmpty(taskInstance.getId()) || taskInstance.getLocalSeq() != null) {
                 isOpenLocalStorageMode = true;
             }
 
-            // 如果没有开启本地存储模式
-            if (!isOpenLocalStorageMode) {
+            // 如果没有开启本地存储模式，且任务没有在认领时被启动
+            if (!isOpenLocalStorageMode && !Boolean.TRUE.equals(taskInstance.getPreStarted())) {
                 // 启动任务 MySQL故障点1：如果这里数据库挂了，此时任务状态是 [初始化] 或者 [执行失败] 的状态，需要持久化到本地存储.
                 this.taskStoreService.turnOnTask(taskInstance);
             }
             taskInstance.setTaskStatus(ConsistencyTaskStatusEnum.START.getCode());
-            // 执行任务
-            this.taskScheduleManager.performanceTask(taskInstance);
+            // 执行任务 任务方法的耗时和执行结果用于调整自适应并发上限和判断是否熔断
+            final long startTime = System.nanoTime();
+            try {
+                this.taskScheduleManager.performanceTask(taskInstance);
+            } catch (final Exception e) {
+                this.onSample(taskInstance, System.nanoTime() - startTime, false);
+                throw e;
+            }
+            this.onSample(taskInstance, System.nanoTime() - startTime, true);
             // 如果执行成功，到了这里，就标记为执行成功，以防止，下面markSuccess的时候，出现数据库故障。
             // 这样在进入catch块的时候，还可以做下区分
             taskInstance.setTaskStatus(ConsistencyTaskStatusEnum.SUCCESS.getCode());
             if (!isOpenLocalStorageMode) {
                 // MySQL故障点3：此时任务已经被标记为执行成功,这里会移除该任务。 如果说这里移除任务的时候，发现MySQL挂了，
                 // 等数据库恢复后，会发生任务被重复执行，由业务服务的幂等保障机制来处理。
-                final int successResult = this.taskStoreService.markSuccess(taskInstance);
-                log.info("[一致性任务框架] 标记为执行成功的结果为 [{}]", successResult > 0);
+                this.markSuccess(taskInstance);
             } else {
                 // 从RocksDB中移除
                 this.rocksRemove(taskInstance);
                 log.info("rocksRemoveFallback删除key成功");
             }
         } catch (final Exception e) {
-            log.error("[一致性任务框架] 执行一致性任务时发生异常, taskInstance的实例信息为 {}", JSONUtil.toJsonStr(taskInstance), e);
-            // 不是数据库无法连接的异常
-            if (!e.getMessage().contains(MY_SQL_NOT_OPEN_ERROR)) {
-                taskInstance.setExecuteTime(this.getNextExecuteTime(taskInstance));
+            this.onExecuteFail(taskInstance, isOpenLocalStorageMode, e);
+        }
+    }
+
+    /**
+     * 调用批量方法执行同一任务方法的一批任务实例 批量执行时不开启外层事务，每个任务的状态分别更新
+     *
+     * @param taskInstances 同一任务方法的任务实例集合
+     */
+    @Override
+    public void executeTaskInstances(final List<ConsistencyTaskInstance> taskInstances) {
+        // 一次批量调用只占用一个执行许可
+        final ConsistencyTaskInstance firstInstance = taskInstances.get(0);
+        if (!this.tryAcquire(firstInstance)) {
+            this.releaseTasks(taskInstances);
+            return;
+        }
+        try {
+            this.doExecuteTaskInstances(taskInstances);
+        } finally {
+            this.release(firstInstance);
+        }
+    }
+
+    private void doExecuteTaskInstances(final List<ConsistencyTaskInstance> batchTaskInstances) {
+        final List<Boolean> results;
+        List<ConsistencyTaskInstance> taskInstances = batchTaskInstances;
+        try {
+            // 批量启动这批任务中没有在认领时被启动的任务，已经被其他节点启动或者已经完成的任务不再执行
+            this.taskStoreService.batchTurnOnTask(batchTaskInstances.stream()
+                .filter(e -> !Boolean.TRUE.equals(e.getPreStarted())).collect(Collectors.toList()));
+            taskInstances = batchTaskInstances.stream().filter(e -> Boolean.TRUE.equals(e.getPreStarted()))
+                .collect(Collectors.toList());
+            if (taskInstances.isEmpty()) {
+                return;
+            }
+            taskInstances.forEach(e -> e.setTaskStatus(ConsistencyTaskStatusEnum.START.getCode()));
+            // 执行批量方法 一次调用的耗时和执行结果用于调整自适应并发上限和判断是否熔断，单个任务返回失败不认为下游过载
+            final long startTime = System.nanoTime();
+            try {
+                results = this.taskScheduleManager.performanceBatchTask(taskInstances);
+            } catch (final Exception e) {
+                this.onSample(taskInstances.get(0), System.nanoTime() - startTime, false);
+                throw e;
+            }
+            this.onSample(taskInstances.get(0), System.nanoTime() - startTime, true);
+        } catch (final Exception e) {
+            taskInstances.forEach(taskInstance -> this.onExecuteFail(taskInstance, false, e));
+            return;
+        }
+        for (int i = 0; i < taskInstances.size(); i++) {
+            final ConsistencyTaskInstance taskInstance = taskInstances.get(i);
+            if (!results.get(i)) {
+                this.onExecuteFail(taskInstance, false, new ConsistencyException("批量方法返回该任务执行失败"));
+                continue;
             }
-            taskInstance.setErrorMsg(this.getErrorMsg(e));
-            taskInstance.setTaskStatus(ConsistencyTaskStatusEnum.FAIL.getCode());
+            taskInstance.setTaskStatus(ConsistencyTaskStatusEnum.SUCCESS.getCode());
             try {
-                this.taskStoreService.markFail(taskInstance);
-            } catch (final Exception ex) {
-                log.error("[一致性任务框架] 标记任务执行失败时，发生异常", e);
+                this.markSuccess(taskInstance);
+            } catch (final Exception e) {
+                log.error("[一致性任务框架] 标记任务 [{}] 执行成功时，发生异常", taskInstance.getId(), e);
+            }
+        }
+    }
+
+    /**
+     * 任务执行失败时，标记任务失败并计算下一次执行时间，然后执行降级逻辑
+     *
+     * @param taskInstance 任务实例
+     * @param isOpenLocalStorageMode 任务实例是否是本地存储模式
+     * @param e 异常信息
+     */
+    private void onExecuteFail(final ConsistencyTaskInstance taskInstance, final boolean isOpenLocalStorageMode,
+        final Exception e) {
+        log.error("[一致性任务框架] 执行一致性任务时发生异常, taskInstance的实例信息为 {}", JSONUtil.toJsonStr(taskInstance), e);
+        // 不是数据库无法连接的异常 按任务方法的重试策略计算下一次执行时间，不再重试时标记为重试耗尽
+        boolean exhausted = false;
+        if (!e.getMessage().contains(MY_SQL_NOT_OPEN_ERROR)) {
+            final Long nextExecuteTime = this.taskRetryPolicies.getNextExecuteTime(taskInstance, e);
+            exhausted = nextExecuteTime == null;
+            if (!exhausted) {
+                taskInstance.setExecuteTime(nextExecuteTime);
             }
-            // 执行降级逻辑
-            this.fallbackExecuteTask(taskInstance, isOpenLocalStorageMode, e);
         }
+        taskInstance.setErrorMsg(this.getErrorMsg(e));
+        taskInstance.setTaskStatus(
+            exhausted ? ConsistencyTaskStatusEnum.EXHAUSTED.getCode() : ConsistencyTaskStatusEnum.FAIL.getCode());
+        try {
+            if (isOpenLocalStorageMode) {
+                // 本地存储的任务 按新的执行时间写回RocksDB，重试耗尽时从RocksDB中移除
+                this.rocksMarkFail(taskInstance, exhausted);
+            } else {
+                this.markFail(taskInstance);
+                // 开启时间轮时，等待重试的任务直接放入时间轮，在下一次执行时间执行
+                if (!exhausted) {
+                    this.taskTimingWheel.scheduleIfOwned(taskInstance);
+                }
+            }
+        } catch (final Exception ex) {
+            log.error("[一致性任务框架] 标记任务执行失败时，发生异常", e);
+        }
+        // 执行降级逻辑
+        this.fallbackExecuteTask(taskInstance, isOpenLocalStorageMode, e);
+    }
+
+    /**
+     * 标记任务成功 如果开启了异步批量写入，则交给批量写入组件处理
+     *
+     * @param taskInstance 任务实例信息
+     */
+    private void markSuccess(final ConsistencyTaskInstance taskInstance) {
+        if (this.taskCompletionSink.isEnabled()) {
+            this.taskCompletionSink.markSuccess(taskInstance);
+            return;
+        }
+        final int successResult = this.taskStoreService.markSuccess(taskInstance);
+        log.info("[一致性任务框架] 标记为执行成功的结果为 [{}]", successResult > 0);
+    }
+
+    /**
+     * 标记任务失败 如果开启了异步批量写入，则交给批量写入组件处理
+     *
+     * @param taskInstance 任务实例信息
+     */
+    private void markFail(final ConsistencyTaskInstance taskInstance) {
+        if (this.taskCompletionSink.isEnabled()) {
+            this.taskCompletionSink.markFail(taskInstance);
+            return;
+        }
+        this.taskStoreService.markFail(taskInstance);
     }
 
     /**
@@ -172,29 +414,19 @@ public class TaskEngineExecutorImpl implements TaskEngineExecutor {
         if (taskInstance.getExecuteTimes() <= this.consistencyConfig.getFailCountThreshold()) {
             return;
         }
-        final Class<?> fallbackClass = ReflectTools.getClassByName(taskInstance.getFallbackClassName());
-        if (ObjectUtils.isEmpty(fallbackClass)) {
-            return;
-        }
-        // 获取参数值列表的json数组字符串
-        final String taskParameterText = taskInstance.getTaskParameter();
-        // 参数类型字符串 多个用逗号进行了分隔
-        final String parameterTypes = taskInstance.getParameterTypes();
-        // 构造参数类数组
-        final Class<?>[] paramTypes = this.getParamTypes(parameterTypes);
-        // 参数具体的值
-        final Object[] paramValues = ReflectTools.buildArgs(taskParameterText, paramTypes);
-        // 从spring容器中获取相关降级的bean
-        final Object fallbackClassBean = this.getBeanBySpringApplicationContext(fallbackClass, paramValues);
-        // 获取降级方法
-        final Method fallbackMethod = ReflectUtil.getMethod(fallbackClass, taskInstance.getMethodName(), paramTypes);
         try {
+            // 获取启动时预先解析好的降级方法调用器
+            final ConsistencyTaskInvoker fallbackInvoker =
+                this.consistencyTaskInvokerRegistry.getFallbackInvoker(taskInstance);
+            // 参数具体的值
+            final Object[] paramValues =
+                this.taskParameterCodecs.decode(fallbackInvoker.getMethod(), taskInstance.getTaskParameter());
             // 执行降级逻辑的方法
-            fallbackMethod.invoke(fallbackClassBean, paramValues);
+            fallbackInvoker.invoke(paramValues);
             if (!isOpenLocalStorageMode) {
                 // 标记为执行成功 这里会移除该任务
-                final int successResult = this.taskStoreService.markSuccess(taskInstance);
-                log.info("[一致性任务框架] 降级逻辑执行成功 标记为执行成功的结果为 [{}]", successResult > 0);
+                log.info("[一致性任务框架] 降级逻辑执行成功");
+                this.markSuccess(taskInstance);
             } else {
                 this.rocksRemove(taskInstance);
             }
@@ -215,59 +447,49 @@ public class TaskEngineExecutorImpl implements TaskEngineExecutor {
         }
     }
 
-    /**
-     * 从RocksDB中获取实例任务
-     * 
-     * @param taskInstance 实例任务
-     */
-    private String getTaskInstanceFromRocks(final ConsistencyTaskInstance taskInstance) {
-        // 记录到RocksDB
-        return this.rocksLocalStorage.get(taskInstance);
-    }
-
     /**
      * 存储降级，将任务存储到RocksDB中
      * 
      * @param taskInstance 任务实例信息
      */
     private void rocksStore(final ConsistencyTaskInstance taskInstance) {
-        if (StringUtils.isEmpty(this.getTaskInstanceFromRocks(taskInstance))) {
+        // 本地存储的任务只更新RocksDB中仍然存在的记录，已经迁移回任务表的任务不会被重新写入
+        if (taskInstance.getLocalSeq() != null) {
+            this.rocksLocalStorage.update(taskInstance);
+            return;
+        }
+        if (!this.rocksLocalStorage.contains(taskInstance)) {
             // 记录到RocksDB
             this.rocksLocalStorage.put(taskInstance);
         }
     }
 
     /**
-     * 从RocksDB中删除一个实例
-     * 
+     * 标记本地存储的任务执行失败 执行时间是RocksDB的key的一部分，执行时间变化后需要重新写入
+     *
      * @param taskInstance 任务实例信息
+     * @param exhausted 是否重试耗尽
      */
-    private void rocksRemove(final ConsistencyTaskInstance taskInstance) {
-        if (!StringUtils.isEmpty(this.getTaskInstanceFromRocks(taskInstance))) {
-            // 记录到RocksDB
-            this.rocksLocalStorage.delete(taskInstance);
+    private void rocksMarkFail(final ConsistencyTaskInstance taskInstance, final boolean exhausted) {
+        if (exhausted) {
+            log.error("[一致性任务框架] 本地存储的任务重试耗尽，从RocksDB中移除, 任务信息为 {}", JSONUtil.toJsonStr(taskInstance));
+            this.rocksRemove(taskInstance);
+            return;
+        }
+        // 按索引找到原来的key，删除原来的key和写入新的key在同一个WriteBatch中完成 任务已经迁移回任务表时不再写入
+        if (!this.rocksLocalStorage.update(taskInstance)) {
+            log.warn("[一致性任务框架] 本地存储的任务已经不在RocksDB中，不再记录执行失败, 任务信息为 {}", JSONUtil.toJsonStr(taskInstance));
         }
     }
 
     /**
-     * 从spring容器中获取相关降级的bean
-     *
-     * @param fallbackClass 降级的Class类对象
-     * @param paramValues 参数值
-     * @return 相关降级的bean
-     */
-    private Object getBeanBySpringApplicationContext(final Class<?> fallbackClass, final Object[] paramValues) {
-        return SpringBeanUtil.getBean(fallbackClass, paramValues);
-    }
-
-    /**
-     * 获取参数类型数组
-     *
-     * @param taskParameterText 参数类型json字符串 可转为JsonArray
-     * @return 参数类型数组
+     * 从RocksDB中删除一个实例
+     * 
+     * @param taskInstance 任务实例信息
      */
-    private Class<?>[] getParamTypes(final String taskParameterText) {
-        return ReflectTools.buildTypeClassArray(taskParameterText.split(","));
+    private void rocksRemove(final ConsistencyTaskInstance taskInstance) {
+        // 按索引删除 任务不存在时不做任何操作
+        this.rocksLocalStorage.delete(taskInstance);
     }
 
     /**
@@ -361,18 +583,6 @@ public class TaskEngineExecutorImpl implements TaskEngineExecutor {
         return beansOfTypeMap.get(taskInstance.getAlertActionBeanName());
     }
 
-    /**
-     * 获取任务下一次的执行时间
-     *
-     * @param taskInstance 一致性任务实例
-     * @return 下次执行时间
-     */
-    private long getNextExecuteTime(final ConsistencyTaskInstance taskInstance) {
-        // 上次执行时间 + （下一次执行的次数 * 执行间隔）
-        return taskInstance.getExecuteTime()
-            + ((taskInstance.getExecuteTimes() + 1) * TimeUtils.secToMill(taskInstance.getExecuteIntervalSec()));
-    }
-
     private String getFormatTime(final long timestamp) {
         // 设置格式
         final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
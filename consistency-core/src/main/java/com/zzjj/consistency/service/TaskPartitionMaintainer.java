@@ -0,0 +1,155 @@
+package com.zzjj.consistency.service;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.zzjj.consistency.config.ConsistencyConfiguration;
+import com.zzjj.consistency.enums.CompletionModeEnum;
+import com.zzjj.consistency.mapper.TaskPartitionMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 任务表分区维护组件 ARCHIVE模式下使用
+ * <p>
+ * 任务表按gmt_create以天为单位进行RANGE分区，分区名称格式为pyyyyMMdd，最后一个分区为pmax。
+ * 定时提前创建未来几天的分区，并删除超过保留天数、且没有未完成任务的分区，执行成功的任务不需要逐行删除。
+ * 多个节点同时维护分区时，重复的DDL会执行失败，这里只记录日志，下一次维护时会重新检查。
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+@Slf4j
+@Component
+public class TaskPartitionMaintainer implements DisposableBean {
+
+    /**
+     * 按天分区的分区名称格式
+     */
+    private static final Pattern DAY_PARTITION_PATTERN = Pattern.compile("p\\d{8}");
+    /**
+     * 分区名称中日期的格式
+     */
+    private static final DateTimeFormatter PARTITION_DAY_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    /**
+     * 分区维护的mapper组件
+     */
+    @Autowired
+    private TaskPartitionMapper taskPartitionMapper;
+    /**
+     * 一致性框架配置
+     */
+    @Autowired
+    private ConsistencyConfiguration consistencyConfiguration;
+
+    /**
+     * 分区维护线程
+     */
+    private ScheduledExecutorService partitionMaintainScheduledExecutorService;
+
+    @PostConstruct
+    public void init() {
+        if (!CompletionModeEnum.ARCHIVE.name().equals(this.consistencyConfiguration.getCompletionMode())) {
+            return;
+        }
+        this.partitionMaintainScheduledExecutorService =
+            Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "taskPartitionMaintainer"));
+        this.partitionMaintainScheduledExecutorService.scheduleWithFixedDelay(this::maintain, 0,
+            this.consistencyConfiguration.getArchiveMaintainIntervalMinutes(), TimeUnit.MINUTES);
+    }
+
+    @Override
+    public void destroy() {
+        if (this.partitionMaintainScheduledExecutorService != null) {
+            this.partitionMaintainScheduledExecutorService.shutdownNow();
+        }
+    }
+
+    /**
+     * 维护任务表分区
+     */
+    public void maintain() {
+        try {
+            final List<String> partitionNames = this.taskPartitionMapper.listPartitionNames();
+            if (!partitionNames.contains("pmax")) {
+                log.warn("[一致性任务框架] 任务表没有按天分区或缺少pmax分区，跳过分区维护，请参考README中ARCHIVE模式的建表脚本");
+                return;
+            }
+            this.precreatePartitions(partitionNames);
+            this.dropExpiredPartitions(partitionNames);
+        } catch (final Exception e) {
+            log.error("[一致性任务框架] 维护任务表分区时，发生异常", e);
+        }
+    }
+
+    /**
+     * 提前创建未来几天的分区 只会在已有的最后一个按天分区之后创建
+     *
+     * @param partitionNames 已有的分区名称
+     */
+    private void precreatePartitions(final List<String> partitionNames) {
+        LocalDate lastDay = null;
+        for (final String partitionName : partitionNames) {
+            if (DAY_PARTITION_PATTERN.matcher(partitionName).matches()) {
+                lastDay = this.parsePartitionDay(partitionName);
+            }
+        }
+        final LocalDate today = LocalDate.now();
+        final LocalDate untilDay = today.plusDays(this.consistencyConfiguration.getArchivePrecreateDays());
+        LocalDate day = lastDay == null ? today : lastDay.plusDays(1);
+        for (; !day.isAfter(untilDay); day = day.plusDays(1)) {
+            final String partitionName = "p" + day.format(PARTITION_DAY_FORMATTER);
+            try {
+                this.taskPartitionMapper.addPartition(partitionName, day.plusDays(1).toString());
+                log.info("[一致性任务框架] 创建任务表分区 [{}]", partitionName);
+            } catch (final Exception e) {
+                log.warn("[一致性任务框架] 创建任务表分区 [{}] 失败，可能已被其他节点创建 {}", partitionName, e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * 删除超过保留天数、且没有未完成任务的分区
+     *
+     * @param partitionNames 已有的分区名称
+     */
+    private void dropExpiredPartitions(final List<String> partitionNames) {
+        final LocalDate expireDay = LocalDate.now().minusDays(this.consistencyConfiguration.getArchiveRetentionDays());
+        for (final String partitionName : partitionNames) {
+            if (!DAY_PARTITION_PATTERN.matcher(partitionName).matches()
+                || !this.parsePartitionDay(partitionName).isBefore(expireDay)) {
+                continue;
+            }
+            // 分区中还有未完成的任务时不能删除，等任务完成后再删除
+            final long unFinishTaskCount = this.taskPartitionMapper.countUnFinishTaskInPartition(partitionName);
+            if (unFinishTaskCount > 0) {
+                log.warn("[一致性任务框架] 任务表分区 [{}] 中还有 [{}] 个未完成的任务，暂不删除", partitionName, unFinishTaskCount);
+                continue;
+            }
+            try {
+                this.taskPartitionMapper.dropPartition(partitionName);
+                log.info("[一致性任务框架] 删除任务表分区 [{}]", partitionName);
+            } catch (final Exception e) {
+                log.warn("[一致性任务框架] 删除任务表分区 [{}] 失败，可能已被其他节点删除 {}", partitionName, e.getMessage());
+            }
+        }
+    }
+
+    private LocalDate parsePartitionDay(final String partitionName) {
+        return LocalDate.parse(partitionName.substring(1), PARTITION_DAY_FORMATTER);
+    }
+
+}
@@ -0,0 +1,145 @@
+package com.zzjj.consistency.service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.zzjj.consistency.annotation.ConsistencyTask;
+import com.zzjj.consistency.custom.retry.ExponentialJitterRetryPolicy;
+import com.zzjj.consistency.custom.retry.FixedRetryPolicy;
+import com.zzjj.consistency.custom.retry.LinearRetryPolicy;
+import com.zzjj.consistency.custom.retry.RetryPolicy;
+import com.zzjj.consistency.enums.RetryPolicyEnum;
+import com.zzjj.consistency.invoker.ConsistencyTaskInvokerRegistry;
+import com.zzjj.consistency.model.ConsistencyTaskInstance;
+import com.zzjj.consistency.utils.SpringBeanUtil;
+import com.zzjj.consistency.utils.TimeUtils;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 按任务方法选择重试策略的组件
+ * <p>
+ * 第一次计算某个任务方法的重试时间时，按@ConsistencyTask注解上的retryPolicy、maxAttempts和noRetryFor创建该方法的重试配置并缓存。
+ * 达到最大执行次数、抛出了不需要重试的异常、或者重试策略判断不需要重试时，任务不再重试。
+ * 找不到注解或者自定义重试策略的bean时，使用线性重试策略且不限制执行次数。
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+@Slf4j
+@Component
+public class TaskRetryPolicies {
+
+    /**
+     * 默认的线性重试策略
+     */
+    private static final RetryPolicy LINEAR = new LinearRetryPolicy();
+    /**
+     * 固定间隔重试策略
+     */
+    private static final RetryPolicy FIXED = new FixedRetryPolicy();
+
+    /**
+     * 一致性任务方法调用器的注册中心
+     */
+    @Autowired
+    private ConsistencyTaskInvokerRegistry consistencyTaskInvokerRegistry;
+
+    /**
+     * 各个任务方法的重试配置 key: methodSignName
+     */
+    private final ConcurrentMap<String, RetrySpec> retrySpecs = new ConcurrentHashMap<>();
+
+    /**
+     * 计算执行失败的任务下一次的执行时间
+     *
+     * @param taskInstance 执行失败的任务实例
+     * @param exception 任务执行失败的异常
+     * @return 下一次执行时间的时间戳 不再重试时返回null
+     */
+    public Long getNextExecuteTime(final ConsistencyTaskInstance taskInstance, final Exception exception) {
+        final RetrySpec retrySpec = this.retrySpecs.computeIfAbsent(taskInstance.getMethodSignName(),
+            key -> this.createRetrySpec(taskInstance));
+        // 内存中的执行次数不包含本次执行
+        if (retrySpec.maxAttempts > 0 && taskInstance.getExecuteTimes() + 1 >= retrySpec.maxAttempts) {
+            log.warn("[一致性任务框架] 任务 [{}] 已经执行了 [{}] 次，达到最大执行次数，不再重试", taskInstance.getId(),
+                taskInstance.getExecuteTimes() + 1);
+            return null;
+        }
+        if (this.isNoRetryException(retrySpec, exception)
+            || !retrySpec.retryPolicy.isRetryable(taskInstance, exception)) {
+            log.warn("[一致性任务框架] 任务 [{}] 抛出了不需要重试的异常，不再重试", taskInstance.getId());
+            return null;
+        }
+        return retrySpec.retryPolicy.getNextExecuteTime(taskInstance, exception);
+    }
+
+    /**
+     * 异常或者异常的cause是否是不需要重试的异常类型 任务方法抛出的异常会被包装后再抛出，这里需要检查整个cause链
+     *
+     * @param retrySpec 重试配置
+     * @param exception 任务执行失败的异常
+     * @return 是否不需要重试
+     */
+    private boolean isNoRetryException(final RetrySpec retrySpec, final Exception exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            for (final Class<? extends Throwable> noRetryClass : retrySpec.noRetryFor) {
+                if (noRetryClass.isInstance(cause)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private RetrySpec createRetrySpec(final ConsistencyTaskInstance taskInstance) {
+        final ConsistencyTask consistencyTask = this.consistencyTaskInvokerRegistry.findConsistencyTask(taskInstance);
+        if (consistencyTask == null) {
+            return new RetrySpec(TaskRetryPolicies.LINEAR, 0, new Class[0]);
+        }
+        return new RetrySpec(this.createRetryPolicy(consistencyTask, taskInstance), consistencyTask.maxAttempts(),
+            consistencyTask.noRetryFor());
+    }
+
+    private RetryPolicy createRetryPolicy(final ConsistencyTask consistencyTask,
+        final ConsistencyTaskInstance taskInstance) {
+        final RetryPolicyEnum retryPolicy = consistencyTask.retryPolicy();
+        if (RetryPolicyEnum.FIXED.equals(retryPolicy)) {
+            return TaskRetryPolicies.FIXED;
+        }
+        if (RetryPolicyEnum.EXPONENTIAL.equals(retryPolicy)) {
+            return new ExponentialJitterRetryPolicy(TimeUtils.secToMill(consistencyTask.maxRetryIntervalSec()));
+        }
+        if (RetryPolicyEnum.CUSTOM.equals(retryPolicy)) {
+            try {
+                return SpringBeanUtil.getBean(consistencyTask.retryPolicyBeanName(), RetryPolicy.class);
+            } catch (final Exception e) {
+                log.error("[一致性任务框架] 未获取到任务方法 [{}] 的自定义重试策略 [{}]，使用线性重试策略", taskInstance.getMethodSignName(),
+                    consistencyTask.retryPolicyBeanName(), e);
+            }
+        }
+        return TaskRetryPolicies.LINEAR;
+    }
+
+    /**
+     * 一个任务方法的重试配置
+     */
+    private static final class RetrySpec {
+
+        private final RetryPolicy retryPolicy;
+        private final int maxAttempts;
+        private final Class<? extends Throwable>[] noRetryFor;
+
+        private RetrySpec(final RetryPolicy retryPolicy, final int maxAttempts,
+            final Class<? extends Throwable>[] noRetryFor) {
+            this.retryPolicy = retryPolicy;
+            this.maxAttempts = maxAttempts;
+            this.noRetryFor = noRetryFor;
+        }
+
+    }
+
+}
@@ -1,29 +1,37 @@
 package com.zzjj.consistency.service;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CompletionService;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
-import org.springframework.util.ObjectUtils;
-import org.springframework.util.StringUtils;
 
+import com.zzjj.consistency.codec.TaskParameterCodecs;
 import com.zzjj.consistency.config.ConsistencyConfiguration;
 import com.zzjj.consistency.election.PeerElectionHandler;
+import com.zzjj.consistency.enums.ClaimModeEnum;
 import com.zzjj.consistency.exceptions.ConsistencyException;
+import com.zzjj.consistency.invoker.ConsistencyTaskBatchInvoker;
+import com.zzjj.consistency.invoker.ConsistencyTaskInvoker;
+import com.zzjj.consistency.invoker.ConsistencyTaskInvokerRegistry;
 import com.zzjj.consistency.model.ConsistencyTaskInstance;
+import com.zzjj.consistency.model.TaskScanQuery;
 import com.zzjj.consistency.storage.RocksLocalStorage;
-import com.zzjj.consistency.utils.ReflectTools;
-import com.zzjj.consistency.utils.SpringBeanUtil;
 import com.zzjj.consistency.utils.ThreadLocalUtil;
 
 import cn.hutool.core.collection.CollectionUtil;
@@ -48,7 +56,7 @@ public class TaskScheduleManager {
      * 并行任务线程池
      */
     @Autowired
-    private CompletionService<ConsistencyTaskInstance> consistencyTaskPool;
+    private Executor consistencyTaskPool;
 
     @Resource
     private TaskEngineExecutor taskEngineExecutor;
@@ -67,6 +75,55 @@ public class TaskScheduleManager {
      */
     @Autowired
     private RocksLocalStorage rocksLocalStorage;
+    /**
+     * RocksDB积压任务的迁移组件
+     */
+    @Autowired
+    private TaskBacklogDrainer taskBacklogDrainer;
+    /**
+     * 任务完成状态的异步批量写入组件
+     */
+    @Autowired
+    private TaskCompletionSink taskCompletionSink;
+    /**
+     * 一致性任务方法调用器的注册中心
+     */
+    @Autowired
+    private ConsistencyTaskInvokerRegistry consistencyTaskInvokerRegistry;
+    /**
+     * 任务参数编解码组件
+     */
+    @Autowired
+    private TaskParameterCodecs taskParameterCodecs;
+    /**
+     * 按任务方法隔离的任务执行组件
+     */
+    @Autowired
+    private TaskBulkheadExecutor taskBulkheadExecutor;
+    /**
+     * 延迟任务和重试任务的时间轮
+     */
+    @Autowired
+    private TaskTimingWheel taskTimingWheel;
+    /**
+     * 按任务方法熔断的组件
+     */
+    @Autowired
+    private TaskCircuitBreaker taskCircuitBreaker;
+
+    /**
+     * 流水线调度时限制在途任务数的信号量
+     */
+    private Semaphore dispatchPermits;
+    /**
+     * 流水线调度时已经提交但尚未执行完成的任务
+     */
+    private final Set<String> inFlightTaskKeys = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        this.dispatchPermits = new Semaphore(this.consistencyConfiguration.getDispatchMaxInFlight());
+    }
 
     /**
      * 查询并执行未完成的一致性任务
@@ -74,6 +131,13 @@ public class TaskScheduleManager {
     public void performanceTask() throws InterruptedException {
         log.info("performanceTask...");
 
+        // LEASE模式下，各节点竞争认领任务，不依赖leader的分片结果
+        if (ClaimModeEnum.LEASE.name().equals(this.consistencyConfiguration.getClaimMode())) {
+            this.executeAndAwait(this.listWaitPerformanceTaskFromRocks(), false, false);
+            this.performanceClaimedTask();
+            return;
+        }
+
         // 如果分片结果为空，即leader还没有做分片 或者 leader还没有启动
         final Map<String, List<Long>> taskSharingResult =
             this.peerElectionHandler.getConsistencyTaskShardingContext().getTaskSharingResult();
@@ -91,82 +155,385 @@ public class TaskScheduleManager {
             return;
         }
 
-        // 从我们的db，mysql里，通过sql语句，去做一个查询，查询你的未完成的任务
-        // 一下子会把所有的未完成的任务，都给他去查询出来
-        List<ConsistencyTaskInstance> consistencyTaskInstances = new ArrayList<>();
+        // 先执行RocksDB中的任务 RocksDB中的数据只有本地有，不能进行分片执行，不需要过滤
+        this.executeAndAwait(this.listWaitPerformanceTaskFromRocks(), false, false);
+
+        // 再按 (execute_time, id) 键集分页扫描数据库中未完成的任务，每次只在内存中保留一页
+        // 一页执行完成后再扫描下一页，直到扫描完整个时间范围，不会因为LIMIT而饿死排在后面的任务
+        // 开启流水线调度时不等待一页执行完成，在途任务数达到上限时才阻塞扫描
+        final TaskScanQuery scanQuery;
         try {
-            // 从数据库中拿到所有未完成的任务
-            consistencyTaskInstances = this.taskStoreService.listByUnFinishTask();
+            scanQuery = this.taskStoreService.createUnFinishTaskScanQuery(myTaskShardIndexes);
         } catch (final Exception e) {
-            log.error("调度器从数据库中获取待执行任务时，发生异常 {}", e.getMessage());
+            log.error("调度器创建任务扫描条件时，发生异常 {}", e.getMessage());
+            return;
+        }
+        // 开启时间轮时，同时扫描未来一段时间内到期的任务，放入时间轮中在到期时间执行
+        long scanUntil = System.currentTimeMillis();
+        if (this.taskTimingWheel.isEnabled()) {
+            scanUntil += this.taskTimingWheel.getHorizonMillis();
+            scanQuery.setEndTime(scanQuery.getEndTime() + this.taskTimingWheel.getHorizonMillis());
+        }
+        while (true) {
+            final List<ConsistencyTaskInstance> consistencyTaskInstances;
+            try {
+                consistencyTaskInstances = this.taskStoreService.listNextUnFinishTaskPage(scanQuery);
+            } catch (final Exception e) {
+                log.error("调度器从数据库中获取待执行任务时，发生异常 {}", e.getMessage());
+                return;
+            }
+            if (CollectionUtils.isEmpty(consistencyTaskInstances)) {
+                break;
+            }
+            // 对db的任务，根据你所属的分片进行过滤
+            this.dispatch(
+                this.scheduleFutureTasks(
+                    this.filterBelongToCurrentPeerTasks(consistencyTaskInstances, myTaskShardIndexes, scanUntil)),
+                this.consistencyConfiguration.getTwoPhaseScanEnabled(),
+                this.consistencyConfiguration.getSingleRoundTripEnabled());
+            // 不满一页说明已经扫描到最后一页
+            if (consistencyTaskInstances.size() < scanQuery.getPageSize()) {
+                break;
+            }
         }
+        log.info("[一致性任务框架] 执行完成");
+    }
 
-        // 从RocksDB中获取待执行的任务
-        final List<ConsistencyTaskInstance> waitPerformanceTaskList = this.listWaitPerformanceTaskFromRocks();
+    /**
+     * 执行时间轮中到期的任务 到期时重新加载任务的完整信息，已经完成的任务不会再被加载出来，被重新调度到以后执行的任务重新放入时间轮
+     *
+     * @param taskKeys 到期任务的索引信息
+     */
+    public void performanceDueTask(final List<ConsistencyTaskInstance> taskKeys) throws InterruptedException {
+        this.dispatchPipelined(this.scheduleFutureTasks(this.hydrateTasks(taskKeys)), false,
+            this.consistencyConfiguration.getSingleRoundTripEnabled());
+    }
 
-        // 如果本地和数据库都没有数据，则退出
-        if (CollectionUtils.isEmpty(consistencyTaskInstances) && CollectionUtil.isEmpty(waitPerformanceTaskList)) {
-            return;
+    /**
+     * 把还没有到期的任务放入时间轮
+     *
+     * @param taskInstances 任务实例集合
+     * @return 已经到期、需要立即执行的任务
+     */
+    private List<ConsistencyTaskInstance> scheduleFutureTasks(final List<ConsistencyTaskInstance> taskInstances) {
+        if (!this.taskTimingWheel.isEnabled() || CollectionUtils.isEmpty(taskInstances)) {
+            return taskInstances;
         }
+        final long now = System.currentTimeMillis();
+        return taskInstances.stream()
+            .filter(e -> e.getExecuteTime() <= now || !this.taskTimingWheel.schedule(e)).collect(Collectors.toList());
+    }
 
-        // 这里本地和数据库还不能合并，因为RocksDB中的数据只有本地有，不能进行分片执行，数据库中的才能进行分片执行
-        // 刚开始的话，对db的任务，去进行过滤，根据你所属的分片进行过滤
-        // 你的每个db里查出来的任务，你要去计算，这个任务是属于哪个分片的，如果那个分片是属于你负责的
-        // 此时的话呢，就可以把那些分片对应的任务过滤筛选出来
-        consistencyTaskInstances = this.filterBelongToCurrentPeerTasks(consistencyTaskInstances, myTaskShardIndexes);
+    /**
+     * LEASE模式下，按批次认领并执行到期的任务，直到没有可以认领的任务
+     */
+    private void performanceClaimedTask() throws InterruptedException {
+        final int claimBatchSize = this.consistencyConfiguration.getClaimBatchSize();
+        while (true) {
+            final List<ConsistencyTaskInstance> claimedTasks;
+            try {
+                claimedTasks = this.taskStoreService.claimTasks(claimBatchSize);
+            } catch (final Exception e) {
+                log.error("调度器从数据库中认领待执行任务时，发生异常 {}", e.getMessage());
+                return;
+            }
+            this.dispatch(claimedTasks, false, false);
+            if (claimedTasks.size() < claimBatchSize) {
+                break;
+            }
+        }
+        log.info("[一致性任务框架] 执行完成");
+    }
 
-        // 合并本地与数据库中的任务。到这里才能进行任务的合并，因为RocksDB是内嵌的基于本地磁盘的KV存储引擎，任务信息只有在本地有。
-        waitPerformanceTaskList.addAll(consistencyTaskInstances);
+    /**
+     * 执行一批数据库中的任务 开启流水线调度时不等待这批任务执行完成，每个任务占用一个在途许可，执行完成后释放
+     * <p>
+     * 在途许可用完时扫描线程阻塞在这里，任务执行完成释放许可后继续提交，慢任务只占用自己的许可，不会拖住其它任务和后面的扫描。
+     * 上一轮提交的任务执行完成之前，在数据库中仍然是未完成状态，再次扫描到时直接跳过，避免重复执行。
+     *
+     * @param waitPerformanceTaskList 待执行的任务列表
+     * @param hydrate 是否需要在执行前按批次加载任务的完整信息
+     * @param preStart 是否需要在执行前按批次启动任务
+     */
+    private void dispatch(final List<ConsistencyTaskInstance> waitPerformanceTaskList, final boolean hydrate,
+        final boolean preStart) throws InterruptedException {
+        if (this.consistencyConfiguration.getDispatchPipelineEnabled()) {
+            this.dispatchPipelined(waitPerformanceTaskList, hydrate, preStart);
+        } else {
+            this.executeAndAwait(waitPerformanceTaskList, hydrate, preStart);
+        }
+    }
 
-        // 合并后如果还是为空，退出执行
+    /**
+     * 以流水线的方式执行一批任务，不等待这批任务执行完成 时间轮中到期的任务总是使用这种方式执行，避免阻塞时间轮
+     *
+     * @param waitPerformanceTaskList 待执行的任务列表
+     * @param hydrate 是否需要在执行前按批次加载任务的完整信息
+     * @param preStart 是否需要在执行前按批次启动任务
+     */
+    private void dispatchPipelined(final List<ConsistencyTaskInstance> waitPerformanceTaskList, final boolean hydrate,
+        final boolean preStart) throws InterruptedException {
         if (CollectionUtils.isEmpty(waitPerformanceTaskList)) {
             return;
         }
+        // 先占住在途集合中的key再等待许可，两次扫描到同一个任务时只有一次能占住，不会重复执行
+        final List<ConsistencyTaskInstance> candidates = waitPerformanceTaskList.stream()
+            .filter(e -> this.inFlightTaskKeys.add(this.getInFlightKey(e))).collect(Collectors.toList());
+        final int batchSize = Math.min(
+            hydrate ? this.consistencyConfiguration.getHydrateBatchSize() : Math.max(candidates.size(), 1),
+            this.consistencyConfiguration.getDispatchMaxInFlight());
+        int dispatched = 0;
+        try {
+            while (dispatched < candidates.size()) {
+                final List<ConsistencyTaskInstance> candidateBatch =
+                    candidates.subList(dispatched, Math.min(dispatched + batchSize, candidates.size()));
+                // 先拿到这批任务的在途许可，再加载和启动任务，避免任务启动后长时间等待执行
+                final int permits = candidateBatch.size();
+                this.dispatchPermits.acquire(permits);
+                List<ConsistencyTaskInstance> batch = candidateBatch;
+                if (hydrate) {
+                    batch = this.hydrateTasks(batch);
+                }
+                if (preStart) {
+                    batch = this.batchTurnOnTask(batch);
+                }
+                // 已经完成或者被其他节点启动的任务不执行，归还许可并移出在途集合
+                this.dispatchPermits.release(permits - batch.size());
+                final Set<String> batchKeys = batch.stream().map(this::getInFlightKey).collect(Collectors.toSet());
+                candidateBatch.stream().map(this::getInFlightKey).filter(e -> !batchKeys.contains(e))
+                    .forEach(this.inFlightTaskKeys::remove);
+                dispatched += candidateBatch.size();
+                this.submitAll(batch, instance -> () -> {
+                    this.inFlightTaskKeys.remove(this.getInFlightKey(instance));
+                    this.dispatchPermits.release();
+                });
+            }
+        } finally {
+            // 等待许可时被中断，还没有提交的任务移出在途集合，等待下一次调度
+            candidates.subList(dispatched, candidates.size())
+                .forEach(e -> this.inFlightTaskKeys.remove(this.getInFlightKey(e)));
+        }
+    }
 
+    /**
+     * 并发执行一批任务，并等待这批任务全部执行完成 线程池已满时由调度线程自己执行，以此对扫描进行限速
+     *
+     * @param waitPerformanceTaskList 待执行的任务列表
+     * @param hydrate 是否需要在执行前按批次加载任务的完整信息
+     * @param preStart 是否需要在执行前按批次启动任务
+     */
+    private void executeAndAwait(final List<ConsistencyTaskInstance> waitPerformanceTaskList, final boolean hydrate,
+        final boolean preStart) throws InterruptedException {
+        if (CollectionUtils.isEmpty(waitPerformanceTaskList)) {
+            return;
+        }
         final CountDownLatch latch = new CountDownLatch(waitPerformanceTaskList.size());
-        // 你希望开多少线程，并发的执行你的任务，你可以自己去配置线程池里的线程数量
-        for (final ConsistencyTaskInstance instance : waitPerformanceTaskList) {
-            this.consistencyTaskPool.submit(() -> {
+        final int batchSize =
+            hydrate ? this.consistencyConfiguration.getHydrateBatchSize() : waitPerformanceTaskList.size();
+        for (int from = 0; from < waitPerformanceTaskList.size(); from += batchSize) {
+            List<ConsistencyTaskInstance> batch =
+                waitPerformanceTaskList.subList(from, Math.min(from + batchSize, waitPerformanceTaskList.size()));
+            if (hydrate) {
+                // 在交给执行器之前才加载任务参数等完整信息，扫描之后已经完成的任务不会再被加载出来
+                final int candidateCount = batch.size();
+                batch = this.hydrateTasks(batch);
+                for (int i = batch.size(); i < candidateCount; i++) {
+                    latch.countDown();
+                }
+            }
+            if (preStart) {
+                // 批量启动这批任务，执行时不再逐个调用turnOnTask，已经被其他节点启动或者已经完成的任务不再执行
+                final int candidateCount = batch.size();
+                batch = this.batchTurnOnTask(batch);
+                for (int i = batch.size(); i < candidateCount; i++) {
+                    latch.countDown();
+                }
+            }
+            // 你希望开多少线程，并发的执行你的任务，你可以自己去配置线程池里的线程数量
+            this.submitAll(batch, instance -> latch::countDown);
+        }
+        latch.await();
+    }
+
+    /**
+     * 批量加载任务的完整信息 加载失败时跳过这批任务，等待下一次调度
+     *
+     * @param taskKeys 只包含索引信息的任务实例集合
+     * @return 完整的任务实例信息
+     */
+    private List<ConsistencyTaskInstance> hydrateTasks(final List<ConsistencyTaskInstance> taskKeys) {
+        try {
+            return this.taskStoreService.hydrateTasks(taskKeys);
+        } catch (final Exception e) {
+            log.error("调度器从数据库中加载任务完整信息时，发生异常 {}", e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * 批量启动任务 启动失败时这批任务在执行时会逐个启动
+     *
+     * @param taskInstances 待执行的任务实例集合
+     * @return 需要执行的任务 启动失败时为传入的全部任务
+     */
+    private List<ConsistencyTaskInstance> batchTurnOnTask(final List<ConsistencyTaskInstance> taskInstances) {
+        try {
+            return this.taskStoreService.batchTurnOnTask(taskInstances);
+        } catch (final Exception e) {
+            log.error("调度器批量启动任务时，发生异常 {}", e.getMessage());
+            return taskInstances;
+        }
+    }
+
+    /**
+     * 提交一批任务到线程池执行 配置了批量执行的任务方法，同一方法的任务按batchSize合并为一批，调用一次批量方法
+     * <p>
+     * 只在传入的这批任务中合并，每批的任务数同时受扫描的分页大小和加载任务完整信息的批次大小限制；只存在RocksDB中的任务不合并。
+     *
+     * @param instances 任务实例集合
+     * @param onComplete 获取任务执行完成后的回调 合并执行的每个任务都会回调一次
+     */
+    private void submitAll(final List<ConsistencyTaskInstance> instances,
+        final Function<ConsistencyTaskInstance, Runnable> onComplete) {
+        final Map<ConsistencyTaskBatchInvoker, List<ConsistencyTaskInstance>> groups = new IdentityHashMap<>();
+        for (final ConsistencyTaskInstance instance : instances) {
+            final ConsistencyTaskBatchInvoker batchInvoker =
+                instance.getId() == null || instance.getLocalSeq() != null ? null
+                    : this.consistencyTaskInvokerRegistry.getBatchInvoker(instance);
+            if (batchInvoker == null) {
+                this.submit(Collections.singletonList(instance),
+                    () -> this.taskEngineExecutor.executeTaskInstance(instance), onComplete.apply(instance));
+                continue;
+            }
+            final List<ConsistencyTaskInstance> group = groups.computeIfAbsent(batchInvoker, k -> new ArrayList<>());
+            group.add(instance);
+            if (group.size() >= batchInvoker.getBatchSize()) {
+                this.submitGroup(new ArrayList<>(group), onComplete);
+                group.clear();
+            }
+        }
+        groups.values().stream().filter(e -> !e.isEmpty()).forEach(e -> this.submitGroup(e, onComplete));
+    }
+
+    /**
+     * 提交同一任务方法的一批任务 只有一个任务时调用任务方法本身
+     *
+     * @param group 同一任务方法的任务实例集合
+     * @param onComplete 获取任务执行完成后的回调
+     */
+    private void submitGroup(final List<ConsistencyTaskInstance> group,
+        final Function<ConsistencyTaskInstance, Runnable> onComplete) {
+        if (group.size() == 1) {
+            final ConsistencyTaskInstance instance = group.get(0);
+            this.submit(group, () -> this.taskEngineExecutor.executeTaskInstance(instance),
+                onComplete.apply(instance));
+            return;
+        }
+        this.submit(group, () -> this.taskEngineExecutor.executeTaskInstances(group),
+            () -> group.forEach(e -> onComplete.apply(e).run()));
+    }
+
+    /**
+     * 提交任务到线程池执行，任务执行完成后回调onComplete 线程池已满时由调度线程自己执行
+     * <p>
+     * 开启按任务方法隔离时交给任务方法的隔离舱执行，隔离舱的队列已满时撤销任务的启动并跳过该任务，等待下一次调度
+     *
+     * @param instances 一起执行的任务实例 合并执行时为这批任务，否则只有一个任务
+     * @param execution 执行任务的逻辑
+     * @param onComplete 任务执行完成后的回调
+     */
+    private void submit(final List<ConsistencyTaskInstance> instances, final Runnable execution,
+        final Runnable onComplete) {
+        final ConsistencyTaskInstance instance = instances.get(0);
+        if (this.consistencyConfiguration.getBulkheadEnabled()) {
+            final boolean accepted = this.taskBulkheadExecutor.submit(instance, () -> {
+                try {
+                    execution.run();
+                } finally {
+                    onComplete.run();
+                }
+            });
+            if (!accepted) {
+                log.warn("[一致性任务框架] 任务方法 [{}] 的隔离舱已满，任务 [{}] 等待下一次调度", instance.getMethodSignName(),
+                    instance.getId());
+                try {
+                    this.taskStoreService.releaseTasks(instances);
+                } catch (final Exception e) {
+                    log.error("[一致性任务框架] 撤销隔离舱拒绝执行的任务时，发生异常 {}", e.getMessage());
+                } finally {
+                    onComplete.run();
+                }
+            }
+            return;
+        }
+        try {
+            this.consistencyTaskPool.execute(() -> {
                 try {
                     // 执行任务
-                    this.taskEngineExecutor.executeTaskInstance(instance);
-                    return instance;
+                    execution.run();
                 } finally {
-                    latch.countDown();
+                    onComplete.run();
                 }
             });
+        } catch (final RejectedExecutionException e) {
+            try {
+                execution.run();
+            } finally {
+                onComplete.run();
+            }
         }
-        latch.await();
-        log.info("[一致性任务框架] 执行完成");
     }
 
     /**
-     * 过滤可以执行的任务 任务时间到了 并且 是当前实例所属的分片
+     * 获取任务在途集合中的key
+     *
+     * @param taskInstance 任务实例
+     * @return 任务的key
+     */
+    private String getInFlightKey(final ConsistencyTaskInstance taskInstance) {
+        return taskInstance.getId() + "_" + taskInstance.getShardKey();
+    }
+
+    /**
+     * 过滤可以执行的任务 任务时间到了 并且 是当前实例所属的分片 并且 没有尚未刷入数据库的完成状态 并且 不在时间轮中 并且 任务方法没有熔断
      * 
      * @param consistencyTaskInstances 任务实例列表
      * @param myTaskShardIndexes 当前实例被分配到的分片索引
+     * @param scanUntil 扫描的截止时间 开启时间轮时包含未来一段时间内到期的任务
      * @return 可以被执行的任务的列表
      */
     private List<ConsistencyTaskInstance> filterBelongToCurrentPeerTasks(
-        List<ConsistencyTaskInstance> consistencyTaskInstances, final List<Long> myTaskShardIndexes) {
+        List<ConsistencyTaskInstance> consistencyTaskInstances, final List<Long> myTaskShardIndexes,
+        final long scanUntil) {
         // 获取任务总分片数
         final Long shardingCount = this.consistencyConfiguration.getTaskShardingCount();
         // 判断一致性任务框架是否开启了分库模式：如果是分库模式则用shardKey来匹配任务分片逻辑，否则使用id匹配任务分片逻辑。
         final Boolean taskSharded = this.consistencyConfiguration.getTaskSharded();
         if (!CollectionUtil.isEmpty(consistencyTaskInstances)) {
-            if (taskSharded) {
+            if (this.consistencyConfiguration.getShardIndexPushDown()) {
+                // 分片和执行时间已经在SQL中过滤过了
+                consistencyTaskInstances = consistencyTaskInstances.stream()
+                    .filter(e -> !this.taskCompletionSink.isPending(e) && !this.taskTimingWheel.contains(e))
+                    .collect(Collectors.toList());
+            } else if (taskSharded) {
                 // 过滤出需要被执行的任务
                 consistencyTaskInstances =
                     consistencyTaskInstances.stream()
-                        .filter(e -> e.getExecuteTime() - System.currentTimeMillis() <= 0
-                            && myTaskShardIndexes.contains(e.getShardKey() % shardingCount))
+                        .filter(e -> e.getExecuteTime() <= scanUntil
+                            && myTaskShardIndexes.contains(e.getShardKey() % shardingCount)
+                            && !this.taskCompletionSink.isPending(e) && !this.taskTimingWheel.contains(e))
                         .collect(Collectors.toList());
             } else {
                 // 过滤出需要被执行的任务
                 consistencyTaskInstances =
-                    consistencyTaskInstances.stream().filter(e -> e.getExecuteTime() - System.currentTimeMillis() <= 0
-                        && myTaskShardIndexes.contains(e.getId() % shardingCount)).collect(Collectors.toList());
+                    consistencyTaskInstances.stream()
+                        .filter(e -> e.getExecuteTime() <= scanUntil
+                            && myTaskShardIndexes.contains(Math.floorMod(e.getId(), shardingCount))
+                            && !this.taskCompletionSink.isPending(e) && !this.taskTimingWheel.contains(e))
+                        .collect(Collectors.toList());
             }
+            // 熔断中的任务方法在熔断结束前到期的任务，按主键推迟到熔断结束之后
+            consistencyTaskInstances = this.taskCircuitBreaker.deferOpenTasks(consistencyTaskInstances);
         }
         return consistencyTaskInstances;
     }
@@ -177,12 +544,12 @@ public class TaskScheduleManager {
      * @return 待执行任务列表
      */
     private List<ConsistencyTaskInstance> listWaitPerformanceTaskFromRocks() {
-        List<ConsistencyTaskInstance> waitPerformanceTaskList = new ArrayList<>();
-        // 获取RocksDB中的数据
-        if (this.rocksLocalStorage.priorityQueue.size() > 0) {
-            waitPerformanceTaskList = this.rocksLocalStorage.getTopN(100);
+        // 正在迁移回任务表的任务由任务表的调度执行
+        if (this.taskBacklogDrainer.isDraining()) {
+            return new ArrayList<>();
         }
-        return waitPerformanceTaskList;
+        // 获取RocksDB中已经到期的数据
+        return this.rocksLocalStorage.getTopN(100);
     }
 
     /**
@@ -191,78 +558,59 @@ public class TaskScheduleManager {
      * @param taskInstance 任务实例信息
      */
     public void performanceTask(final ConsistencyTaskInstance taskInstance) {
-        // 获取方法签名 格式：类路径#方法名(参数1的类型,参数2的类型,...参数N的类型)
-        final String methodSignName = taskInstance.getMethodSignName();
-        // 获取方法所在的类
-        final Class<?> clazz = this.getTaskMethodClass(methodSignName.split("#")[0]);
-        if (ObjectUtils.isEmpty(clazz)) {
-            return;
-        }
-        final Object bean = SpringBeanUtil.getBean(clazz);
-        if (ObjectUtils.isEmpty(bean)) {
-            return;
-        }
-        // 后面把methodName独立出一个字段
-        final String methodName = taskInstance.getMethodName();
-        // 获取参数类型的字符串字符串 多个用逗号分隔
-        final String[] parameterTypes = StringUtils.isEmpty(taskInstance.getParameterTypes()) ? new String[] {}
-            : taskInstance.getParameterTypes().split(",");
-        // 构造参数类数组
-        final Class<?>[] parameterClasses = ReflectTools.buildTypeClassArray(parameterTypes);
-        // 获取目标方法
-        final Method targetMethod = this.getTargetMethod(methodName, parameterClasses, clazz);
-        if (ObjectUtils.isEmpty(targetMethod)) {
-            return;
-        }
+        // 获取启动时预先解析好的任务方法调用器
+        final ConsistencyTaskInvoker invoker = this.consistencyTaskInvokerRegistry.getInvoker(taskInstance);
         // 构造方法入参
-        final Object[] args = ReflectTools.buildArgs(taskInstance.getTaskParameter(), parameterClasses);
+        final Object[] args = this.taskParameterCodecs.decode(invoker.getMethod(), taskInstance.getTaskParameter());
         try {
             // 执行目标方法调用
             ThreadLocalUtil.setFlag(true);
-            targetMethod.invoke(bean, args);
-            ThreadLocalUtil.setFlag(false);
-        } catch (final InvocationTargetException e) {
+            invoker.invoke(args);
+        } catch (final Exception e) {
             log.error("调用目标方法时，发生异常", e);
-            final Throwable target = e.getTargetException();
-            throw new ConsistencyException((Exception)target);
-        } catch (final Exception ex) {
-            throw new ConsistencyException(ex);
+            throw new ConsistencyException(e);
+        } finally {
+            ThreadLocalUtil.setFlag(false);
         }
     }
 
     /**
-     * 获取目标方法
+     * 调用批量方法执行同一任务方法的一批任务
      *
-     * @param methodName 方法名称
-     * @param parameterTypeClassArray 入参类数组
-     * @param clazz 方法所在类的Class对象
-     * @return 目标方法
+     * @param taskInstances 同一任务方法的任务实例集合
+     * @return 和任务实例一一对应的执行结果 批量方法返回void时全部为成功
      */
-    private Method getTargetMethod(final String methodName, final Class<?>[] parameterTypeClassArray,
-        final Class<?> clazz) {
-        try {
-            return clazz.getMethod(methodName, parameterTypeClassArray);
-        } catch (final NoSuchMethodException e) {
-            log.error("获取目标方法失败", e);
-            return null;
+    public List<Boolean> performanceBatchTask(final List<ConsistencyTaskInstance> taskInstances) {
+        final ConsistencyTaskBatchInvoker batchInvoker =
+            this.consistencyTaskInvokerRegistry.getBatchInvoker(taskInstances.get(0));
+        // 按任务方法的入参类型解码每个任务的参数，组成批量方法的入参
+        final List<Object> items = new ArrayList<>(taskInstances.size());
+        for (final ConsistencyTaskInstance taskInstance : taskInstances) {
+            final ConsistencyTaskInvoker invoker = this.consistencyTaskInvokerRegistry.getInvoker(taskInstance);
+            items.add(this.taskParameterCodecs.decode(invoker.getMethod(), taskInstance.getTaskParameter())[0]);
         }
-    }
-
-    /**
-     * 构造任务方法所在的类对象
-     *
-     * @param className 类名称
-     * @return 类对象
-     */
-    private Class<?> getTaskMethodClass(final String className) {
-        final Class<?> clazz;
+        final Object result;
         try {
-            clazz = Class.forName(className);
-            return clazz;
-        } catch (final ClassNotFoundException e) {
-            e.printStackTrace();
-            return null;
+            ThreadLocalUtil.setFlag(true);
+            result = batchInvoker.getInvoker().invoke(new Object[] {items});
+        } catch (final Exception e) {
+            log.error("调用批量方法时，发生异常", e);
+            throw new ConsistencyException(e);
+        } finally {
+            ThreadLocalUtil.setFlag(false);
+        }
+        final List<Boolean> results = new ArrayList<>(taskInstances.size());
+        if (result == null) {
+            taskInstances.forEach(e -> results.add(true));
+            return results;
+        }
+        final List<?> itemResults = (List<?>)result;
+        if (itemResults.size() != taskInstances.size()) {
+            throw new ConsistencyException(String.format("[一致性任务框架] 批量方法返回的结果数 [%d] 和任务数 [%d] 不一致",
+                itemResults.size(), taskInstances.size()));
         }
+        itemResults.forEach(e -> results.add(Boolean.TRUE.equals(e)));
+        return results;
     }
 
 }
@@ -3,6 +3,7 @@ package com.zzjj.consistency.service;
 import java.util.List;
 
 import com.zzjj.consistency.model.ConsistencyTaskInstance;
+import com.zzjj.consistency.model.TaskScanQuery;
 
 /**
  * 任务存储接口
@@ -35,6 +36,38 @@ public interface TaskStoreService {
      */
     List<ConsistencyTaskInstance> listByUnFinishTask();
 
+    /**
+     * 创建未完成任务的分页扫描条件 扫描的时间范围和每页条数与listByUnFinishTask保持一致
+     *
+     * @param shardIndexes 当前节点负责的分片索引 开启分片条件下推时会作为SQL的过滤条件
+     * @return 指向第一页的分页扫描条件
+     */
+    TaskScanQuery createUnFinishTaskScanQuery(List<Long> shardIndexes);
+
+    /**
+     * 按键集分页获取下一页未完成的任务 并将扫描条件移动到本页最后一条记录之后
+     *
+     * @param scanQuery 分页扫描条件
+     * @return 本页未完成的任务 为空表示已经扫描完毕
+     */
+    List<ConsistencyTaskInstance> listNextUnFinishTaskPage(TaskScanQuery scanQuery);
+
+    /**
+     * 批量加载任务的完整信息 用于两阶段扫描时，在任务交给执行器之前加载任务参数等大字段
+     *
+     * @param taskKeys 只包含索引信息的任务实例集合
+     * @return 完整的任务实例信息 扫描之后已经完成的任务不会被返回
+     */
+    List<ConsistencyTaskInstance> hydrateTasks(List<ConsistencyTaskInstance> taskKeys);
+
+    /**
+     * LEASE模式下，为当前节点认领一批到期的任务 认领到的任务已经被启动，执行前不需要再调用turnOnTask
+     *
+     * @param limit 最多认领的任务数
+     * @return 认领到的任务
+     */
+    List<ConsistencyTaskInstance> claimTasks(int limit);
+
     /**
      * 启动任务
      *
@@ -43,6 +76,14 @@ public interface TaskStoreService {
      */
     int turnOnTask(ConsistencyTaskInstance consistencyTaskInstance);
 
+    /**
+     * 批量启动扫描到的任务 启动后的任务执行前不需要再调用turnOnTask
+     *
+     * @param taskInstances 任务实例信息集合
+     * @return 启动成功的任务 扫描之后已经被其他节点启动或者已经完成的任务不在其中，不应该再执行
+     */
+    List<ConsistencyTaskInstance> batchTurnOnTask(List<ConsistencyTaskInstance> taskInstances);
+
     /**
      * 标记任务成功
      *
@@ -52,7 +93,7 @@ public interface TaskStoreService {
     int markSuccess(ConsistencyTaskInstance consistencyTaskInstance);
 
     /**
-     * 标记任务为失败
+     * 标记任务为失败或者重试耗尽 状态使用任务实例中的taskStatus
      *
      * @param consistencyTaskInstance 一致性任务实例
      * @return 标记结果
@@ -67,6 +108,20 @@ public interface TaskStoreService {
      */
     int markFallbackFail(ConsistencyTaskInstance consistencyTaskInstance);
 
+    /**
+     * 按id和分片键批量推迟调度器已经扫描到的任务 每个任务推迟到任务实例中的执行时间
+     *
+     * @param taskInstances 任务实例集合 执行时间为推迟后的执行时间
+     */
+    void deferTasks(List<ConsistencyTaskInstance> taskInstances);
+
+    /**
+     * 撤销已经启动但被熔断、限流或者隔离舱拒绝执行的任务 任务恢复到启动前的状态，启动时增加的执行次数不计入重试次数
+     *
+     * @param taskInstances 任务实例集合 只处理写入任务表时或者扫描、认领时已经启动的任务
+     */
+    void releaseTasks(List<ConsistencyTaskInstance> taskInstances);
+
     /**
      * 提交任务实例信息
      *
@@ -1,29 +1,41 @@
 package com.zzjj.consistency.service;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CompletionService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationAdapter;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
 import com.zzjj.consistency.config.ConsistencyConfiguration;
 import com.zzjj.consistency.custom.query.TaskTimeRangeQuery;
+import com.zzjj.consistency.election.PeerElectionHandler;
+import com.zzjj.consistency.enums.ClaimModeEnum;
+import com.zzjj.consistency.enums.CompletionModeEnum;
 import com.zzjj.consistency.enums.ConsistencyTaskStatusEnum;
 import com.zzjj.consistency.enums.ExecuteEnum;
 import com.zzjj.consistency.enums.ThreadWayEnum;
 import com.zzjj.consistency.exceptions.ConsistencyException;
-import com.zzjj.consistency.mapper.TaskStoreMapper;
 import com.zzjj.consistency.model.ConsistencyTaskInstance;
+import com.zzjj.consistency.model.TaskScanQuery;
 import com.zzjj.consistency.storage.RocksLocalStorage;
+import com.zzjj.consistency.storage.TaskStorage;
 import com.zzjj.consistency.utils.ReflectTools;
 import com.zzjj.consistency.utils.SpringBeanUtil;
+import com.zzjj.consistency.utils.TimeUtils;
 
 import cn.hutool.json.JSONUtil;
 import lombok.extern.slf4j.Slf4j;
@@ -39,15 +51,15 @@ import lombok.extern.slf4j.Slf4j;
 public class TaskStoreServiceImpl implements TaskStoreService {
 
     /**
-     * 任务存储的mapper组件
+     * 任务持久化组件
      */
     @Autowired
-    private TaskStoreMapper taskStoreMapper;
+    private TaskStorage taskStorage;
     /**
      * 任务执行线程池
      */
     @Autowired
-    private CompletionService<ConsistencyTaskInstance> consistencyTaskPool;
+    private Executor consistencyTaskPool;
     /**
      * 一致性框架配置
      */
@@ -58,11 +70,34 @@ public class TaskStoreServiceImpl implements TaskStoreService {
      */
     @Autowired
     private TaskEngineExecutor taskEngineExecutor;
+    /**
+     * 按任务方法隔离的任务执行组件
+     */
+    @Autowired
+    private TaskBulkheadExecutor taskBulkheadExecutor;
+    /**
+     * 延迟任务和重试任务的时间轮
+     */
+    @Autowired
+    private TaskTimingWheel taskTimingWheel;
     /**
      * RocksDB工具类
      */
     @Autowired
     private RocksLocalStorage rocksLocalStorage;
+    /**
+     * 非分库模式下轮询分配分片索引的序号
+     */
+    private final AtomicLong shardIndexSequence = new AtomicLong();
+    /**
+     * 最近一次认领使用的租约到期时间 保证同一个节点每次认领使用的租约到期时间都不相同
+     */
+    private final AtomicLong lastLeaseUntil = new AtomicLong();
+    /**
+     * 一致性任务分片组件
+     */
+    @Autowired
+    private PeerElectionHandler peerElectionHandler;
 
     /**
      * 初始化最终一致性任务实例到数据库
@@ -71,33 +106,216 @@ public class TaskStoreServiceImpl implements TaskStoreService {
      */
     @Override
     public void initTask(final ConsistencyTaskInstance taskInstance) {
-        Long result = null;
+        this.assignShardIndex(taskInstance);
+        this.assignLease(taskInstance);
+        this.preStartOnInit(taskInstance);
+        // 判断当前Action是否包含在事务里面，如果是，先将任务暂存到事务绑定的缓冲区中
+        // 在事务提交前统一用一条多行INSERT写入，事务提交后再统一执行立即执行的任务
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            this.getOrBindTaskBuffer().add(taskInstance);
+            return;
+        }
+
+        final long result;
         // 如果写数据到MySQL失败了，那么可以将数据加入到RocksDB
         try {
-            result = this.taskStoreMapper.initTask(taskInstance);
+            result = this.taskStorage.initTask(taskInstance);
             TaskStoreServiceImpl.log.info("[一致性任务框架] 初始化任务结果为 [{}]", result > 0);
+            this.finishPreStartOnInit(taskInstance, true);
         } catch (final Exception e) {
             TaskStoreServiceImpl.log.error("[一致性任务框架] 初始化任务到数据库时，发生异常，执行降级逻辑，将任务持久化到RocksDB本地存储中, 任务信息为 {}",
                 JSONUtil.toJsonStr(taskInstance), e);
+            this.finishPreStartOnInit(taskInstance, false);
             // 将数据存储到RocksDB中
             this.rocksLocalStorage.put(taskInstance);
         }
-        // 如果执行模式不是立即执行的任务, 调度任务执行
+        // 如果执行模式不是立即执行的任务, 调度任务执行 开启时间轮时直接放入时间轮，在到期时间执行
         if (!ExecuteEnum.EXECUTE_RIGHT_NOW.getCode().equals(taskInstance.getExecuteWay())) {
+            this.taskTimingWheel.scheduleIfOwned(taskInstance);
+            return;
+        }
+        this.submitTaskInstance(taskInstance);
+    }
+
+    /**
+     * 开启分片条件下推时，为任务计算分片索引 分库模式下使用shardKey取模，否则id在写入前还未生成，按轮询的方式均匀分配到各个分片
+     *
+     * @param taskInstance 任务实例
+     */
+    private void assignShardIndex(final ConsistencyTaskInstance taskInstance) {
+        if (!this.consistencyConfiguration.getShardIndexPushDown()) {
+            return;
+        }
+        final Long shardingCount = this.consistencyConfiguration.getTaskShardingCount();
+        if (this.consistencyConfiguration.getTaskSharded()) {
+            taskInstance.setShardIndex(taskInstance.getShardKey() % shardingCount);
+        } else {
+            taskInstance.setShardIndex(
+                Math.floorMod(this.shardIndexSequence.getAndIncrement(), shardingCount));
+        }
+    }
+
+    /**
+     * LEASE模式下，立即执行的任务由当前节点执行，写入时就带上当前节点的租约，防止被其他节点认领
+     *
+     * @param taskInstance 任务实例
+     */
+    private void assignLease(final ConsistencyTaskInstance taskInstance) {
+        if (!this.isLeaseMode() || !ExecuteEnum.EXECUTE_RIGHT_NOW.getCode().equals(taskInstance.getExecuteWay())) {
+            return;
+        }
+        final String currentPeerIdentify = this.peerElectionHandler.getCurrentPeerIdentify();
+        if (StringUtils.isEmpty(currentPeerIdentify)) {
+            return;
+        }
+        taskInstance.setOwnerPeerId(currentPeerIdentify);
+        taskInstance.setLeaseUntil(this.nextLeaseUntil());
+    }
+
+    /**
+     * 开启单次往返的任务状态流转时，立即执行的任务在写入时就标记为开始执行并计入本次执行次数，执行前不需要再调用turnOnTask
+     *
+     * @param taskInstance 任务实例
+     */
+    private void preStartOnInit(final ConsistencyTaskInstance taskInstance) {
+        if (!this.isPreStartOnInit(taskInstance)) {
             return;
         }
+        taskInstance.setTaskStatus(ConsistencyTaskStatusEnum.START.getCode());
+        taskInstance.setExecuteTimes(taskInstance.getExecuteTimes() + 1);
+    }
+
+    /**
+     * 任务写入完成后，恢复内存中的执行次数 与turnOnTask保持一致，内存中的执行次数不包含本次执行
+     *
+     * @param taskInstance 任务实例
+     * @param persisted 任务是否成功写入数据库 没有写入时任务会降级到RocksDB，需要恢复为初始化状态
+     */
+    private void finishPreStartOnInit(final ConsistencyTaskInstance taskInstance, final boolean persisted) {
+        if (!this.isPreStartOnInit(taskInstance)) {
+            return;
+        }
+        taskInstance.setExecuteTimes(taskInstance.getExecuteTimes() - 1);
+        if (persisted) {
+            taskInstance.setPreStarted(true);
+        } else {
+            taskInstance.setTaskStatus(ConsistencyTaskStatusEnum.INIT.getCode());
+        }
+    }
+
+    /**
+     * 任务是否需要在写入时启动
+     *
+     * @param taskInstance 任务实例
+     * @return 是否需要在写入时启动
+     */
+    private boolean isPreStartOnInit(final ConsistencyTaskInstance taskInstance) {
+        return this.consistencyConfiguration.getSingleRoundTripEnabled()
+            && ExecuteEnum.EXECUTE_RIGHT_NOW.getCode().equals(taskInstance.getExecuteWay());
+    }
+
+    /**
+     * 是否为LEASE认领模式
+     *
+     * @return 是否为LEASE认领模式
+     */
+    private boolean isLeaseMode() {
+        return ClaimModeEnum.LEASE.name().equals(this.consistencyConfiguration.getClaimMode());
+    }
+
+    /**
+     * 获取新的租约到期时间 同一个节点每次获取到的值严格递增，可以作为认领的标识
+     *
+     * @return 租约到期时间
+     */
+    private long nextLeaseUntil() {
+        final long leaseUntil =
+            System.currentTimeMillis() + TimeUtils.secToMill(this.consistencyConfiguration.getLeaseDurationSeconds());
+        return this.lastLeaseUntil.updateAndGet(last -> Math.max(last + 1, leaseUntil));
+    }
+
+    /**
+     * 获取当前事务中已注册的任务缓冲区，如果没有则创建并注册到当前事务中
+     * 这里从当前事务的同步器列表中查找，而不是使用bindResource，是为了在REQUIRES_NEW等挂起外层事务的场景下，内层事务能拥有自己的缓冲区
+     *
+     * @return 当前事务绑定的任务缓冲区
+     */
+    private TransactionTaskBuffer getOrBindTaskBuffer() {
+        for (final TransactionSynchronization synchronization : TransactionSynchronizationManager
+            .getSynchronizations()) {
+            if (synchronization instanceof TransactionTaskBuffer) {
+                return (TransactionTaskBuffer)synchronization;
+            }
+        }
+        final TransactionTaskBuffer taskBuffer = new TransactionTaskBuffer();
+        TransactionSynchronizationManager.registerSynchronization(taskBuffer);
+        return taskBuffer;
+    }
+
+    /**
+     * 将事务中收集到的任务一次性写入数据库
+     *
+     * @param taskInstances 事务中创建的任务实例集合
+     */
+    private void flushTransactionTasks(final List<ConsistencyTaskInstance> taskInstances) {
+        try {
+            final long result = taskInstances.size() == 1 ? this.taskStorage.initTask(taskInstances.get(0))
+                : this.taskStorage.batchInitTask(taskInstances);
+            TaskStoreServiceImpl.log.info("[一致性任务框架] 批量初始化任务结果为 [{}], 任务数 [{}]", result > 0, taskInstances.size());
+            for (final ConsistencyTaskInstance taskInstance : taskInstances) {
+                this.finishPreStartOnInit(taskInstance, true);
+            }
+        } catch (final Exception e) {
+            TaskStoreServiceImpl.log.error("[一致性任务框架] 批量初始化任务到数据库时，发生异常，执行降级逻辑，将任务持久化到RocksDB本地存储中, 任务信息为 {}",
+                JSONUtil.toJsonStr(taskInstances), e);
+            // 将数据存储到RocksDB中
+            for (final ConsistencyTaskInstance taskInstance : taskInstances) {
+                this.finishPreStartOnInit(taskInstance, false);
+                this.rocksLocalStorage.put(taskInstance);
+            }
+        }
+    }
+
+    /**
+     * 事务绑定的任务缓冲区 收集同一个事务中创建的所有一致性任务
+     * <p>
+     * 先在beforeCommit中批量写入，此时仍在业务事务中，任务与业务数据一起提交或回滚；
+     * 再在afterCommit中提交立即执行的任务，并把调度执行的任务放入时间轮
+     */
+    private class TransactionTaskBuffer extends TransactionSynchronizationAdapter {
+
+        /**
+         * 当前事务中创建的任务实例
+         */
+        private final List<ConsistencyTaskInstance> taskInstances = new ArrayList<>();
+
+        /**
+         * 添加任务实例到缓冲区
+         *
+         * @param taskInstance 任务实例
+         */
+        void add(final ConsistencyTaskInstance taskInstance) {
+            this.taskInstances.add(taskInstance);
+        }
 
-        // 判断当前Action是否包含在事务里面，如果是，等事务提交后，再执行Action
-        final boolean synchronizationActive = TransactionSynchronizationManager.isSynchronizationActive();
-        if (synchronizationActive) {
-            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
-                @Override
-                public void afterCommit() {
+        @Override
+        public void beforeCommit(final boolean readOnly) {
+            if (this.taskInstances.isEmpty()) {
+                return;
+            }
+            TaskStoreServiceImpl.this.flushTransactionTasks(this.taskInstances);
+        }
+
+        @Override
+        public void afterCommit() {
+            for (final ConsistencyTaskInstance taskInstance : this.taskInstances) {
+                // 立即执行的任务提交执行，调度执行的任务放入时间轮
+                if (ExecuteEnum.EXECUTE_RIGHT_NOW.getCode().equals(taskInstance.getExecuteWay())) {
                     TaskStoreServiceImpl.this.submitTaskInstance(taskInstance);
+                } else {
+                    TaskStoreServiceImpl.this.taskTimingWheel.scheduleIfOwned(taskInstance);
                 }
-            });
-        } else {
-            this.submitTaskInstance(taskInstance);
+            }
         }
     }
 
@@ -110,7 +328,7 @@ public class TaskStoreServiceImpl implements TaskStoreService {
      */
     @Override
     public ConsistencyTaskInstance getTaskByIdAndShardKey(final Long id, final Long shardKey) {
-        return this.taskStoreMapper.getTaskByIdAndShardKey(id, shardKey);
+        return this.taskStorage.getTaskByIdAndShardKey(id, shardKey);
     }
 
     /**
@@ -120,6 +338,19 @@ public class TaskStoreServiceImpl implements TaskStoreService {
      */
     @Override
     public List<ConsistencyTaskInstance> listByUnFinishTask() {
+        final TaskScanQuery scanQuery = this.createUnFinishTaskScanQuery(null);
+        return this.taskStorage.listByUnFinishTask(scanQuery.getStartTime(), scanQuery.getEndTime(),
+            scanQuery.getPageSize());
+    }
+
+    /**
+     * 创建未完成任务的分页扫描条件
+     *
+     * @param shardIndexes 当前节点负责的分片索引
+     * @return 指向第一页的分页扫描条件
+     */
+    @Override
+    public TaskScanQuery createUnFinishTaskScanQuery(final List<Long> shardIndexes) {
         final Date startTime;
         final Date endTime;
         final Long limitTaskCount;
@@ -133,7 +364,6 @@ public class TaskStoreServiceImpl implements TaskStoreService {
                 startTime = taskTimeRangeQuery.getStartTime();
                 endTime = taskTimeRangeQuery.getEndTime();
                 limitTaskCount = taskTimeRangeQuery.limitTaskCount();
-                return this.taskStoreMapper.listByUnFinishTask(startTime.getTime(), endTime.getTime(), limitTaskCount);
             } else {
                 startTime = TaskTimeRangeQuery.defaultGetStartTime();
                 endTime = TaskTimeRangeQuery.defaultGetEndTime();
@@ -143,7 +373,76 @@ public class TaskStoreServiceImpl implements TaskStoreService {
             TaskStoreServiceImpl.log.error("[一致性任务框架] 调用业务服务实现具体的告警通知类时，发生异常", e);
             throw new ConsistencyException(e);
         }
-        return this.taskStoreMapper.listByUnFinishTask(startTime.getTime(), endTime.getTime(), limitTaskCount);
+        final TaskScanQuery scanQuery = TaskScanQuery.builder().startTime(startTime.getTime())
+            .endTime(endTime.getTime()).pageSize(limitTaskCount).build();
+        // 开启分片条件下推后，只扫描当前节点负责的分片中已经到执行时间的任务
+        if (this.consistencyConfiguration.getShardIndexPushDown() && !CollectionUtils.isEmpty(shardIndexes)) {
+            scanQuery.setShardIndexes(shardIndexes);
+            scanQuery.setEndTime(Math.min(scanQuery.getEndTime(), System.currentTimeMillis()));
+        }
+        return scanQuery;
+    }
+
+    /**
+     * 按键集分页获取下一页未完成的任务
+     *
+     * @param scanQuery 分页扫描条件
+     * @return 本页未完成的任务
+     */
+    @Override
+    public List<ConsistencyTaskInstance> listNextUnFinishTaskPage(final TaskScanQuery scanQuery) {
+        // 开启两阶段扫描时，只查询任务的索引信息
+        final List<ConsistencyTaskInstance> taskInstances = this.consistencyConfiguration.getTwoPhaseScanEnabled()
+            ? this.taskStorage.listUnFinishTaskKeyPage(scanQuery)
+            : this.taskStorage.listUnFinishTaskPage(scanQuery);
+        if (!taskInstances.isEmpty()) {
+            scanQuery.moveAfter(taskInstances.get(taskInstances.size() - 1));
+        }
+        return taskInstances;
+    }
+
+    /**
+     * 批量加载任务的完整信息
+     *
+     * @param taskKeys 只包含索引信息的任务实例集合
+     * @return 完整的任务实例信息
+     */
+    @Override
+    public List<ConsistencyTaskInstance> hydrateTasks(final List<ConsistencyTaskInstance> taskKeys) {
+        if (CollectionUtils.isEmpty(taskKeys)) {
+            return new ArrayList<>();
+        }
+        return this.taskStorage.listTaskByIdsAndShardKeys(taskKeys);
+    }
+
+    /**
+     * 为当前节点认领一批到期的任务
+     *
+     * @param limit 最多认领的任务数
+     * @return 认领到的任务
+     */
+    @Override
+    public List<ConsistencyTaskInstance> claimTasks(final int limit) {
+        final String currentPeerIdentify = this.peerElectionHandler.getCurrentPeerIdentify();
+        if (StringUtils.isEmpty(currentPeerIdentify)) {
+            TaskStoreServiceImpl.log.warn("[一致性任务框架] 当前节点尚未启动完成，暂不认领任务");
+            return new ArrayList<>();
+        }
+        final TaskScanQuery scanQuery = this.createUnFinishTaskScanQuery(null);
+        final long leaseUntil = this.nextLeaseUntil();
+        final int claimed = this.taskStorage.claimTask(currentPeerIdentify, leaseUntil, scanQuery.getStartTime(),
+            System.currentTimeMillis(), limit);
+        if (claimed <= 0) {
+            return new ArrayList<>();
+        }
+        final List<ConsistencyTaskInstance> taskInstances =
+            this.taskStorage.listClaimedTask(currentPeerIdentify, leaseUntil);
+        for (final ConsistencyTaskInstance taskInstance : taskInstances) {
+            // 认领时已经启动了任务并增加了执行次数，这里与turnOnTask保持一致，内存中的执行次数不包含本次执行
+            taskInstance.setExecuteTimes(taskInstance.getExecuteTimes() - 1);
+            taskInstance.setPreStarted(true);
+        }
+        return taskInstances;
     }
 
     /**
@@ -175,7 +474,28 @@ public class TaskStoreServiceImpl implements TaskStoreService {
     public int turnOnTask(final ConsistencyTaskInstance consistencyTaskInstance) {
         consistencyTaskInstance.setExecuteTime(System.currentTimeMillis());
         consistencyTaskInstance.setTaskStatus(ConsistencyTaskStatusEnum.START.getCode());
-        return this.taskStoreMapper.turnOnTask(consistencyTaskInstance);
+        return this.taskStorage.turnOnTask(consistencyTaskInstance);
+    }
+
+    /**
+     * 批量启动扫描到的任务 只标记实际启动成功的任务
+     *
+     * @param taskInstances 任务实例信息集合
+     * @return 启动成功的任务
+     */
+    @Override
+    public List<ConsistencyTaskInstance> batchTurnOnTask(final List<ConsistencyTaskInstance> taskInstances) {
+        if (CollectionUtils.isEmpty(taskInstances)) {
+            return new ArrayList<>();
+        }
+        final long executeTime = System.currentTimeMillis();
+        final List<ConsistencyTaskInstance> startedTasks = this.taskStorage.batchTurnOnTask(taskInstances, executeTime);
+        for (final ConsistencyTaskInstance taskInstance : startedTasks) {
+            taskInstance.setExecuteTime(executeTime);
+            taskInstance.setTaskStatus(ConsistencyTaskStatusEnum.START.getCode());
+            taskInstance.setPreStarted(true);
+        }
+        return startedTasks;
     }
 
     /**
@@ -187,11 +507,15 @@ public class TaskStoreServiceImpl implements TaskStoreService {
     @Transactional(rollbackFor = Exception.class)
     @Override
     public int markSuccess(final ConsistencyTaskInstance consistencyTaskInstance) {
-        return this.taskStoreMapper.markSuccess(consistencyTaskInstance);
+        // ARCHIVE模式下只修改任务状态，由归档清理任务按分区批量删除
+        if (CompletionModeEnum.ARCHIVE.name().equals(this.consistencyConfiguration.getCompletionMode())) {
+            return this.taskStorage.markArchived(consistencyTaskInstance);
+        }
+        return this.taskStorage.markSuccess(consistencyTaskInstance);
     }
 
     /**
-     * 标记任务为失败
+     * 标记任务为失败或者重试耗尽 状态使用任务实例中的taskStatus
      *
      * @param consistencyTaskInstance 一致性任务信息
      * @return 标记结果
@@ -199,7 +523,7 @@ public class TaskStoreServiceImpl implements TaskStoreService {
     @Transactional(rollbackFor = Exception.class)
     @Override
     public int markFail(final ConsistencyTaskInstance consistencyTaskInstance) {
-        return this.taskStoreMapper.markFail(consistencyTaskInstance);
+        return this.taskStorage.markFail(consistencyTaskInstance);
     }
 
     /**
@@ -210,7 +534,42 @@ public class TaskStoreServiceImpl implements TaskStoreService {
      */
     @Override
     public int markFallbackFail(final ConsistencyTaskInstance consistencyTaskInstance) {
-        return this.taskStoreMapper.markFallbackFail(consistencyTaskInstance);
+        return this.taskStorage.markFallbackFail(consistencyTaskInstance);
+    }
+
+    /**
+     * 按id和分片键批量推迟调度器已经扫描到的任务 只按主键更新，不会按任务方法扫描和锁定整个时间范围
+     *
+     * @param taskInstances 任务实例集合 执行时间为推迟后的执行时间
+     */
+    @Override
+    public void deferTasks(final List<ConsistencyTaskInstance> taskInstances) {
+        if (CollectionUtils.isEmpty(taskInstances)) {
+            return;
+        }
+        this.taskStorage.deferTasks(taskInstances);
+    }
+
+    /**
+     * 撤销已经启动但被拒绝执行的任务 没有执行过的任务恢复为初始化状态，执行过的任务恢复为执行失败状态
+     *
+     * @param taskInstances 任务实例集合 只处理写入任务表时或者扫描、认领时已经启动的任务
+     */
+    @Override
+    public void releaseTasks(final List<ConsistencyTaskInstance> taskInstances) {
+        final List<ConsistencyTaskInstance> preStartedTasks = taskInstances.stream()
+            .filter(e -> Boolean.TRUE.equals(e.getPreStarted()) && e.getId() != null && e.getLocalSeq() == null)
+            .collect(Collectors.toList());
+        if (preStartedTasks.isEmpty()) {
+            return;
+        }
+        for (final ConsistencyTaskInstance taskInstance : preStartedTasks) {
+            // 内存中的执行次数不包含本次执行
+            taskInstance.setTaskStatus(taskInstance.getExecuteTimes() == 0 ? ConsistencyTaskStatusEnum.INIT.getCode()
+                : ConsistencyTaskStatusEnum.FAIL.getCode());
+        }
+        this.taskStorage.releaseTasks(preStartedTasks);
+        preStartedTasks.forEach(e -> e.setPreStarted(false));
     }
 
     /**
@@ -224,10 +583,36 @@ public class TaskStoreServiceImpl implements TaskStoreService {
             // 选择事务事务模型并执行任务
             this.taskEngineExecutor.executeTaskInstance(taskInstance);
         } else if (ThreadWayEnum.ASYNC.getCode().equals(taskInstance.getThreadWay())) {
-            this.consistencyTaskPool.submit(() -> {
-                this.taskEngineExecutor.executeTaskInstance(taskInstance);
-                return taskInstance;
-            });
+            if (this.consistencyConfiguration.getBulkheadEnabled()) {
+                // 隔离舱的队列已满时任务保留在任务表中，由调度器执行
+                if (!this.taskBulkheadExecutor.submit(taskInstance,
+                    () -> this.taskEngineExecutor.executeTaskInstance(taskInstance))) {
+                    log.warn("[一致性任务框架] 任务方法 [{}] 的隔离舱已满，任务 [{}] 等待调度器执行", taskInstance.getMethodSignName(),
+                        taskInstance.getId());
+                    this.releaseRejectedTask(taskInstance);
+                }
+                return;
+            }
+            try {
+                this.consistencyTaskPool.execute(() -> this.taskEngineExecutor.executeTaskInstance(taskInstance));
+            } catch (final RejectedExecutionException e) {
+                // 线程池已满时任务保留在任务表中，由调度器执行
+                TaskStoreServiceImpl.log.warn("[一致性任务框架] 任务执行线程池已满，任务 [{}] 等待调度器执行", taskInstance.getId());
+                this.releaseRejectedTask(taskInstance);
+            }
+        }
+    }
+
+    /**
+     * 撤销写入时已经启动但没有提交执行的任务 撤销失败时任务等待下一次调度
+     *
+     * @param taskInstance 任务实例
+     */
+    private void releaseRejectedTask(final ConsistencyTaskInstance taskInstance) {
+        try {
+            this.releaseTasks(Collections.singletonList(taskInstance));
+        } catch (final Exception e) {
+            TaskStoreServiceImpl.log.error("[一致性任务框架] 撤销没有提交执行的任务时，发生异常 {}", e.getMessage());
         }
     }
 
@@ -0,0 +1,217 @@
+package com.zzjj.consistency.service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+
+import com.zzjj.consistency.config.ConsistencyConfiguration;
+import com.zzjj.consistency.election.PeerElectionHandler;
+import com.zzjj.consistency.enums.ClaimModeEnum;
+import com.zzjj.consistency.model.ConsistencyTaskInstance;
+import com.zzjj.consistency.scheduler.HierarchicalTimingWheel;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 延迟任务和重试任务的时间轮
+ * <p>
+ * 调度器扫描时，把当前节点负责的、在未来horizon秒内到期的任务放入时间轮，本节点新创建的调度任务和执行失败后等待重试的任务也直接放入时间轮，
+ * 任务在到期时间被取出执行，不再依赖下一次扫描，执行延迟从扫描间隔降低到时间轮的精度；数据库扫描只负责刷新未来horizon秒内的任务。
+ * 时间轮中只保存任务的索引，到期时会重新从数据库加载任务，已经完成或者重新调度的任务不会被执行；
+ * 到期时还会重新判断任务是否属于当前节点，分片重新分配给其他节点的任务直接丢弃，由新的节点执行。LEASE认领模式下不使用时间轮。
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+@Slf4j
+@Component
+public class TaskTimingWheel implements DisposableBean {
+
+    /**
+     * 取到期任务时的最长等待时间
+     */
+    private static final long POLL_TIMEOUT_MILLIS = 200L;
+
+    /**
+     * 一致性框架配置
+     */
+    @Autowired
+    private ConsistencyConfiguration consistencyConfiguration;
+    /**
+     * 选举和分片使用的处理器 用于判断任务是否属于当前节点
+     */
+    @Autowired
+    private PeerElectionHandler peerElectionHandler;
+    /**
+     * 任务调度管理器 执行到期的任务
+     */
+    @Autowired
+    private TaskScheduleManager taskScheduleManager;
+
+    /**
+     * 分层时间轮
+     */
+    private HierarchicalTimingWheel<ConsistencyTaskInstance> timingWheel;
+    /**
+     * 已经放入时间轮的任务 key: id_shardKey
+     */
+    private final Set<String> scheduledTaskKeys = ConcurrentHashMap.newKeySet();
+    /**
+     * 取出到期任务的线程
+     */
+    private Thread pollThread;
+    /**
+     * 是否正在运行
+     */
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init() {
+        if (!this.isEnabled()) {
+            return;
+        }
+        this.timingWheel = new HierarchicalTimingWheel<>(this.consistencyConfiguration.getTimingWheelTickMillis(),
+            this.consistencyConfiguration.getTimingWheelSize());
+        this.running = true;
+        this.pollThread = new Thread(this::pollLoop, "consistencyTaskTimingWheel");
+        this.pollThread.setDaemon(true);
+        this.pollThread.start();
+    }
+
+    @Override
+    public void destroy() {
+        this.running = false;
+        if (this.pollThread != null) {
+            this.pollThread.interrupt();
+        }
+    }
+
+    /**
+     * 是否开启了时间轮 LEASE认领模式下任务由各节点竞争认领，不使用时间轮
+     *
+     * @return 是否开启
+     */
+    public boolean isEnabled() {
+        return this.consistencyConfiguration.getTimingWheelEnabled()
+            && !ClaimModeEnum.LEASE.name().equals(this.consistencyConfiguration.getClaimMode());
+    }
+
+    /**
+     * 时间轮负责的时间范围 单位毫秒
+     *
+     * @return 时间范围
+     */
+    public long getHorizonMillis() {
+        return this.consistencyConfiguration.getTimingWheelHorizonSeconds() * 1000L;
+    }
+
+    /**
+     * 任务是否已经在时间轮中
+     *
+     * @param taskInstance 任务实例
+     * @return 是否在时间轮中
+     */
+    public boolean contains(final ConsistencyTaskInstance taskInstance) {
+        return this.isEnabled() && this.scheduledTaskKeys.contains(this.getKey(taskInstance));
+    }
+
+    /**
+     * 将任务放入时间轮 同一个任务只会放入一次
+     *
+     * @param taskInstance 任务实例
+     * @return 任务已经到期时返回false，需要由调用方直接执行
+     */
+    public boolean schedule(final ConsistencyTaskInstance taskInstance) {
+        final String key = this.getKey(taskInstance);
+        if (!this.scheduledTaskKeys.add(key)) {
+            return true;
+        }
+        if (!this.timingWheel.add(taskInstance.getExecuteTime(), this.toTaskKey(taskInstance))) {
+            this.scheduledTaskKeys.remove(key);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 新创建的调度任务或者执行失败等待重试的任务，属于当前节点且在时间范围内到期时，直接放入时间轮
+     *
+     * @param taskInstance 任务实例
+     */
+    public void scheduleIfOwned(final ConsistencyTaskInstance taskInstance) {
+        // 只保存在RocksDB中的任务没有id，由调度器从RocksDB中执行
+        if (!this.isEnabled() || taskInstance.getId() == null || taskInstance.getExecuteTime() == null
+            || taskInstance.getExecuteTime() > System.currentTimeMillis() + this.getHorizonMillis()) {
+            return;
+        }
+        final List<Long> myTaskShardIndexes = this.peerElectionHandler.getMyTaskShardIndexes();
+        if (CollectionUtils.isEmpty(myTaskShardIndexes) || !this.isOwned(taskInstance, myTaskShardIndexes)) {
+            return;
+        }
+        // 已经到期的任务交给下一次扫描执行
+        this.schedule(taskInstance);
+    }
+
+    private boolean isOwned(final ConsistencyTaskInstance taskInstance, final List<Long> myTaskShardIndexes) {
+        if (this.consistencyConfiguration.getShardIndexPushDown()) {
+            return myTaskShardIndexes.contains(taskInstance.getShardIndex());
+        }
+        final long shardValue =
+            this.consistencyConfiguration.getTaskSharded() ? taskInstance.getShardKey() : taskInstance.getId();
+        // 从RocksDB迁移回任务表的任务id是负数
+        return myTaskShardIndexes
+            .contains(Math.floorMod(shardValue, this.consistencyConfiguration.getTaskShardingCount()));
+    }
+
+    private void pollLoop() {
+        while (this.running) {
+            try {
+                final List<ConsistencyTaskInstance> expiredTasks = this.timingWheel.poll(POLL_TIMEOUT_MILLIS);
+                if (expiredTasks.isEmpty()) {
+                    continue;
+                }
+                expiredTasks.forEach(e -> this.scheduledTaskKeys.remove(this.getKey(e)));
+                // 任务放入时间轮之后，leader可能已经把分片重新分配给了其他节点，到期时只执行仍然属于当前节点的任务
+                final List<Long> myTaskShardIndexes = this.peerElectionHandler.getMyTaskShardIndexes();
+                if (CollectionUtils.isEmpty(myTaskShardIndexes)) {
+                    continue;
+                }
+                final List<ConsistencyTaskInstance> ownedTasks = expiredTasks.stream()
+                    .filter(e -> this.isOwned(e, myTaskShardIndexes)).collect(Collectors.toList());
+                if (!ownedTasks.isEmpty()) {
+                    this.taskScheduleManager.performanceDueTask(ownedTasks);
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (final Exception e) {
+                log.error("[一致性任务框架] 执行时间轮中到期的任务时，发生异常", e);
+            }
+        }
+    }
+
+    /**
+     * 时间轮中只保存任务的索引信息
+     *
+     * @param taskInstance 任务实例
+     * @return 只包含索引信息的任务实例
+     */
+    private ConsistencyTaskInstance toTaskKey(final ConsistencyTaskInstance taskInstance) {
+        return ConsistencyTaskInstance.builder().id(taskInstance.getId()).shardKey(taskInstance.getShardKey())
+            .shardIndex(taskInstance.getShardIndex()).executeTime(taskInstance.getExecuteTime())
+            .methodSignName(taskInstance.getMethodSignName()).build();
+    }
+
+    private String getKey(final ConsistencyTaskInstance taskInstance) {
+        return taskInstance.getId() + "_" + taskInstance.getShardKey();
+    }
+
+}
@@ -0,0 +1,793 @@
+package com.zzjj.consistency.storage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+
+import com.zzjj.consistency.exceptions.ConsistencyException;
+import com.zzjj.consistency.model.ConsistencyTaskInstance;
+import com.zzjj.consistency.model.TaskScanQuery;
+
+/**
+ * 基于JDBC的任务持久化实现
+ * <p>
+ * 通过DataSourceUtils获取连接，与Spring事务共用同一个连接；按列的位置读取结果集，不使用反射映射；
+ * 同一种形状的SQL只拼接一次并缓存起来，配合驱动的预编译语句缓存(如MySQL的cachePrepStmts=true)复用预编译语句。
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+public class JdbcTaskStorage implements TaskStorage {
+
+    /**
+     * 扫描时每次从数据库获取的行数
+     */
+    private static final int SCAN_FETCH_SIZE = 500;
+    /**
+     * 任务表的完整列 按位置读取时的顺序与此一致
+     */
+    private static final String TASK_COLUMNS = "id,task_id,task_status,execute_times,execute_time,parameter_types,"
+        + "method_name,method_sign_name,execute_interval_sec,delay_time,task_parameter,execute_way,thread_way,"
+        + "error_msg,alert_expression,alert_action_bean_name,fallback_class_name,fallback_error_msg,shard_key,"
+        + "gmt_create,gmt_modified";
+    /**
+     * 完整列的列数
+     */
+    private static final int TASK_COLUMN_COUNT = 21;
+    /**
+     * 任务索引信息的列 按位置读取时的顺序与此一致
+     */
+    private static final String TASK_KEY_COLUMNS = "id,execute_time,method_sign_name,shard_key";
+    /**
+     * 写入任务时的固定列 不包含gmt_create和gmt_modified
+     */
+    private static final String INSERT_COLUMNS = "task_id,task_status,execute_times,execute_time,parameter_types,"
+        + "method_name,method_sign_name,execute_interval_sec,delay_time,task_parameter,execute_way,thread_way,"
+        + "error_msg,alert_expression,alert_action_bean_name,fallback_class_name,fallback_error_msg,shard_key";
+    /**
+     * 写入任务时固定列的列数
+     */
+    private static final int INSERT_COLUMN_COUNT = 18;
+    /**
+     * 一条多行INSERT语句最多写入的任务数
+     */
+    private static final int MAX_INSERT_ROWS = 100;
+
+    private static final String GET_TASK_SQL =
+        "SELECT " + TASK_COLUMNS + " FROM consistency_task WHERE id=? AND shard_key=?";
+    private static final String LIST_UN_FINISH_TASK_SQL = "SELECT " + TASK_COLUMNS
+        + " FROM consistency_task WHERE task_status IN (0,1,2) AND execute_time>=? AND execute_time<=? "
+        + "ORDER BY execute_time DESC LIMIT ?";
+    private static final String CLAIM_TASK_SQL = "UPDATE consistency_task SET task_status=1, "
+        + "execute_times=execute_times+1, execute_time=?, owner_peer_id=?, lease_until=? "
+        + "WHERE task_status IN (0,1,2) AND execute_time>=? AND execute_time<=? "
+        + "AND (lease_until IS NULL OR lease_until<?) ORDER BY execute_time LIMIT ?";
+    private static final String LIST_CLAIMED_TASK_SQL = "SELECT " + TASK_COLUMNS + ",owner_peer_id,lease_until "
+        + "FROM consistency_task WHERE owner_peer_id=? AND lease_until=? AND task_status=1";
+    private static final String TURN_ON_TASK_SQL = "UPDATE consistency_task SET task_status=?, "
+        + "execute_times=execute_times+1, execute_time=? WHERE id=? AND shard_key=?";
+    private static final String BATCH_TURN_ON_TASK_SQL = "UPDATE consistency_task SET task_status=1, "
+        + "execute_times=execute_times+1, execute_time=? WHERE id=? AND shard_key=? AND task_status IN (0,1,2) "
+        + "AND execute_times=?";
+    private static final String MARK_SUCCESS_SQL = "DELETE FROM consistency_task WHERE id=? AND shard_key=?";
+    private static final String MARK_ARCHIVED_SQL =
+        "UPDATE consistency_task SET task_status=3 WHERE id=? AND shard_key=?";
+    private static final String MARK_FAIL_SQL =
+        "UPDATE consistency_task SET task_status=?, error_msg=?, execute_time=? WHERE id=? AND shard_key=?";
+    private static final String MARK_FAIL_AND_RELEASE_LEASE_SQL = "UPDATE consistency_task SET task_status=?, "
+        + "error_msg=?, execute_time=?, owner_peer_id=NULL, lease_until=NULL "
+        + "WHERE id=? AND shard_key=? AND owner_peer_id=?";
+    private static final String MARK_FALLBACK_FAIL_SQL =
+        "UPDATE consistency_task SET fallback_error_msg=? WHERE id=? AND shard_key=?";
+    private static final String DEFER_TASK_SQL =
+        "UPDATE consistency_task SET execute_time=? WHERE id=? AND shard_key=? AND task_status IN (0,1,2)";
+    private static final String RELEASE_TASK_SQL = "UPDATE consistency_task SET task_status=?, "
+        + "execute_times=execute_times-1 WHERE id=? AND shard_key=? AND task_status=1";
+    private static final String RELEASE_TASK_AND_LEASE_SQL = "UPDATE consistency_task SET task_status=?, "
+        + "execute_times=execute_times-1, owner_peer_id=NULL, lease_until=NULL "
+        + "WHERE id=? AND shard_key=? AND task_status=1 AND owner_peer_id=?";
+
+    /**
+     * 数据源
+     */
+    @Autowired
+    private DataSource dataSource;
+
+    /**
+     * 动态拼接的SQL缓存 key: SQL的形状
+     */
+    private final ConcurrentMap<String, String> sqlCache = new ConcurrentHashMap<>();
+
+    @Override
+    public long initTask(final ConsistencyTaskInstance taskInstance) {
+        final boolean withShardIndex = taskInstance.getShardIndex() != null;
+        final boolean withLease = taskInstance.getOwnerPeerId() != null;
+        return this.execute(this.getInsertSql(false, withShardIndex, withLease, 1), true, ps -> {
+            this.setInsertParameters(ps, 1, taskInstance, withShardIndex, withLease);
+            final int result = ps.executeUpdate();
+            try (final ResultSet keys = ps.getGeneratedKeys()) {
+                if (keys.next()) {
+                    taskInstance.setId(keys.getLong(1));
+                }
+            }
+            return (long)result;
+        });
+    }
+
+    @Override
+    public int batchInitTask(final List<ConsistencyTaskInstance> taskInstances) {
+        return this.insertRows(taskInstances, false);
+    }
+
+    @Override
+    public int batchRestoreTask(final List<ConsistencyTaskInstance> taskInstances) {
+        return this.insertRows(taskInstances, true);
+    }
+
+    @Override
+    public ConsistencyTaskInstance getTaskByIdAndShardKey(final Long id, final Long shardKey) {
+        final List<ConsistencyTaskInstance> taskInstances = this.query(JdbcTaskStorage.GET_TASK_SQL, ps -> {
+            ps.setLong(1, id);
+            ps.setLong(2, shardKey);
+        }, this::mapTask);
+        return taskInstances.isEmpty() ? null : taskInstances.get(0);
+    }
+
+    @Override
+    public List<ConsistencyTaskInstance> listByUnFinishTask(final Long startTime, final Long endTime,
+        final Long limitTaskCount) {
+        return this.query(JdbcTaskStorage.LIST_UN_FINISH_TASK_SQL, ps -> {
+            ps.setLong(1, startTime);
+            ps.setLong(2, endTime);
+            ps.setLong(3, limitTaskCount);
+        }, this::mapTask);
+    }
+
+    @Override
+    public List<ConsistencyTaskInstance> listUnFinishTaskPage(final TaskScanQuery scanQuery) {
+        final boolean withShardIndex = scanQuery.getShardIndexes() != null;
+        final String sql = this.getScanPageSql(JdbcTaskStorage.TASK_COLUMNS, scanQuery);
+        return this.query(sql, ps -> this.setScanPageParameters(ps, scanQuery), rs -> {
+            final ConsistencyTaskInstance taskInstance = this.mapTask(rs);
+            if (withShardIndex) {
+                taskInstance.setShardIndex(this.getLong(rs, JdbcTaskStorage.TASK_COLUMN_COUNT + 1));
+            }
+            return taskInstance;
+        });
+    }
+
+    @Override
+    public List<ConsistencyTaskInstance> listUnFinishTaskKeyPage(final TaskScanQuery scanQuery) {
+        final boolean withShardIndex = scanQuery.getShardIndexes() != null;
+        final String sql = this.getScanPageSql(JdbcTaskStorage.TASK_KEY_COLUMNS, scanQuery);
+        return this.query(sql, ps -> this.setScanPageParameters(ps, scanQuery), rs -> {
+            final ConsistencyTaskInstance taskInstance = ConsistencyTaskInstance.builder().id(this.getLong(rs, 1))
+                .executeTime(this.getLong(rs, 2)).methodSignName(rs.getString(3)).shardKey(this.getLong(rs, 4))
+                .build();
+            if (withShardIndex) {
+                taskInstance.setShardIndex(this.getLong(rs, 5));
+            }
+            return taskInstance;
+        });
+    }
+
+    @Override
+    public List<ConsistencyTaskInstance> listTaskByIdsAndShardKeys(final List<ConsistencyTaskInstance> taskKeys) {
+        final String sql = this.sqlCache.computeIfAbsent("listByIds:" + taskKeys.size(),
+            key -> "SELECT " + JdbcTaskStorage.TASK_COLUMNS
+                + " FROM consistency_task WHERE task_status IN (0,1,2) AND (id, shard_key) IN ("
+                + this.repeat("(?,?)", taskKeys.size()) + ")");
+        return this.query(sql, ps -> this.setIdAndShardKeyParameters(ps, 1, taskKeys), this::mapTask);
+    }
+
+    @Override
+    public List<ConsistencyTaskInstance> listTaskKeysByIdsAndShardKeys(final List<ConsistencyTaskInstance> taskKeys) {
+        final String sql = this.sqlCache.computeIfAbsent("listKeysByIds:" + taskKeys.size(),
+            key -> "SELECT id,task_id,method_sign_name,shard_key FROM consistency_task WHERE (id, shard_key) IN ("
+                + this.repeat("(?,?)", taskKeys.size()) + ")");
+        return this.query(sql, ps -> this.setIdAndShardKeyParameters(ps, 1, taskKeys),
+            rs -> ConsistencyTaskInstance.builder().id(this.getLong(rs, 1)).taskId(rs.getString(2))
+                .methodSignName(rs.getString(3)).shardKey(this.getLong(rs, 4)).build());
+    }
+
+    @Override
+    public int claimTask(final String ownerPeerId, final Long leaseUntil, final Long startTime, final Long now,
+        final Integer limit) {
+        return this.execute(JdbcTaskStorage.CLAIM_TASK_SQL, false, ps -> {
+            ps.setLong(1, now);
+            ps.setString(2, ownerPeerId);
+            ps.setLong(3, leaseUntil);
+            ps.setLong(4, startTime);
+            ps.setLong(5, now);
+            ps.setLong(6, now);
+            ps.setInt(7, limit);
+            return ps.executeUpdate();
+        });
+    }
+
+    @Override
+    public List<ConsistencyTaskInstance> listClaimedTask(final String ownerPeerId, final Long leaseUntil) {
+        return this.query(JdbcTaskStorage.LIST_CLAIMED_TASK_SQL, ps -> {
+            ps.setString(1, ownerPeerId);
+            ps.setLong(2, leaseUntil);
+        }, rs -> {
+            final ConsistencyTaskInstance taskInstance = this.mapTask(rs);
+            taskInstance.setOwnerPeerId(rs.getString(JdbcTaskStorage.TASK_COLUMN_COUNT + 1));
+            taskInstance.setLeaseUntil(this.getLong(rs, JdbcTaskStorage.TASK_COLUMN_COUNT + 2));
+            return taskInstance;
+        });
+    }
+
+    @Override
+    public int turnOnTask(final ConsistencyTaskInstance taskInstance) {
+        return this.execute(JdbcTaskStorage.TURN_ON_TASK_SQL, false, ps -> {
+            ps.setInt(1, taskInstance.getTaskStatus());
+            this.setLong(ps, 2, taskInstance.getExecuteTime());
+            ps.setLong(3, taskInstance.getId());
+            ps.setLong(4, taskInstance.getShardKey());
+            return ps.executeUpdate();
+        });
+    }
+
+    @Override
+    public List<ConsistencyTaskInstance> batchTurnOnTask(final List<ConsistencyTaskInstance> taskInstances,
+        final Long executeTime) {
+        return this.executeBatch(JdbcTaskStorage.BATCH_TURN_ON_TASK_SQL, false, ps -> {
+            for (final ConsistencyTaskInstance taskInstance : taskInstances) {
+                ps.setLong(1, executeTime);
+                ps.setLong(2, taskInstance.getId());
+                ps.setLong(3, taskInstance.getShardKey());
+                ps.setInt(4, taskInstance.getExecuteTimes());
+                ps.addBatch();
+            }
+            final int[] counts = ps.executeBatch();
+            final List<ConsistencyTaskInstance> startedTasks = new ArrayList<>();
+            for (int i = 0; i < counts.length; i++) {
+                // 驱动没有返回影响行数时按启动成功处理
+                if (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO) {
+                    startedTasks.add(taskInstances.get(i));
+                }
+            }
+            return startedTasks;
+        });
+    }
+
+    @Override
+    public int markSuccess(final ConsistencyTaskInstance taskInstance) {
+        return this.updateByIdAndShardKey(JdbcTaskStorage.MARK_SUCCESS_SQL, taskInstance);
+    }
+
+    @Override
+    public int batchMarkSuccess(final List<ConsistencyTaskInstance> taskInstances) {
+        final String sql = this.sqlCache.computeIfAbsent("batchMarkSuccess:" + taskInstances.size(),
+            key -> "DELETE FROM consistency_task WHERE (id, shard_key) IN ("
+                + this.repeat("(?,?)", taskInstances.size()) + ")");
+        return this.updateByIdsAndShardKeys(sql, taskInstances);
+    }
+
+    @Override
+    public int markArchived(final ConsistencyTaskInstance taskInstance) {
+        return this.updateByIdAndShardKey(JdbcTaskStorage.MARK_ARCHIVED_SQL, taskInstance);
+    }
+
+    @Override
+    public int batchMarkArchived(final List<ConsistencyTaskInstance> taskInstances) {
+        final String sql = this.sqlCache.computeIfAbsent("batchMarkArchived:" + taskInstances.size(),
+            key -> "UPDATE consistency_task SET task_status=3 WHERE (id, shard_key) IN ("
+                + this.repeat("(?,?)", taskInstances.size()) + ")");
+        return this.updateByIdsAndShardKeys(sql, taskInstances);
+    }
+
+    @Override
+    public int markFail(final ConsistencyTaskInstance taskInstance) {
+        final boolean withLease = taskInstance.getOwnerPeerId() != null;
+        return this.execute(this.getMarkFailSql(withLease), false, ps -> {
+            this.setMarkFailParameters(ps, taskInstance, withLease);
+            return ps.executeUpdate();
+        });
+    }
+
+    @Override
+    public void batchMarkFail(final List<ConsistencyTaskInstance> taskInstances) {
+        // 带租约和不带租约的任务使用不同的语句
+        for (final boolean withLease : new boolean[] {false, true}) {
+            final List<ConsistencyTaskInstance> batch = new ArrayList<>();
+            for (final ConsistencyTaskInstance taskInstance : taskInstances) {
+                if ((taskInstance.getOwnerPeerId() != null) == withLease) {
+                    batch.add(taskInstance);
+                }
+            }
+            if (batch.isEmpty()) {
+                continue;
+            }
+            this.executeBatch(this.getMarkFailSql(withLease), false, ps -> {
+                for (final ConsistencyTaskInstance taskInstance : batch) {
+                    this.setMarkFailParameters(ps, taskInstance, withLease);
+                    ps.addBatch();
+                }
+                return this.countBatchResult(ps.executeBatch());
+            });
+        }
+    }
+
+    @Override
+    public int markFallbackFail(final ConsistencyTaskInstance taskInstance) {
+        return this.execute(JdbcTaskStorage.MARK_FALLBACK_FAIL_SQL, false, ps -> {
+            ps.setString(1, taskInstance.getFallbackErrorMsg());
+            ps.setLong(2, taskInstance.getId());
+            ps.setLong(3, taskInstance.getShardKey());
+            return ps.executeUpdate();
+        });
+    }
+
+    @Override
+    public void deferTasks(final List<ConsistencyTaskInstance> taskInstances) {
+        this.executeBatch(JdbcTaskStorage.DEFER_TASK_SQL, false, ps -> {
+            for (final ConsistencyTaskInstance taskInstance : taskInstances) {
+                ps.setLong(1, taskInstance.getExecuteTime());
+                ps.setLong(2, taskInstance.getId());
+                ps.setLong(3, taskInstance.getShardKey());
+                ps.addBatch();
+            }
+            return this.countBatchResult(ps.executeBatch());
+        });
+    }
+
+    @Override
+    public void releaseTasks(final List<ConsistencyTaskInstance> taskInstances) {
+        // 带租约和不带租约的任务使用不同的语句
+        for (final boolean withLease : new boolean[] {false, true}) {
+            final List<ConsistencyTaskInstance> batch = new ArrayList<>();
+            for (final ConsistencyTaskInstance taskInstance : taskInstances) {
+                if ((taskInstance.getOwnerPeerId() != null) == withLease) {
+                    batch.add(taskInstance);
+                }
+            }
+            if (batch.isEmpty()) {
+                continue;
+            }
+            final String sql =
+                withLease ? JdbcTaskStorage.RELEASE_TASK_AND_LEASE_SQL : JdbcTaskStorage.RELEASE_TASK_SQL;
+            this.executeBatch(sql, false, ps -> {
+                for (final ConsistencyTaskInstance taskInstance : batch) {
+                    ps.setInt(1, taskInstance.getTaskStatus());
+                    ps.setLong(2, taskInstance.getId());
+                    ps.setLong(3, taskInstance.getShardKey());
+                    if (withLease) {
+                        ps.setString(4, taskInstance.getOwnerPeerId());
+                    }
+                    ps.addBatch();
+                }
+                return this.countBatchResult(ps.executeBatch());
+            });
+        }
+    }
+
+    /**
+     * 使用多行VALUES的INSERT语句写入一批任务 不依赖驱动的rewriteBatchedStatements参数，每条语句最多写入MAX_INSERT_ROWS个任务，
+     * 不在Spring事务中时，所有语句在一个本地事务中提交
+     * <p>
+     * 同一批任务可能只有一部分带有分片索引或者租约，这里按整批任务决定要写入的列
+     *
+     * @param taskInstances 任务实例集合
+     * @param withId 是否写入任务实例中的id 为false时回填数据库生成的id
+     * @return 写入的任务数
+     */
+    private int insertRows(final List<ConsistencyTaskInstance> taskInstances, final boolean withId) {
+        final boolean withShardIndex = taskInstances.stream().anyMatch(e -> e.getShardIndex() != null);
+        final boolean withLease = taskInstances.stream().anyMatch(e -> e.getOwnerPeerId() != null);
+        return this.executeInTransaction(connection -> {
+            int result = 0;
+            for (int from = 0; from < taskInstances.size(); from += JdbcTaskStorage.MAX_INSERT_ROWS) {
+                final List<ConsistencyTaskInstance> rows =
+                    taskInstances.subList(from, Math.min(from + JdbcTaskStorage.MAX_INSERT_ROWS, taskInstances.size()));
+                final String sql = this.getInsertSql(withId, withShardIndex, withLease, rows.size());
+                try (final PreparedStatement ps = withId ? connection.prepareStatement(sql)
+                    : connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    int index = 1;
+                    for (final ConsistencyTaskInstance taskInstance : rows) {
+                        if (withId) {
+                            ps.setLong(index++, taskInstance.getId());
+                        }
+                        index = this.setInsertParameters(ps, index, taskInstance, withShardIndex, withLease);
+                    }
+                    result += ps.executeUpdate();
+                    if (withId) {
+                        continue;
+                    }
+                    // 多行写入时数据库按VALUES的顺序生成id
+                    try (final ResultSet keys = ps.getGeneratedKeys()) {
+                        for (int i = 0; i < rows.size() && keys.next(); i++) {
+                            rows.get(i).setId(keys.getLong(1));
+                        }
+                    }
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * 获取写入任务的SQL
+     *
+     * @param withId 是否写入id列 为true时每行的第一个参数为id
+     * @param withShardIndex 是否写入shard_index列
+     * @param withLease 是否写入owner_peer_id和lease_until列
+     * @param rowCount 一条语句写入的行数
+     * @return 写入任务的SQL
+     */
+    private String getInsertSql(final boolean withId, final boolean withShardIndex, final boolean withLease,
+        final int rowCount) {
+        final String key = "insert:" + withId + ":" + withShardIndex + ":" + withLease + ":" + rowCount;
+        return this.sqlCache.computeIfAbsent(key, k -> {
+            int columnCount = JdbcTaskStorage.INSERT_COLUMN_COUNT + 2;
+            final StringBuilder sql = new StringBuilder("INSERT INTO consistency_task(");
+            if (withId) {
+                sql.append("id,");
+                columnCount++;
+            }
+            sql.append(JdbcTaskStorage.INSERT_COLUMNS);
+            if (withShardIndex) {
+                sql.append(",shard_index");
+                columnCount++;
+            }
+            if (withLease) {
+                sql.append(",owner_peer_id,lease_until");
+                columnCount += 2;
+            }
+            final String row = "(" + this.repeat("?", columnCount) + ")";
+            return sql.append(",gmt_create,gmt_modified) VALUES").append(this.repeat(row, rowCount)).toString();
+        });
+    }
+
+    /**
+     * 设置写入任务的参数
+     *
+     * @param ps 预编译语句
+     * @param startIndex 第一个参数的位置
+     * @param taskInstance 任务实例
+     * @param withShardIndex 是否写入shard_index列
+     * @param withLease 是否写入owner_peer_id和lease_until列
+     * @return 下一个参数的位置
+     */
+    private int setInsertParameters(final PreparedStatement ps, final int startIndex,
+        final ConsistencyTaskInstance taskInstance, final boolean withShardIndex, final boolean withLease)
+        throws SQLException {
+        final int offset = startIndex - 1;
+        ps.setString(offset + 1, taskInstance.getTaskId());
+        ps.setInt(offset + 2, taskInstance.getTaskStatus());
+        ps.setInt(offset + 3, taskInstance.getExecuteTimes());
+        this.setLong(ps, offset + 4, taskInstance.getExecuteTime());
+        ps.setString(offset + 5, taskInstance.getParameterTypes());
+        ps.setString(offset + 6, taskInstance.getMethodName());
+        ps.setString(offset + 7, taskInstance.getMethodSignName());
+        ps.setInt(offset + 8, taskInstance.getExecuteIntervalSec());
+        ps.setInt(offset + 9, taskInstance.getDelayTime());
+        ps.setString(offset + 10, taskInstance.getTaskParameter());
+        this.setInteger(ps, offset + 11, taskInstance.getExecuteWay());
+        this.setInteger(ps, offset + 12, taskInstance.getThreadWay());
+        ps.setString(offset + 13, taskInstance.getErrorMsg());
+        ps.setString(offset + 14, taskInstance.getAlertExpression());
+        ps.setString(offset + 15, taskInstance.getAlertActionBeanName());
+        ps.setString(offset + 16, taskInstance.getFallbackClassName());
+        ps.setString(offset + 17, taskInstance.getFallbackErrorMsg());
+        this.setLong(ps, offset + 18, taskInstance.getShardKey());
+        int index = offset + JdbcTaskStorage.INSERT_COLUMN_COUNT + 1;
+        if (withShardIndex) {
+            this.setLong(ps, index++, taskInstance.getShardIndex());
+        }
+        if (withLease) {
+            ps.setString(index++, taskInstance.getOwnerPeerId());
+            this.setLong(ps, index++, taskInstance.getLeaseUntil());
+        }
+        this.setDate(ps, index++, taskInstance.getGmtCreate());
+        this.setDate(ps, index++, taskInstance.getGmtModified());
+        return index;
+    }
+
+    /**
+     * 获取键集分页扫描的SQL
+     *
+     * @param columns 查询的列
+     * @param scanQuery 分页扫描条件
+     * @return 键集分页扫描的SQL
+     */
+    private String getScanPageSql(final String columns, final TaskScanQuery scanQuery) {
+        final int shardIndexCount = scanQuery.getShardIndexes() == null ? 0 : scanQuery.getShardIndexes().size();
+        final boolean afterLast = scanQuery.getLastExecuteTime() != null;
+        return this.sqlCache.computeIfAbsent("scan:" + columns + ":" + shardIndexCount + ":" + afterLast, key -> {
+            final StringBuilder sql = new StringBuilder("SELECT ").append(columns);
+            if (shardIndexCount > 0) {
+                sql.append(",shard_index");
+            }
+            sql.append(" FROM consistency_task WHERE task_status IN (0,1,2)");
+            if (shardIndexCount > 0) {
+                sql.append(" AND shard_index IN (").append(this.repeat("?", shardIndexCount)).append(")");
+            }
+            sql.append(" AND execute_time>=? AND execute_time<=?");
+            if (afterLast) {
+                sql.append(" AND (execute_time>? OR (execute_time=? AND id>?))");
+            }
+            return sql.append(" ORDER BY execute_time, id LIMIT ?").toString();
+        });
+    }
+
+    /**
+     * 设置键集分页扫描的参数
+     *
+     * @param ps 预编译语句
+     * @param scanQuery 分页扫描条件
+     */
+    private void setScanPageParameters(final PreparedStatement ps, final TaskScanQuery scanQuery)
+        throws SQLException {
+        ps.setFetchSize(JdbcTaskStorage.SCAN_FETCH_SIZE);
+        int index = 1;
+        if (scanQuery.getShardIndexes() != null) {
+            for (final Long shardIndex : scanQuery.getShardIndexes()) {
+                ps.setLong(index++, shardIndex);
+            }
+        }
+        ps.setLong(index++, scanQuery.getStartTime());
+        ps.setLong(index++, scanQuery.getEndTime());
+        if (scanQuery.getLastExecuteTime() != null) {
+            ps.setLong(index++, scanQuery.getLastExecuteTime());
+            ps.setLong(index++, scanQuery.getLastExecuteTime());
+            ps.setLong(index++, scanQuery.getLastId());
+        }
+        ps.setLong(index, scanQuery.getPageSize());
+    }
+
+    private String getMarkFailSql(final boolean withLease) {
+        return withLease ? JdbcTaskStorage.MARK_FAIL_AND_RELEASE_LEASE_SQL : JdbcTaskStorage.MARK_FAIL_SQL;
+    }
+
+    private void setMarkFailParameters(final PreparedStatement ps, final ConsistencyTaskInstance taskInstance,
+        final boolean withLease) throws SQLException {
+        // 执行失败或者重试耗尽
+        ps.setInt(1, taskInstance.getTaskStatus());
+        ps.setString(2, taskInstance.getErrorMsg());
+        this.setLong(ps, 3, taskInstance.getExecuteTime());
+        ps.setLong(4, taskInstance.getId());
+        ps.setLong(5, taskInstance.getShardKey());
+        if (withLease) {
+            ps.setString(6, taskInstance.getOwnerPeerId());
+        }
+    }
+
+    private int updateByIdAndShardKey(final String sql, final ConsistencyTaskInstance taskInstance) {
+        return this.execute(sql, false, ps -> {
+            ps.setLong(1, taskInstance.getId());
+            ps.setLong(2, taskInstance.getShardKey());
+            return ps.executeUpdate();
+        });
+    }
+
+    private int updateByIdsAndShardKeys(final String sql, final List<ConsistencyTaskInstance> taskInstances) {
+        return this.execute(sql, false, ps -> {
+            this.setIdAndShardKeyParameters(ps, 1, taskInstances);
+            return ps.executeUpdate();
+        });
+    }
+
+    private void setIdAndShardKeyParameters(final PreparedStatement ps, final int startIndex,
+        final List<ConsistencyTaskInstance> taskInstances) throws SQLException {
+        int index = startIndex;
+        for (final ConsistencyTaskInstance taskInstance : taskInstances) {
+            ps.setLong(index++, taskInstance.getId());
+            ps.setLong(index++, taskInstance.getShardKey());
+        }
+    }
+
+    /**
+     * 按位置读取任务的完整列
+     *
+     * @param rs 结果集
+     * @return 任务实例
+     */
+    private ConsistencyTaskInstance mapTask(final ResultSet rs) throws SQLException {
+        return ConsistencyTaskInstance.builder().id(this.getLong(rs, 1)).taskId(rs.getString(2))
+            .taskStatus(rs.getInt(3)).executeTimes(rs.getInt(4)).executeTime(this.getLong(rs, 5))
+            .parameterTypes(rs.getString(6)).methodName(rs.getString(7)).methodSignName(rs.getString(8))
+            .executeIntervalSec(rs.getInt(9)).delayTime(rs.getInt(10)).taskParameter(rs.getString(11))
+            .executeWay(this.getInteger(rs, 12)).threadWay(this.getInteger(rs, 13)).errorMsg(rs.getString(14))
+            .alertExpression(rs.getString(15)).alertActionBeanName(rs.getString(16))
+            .fallbackClassName(rs.getString(17)).fallbackErrorMsg(rs.getString(18)).shardKey(this.getLong(rs, 19))
+            .gmtCreate(this.getDate(rs, 20)).gmtModified(this.getDate(rs, 21)).build();
+    }
+
+    /**
+     * 执行查询
+     *
+     * @param sql 查询SQL
+     * @param parameterSetter 参数设置
+     * @param rowMapper 行映射
+     * @return 查询结果
+     */
+    private List<ConsistencyTaskInstance> query(final String sql, final ParameterSetter parameterSetter,
+        final RowMapper rowMapper) {
+        return this.execute(sql, false, ps -> {
+            parameterSetter.setParameters(ps);
+            final List<ConsistencyTaskInstance> taskInstances = new ArrayList<>();
+            try (final ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    taskInstances.add(rowMapper.mapRow(rs));
+                }
+            }
+            return taskInstances;
+        });
+    }
+
+    /**
+     * 获取与当前Spring事务绑定的连接，执行语句后释放连接
+     *
+     * @param sql SQL
+     * @param returnGeneratedKeys 是否返回生成的主键
+     * @param callback 语句回调
+     * @return 回调的结果
+     */
+    private <T> T execute(final String sql, final boolean returnGeneratedKeys, final StatementCallback<T> callback) {
+        return this.withConnection(connection -> {
+            try (final PreparedStatement ps = returnGeneratedKeys
+                ? connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS) : connection.prepareStatement(sql)) {
+                return callback.doInStatement(ps);
+            }
+        });
+    }
+
+    /**
+     * 批量执行语句 不在Spring事务中时，整个批次在一个本地事务中提交
+     *
+     * @param sql SQL
+     * @param returnGeneratedKeys 是否返回生成的主键
+     * @param callback 语句回调
+     * @return 回调的结果
+     */
+    private <T> T executeBatch(final String sql, final boolean returnGeneratedKeys,
+        final StatementCallback<T> callback) {
+        return this.executeInTransaction(connection -> {
+            try (final PreparedStatement ps = returnGeneratedKeys
+                ? connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+                : connection.prepareStatement(sql)) {
+                return callback.doInStatement(ps);
+            }
+        });
+    }
+
+    /**
+     * 执行多条语句 不在Spring事务中时，所有语句在一个本地事务中提交
+     *
+     * @param callback 连接回调
+     * @return 回调的结果
+     */
+    private <T> T executeInTransaction(final ConnectionCallback<T> callback) {
+        return this.withConnection(connection -> {
+            final boolean localTransaction =
+                !DataSourceUtils.isConnectionTransactional(connection, this.dataSource) && connection.getAutoCommit();
+            if (localTransaction) {
+                connection.setAutoCommit(false);
+            }
+            try {
+                final T result = callback.doInConnection(connection);
+                if (localTransaction) {
+                    connection.commit();
+                }
+                return result;
+            } catch (final SQLException e) {
+                if (localTransaction) {
+                    connection.rollback();
+                }
+                throw e;
+            } finally {
+                if (localTransaction) {
+                    connection.setAutoCommit(true);
+                }
+            }
+        });
+    }
+
+    private <T> T withConnection(final ConnectionCallback<T> callback) {
+        final Connection connection = DataSourceUtils.getConnection(this.dataSource);
+        try {
+            return callback.doInConnection(connection);
+        } catch (final SQLException e) {
+            throw new ConsistencyException(e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, this.dataSource);
+        }
+    }
+
+    private int countBatchResult(final int[] results) {
+        int count = 0;
+        for (final int result : results) {
+            if (result != Statement.EXECUTE_FAILED) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private String repeat(final String placeholder, final int count) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(placeholder);
+        }
+        return sb.toString();
+    }
+
+    private Long getLong(final ResultSet rs, final int index) throws SQLException {
+        final long value = rs.getLong(index);
+        return rs.wasNull() ? null : value;
+    }
+
+    private Integer getInteger(final ResultSet rs, final int index) throws SQLException {
+        final int value = rs.getInt(index);
+        return rs.wasNull() ? null : value;
+    }
+
+    private Date getDate(final ResultSet rs, final int index) throws SQLException {
+        final Timestamp value = rs.getTimestamp(index);
+        return value == null ? null : new Date(value.getTime());
+    }
+
+    private void setLong(final PreparedStatement ps, final int index, final Long value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.BIGINT);
+        } else {
+            ps.setLong(index, value);
+        }
+    }
+
+    private void setInteger(final PreparedStatement ps, final int index, final Integer value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.INTEGER);
+        } else {
+            ps.setInt(index, value);
+        }
+    }
+
+    private void setDate(final PreparedStatement ps, final int index, final Date value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.TIMESTAMP);
+        } else {
+            ps.setTimestamp(index, new Timestamp(value.getTime()));
+        }
+    }
+
+    @FunctionalInterface
+    private interface ConnectionCallback<T> {
+        T doInConnection(Connection connection) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface StatementCallback<T> {
+        T doInStatement(PreparedStatement ps) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface ParameterSetter {
+        void setParameters(PreparedStatement ps) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface RowMapper {
+        ConsistencyTaskInstance mapRow(ResultSet rs) throws SQLException;
+    }
+
+}
@@ -0,0 +1,190 @@
+package com.zzjj.consistency.storage;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.zzjj.consistency.mapper.TaskStoreMapper;
+import com.zzjj.consistency.model.ConsistencyTaskInstance;
+import com.zzjj.consistency.model.TaskScanQuery;
+
+/**
+ * 基于MyBatis mapper的任务持久化实现
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+public class MybatisTaskStorage implements TaskStorage {
+
+    /**
+     * 任务存储的mapper组件
+     */
+    @Autowired
+    private TaskStoreMapper taskStoreMapper;
+    /**
+     * 用于开启JDBC批量执行的会话工厂
+     */
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+
+    @Override
+    public long initTask(final ConsistencyTaskInstance taskInstance) {
+        return this.taskStoreMapper.initTask(taskInstance);
+    }
+
+    @Override
+    public int batchInitTask(final List<ConsistencyTaskInstance> taskInstances) {
+        // 同一个事务中的任务可能只有一部分带有租约，这里按整个集合决定要写入的列
+        final boolean withShardIndex = taskInstances.stream().anyMatch(e -> e.getShardIndex() != null);
+        final boolean withLease = taskInstances.stream().anyMatch(e -> e.getOwnerPeerId() != null);
+        return this.taskStoreMapper.batchInitTask(taskInstances, withShardIndex, withLease);
+    }
+
+    @Override
+    public int batchRestoreTask(final List<ConsistencyTaskInstance> taskInstances) {
+        final boolean withShardIndex = taskInstances.stream().anyMatch(e -> e.getShardIndex() != null);
+        final boolean withLease = taskInstances.stream().anyMatch(e -> e.getOwnerPeerId() != null);
+        return this.taskStoreMapper.batchRestoreTask(taskInstances, withShardIndex, withLease);
+    }
+
+    @Override
+    public ConsistencyTaskInstance getTaskByIdAndShardKey(final Long id, final Long shardKey) {
+        return this.taskStoreMapper.getTaskByIdAndShardKey(id, shardKey);
+    }
+
+    @Override
+    public List<ConsistencyTaskInstance> listByUnFinishTask(final Long startTime, final Long endTime,
+        final Long limitTaskCount) {
+        return this.taskStoreMapper.listByUnFinishTask(startTime, endTime, limitTaskCount);
+    }
+
+    @Override
+    public List<ConsistencyTaskInstance> listUnFinishTaskPage(final TaskScanQuery scanQuery) {
+        return this.taskStoreMapper.listUnFinishTaskPage(scanQuery);
+    }
+
+    @Override
+    public List<ConsistencyTaskInstance> listUnFinishTaskKeyPage(final TaskScanQuery scanQuery) {
+        return this.taskStoreMapper.listUnFinishTaskKeyPage(scanQuery);
+    }
+
+    @Override
+    public List<ConsistencyTaskInstance> listTaskByIdsAndShardKeys(final List<ConsistencyTaskInstance> taskKeys) {
+        return this.taskStoreMapper.listTaskByIdsAndShardKeys(taskKeys);
+    }
+
+    @Override
+    public List<ConsistencyTaskInstance> listTaskKeysByIdsAndShardKeys(final List<ConsistencyTaskInstance> taskKeys) {
+        return this.taskStoreMapper.listTaskKeysByIdsAndShardKeys(taskKeys);
+    }
+
+    @Override
+    public int claimTask(final String ownerPeerId, final Long leaseUntil, final Long startTime, final Long now,
+        final Integer limit) {
+        return this.taskStoreMapper.claimTask(ownerPeerId, leaseUntil, startTime, now, limit);
+    }
+
+    @Override
+    public List<ConsistencyTaskInstance> listClaimedTask(final String ownerPeerId, final Long leaseUntil) {
+        return this.taskStoreMapper.listClaimedTask(ownerPeerId, leaseUntil);
+    }
+
+    @Override
+    public int turnOnTask(final ConsistencyTaskInstance taskInstance) {
+        return this.taskStoreMapper.turnOnTask(taskInstance);
+    }
+
+    @Override
+    public List<ConsistencyTaskInstance> batchTurnOnTask(final List<ConsistencyTaskInstance> taskInstances,
+        final Long executeTime) {
+        final List<ConsistencyTaskInstance> startedTasks = new ArrayList<>();
+        try (final SqlSession sqlSession = this.sqlSessionFactory.openSession(ExecutorType.BATCH, false)) {
+            final TaskStoreMapper batchMapper = sqlSession.getMapper(TaskStoreMapper.class);
+            for (final ConsistencyTaskInstance taskInstance : taskInstances) {
+                batchMapper.turnOnUnchangedTask(taskInstance, executeTime);
+            }
+            int index = 0;
+            for (final BatchResult batchResult : sqlSession.flushStatements()) {
+                for (final int count : batchResult.getUpdateCounts()) {
+                    // 驱动没有返回影响行数时按启动成功处理
+                    if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                        startedTasks.add(taskInstances.get(index));
+                    }
+                    index++;
+                }
+            }
+            sqlSession.commit();
+        }
+        return startedTasks;
+    }
+
+    @Override
+    public int markSuccess(final ConsistencyTaskInstance taskInstance) {
+        return this.taskStoreMapper.markSuccess(taskInstance);
+    }
+
+    @Override
+    public int batchMarkSuccess(final List<ConsistencyTaskInstance> taskInstances) {
+        return this.taskStoreMapper.batchMarkSuccess(taskInstances);
+    }
+
+    @Override
+    public int markArchived(final ConsistencyTaskInstance taskInstance) {
+        return this.taskStoreMapper.markArchived(taskInstance);
+    }
+
+    @Override
+    public int batchMarkArchived(final List<ConsistencyTaskInstance> taskInstances) {
+        return this.taskStoreMapper.batchMarkArchived(taskInstances);
+    }
+
+    @Override
+    public int markFail(final ConsistencyTaskInstance taskInstance) {
+        return this.taskStoreMapper.markFail(taskInstance);
+    }
+
+    @Override
+    public void batchMarkFail(final List<ConsistencyTaskInstance> taskInstances) {
+        try (final SqlSession sqlSession = this.sqlSessionFactory.openSession(ExecutorType.BATCH, false)) {
+            final TaskStoreMapper batchMapper = sqlSession.getMapper(TaskStoreMapper.class);
+            for (final ConsistencyTaskInstance taskInstance : taskInstances) {
+                batchMapper.markFail(taskInstance);
+            }
+            sqlSession.commit();
+        }
+    }
+
+    @Override
+    public int markFallbackFail(final ConsistencyTaskInstance taskInstance) {
+        return this.taskStoreMapper.markFallbackFail(taskInstance);
+    }
+
+    @Override
+    public void deferTasks(final List<ConsistencyTaskInstance> taskInstances) {
+        try (final SqlSession sqlSession = this.sqlSessionFactory.openSession(ExecutorType.BATCH, false)) {
+            final TaskStoreMapper batchMapper = sqlSession.getMapper(TaskStoreMapper.class);
+            for (final ConsistencyTaskInstance taskInstance : taskInstances) {
+                batchMapper.deferTask(taskInstance);
+            }
+            sqlSession.commit();
+        }
+    }
+
+    @Override
+    public void releaseTasks(final List<ConsistencyTaskInstance> taskInstances) {
+        try (final SqlSession sqlSession = this.sqlSessionFactory.openSession(ExecutorType.BATCH, false)) {
+            final TaskStoreMapper batchMapper = sqlSession.getMapper(TaskStoreMapper.class);
+            for (final ConsistencyTaskInstance taskInstance : taskInstances) {
+                batchMapper.releaseTask(taskInstance);
+            }
+            sqlSession.commit();
+        }
+    }
+
+}
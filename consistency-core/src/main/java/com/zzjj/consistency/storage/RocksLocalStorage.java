@@ -1,17 +1,24 @@
 package com.zzjj.consistency.storage;
 
 import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.rocksdb.*;
 import org.springframework.util.ObjectUtils;
-import org.springframework.util.StringUtils;
 
+import com.zzjj.consistency.config.ConsistencyConfiguration;
+import com.zzjj.consistency.enums.WalSyncModeEnum;
 import com.zzjj.consistency.exceptions.ConsistencyException;
 import com.zzjj.consistency.model.ConsistencyTaskInstance;
 
@@ -21,6 +28,12 @@ import lombok.extern.slf4j.Slf4j;
 
 /**
  * rocksdb操作
+ * <p>
+ * key由执行时间、分片键、本地存储序号三个定长的大端long组成，RocksDB按字节序排列key，迭代器的顺序就是任务的到期顺序，
+ * 获取到期任务时从第一个key开始顺序读取到当前时间为止，不需要在内存中维护所有key。
+ * <p>
+ * 索引列族保存本地存储序号到key的映射，判断任务是否存在、删除任务、修改执行时间都只需要按序号查一次索引，
+ * 任务数据和索引在同一个WriteBatch中原子写入。
  *
  * @author zengjin
  * @date 2023/11/19
@@ -28,21 +41,95 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class RocksLocalStorage {
 
+    /**
+     * key的长度 执行时间、分片键、本地存储序号各8个字节
+     */
+    private static final int KEY_LENGTH = 24;
+    /**
+     * 旧版本字符串格式的key的起始位置 字符串格式的key以数字字符开头，排在所有定长key之后
+     */
+    private static final byte[] LEGACY_KEY_START = new byte[] {1};
+    /**
+     * 索引列族的名称 key: 本地存储序号 value: 任务数据的key
+     */
+    private static final String INDEX_COLUMN_FAMILY = "task_index";
+    /**
+     * 字典列族的名称 key: 字典编号 value: 方法签名、降级类等重复出现的字符串
+     */
+    private static final String DICT_COLUMN_FAMILY = "task_dict";
+    /**
+     * 元数据列族的名称 保存本地存储的标识等少量数据
+     */
+    private static final String META_COLUMN_FAMILY = "task_meta";
+    /**
+     * 本地存储标识在元数据列族中的key
+     */
+    private static final byte[] STORAGE_ID_KEY = "storage_id".getBytes(StandardCharsets.UTF_8);
+    /**
+     * 后台刷盘的粒度 1MB
+     */
+    private static final long BYTES_PER_SYNC = 1024 * 1024;
+    /**
+     * 索引列族memtable布隆过滤器占memtable大小的比例
+     */
+    private static final double MEMTABLE_PREFIX_BLOOM_SIZE_RATIO = 0.1;
+
     private static RocksDB rocksDB;
     /**
      * 数据库列族(表)集合
      */
     public static ConcurrentMap<String, ColumnFamilyHandle> columnFamilyHandleMap = new ConcurrentHashMap<>();
     /**
-     * 小顶堆 queue，他是跟我们的rocksdb里的数据有对应关系的，配合使用关系的内存里的queue数据结构
+     * 本地存储序号生成器 以启动时间为起点，重启后生成的序号不会和重启前的重复
+     */
+    private final AtomicLong localSeqGenerator = new AtomicLong(System.currentTimeMillis() << 20);
+    /**
+     * 写入锁 按索引读取原来的key和写入WriteBatch之间不能有其他写入，否则更新可能恢复已经被删除的任务
+     */
+    private final Object writeLock = new Object();
+    /**
+     * 所有列族共享的块缓存 memtable占用的内存也计入块缓存
+     */
+    private final Cache blockCache;
+    /**
+     * 限制所有列族的memtable占用的内存
+     */
+    private final WriteBufferManager writeBufferManager;
+    /**
+     * 索引列族的布隆过滤器 没有配置时为null
      */
-    public Queue<String> priorityQueue = new PriorityBlockingQueue<>();
+    private final Filter bloomFilter;
+    /**
+     * 数据库选项
+     */
+    private final DBOptions dbOptions;
+    /**
+     * 各个列族的选项
+     */
+    private final List<ColumnFamilyOptions> columnFamilyOptions = new ArrayList<>();
+    /**
+     * 写入选项
+     */
+    private final WriteOptions writeOptions;
+    /**
+     * 任务数据的编解码
+     */
+    private final RocksTaskCodec taskCodec;
+    /**
+     * GROUP_COMMIT方式下，按间隔把预写日志落盘的线程 SYNC方式下为null
+     */
+    private final ScheduledExecutorService walSyncExecutor;
+    /**
+     * 本地存储标识 第一次打开时随机生成并保存，区分不同节点的本地存储
+     */
+    private final long storageId;
 
     static {
         RocksDB.loadLibrary();
     }
 
-    public RocksLocalStorage(final String path) throws RocksDBException {
+    public RocksLocalStorage(final ConsistencyConfiguration consistencyConfiguration) throws RocksDBException {
+        final String path = consistencyConfiguration.getRocksPath();
         final File dir = new File(path);
         // 如果指定的路径是不是文件夹，而是文件
         if (!dir.isDirectory()) {
@@ -55,25 +142,47 @@ public class RocksLocalStorage {
                 throw new IllegalStateException("RocksDB初始化失败，创建RocksDB存储文件夹时失败: " + path);
             }
         }
-        final Options options = new Options();
-        // 如果数据库不存在则创建
-        options.setCreateIfMissing(true);
+        // 块缓存的容量包含memtable的内存上限，memtable占满时留给数据块的缓存还有blockCacheMb
+        final long writeBufferManagerBytes = this.mbToBytes(consistencyConfiguration.getRocksWriteBufferManagerMb());
+        this.blockCache =
+            new LRUCache(this.mbToBytes(consistencyConfiguration.getRocksBlockCacheMb()) + writeBufferManagerBytes);
+        this.writeBufferManager = new WriteBufferManager(writeBufferManagerBytes, this.blockCache);
+        this.bloomFilter = consistencyConfiguration.getRocksBloomFilterBitsPerKey() > 0
+            ? new BloomFilter(consistencyConfiguration.getRocksBloomFilterBitsPerKey(), false) : null;
 
         // 列族描述器集合
         // rocksdb，kv存储，基于key-values，存储数据
         // 他底层，是基于列族的存储格式，他是有多个列族，每个列族里是可以有不同的列
         // 会把列族的数据存储在一起，一个底层磁盘文件里，列族存储
         final List<ColumnFamilyDescriptor> columnFamilyDescriptors = new ArrayList<>();
-        columnFamilyDescriptors
-            .add(new ColumnFamilyDescriptor(RocksDB.DEFAULT_COLUMN_FAMILY, new ColumnFamilyOptions()));
-        final DBOptions dbOptions = new DBOptions();
-        dbOptions.setCreateIfMissing(true);
+        columnFamilyDescriptors.add(new ColumnFamilyDescriptor(RocksDB.DEFAULT_COLUMN_FAMILY,
+            this.createDataColumnFamilyOptions(consistencyConfiguration)));
+        columnFamilyDescriptors.add(new ColumnFamilyDescriptor(RocksLocalStorage.INDEX_COLUMN_FAMILY.getBytes(),
+            this.createIndexColumnFamilyOptions(consistencyConfiguration)));
+        columnFamilyDescriptors.add(new ColumnFamilyDescriptor(RocksLocalStorage.DICT_COLUMN_FAMILY.getBytes(),
+            this.createDictColumnFamilyOptions(consistencyConfiguration)));
+        columnFamilyDescriptors.add(new ColumnFamilyDescriptor(RocksLocalStorage.META_COLUMN_FAMILY.getBytes(),
+            this.createMetaColumnFamilyOptions(consistencyConfiguration)));
+        // 旧版本没有索引列族、字典列族和元数据列族，打开时创建
+        this.dbOptions = new DBOptions().setCreateIfMissing(true).setCreateMissingColumnFamilies(true)
+            .setMaxBackgroundJobs(consistencyConfiguration.getRocksMaxBackgroundJobs())
+            .setWriteBufferManager(this.writeBufferManager)
+            // 每写入1MB就在后台刷一次盘，避免flush、合并和预写日志落盘时一次性刷大量脏页
+            .setBytesPerSync(RocksLocalStorage.BYTES_PER_SYNC).setWalBytesPerSync(RocksLocalStorage.BYTES_PER_SYNC);
+        final boolean indexMissing;
+        try (final Options options = new Options()) {
+            indexMissing = RocksDB.listColumnFamilies(options, path).stream()
+                .noneMatch(e -> RocksLocalStorage.INDEX_COLUMN_FAMILY.equals(new String(e)));
+        }
+        // SYNC方式下每次写入都等待预写日志落盘，RocksDB会把同时写入的多个线程合并为一次落盘
+        final boolean syncWrite = WalSyncModeEnum.SYNC.name().equals(consistencyConfiguration.getRocksWalSyncMode());
+        this.writeOptions = new WriteOptions().setSync(syncWrite);
 
         // ColumnFamilyHandle集合
         final List<ColumnFamilyHandle> columnFamilyHandles = new ArrayList<>();
         // 在open操作，他其实是会恢复db里数据，wal日志加载，memtable数据恢复
         // 你可以通过rocksdb实例，可以看到系统重启之前的数据视图
-        rocksDB = RocksDB.open(dbOptions, path, columnFamilyDescriptors, columnFamilyHandles);
+        rocksDB = RocksDB.open(this.dbOptions, path, columnFamilyDescriptors, columnFamilyHandles);
 
         for (int i = 0; i < columnFamilyDescriptors.size(); i++) {
             final ColumnFamilyHandle columnFamilyHandle = columnFamilyHandles.get(i);
@@ -81,64 +190,321 @@ public class RocksLocalStorage {
             columnFamilyHandleMap.put(cfName, columnFamilyHandle);
         }
         log.info("RocksDB 初始化成功 path:{}", path);
+        this.taskCodec = new RocksTaskCodec(rocksDB, columnFamilyHandleMap.get(RocksLocalStorage.DICT_COLUMN_FAMILY));
+        this.storageId = this.loadStorageId();
+
+        // GROUP_COMMIT方式下写入不等待落盘，由后台线程按间隔把这段时间内的所有写入一次落盘
+        if (syncWrite) {
+            this.walSyncExecutor = null;
+        } else {
+            this.walSyncExecutor =
+                Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "rocksWalSyncScheduler"));
+            final long walSyncIntervalMillis = consistencyConfiguration.getRocksWalSyncIntervalMillis();
+            this.walSyncExecutor.scheduleWithFixedDelay(this::syncWal, walSyncIntervalMillis, walSyncIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        }
+
+        // 索引列族是新创建的，为已有的任务建立索引
+        if (indexMissing) {
+            this.rebuildIndex();
+        }
+        // 把旧版本字符串格式的key转换为定长格式
+        this.migrateLegacyKeys();
+    }
+
+    /**
+     * 创建任务数据列族的选项
+     * <p>
+     * 任务数据列族只按执行时间顺序迭代，布隆过滤器对范围扫描没有作用，不配置过滤器；也不配置前缀提取器，保证迭代按key的全序进行
+     *
+     * @param consistencyConfiguration 一致性框架配置
+     * @return 列族选项
+     */
+    private ColumnFamilyOptions createDataColumnFamilyOptions(final ConsistencyConfiguration consistencyConfiguration) {
+        final ColumnFamilyOptions options = this.createColumnFamilyOptions(consistencyConfiguration)
+            .setTableFormatConfig(this.createTableConfig());
+        this.columnFamilyOptions.add(options);
+        return options;
+    }
+
+    /**
+     * 创建索引列族的选项
+     * <p>
+     * 索引列族只按本地存储序号点查，key就是8个字节的序号，前缀提取器取整个key，memtable和sst文件都使用布隆过滤器，
+     * 查询不存在的任务时大多数情况下不需要读取数据块
+     *
+     * @param consistencyConfiguration 一致性框架配置
+     * @return 列族选项
+     */
+    private ColumnFamilyOptions
+        createIndexColumnFamilyOptions(final ConsistencyConfiguration consistencyConfiguration) {
+        final ColumnFamilyOptions options = this.createColumnFamilyOptions(consistencyConfiguration)
+            .useFixedLengthPrefixExtractor(Long.BYTES)
+            .setTableFormatConfig(this.createTableConfig().setFilterPolicy(this.bloomFilter));
+        if (this.bloomFilter != null) {
+            options.setMemtablePrefixBloomSizeRatio(RocksLocalStorage.MEMTABLE_PREFIX_BLOOM_SIZE_RATIO);
+        }
+        this.columnFamilyOptions.add(options);
+        return options;
+    }
 
-        // 如果RocksDB中有数据，则将数据放入优先队列
-        this.loadPriorityQueue();
+    /**
+     * 创建字典列族的选项 字典只在启动时全部加载到内存
+     *
+     * @param consistencyConfiguration 一致性框架配置
+     * @return 列族选项
+     */
+    private ColumnFamilyOptions createDictColumnFamilyOptions(final ConsistencyConfiguration consistencyConfiguration) {
+        final ColumnFamilyOptions options =
+            this.createColumnFamilyOptions(consistencyConfiguration).setTableFormatConfig(this.createTableConfig());
+        this.columnFamilyOptions.add(options);
+        return options;
     }
 
     /**
-     * 加载所有RocksDB中的Key到优先队列
+     * 创建元数据列族的选项 元数据只有几个key，使用默认的表格式
+     *
+     * @param consistencyConfiguration 一致性框架配置
+     * @return 列族选项
      */
-    private void loadPriorityQueue() {
+    private ColumnFamilyOptions createMetaColumnFamilyOptions(final ConsistencyConfiguration consistencyConfiguration) {
+        final ColumnFamilyOptions options = this.createColumnFamilyOptions(consistencyConfiguration);
+        this.columnFamilyOptions.add(options);
+        return options;
+    }
+
+    private ColumnFamilyOptions createColumnFamilyOptions(final ConsistencyConfiguration consistencyConfiguration) {
+        final ColumnFamilyOptions options = new ColumnFamilyOptions()
+            .setWriteBufferSize(this.mbToBytes(consistencyConfiguration.getRocksWriteBufferSizeMb()))
+            .setMaxWriteBufferNumber(consistencyConfiguration.getRocksMaxWriteBufferNumber())
+            .setCompactionStyle(CompactionStyle.valueOf(consistencyConfiguration.getRocksCompactionStyle()))
+            .setCompressionType(CompressionType.LZ4_COMPRESSION);
+        if (CompactionStyle.LEVEL.equals(options.compactionStyle())) {
+            options.setLevelCompactionDynamicLevelBytes(true);
+        }
+        return options;
+    }
+
+    /**
+     * 创建使用共享块缓存的表格式配置 索引块和过滤器块也放入块缓存，L0层的常驻缓存
+     *
+     * @return 表格式配置
+     */
+    private BlockBasedTableConfig createTableConfig() {
+        return new BlockBasedTableConfig().setBlockCache(this.blockCache).setCacheIndexAndFilterBlocks(true)
+            .setPinL0FilterAndIndexBlocksInCache(true);
+    }
+
+    private long mbToBytes(final long mb) {
+        return mb * 1024 * 1024;
+    }
+
+    /**
+     * 读取本地存储标识 第一次打开时随机生成一个并同步写入元数据列族，之后每次打开都使用同一个标识
+     *
+     * @return 本地存储标识
+     */
+    private long loadStorageId() throws RocksDBException {
+        final ColumnFamilyHandle metaHandle = columnFamilyHandleMap.get(RocksLocalStorage.META_COLUMN_FAMILY);
+        final byte[] value = rocksDB.get(metaHandle, RocksLocalStorage.STORAGE_ID_KEY);
+        if (value != null) {
+            return ByteBuffer.wrap(value).getLong();
+        }
+        final long newStorageId = new SecureRandom().nextLong();
+        try (final WriteOptions syncWriteOptions = new WriteOptions().setSync(true)) {
+            rocksDB.put(metaHandle, syncWriteOptions, RocksLocalStorage.STORAGE_ID_KEY,
+                ByteBuffer.allocate(Long.BYTES).putLong(newStorageId).array());
+        }
+        return newStorageId;
+    }
+
+    /**
+     * 获取本地存储标识 本地存储序号只在一个本地存储内唯一，和标识一起才能区分不同节点的本地任务
+     *
+     * @return 本地存储标识
+     */
+    public long getStorageId() {
+        return this.storageId;
+    }
+
+    /**
+     * 把预写日志落盘
+     */
+    private void syncWal() {
         try {
-            final RocksIterator rocksIterator = rocksDB.newIterator(columnFamilyHandleMap.get("default"));
+            rocksDB.syncWal();
+        } catch (final Exception e) {
+            log.error("预写日志落盘时，发生异常", e);
+        }
+    }
+
+    /**
+     * 关闭RocksDB 先把预写日志落盘，再依次释放列族、数据库和各个选项占用的本地内存
+     */
+    public void close() {
+        if (this.walSyncExecutor != null) {
+            this.walSyncExecutor.shutdown();
+            this.syncWal();
+        }
+        this.taskCodec.close();
+        columnFamilyHandleMap.values().forEach(ColumnFamilyHandle::close);
+        columnFamilyHandleMap.clear();
+        rocksDB.close();
+        this.writeOptions.close();
+        this.dbOptions.close();
+        this.columnFamilyOptions.forEach(ColumnFamilyOptions::close);
+        if (this.bloomFilter != null) {
+            this.bloomFilter.close();
+        }
+        this.writeBufferManager.close();
+        this.blockCache.close();
+        log.info("RocksDB 已关闭");
+    }
+
+    /**
+     * 为已有的定长格式的key建立索引 只在索引列族新创建时执行一次
+     */
+    private void rebuildIndex() {
+        int indexed = 0;
+        try (final RocksIterator rocksIterator = rocksDB.newIterator(columnFamilyHandleMap.get("default"))) {
             for (rocksIterator.seekToFirst(); rocksIterator.isValid(); rocksIterator.next()) {
-                this.priorityQueue.add(new String(rocksIterator.key()));
+                final byte[] key = rocksIterator.key();
+                if (key.length != RocksLocalStorage.KEY_LENGTH) {
+                    continue;
+                }
+                rocksDB.put(columnFamilyHandleMap.get(RocksLocalStorage.INDEX_COLUMN_FAMILY),
+                    Arrays.copyOfRange(key, RocksLocalStorage.KEY_LENGTH - Long.BYTES, RocksLocalStorage.KEY_LENGTH),
+                    key);
+                indexed++;
             }
         } catch (final Exception e) {
-            log.error("获取所有键值对时，发生异常", e);
+            log.error("建立本地存储序号的索引时，发生异常", e);
+        }
+        if (indexed > 0) {
+            log.info("为 [{}] 个任务建立了本地存储序号的索引", indexed);
         }
     }
 
     /**
-     * 添加一致性任务实例到RocksDB
+     * 把旧版本字符串格式的key转换为定长格式 没有旧格式的key时只需要一次seek
+     */
+    private void migrateLegacyKeys() {
+        int migrated = 0;
+        try (final RocksIterator rocksIterator = rocksDB.newIterator(columnFamilyHandleMap.get("default"))) {
+            for (rocksIterator.seek(RocksLocalStorage.LEGACY_KEY_START); rocksIterator.isValid();
+                rocksIterator.next()) {
+                if (rocksIterator.key().length == RocksLocalStorage.KEY_LENGTH) {
+                    continue;
+                }
+                final ConsistencyTaskInstance instance = this.taskCodec.decode(rocksIterator.value());
+                if (ObjectUtil.isNotEmpty(instance) && instance.getExecuteTime() != null) {
+                    instance.setLocalSeq(null);
+                    this.put(instance);
+                }
+                rocksDB.delete(columnFamilyHandleMap.get("default"), rocksIterator.key());
+                migrated++;
+            }
+        } catch (final Exception e) {
+            log.error("转换旧格式的key时，发生异常", e);
+        }
+        if (migrated > 0) {
+            log.info("转换了 [{}] 个旧格式的key", migrated);
+        }
+    }
+
+    /**
+     * 添加或者更新RocksDB中的一致性任务实例 任务没有本地存储序号时先生成序号
+     * <p>
+     * 任务的执行时间变化后key也会变化，按索引找到原来的key，和新的key、索引在同一个WriteBatch中写入
      *
      * @param taskInstance 一致性任务实例
      */
     public void put(final ConsistencyTaskInstance taskInstance) {
-        try {
+        if (taskInstance.getLocalSeq() == null) {
+            taskInstance.setLocalSeq(this.localSeqGenerator.incrementAndGet());
+        }
+        synchronized (this.writeLock) {
+            this.write(taskInstance, false);
+        }
+    }
+
+    /**
+     * 更新RocksDB中已经存在的一致性任务实例 任务已经被删除(例如已经迁移回任务表)时不再写入
+     *
+     * @param taskInstance 一致性任务实例
+     * @return 是否更新成功
+     */
+    public boolean update(final ConsistencyTaskInstance taskInstance) {
+        if (taskInstance.getLocalSeq() == null) {
+            return false;
+        }
+        synchronized (this.writeLock) {
+            return this.write(taskInstance, true);
+        }
+    }
+
+    /**
+     * 写入任务实例 和索引在同一个WriteBatch中写入
+     *
+     * @param taskInstance 一致性任务实例
+     * @param onlyIfExists 是否只在任务已经存在时写入
+     * @return 是否写入成功
+     */
+    private boolean write(final ConsistencyTaskInstance taskInstance, final boolean onlyIfExists) {
+        try (final WriteBatch writeBatch = new WriteBatch()) {
             // 稍微讲一点rocksdb的原理
             // 他刚开始做一个写入，会把你的数据写入memtable，写入内存数据结构里去，同时会去做一个write ahead log预写日志的追加，磁盘里去
             // 当你的memtable写满了，会把数据flush到磁盘文件sstfile里去，会把这批数据对应的WAL日志清理
             // 多讲一点点rocksdb的原理，随着你的每次memtable进行flush，sstfile，会越来越多
             // rocksdb后台会去执行一个动作，compaction，很多小文件合并，就是说对你的数据删除，他不是说在sstfile里进行删除，而是对数据加一个删除标记
             // 在多个文件进行合并的时候，此时把一些标记为删除的数据，就可以清理掉，物理删除这样子
-            rocksDB.put(columnFamilyHandleMap.get("default"), this.getRocksKey(taskInstance),
-                this.getRocksValue(taskInstance));
-
-            // 系统出现了重启，rocksdb数据必须进行恢复，读取你的WAL日志，恢复memtable里的数据视图
-            // 对于我们的priorityQueue里的数据，也必须去进行恢复
-
-            if (!this.priorityQueue.contains(this.getRocksKeyStr(taskInstance))) {
-                // 放入优先队列，方便后面取出来的时候，直接取
-                this.priorityQueue.add(this.getRocksKeyStr(taskInstance));
+            final byte[] indexKey = this.getIndexKey(taskInstance);
+            final byte[] rocksKey = this.getRocksKey(taskInstance);
+            final byte[] previousRocksKey =
+                rocksDB.get(columnFamilyHandleMap.get(RocksLocalStorage.INDEX_COLUMN_FAMILY), indexKey);
+            if (previousRocksKey == null && onlyIfExists) {
+                return false;
             }
+            if (previousRocksKey != null && !Arrays.equals(previousRocksKey, rocksKey)) {
+                writeBatch.delete(columnFamilyHandleMap.get("default"), previousRocksKey);
+            }
+            writeBatch.put(columnFamilyHandleMap.get("default"), rocksKey, this.getRocksValue(taskInstance));
+            writeBatch.put(columnFamilyHandleMap.get(RocksLocalStorage.INDEX_COLUMN_FAMILY), indexKey, rocksKey);
+            rocksDB.write(this.writeOptions, writeBatch);
             log.info("完成任务一致性任务的本地存储，任务信息为 {}", JSONUtil.toJsonStr(taskInstance));
+            return true;
         } catch (final Exception e) {
-            log.error("删除列族时，发生异常", e);
+            log.error("存储任务到RocksDB时，发生异常", e);
+            return false;
         }
     }
 
     /**
-     * 删除RocksDB中的任务实例
+     * 删除RocksDB中的任务实例 按索引找到任务数据的key，和索引在同一个WriteBatch中删除
      *
      * @param taskInstance 任务实例信息
      */
     public void delete(final ConsistencyTaskInstance taskInstance) {
+        if (taskInstance.getLocalSeq() == null) {
+            return;
+        }
         final String rocksKeyStr = this.getRocksKeyStr(taskInstance);
-        try {
-            rocksDB.delete(columnFamilyHandleMap.get("default"), this.getRocksKey(taskInstance));
-            this.priorityQueue.remove(rocksKeyStr);
+        synchronized (this.writeLock) {
+            this.delete(taskInstance, rocksKeyStr);
+        }
+    }
+
+    private void delete(final ConsistencyTaskInstance taskInstance, final String rocksKeyStr) {
+        try (final WriteBatch writeBatch = new WriteBatch()) {
+            final byte[] indexKey = this.getIndexKey(taskInstance);
+            final byte[] rocksKey =
+                rocksDB.get(columnFamilyHandleMap.get(RocksLocalStorage.INDEX_COLUMN_FAMILY), indexKey);
+            if (rocksKey == null) {
+                return;
+            }
+            writeBatch.delete(columnFamilyHandleMap.get("default"), rocksKey);
+            writeBatch.delete(columnFamilyHandleMap.get(RocksLocalStorage.INDEX_COLUMN_FAMILY), indexKey);
+            rocksDB.write(this.writeOptions, writeBatch);
             log.info("删除的key为 {}", rocksKeyStr);
         } catch (final Exception e) {
             log.error("删除key={}时，发生异常", rocksKeyStr, e);
@@ -146,63 +512,58 @@ public class RocksLocalStorage {
     }
 
     /**
-     * 查询一致性任务实例
+     * 批量删除RocksDB中的任务实例 所有任务和索引在同一个WriteBatch中删除
      *
-     * @param taskInstance 一致性任务实例
-     * @return 任务实例
+     * @param taskInstances 任务实例集合
      */
-    public String get(final ConsistencyTaskInstance taskInstance) {
-        String value = null;
-        try {
-            final byte[] bytes = rocksDB.get(columnFamilyHandleMap.get("default"), this.getRocksKey(taskInstance));
-            if (!ObjectUtils.isEmpty(bytes)) {
-                value = new String(bytes);
+    public void deleteAll(final List<ConsistencyTaskInstance> taskInstances) {
+        synchronized (this.writeLock) {
+            this.doDeleteAll(taskInstances);
+        }
+    }
+
+    private void doDeleteAll(final List<ConsistencyTaskInstance> taskInstances) {
+        try (final WriteBatch writeBatch = new WriteBatch()) {
+            for (final ConsistencyTaskInstance taskInstance : taskInstances) {
+                if (taskInstance.getLocalSeq() == null) {
+                    continue;
+                }
+                final byte[] indexKey = this.getIndexKey(taskInstance);
+                final byte[] rocksKey =
+                    rocksDB.get(columnFamilyHandleMap.get(RocksLocalStorage.INDEX_COLUMN_FAMILY), indexKey);
+                if (rocksKey == null) {
+                    continue;
+                }
+                writeBatch.delete(columnFamilyHandleMap.get("default"), rocksKey);
+                writeBatch.delete(columnFamilyHandleMap.get(RocksLocalStorage.INDEX_COLUMN_FAMILY), indexKey);
             }
-            return value;
+            rocksDB.write(this.writeOptions, writeBatch);
         } catch (final Exception e) {
-            log.error("获取key={}的值时，发生异常", this.getRocksKeyStr(taskInstance), e);
-            return null;
+            log.error("批量删除任务时，发生异常", e);
         }
     }
 
     /**
-     * 根据给定的key的集合查询多个键值对
-     * 
-     * @param keys key集合
-     * @return 一致性任务
+     * 任务是否存在于RocksDB中 只查询索引，不读取任务数据
+     *
+     * @param taskInstance 一致性任务实例
+     * @return 是否存在 任务没有本地存储序号时说明没有写入过RocksDB，返回false
      */
-    public List<ConsistencyTaskInstance> multiGetAsList(final List<String> keys) {
-        final List<ConsistencyTaskInstance> consistencyTaskInstances = new ArrayList<>(keys.size());
+    public boolean contains(final ConsistencyTaskInstance taskInstance) {
+        if (taskInstance.getLocalSeq() == null) {
+            return false;
+        }
         try {
-            final List<ColumnFamilyHandle> columnFamilyHandles = new ArrayList<>(keys.size() + 1);
-            final List<byte[]> keyBytes = new ArrayList<>();
-            for (final String key : keys) {
-                keyBytes.add(key.getBytes());
-            }
-            for (int i = 0; i < keys.size(); i++) {
-                columnFamilyHandles.add(columnFamilyHandleMap.get("default"));
-            }
-            final List<byte[]> bytes = rocksDB.multiGetAsList(columnFamilyHandles, keyBytes);
-            for (final byte[] valueBytes : bytes) {
-                final String value;
-                if (!ObjectUtils.isEmpty(valueBytes)) {
-                    value = new String(valueBytes);
-                    final ConsistencyTaskInstance instance = JSONUtil.toBean(value, ConsistencyTaskInstance.class);
-                    if (ObjectUtil.isEmpty(instance)) {
-                        continue;
-                    }
-                    consistencyTaskInstances.add(instance);
-                }
-            }
-            return consistencyTaskInstances;
+            return rocksDB.get(columnFamilyHandleMap.get(RocksLocalStorage.INDEX_COLUMN_FAMILY),
+                this.getIndexKey(taskInstance)) != null;
         } catch (final Exception e) {
-            log.error("批量获取多个键值对时，发生异常, keys={}", keys, e);
-            return consistencyTaskInstances;
+            log.error("查询key={}是否存在时，发生异常", this.getRocksKeyStr(taskInstance), e);
+            return false;
         }
     }
 
     /**
-     * 从优先队列中获取前TOP N个任务实例
+     * 按到期顺序获取前TOP N个已经到期的任务实例 从第一个key开始顺序读取，读到N个或者执行时间超过当前时间时结束
      *
      * @param n 获取的条数
      * @return 一致性任务列表
@@ -211,37 +572,72 @@ public class RocksLocalStorage {
         if (ObjectUtil.isEmpty(n)) {
             throw new ConsistencyException("未指定要获取多少个一致性任务");
         }
-        // 计数器
-        int count = 0;
-        final List<String> taskInstanceKeys = new ArrayList<>(n);
-        // 获取指定的前N条实例
-        try {
-            while (!this.priorityQueue.isEmpty()) {
-                if (count >= n) {
-                    break;
-                }
-                final String key = this.priorityQueue.poll();
-                if (StringUtils.isEmpty(key)) {
+        return this.scan(n, System.currentTimeMillis() + 1);
+    }
+
+    /**
+     * 按到期顺序获取前N个任务实例 包括还没有到期的任务
+     *
+     * @param n 获取的条数
+     * @return 一致性任务列表
+     */
+    public List<ConsistencyTaskInstance> listTasks(final int n) {
+        return this.scan(n, Long.MAX_VALUE);
+    }
+
+    /**
+     * 从第一个key开始顺序读取，读到N个或者执行时间达到上界时结束
+     *
+     * @param n 获取的条数
+     * @param executeTimeUpperBound 执行时间的上界 不包含
+     * @return 一致性任务列表
+     */
+    private List<ConsistencyTaskInstance> scan(final int n, final long executeTimeUpperBound) {
+        final List<ConsistencyTaskInstance> consistencyTaskInstances = new ArrayList<>(n);
+        // 执行时间不小于上界的key都不小于这个key
+        final byte[] upperBound = this.encodeKey(executeTimeUpperBound, 0L, 0L);
+        try (final Slice upperBoundSlice = new Slice(upperBound);
+            final ReadOptions readOptions = new ReadOptions().setIterateUpperBound(upperBoundSlice);
+            final RocksIterator rocksIterator =
+                rocksDB.newIterator(columnFamilyHandleMap.get("default"), readOptions)) {
+            for (rocksIterator.seekToFirst(); rocksIterator.isValid()
+                && consistencyTaskInstances.size() < n; rocksIterator.next()) {
+                final ConsistencyTaskInstance instance = this.decode(rocksIterator.value());
+                if (ObjectUtil.isEmpty(instance)) {
                     continue;
                 }
-                taskInstanceKeys.add(key);
-                count++;
+                consistencyTaskInstances.add(instance);
             }
-            // 拿到key的list
-            return this.multiGetAsList(taskInstanceKeys);
+            return consistencyTaskInstances;
         } catch (final Exception e) {
-            return new ArrayList<>(0);
+            log.error("获取任务时，发生异常", e);
+            return consistencyTaskInstances;
         }
     }
 
     /**
-     * 根据一致性任务信息获取key
+     * 解码任务数据 无法解码的数据只记录日志，不影响其他任务
+     *
+     * @param value 任务数据
+     * @return 任务实例 无法解码时返回null
+     */
+    private ConsistencyTaskInstance decode(final byte[] value) {
+        try {
+            return this.taskCodec.decode(value);
+        } catch (final Exception e) {
+            log.error("解码RocksDB中的任务数据时，发生异常", e);
+            return null;
+        }
+    }
+
+    /**
+     * 根据一致性任务信息获取key 用于打印日志
      *
      * @param taskInstance 任务实例信息
      * @return 任务key
      */
     private String getRocksKeyStr(final ConsistencyTaskInstance taskInstance) {
-        return taskInstance.getExecuteTime() + "_" + taskInstance.getShardKey() + "_" + taskInstance.getId();
+        return taskInstance.getExecuteTime() + "_" + taskInstance.getShardKey() + "_" + taskInstance.getLocalSeq();
     }
 
     /**
@@ -251,18 +647,40 @@ public class RocksLocalStorage {
      * @return 任务key
      */
     private byte[] getRocksKey(final ConsistencyTaskInstance taskInstance) {
-        final String key =
-            taskInstance.getExecuteTime() + "_" + taskInstance.getShardKey() + "_" + taskInstance.getId();
-        return key.getBytes();
+        return this.encodeKey(taskInstance.getExecuteTime(), ObjectUtil.defaultIfNull(taskInstance.getShardKey(), 0L),
+            taskInstance.getLocalSeq());
     }
 
     /**
-     * 根据一致性任务信息获取key
+     * 根据一致性任务信息获取索引的key
      *
      * @param taskInstance 任务实例信息
+     * @return 索引key
+     */
+    private byte[] getIndexKey(final ConsistencyTaskInstance taskInstance) {
+        return ByteBuffer.allocate(Long.BYTES).putLong(taskInstance.getLocalSeq()).array();
+    }
+
+    /**
+     * 把执行时间、分片键、本地存储序号编码为定长的key 大端编码的非负long按字节序比较和按数值比较的结果相同
+     *
+     * @param executeTime 执行时间
+     * @param shardKey 分片键
+     * @param localSeq 本地存储序号
      * @return 任务key
      */
-    private byte[] getRocksValue(final ConsistencyTaskInstance taskInstance) {
-        return JSONUtil.toJsonStr(taskInstance).getBytes();
+    private byte[] encodeKey(final long executeTime, final long shardKey, final long localSeq) {
+        return ByteBuffer.allocate(RocksLocalStorage.KEY_LENGTH).putLong(executeTime).putLong(shardKey)
+            .putLong(localSeq).array();
+    }
+
+    /**
+     * 根据一致性任务信息获取value
+     *
+     * @param taskInstance 任务实例信息
+     * @return 任务value
+     */
+    private byte[] getRocksValue(final ConsistencyTaskInstance taskInstance) throws RocksDBException {
+        return this.taskCodec.encode(taskInstance);
     }
 }
@@ -0,0 +1,422 @@
+package com.zzjj.consistency.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.WriteOptions;
+
+import com.zzjj.consistency.exceptions.ConsistencyException;
+import com.zzjj.consistency.model.ConsistencyTaskInstance;
+
+import cn.hutool.json.JSONUtil;
+
+/**
+ * RocksDB中任务数据的二进制编解码
+ * <p>
+ * 格式: [版本号 1字节][标记 1字节][字段...]，每个字段为 [字段编号 varint][长度 varint][内容]。解码时跳过不认识的字段编号，
+ * 新版本增加的字段不影响旧版本读取，旧版本写入的数据缺少的字段保持默认值。
+ * <p>
+ * 方法签名、降级类等在每个任务中重复出现的字符串保存到字典列族中，任务数据里只保存字典编号。
+ * 字段部分超过一定长度且压缩后更短时使用Deflater压缩，标记的最低位表示是否压缩。旧版本的JSON格式以'{'开头，解码时直接按JSON解析。
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+final class RocksTaskCodec {
+
+    /**
+     * 当前格式的版本号
+     */
+    private static final byte VERSION = 1;
+    /**
+     * 标记: 字段部分经过压缩
+     */
+    private static final byte FLAG_COMPRESSED = 1;
+    /**
+     * 字段部分超过该长度时尝试压缩
+     */
+    private static final int COMPRESS_THRESHOLD = 256;
+    /**
+     * 旧版本JSON格式的第一个字节
+     */
+    private static final byte JSON_START = '{';
+
+    private static final int ID = 1;
+    private static final int TASK_ID = 2;
+    private static final int METHOD_SIGN_NAME = 3;
+    private static final int METHOD_NAME = 4;
+    private static final int PARAMETER_TYPES = 5;
+    private static final int TASK_PARAMETER = 6;
+    private static final int TASK_STATUS = 7;
+    private static final int EXECUTE_INTERVAL_SEC = 8;
+    private static final int DELAY_TIME = 9;
+    private static final int EXECUTE_TIMES = 10;
+    private static final int EXECUTE_TIME = 11;
+    private static final int ERROR_MSG = 12;
+    private static final int EXECUTE_WAY = 13;
+    private static final int THREAD_WAY = 14;
+    private static final int ALERT_EXPRESSION = 15;
+    private static final int ALERT_ACTION_BEAN_NAME = 16;
+    private static final int FALLBACK_CLASS_NAME = 17;
+    private static final int FALLBACK_ERROR_MSG = 18;
+    private static final int SHARD_KEY = 19;
+    private static final int SHARD_INDEX = 20;
+    private static final int LOCAL_SEQ = 21;
+    private static final int GMT_CREATE = 22;
+    private static final int GMT_MODIFIED = 23;
+
+    private final RocksDB rocksDB;
+    /**
+     * 字典列族 key: 字典编号 value: 字符串
+     */
+    private final ColumnFamilyHandle dictHandle;
+    /**
+     * 字典数据同步落盘 保证任务数据引用的字典编号一定已经持久化
+     */
+    private final WriteOptions dictWriteOptions = new WriteOptions().setSync(true);
+    private final Map<String, Integer> dictIds = new ConcurrentHashMap<>();
+    private final Map<Integer, String> dictValues = new ConcurrentHashMap<>();
+    private int nextDictId = 1;
+
+    /**
+     * 加载字典 字典只包含不同的方法签名、降级类等，数量和任务方法数相当
+     *
+     * @param rocksDB RocksDB实例
+     * @param dictHandle 字典列族
+     */
+    RocksTaskCodec(final RocksDB rocksDB, final ColumnFamilyHandle dictHandle) {
+        this.rocksDB = rocksDB;
+        this.dictHandle = dictHandle;
+        try (final RocksIterator rocksIterator = rocksDB.newIterator(dictHandle)) {
+            for (rocksIterator.seekToFirst(); rocksIterator.isValid(); rocksIterator.next()) {
+                final int dictId = ByteBuffer.wrap(rocksIterator.key()).getInt();
+                final String value = new String(rocksIterator.value(), StandardCharsets.UTF_8);
+                this.dictIds.put(value, dictId);
+                this.dictValues.put(dictId, value);
+                this.nextDictId = Math.max(this.nextDictId, dictId + 1);
+            }
+        }
+    }
+
+    /**
+     * 编码任务实例
+     *
+     * @param taskInstance 任务实例
+     * @return 二进制数据
+     */
+    byte[] encode(final ConsistencyTaskInstance taskInstance) throws RocksDBException {
+        final ByteArrayOutputStream fields = new ByteArrayOutputStream(RocksTaskCodec.COMPRESS_THRESHOLD);
+        this.writeLong(fields, RocksTaskCodec.ID, taskInstance.getId());
+        this.writeString(fields, RocksTaskCodec.TASK_ID, taskInstance.getTaskId());
+        this.writeDict(fields, RocksTaskCodec.METHOD_SIGN_NAME, taskInstance.getMethodSignName());
+        this.writeDict(fields, RocksTaskCodec.METHOD_NAME, taskInstance.getMethodName());
+        this.writeDict(fields, RocksTaskCodec.PARAMETER_TYPES, taskInstance.getParameterTypes());
+        this.writeString(fields, RocksTaskCodec.TASK_PARAMETER, taskInstance.getTaskParameter());
+        this.writeInteger(fields, RocksTaskCodec.TASK_STATUS, taskInstance.getTaskStatus());
+        this.writeInteger(fields, RocksTaskCodec.EXECUTE_INTERVAL_SEC, taskInstance.getExecuteIntervalSec());
+        this.writeInteger(fields, RocksTaskCodec.DELAY_TIME, taskInstance.getDelayTime());
+        this.writeInteger(fields, RocksTaskCodec.EXECUTE_TIMES, taskInstance.getExecuteTimes());
+        this.writeLong(fields, RocksTaskCodec.EXECUTE_TIME, taskInstance.getExecuteTime());
+        this.writeString(fields, RocksTaskCodec.ERROR_MSG, taskInstance.getErrorMsg());
+        this.writeInteger(fields, RocksTaskCodec.EXECUTE_WAY, taskInstance.getExecuteWay());
+        this.writeInteger(fields, RocksTaskCodec.THREAD_WAY, taskInstance.getThreadWay());
+        this.writeDict(fields, RocksTaskCodec.ALERT_EXPRESSION, taskInstance.getAlertExpression());
+        this.writeDict(fields, RocksTaskCodec.ALERT_ACTION_BEAN_NAME, taskInstance.getAlertActionBeanName());
+        this.writeDict(fields, RocksTaskCodec.FALLBACK_CLASS_NAME, taskInstance.getFallbackClassName());
+        this.writeString(fields, RocksTaskCodec.FALLBACK_ERROR_MSG, taskInstance.getFallbackErrorMsg());
+        this.writeLong(fields, RocksTaskCodec.SHARD_KEY, taskInstance.getShardKey());
+        this.writeLong(fields, RocksTaskCodec.SHARD_INDEX, taskInstance.getShardIndex());
+        this.writeLong(fields, RocksTaskCodec.LOCAL_SEQ, taskInstance.getLocalSeq());
+        this.writeDate(fields, RocksTaskCodec.GMT_CREATE, taskInstance.getGmtCreate());
+        this.writeDate(fields, RocksTaskCodec.GMT_MODIFIED, taskInstance.getGmtModified());
+
+        byte[] body = fields.toByteArray();
+        byte flags = 0;
+        if (body.length > RocksTaskCodec.COMPRESS_THRESHOLD) {
+            final byte[] compressed = this.compress(body);
+            if (compressed.length < body.length) {
+                body = compressed;
+                flags |= RocksTaskCodec.FLAG_COMPRESSED;
+            }
+        }
+        final byte[] value = new byte[body.length + 2];
+        value[0] = RocksTaskCodec.VERSION;
+        value[1] = flags;
+        System.arraycopy(body, 0, value, 2, body.length);
+        return value;
+    }
+
+    /**
+     * 解码任务实例
+     *
+     * @param value 二进制数据
+     * @return 任务实例
+     */
+    ConsistencyTaskInstance decode(final byte[] value) {
+        if (value[0] == RocksTaskCodec.JSON_START) {
+            return JSONUtil.toBean(new String(value, StandardCharsets.UTF_8), ConsistencyTaskInstance.class);
+        }
+        if (value[0] > RocksTaskCodec.VERSION) {
+            throw new ConsistencyException("不支持的RocksDB任务数据版本: " + value[0]);
+        }
+        final ByteBuffer buffer;
+        if ((value[1] & RocksTaskCodec.FLAG_COMPRESSED) != 0) {
+            buffer = ByteBuffer.wrap(this.decompress(value));
+        } else {
+            buffer = ByteBuffer.wrap(value, 2, value.length - 2);
+        }
+        final ConsistencyTaskInstance taskInstance = new ConsistencyTaskInstance();
+        while (buffer.hasRemaining()) {
+            final int tag = (int)this.readVarLong(buffer);
+            final int length = (int)this.readVarLong(buffer);
+            final int end = buffer.position() + length;
+            switch (tag) {
+                case ID:
+                    taskInstance.setId(this.readZigZag(buffer));
+                    break;
+                case TASK_ID:
+                    taskInstance.setTaskId(this.readString(buffer, length));
+                    break;
+                case METHOD_SIGN_NAME:
+                    taskInstance.setMethodSignName(this.readDict(buffer));
+                    break;
+                case METHOD_NAME:
+                    taskInstance.setMethodName(this.readDict(buffer));
+                    break;
+                case PARAMETER_TYPES:
+                    taskInstance.setParameterTypes(this.readDict(buffer));
+                    break;
+                case TASK_PARAMETER:
+                    taskInstance.setTaskParameter(this.readString(buffer, length));
+                    break;
+                case TASK_STATUS:
+                    taskInstance.setTaskStatus((int)this.readZigZag(buffer));
+                    break;
+                case EXECUTE_INTERVAL_SEC:
+                    taskInstance.setExecuteIntervalSec((int)this.readZigZag(buffer));
+                    break;
+                case DELAY_TIME:
+                    taskInstance.setDelayTime((int)this.readZigZag(buffer));
+                    break;
+                case EXECUTE_TIMES:
+                    taskInstance.setExecuteTimes((int)this.readZigZag(buffer));
+                    break;
+                case EXECUTE_TIME:
+                    taskInstance.setExecuteTime(this.readZigZag(buffer));
+                    break;
+                case ERROR_MSG:
+                    taskInstance.setErrorMsg(this.readString(buffer, length));
+                    break;
+                case EXECUTE_WAY:
+                    taskInstance.setExecuteWay((int)this.readZigZag(buffer));
+                    break;
+                case THREAD_WAY:
+                    taskInstance.setThreadWay((int)this.readZigZag(buffer));
+                    break;
+                case ALERT_EXPRESSION:
+                    taskInstance.setAlertExpression(this.readDict(buffer));
+                    break;
+                case ALERT_ACTION_BEAN_NAME:
+                    taskInstance.setAlertActionBeanName(this.readDict(buffer));
+                    break;
+                case FALLBACK_CLASS_NAME:
+                    taskInstance.setFallbackClassName(this.readDict(buffer));
+                    break;
+                case FALLBACK_ERROR_MSG:
+                    taskInstance.setFallbackErrorMsg(this.readString(buffer, length));
+                    break;
+                case SHARD_KEY:
+                    taskInstance.setShardKey(this.readZigZag(buffer));
+                    break;
+                case SHARD_INDEX:
+                    taskInstance.setShardIndex(this.readZigZag(buffer));
+                    break;
+                case LOCAL_SEQ:
+                    taskInstance.setLocalSeq(this.readZigZag(buffer));
+                    break;
+                case GMT_CREATE:
+                    taskInstance.setGmtCreate(new Date(this.readZigZag(buffer)));
+                    break;
+                case GMT_MODIFIED:
+                    taskInstance.setGmtModified(new Date(this.readZigZag(buffer)));
+                    break;
+                default:
+                    // 新版本增加的字段 跳过
+                    break;
+            }
+            buffer.position(end);
+        }
+        return taskInstance;
+    }
+
+    /**
+     * 获取字符串的字典编号 第一次出现的字符串先同步写入字典列族，再返回新的编号
+     *
+     * @param value 字符串
+     * @return 字典编号
+     */
+    private int getOrCreateDictId(final String value) throws RocksDBException {
+        final Integer dictId = this.dictIds.get(value);
+        if (dictId != null) {
+            return dictId;
+        }
+        synchronized (this) {
+            final Integer existDictId = this.dictIds.get(value);
+            if (existDictId != null) {
+                return existDictId;
+            }
+            final int newDictId = this.nextDictId++;
+            final byte[] dictKey = ByteBuffer.allocate(Integer.BYTES).putInt(newDictId).array();
+            this.rocksDB.put(this.dictHandle, this.dictWriteOptions, dictKey, value.getBytes(StandardCharsets.UTF_8));
+            this.dictValues.put(newDictId, value);
+            this.dictIds.put(value, newDictId);
+            return newDictId;
+        }
+    }
+
+    /**
+     * 释放写入字典时使用的选项
+     */
+    void close() {
+        this.dictWriteOptions.close();
+    }
+
+    private String readDict(final ByteBuffer buffer) {
+        final int dictId = (int)this.readVarLong(buffer);
+        final String value = this.dictValues.get(dictId);
+        if (value == null) {
+            throw new ConsistencyException("RocksDB任务数据引用了不存在的字典编号: " + dictId);
+        }
+        return value;
+    }
+
+    private void writeDict(final ByteArrayOutputStream out, final int tag, final String value)
+        throws RocksDBException {
+        if (value == null) {
+            return;
+        }
+        final ByteArrayOutputStream content = new ByteArrayOutputStream(5);
+        this.writeVarLong(content, this.getOrCreateDictId(value));
+        this.writeField(out, tag, content.toByteArray());
+    }
+
+    private void writeString(final ByteArrayOutputStream out, final int tag, final String value) {
+        if (value == null) {
+            return;
+        }
+        this.writeField(out, tag, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String readString(final ByteBuffer buffer, final int length) {
+        final String value =
+            new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private void writeInteger(final ByteArrayOutputStream out, final int tag, final Integer value) {
+        if (value == null) {
+            return;
+        }
+        this.writeLong(out, tag, value.longValue());
+    }
+
+    private void writeDate(final ByteArrayOutputStream out, final int tag, final Date value) {
+        if (value == null) {
+            return;
+        }
+        this.writeLong(out, tag, value.getTime());
+    }
+
+    /**
+     * 整数使用zigzag编码后按varint写入 较小的数只占用1到2个字节
+     */
+    private void writeLong(final ByteArrayOutputStream out, final int tag, final Long value) {
+        if (value == null) {
+            return;
+        }
+        final ByteArrayOutputStream content = new ByteArrayOutputStream(10);
+        this.writeVarLong(content, (value << 1) ^ (value >> 63));
+        this.writeField(out, tag, content.toByteArray());
+    }
+
+    private long readZigZag(final ByteBuffer buffer) {
+        final long value = this.readVarLong(buffer);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private void writeField(final ByteArrayOutputStream out, final int tag, final byte[] content) {
+        this.writeVarLong(out, tag);
+        this.writeVarLong(out, content.length);
+        out.write(content, 0, content.length);
+    }
+
+    private void writeVarLong(final ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int)((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int)value);
+    }
+
+    private long readVarLong(final ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final byte b = buffer.get();
+            value |= (long)(b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new ConsistencyException("RocksDB任务数据格式错误");
+    }
+
+    private byte[] compress(final byte[] body) {
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(body);
+            deflater.finish();
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(body.length);
+            final byte[] buffer = new byte[body.length];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private byte[] decompress(final byte[] value) {
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(value, 2, value.length - 2);
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(value.length * 4);
+            final byte[] buffer = new byte[value.length * 2];
+            while (!inflater.finished()) {
+                final int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new ConsistencyException("RocksDB任务数据压缩格式错误");
+                }
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+        } catch (final DataFormatException e) {
+            throw new ConsistencyException("RocksDB任务数据压缩格式错误");
+        } finally {
+            inflater.end();
+        }
+    }
+
+}
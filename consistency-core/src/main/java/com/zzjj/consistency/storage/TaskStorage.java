@@ -0,0 +1,200 @@
+package com.zzjj.consistency.storage;
+
+import java.util.List;
+
+import com.zzjj.consistency.model.ConsistencyTaskInstance;
+import com.zzjj.consistency.model.TaskScanQuery;
+
+/**
+ * 一致性任务的持久化接口 TaskStoreService通过该接口访问任务表，默认使用JDBC实现，也可以配置为MyBatis实现
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+public interface TaskStorage {
+
+    /**
+     * 保存最终一致性任务实例 生成的主键会回填到任务实例中
+     *
+     * @param taskInstance 要存储的最终一致性任务的实例信息
+     * @return 存储结果
+     */
+    long initTask(ConsistencyTaskInstance taskInstance);
+
+    /**
+     * 批量保存最终一致性任务实例 生成的主键会回填到各个任务实例中
+     *
+     * @param taskInstances 要存储的最终一致性任务的实例信息集合
+     * @return 存储结果
+     */
+    int batchInitTask(List<ConsistencyTaskInstance> taskInstances);
+
+    /**
+     * 按任务实例中已经指定的id批量写回任务 用于把本地存储的任务迁移回任务表
+     *
+     * @param taskInstances 已经指定了id的任务实例集合
+     * @return 存储结果
+     */
+    int batchRestoreTask(List<ConsistencyTaskInstance> taskInstances);
+
+    /**
+     * 根据id获取任务实例信息
+     *
+     * @param id 任务id
+     * @param shardKey 任务分片键
+     * @return 任务实例信息
+     */
+    ConsistencyTaskInstance getTaskByIdAndShardKey(Long id, Long shardKey);
+
+    /**
+     * 获取未完成的任务
+     *
+     * @param startTime 开始时间
+     * @param endTime 结束时间
+     * @param limitTaskCount 每次查询限制的条数
+     * @return 获取未完成的任务
+     */
+    List<ConsistencyTaskInstance> listByUnFinishTask(Long startTime, Long endTime, Long limitTaskCount);
+
+    /**
+     * 按 (execute_time, id) 键集分页获取未完成的任务
+     *
+     * @param scanQuery 分页扫描条件
+     * @return 当前页未完成的任务
+     */
+    List<ConsistencyTaskInstance> listUnFinishTaskPage(TaskScanQuery scanQuery);
+
+    /**
+     * 按 (execute_time, id) 键集分页获取未完成任务的索引信息
+     *
+     * @param scanQuery 分页扫描条件
+     * @return 当前页未完成任务的索引信息
+     */
+    List<ConsistencyTaskInstance> listUnFinishTaskKeyPage(TaskScanQuery scanQuery);
+
+    /**
+     * 根据id和分片键批量获取未完成任务的完整信息
+     *
+     * @param taskKeys 只包含id和shardKey的任务实例集合
+     * @return 任务实例信息
+     */
+    List<ConsistencyTaskInstance> listTaskByIdsAndShardKeys(List<ConsistencyTaskInstance> taskKeys);
+
+    /**
+     * 根据id和分片键批量获取已经存在的任务的主键和任务标识 不区分任务状态
+     *
+     * @param taskKeys 只包含id和shardKey的任务实例集合
+     * @return 已经存在的任务 只包含id、shardKey、taskId和methodSignName
+     */
+    List<ConsistencyTaskInstance> listTaskKeysByIdsAndShardKeys(List<ConsistencyTaskInstance> taskKeys);
+
+    /**
+     * 认领到期的任务
+     *
+     * @param ownerPeerId 认领任务的节点
+     * @param leaseUntil 租约到期时间 同时作为本次认领的标识
+     * @param startTime 认领任务的开始时间
+     * @param now 当前时间
+     * @param limit 最多认领的任务数
+     * @return 认领成功的任务数
+     */
+    int claimTask(String ownerPeerId, Long leaseUntil, Long startTime, Long now, Integer limit);
+
+    /**
+     * 获取某一次认领到的任务
+     *
+     * @param ownerPeerId 认领任务的节点
+     * @param leaseUntil 认领时的租约到期时间
+     * @return 认领到的任务
+     */
+    List<ConsistencyTaskInstance> listClaimedTask(String ownerPeerId, Long leaseUntil);
+
+    /**
+     * 启动任务
+     *
+     * @param taskInstance 任务实例信息
+     * @return 启动任务的结果
+     */
+    int turnOnTask(ConsistencyTaskInstance taskInstance);
+
+    /**
+     * 批量启动未完成的任务 将任务标记为开始执行并增加执行次数
+     * <p>
+     * 只启动执行次数和读取时相同的任务，读取之后已经被其他节点启动或者已经完成的任务不会被启动
+     *
+     * @param taskInstances 任务实例信息集合
+     * @param executeTime 任务的执行时间
+     * @return 启动成功的任务
+     */
+    List<ConsistencyTaskInstance> batchTurnOnTask(List<ConsistencyTaskInstance> taskInstances, Long executeTime);
+
+    /**
+     * 标记任务成功 删除任务记录
+     *
+     * @param taskInstance 一致性任务实例信息
+     * @return 标记结果
+     */
+    int markSuccess(ConsistencyTaskInstance taskInstance);
+
+    /**
+     * 批量标记任务成功 删除任务记录
+     *
+     * @param taskInstances 一致性任务实例信息集合
+     * @return 标记结果
+     */
+    int batchMarkSuccess(List<ConsistencyTaskInstance> taskInstances);
+
+    /**
+     * 将任务标记为已归档
+     *
+     * @param taskInstance 一致性任务实例信息
+     * @return 标记结果
+     */
+    int markArchived(ConsistencyTaskInstance taskInstance);
+
+    /**
+     * 批量将任务标记为已归档
+     *
+     * @param taskInstances 一致性任务实例信息集合
+     * @return 标记结果
+     */
+    int batchMarkArchived(List<ConsistencyTaskInstance> taskInstances);
+
+    /**
+     * 标记任务为失败或者重试耗尽 状态使用任务实例中的taskStatus
+     *
+     * @param taskInstance 一致性任务实例信息
+     * @return 标记结果
+     */
+    int markFail(ConsistencyTaskInstance taskInstance);
+
+    /**
+     * 批量标记任务为失败 使用JDBC批量执行
+     *
+     * @param taskInstances 一致性任务实例信息集合
+     */
+    void batchMarkFail(List<ConsistencyTaskInstance> taskInstances);
+
+    /**
+     * 标记为降级失败
+     *
+     * @param taskInstance 一致性任务实例
+     * @return 标记结果
+     */
+    int markFallbackFail(ConsistencyTaskInstance taskInstance);
+
+    /**
+     * 按id和分片键推迟未完成的任务 每个任务推迟到任务实例中的执行时间
+     *
+     * @param taskInstances 任务实例集合 执行时间为推迟后的执行时间
+     */
+    void deferTasks(List<ConsistencyTaskInstance> taskInstances);
+
+    /**
+     * 撤销已经启动但没有被执行的任务 恢复任务状态并减去启动时增加的执行次数，带租约的任务同时释放租约
+     *
+     * @param taskInstances 任务实例集合 任务状态为恢复后的状态
+     */
+    void releaseTasks(List<ConsistencyTaskInstance> taskInstances);
+
+}
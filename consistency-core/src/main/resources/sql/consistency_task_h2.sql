@@ -0,0 +1,34 @@
+-- 一致性任务表的H2建表脚本 需要以MySQL兼容模式(MODE=MySQL)打开H2数据库
+-- 与README中MySQL建表脚本的列和索引保持一致，用于本地调试和压测时的内嵌任务存储
+CREATE TABLE IF NOT EXISTS `consistency_task`
+(
+    `id`                     bigint       NOT NULL AUTO_INCREMENT COMMENT '主键自增',
+    `task_id`                varchar(500) NOT NULL COMMENT '用户自定义的任务名称，如果没有则使用方法签名',
+    `task_status`            int          NOT NULL DEFAULT '0' COMMENT '执行状态',
+    `execute_times`          int          NOT NULL COMMENT '执行次数',
+    `execute_time`           bigint       NOT NULL COMMENT '执行时间',
+    `parameter_types`        varchar(255) NOT NULL COMMENT '参数的类路径名称',
+    `method_name`            varchar(100) NOT NULL COMMENT '方法名',
+    `method_sign_name`       varchar(200) NOT NULL DEFAULT '' COMMENT '方法签名',
+    `execute_interval_sec`   int          NOT NULL DEFAULT '60' COMMENT '执行间隔秒',
+    `delay_time`             int          NOT NULL DEFAULT '60' COMMENT '延迟时间：单位秒',
+    `task_parameter`         text         NOT NULL COMMENT '任务参数',
+    `execute_way`            int          NOT NULL COMMENT '执行模式：1、立即执行 2、调度执行',
+    `thread_way`             int          NOT NULL COMMENT '线程模型 1、异步 2、同步',
+    `error_msg`              varchar(200) NOT NULL DEFAULT '' COMMENT '执行的error信息',
+    `alert_expression`       varchar(100)          DEFAULT NULL COMMENT '告警表达式',
+    `alert_action_bean_name` varchar(255)          DEFAULT NULL COMMENT '告警逻辑的的执行beanName',
+    `fallback_class_name`    varchar(255)          DEFAULT NULL COMMENT '降级逻辑的的类路径',
+    `fallback_error_msg`     varchar(200)          DEFAULT NULL COMMENT '降级失败时的错误信息',
+    `shard_key`              bigint                DEFAULT '0' COMMENT '任务分片键',
+    `shard_index`            bigint                DEFAULT NULL COMMENT '任务分片索引，开启分片条件下推时使用',
+    `owner_peer_id`          varchar(64)           DEFAULT NULL COMMENT 'LEASE模式下持有任务租约的节点',
+    `lease_until`            bigint                DEFAULT NULL COMMENT 'LEASE模式下任务租约的到期时间',
+    `gmt_create`             datetime     NOT NULL COMMENT '创建时间',
+    `gmt_modified`           datetime     NOT NULL COMMENT '修改时间',
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `uk_id_shard_key` (`id`, `shard_key`),
+    KEY `idx_execute_time` (`execute_time`),
+    KEY `idx_status_shard_index_execute_time` (`task_status`, `shard_index`, `execute_time`),
+    KEY `idx_owner_peer_id_lease_until` (`owner_peer_id`, `lease_until`)
+);
@@ -0,0 +1,73 @@
+package com.zzjj.consistency.custom.retry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.zzjj.consistency.model.ConsistencyTaskInstance;
+
+/**
+ * 指数退避加随机抖动重试策略的测试
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+class ExponentialJitterRetryPolicyTest {
+
+    private static final long EXECUTE_TIME = 1_000_000L;
+
+    @Test
+    void retryIntervalStaysBetweenExecuteIntervalAndGrowingUpperBound() {
+        final ExponentialJitterRetryPolicy retryPolicy = new ExponentialJitterRetryPolicy(3_600_000L);
+        for (int executeTimes = 0; executeTimes < 4; executeTimes++) {
+            final ConsistencyTaskInstance taskInstance = this.newTask(10, executeTimes);
+            // 第n次执行失败后上界为 执行间隔 * 3^(n+1)
+            final long upperMillis = 10_000L * (long)Math.pow(3, executeTimes + 1);
+            for (int i = 0; i < 200; i++) {
+                final long interval = retryPolicy.getNextExecuteTime(taskInstance, null)
+                    - ExponentialJitterRetryPolicyTest.EXECUTE_TIME;
+                assertTrue(interval >= 10_000L && interval <= upperMillis, "interval: " + interval);
+            }
+        }
+    }
+
+    @Test
+    void retryIntervalNeverExceedsTheMaxInterval() {
+        final ExponentialJitterRetryPolicy retryPolicy = new ExponentialJitterRetryPolicy(60_000L);
+        final ConsistencyTaskInstance taskInstance = this.newTask(10, 20);
+        for (int i = 0; i < 200; i++) {
+            final long interval =
+                retryPolicy.getNextExecuteTime(taskInstance, null) - ExponentialJitterRetryPolicyTest.EXECUTE_TIME;
+            assertTrue(interval >= 10_000L && interval <= 60_000L, "interval: " + interval);
+        }
+    }
+
+    @Test
+    void executeIntervalAboveTheMaxIntervalUsesTheMaxInterval() {
+        final ExponentialJitterRetryPolicy retryPolicy = new ExponentialJitterRetryPolicy(5_000L);
+
+        assertEquals(ExponentialJitterRetryPolicyTest.EXECUTE_TIME + 5_000L,
+            retryPolicy.getNextExecuteTime(this.newTask(10, 0), null));
+    }
+
+    @Test
+    void tasksFailingTogetherAreSpreadOut() {
+        final ExponentialJitterRetryPolicy retryPolicy = new ExponentialJitterRetryPolicy(3_600_000L);
+        final Set<Long> nextExecuteTimes = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            nextExecuteTimes.add(retryPolicy.getNextExecuteTime(this.newTask(10, 2), null));
+        }
+
+        assertTrue(nextExecuteTimes.size() > 50, "distinct retry times: " + nextExecuteTimes.size());
+    }
+
+    private ConsistencyTaskInstance newTask(final int executeIntervalSec, final int executeTimes) {
+        return ConsistencyTaskInstance.builder().executeIntervalSec(executeIntervalSec).executeTimes(executeTimes)
+            .executeTime(ExponentialJitterRetryPolicyTest.EXECUTE_TIME).build();
+    }
+
+}
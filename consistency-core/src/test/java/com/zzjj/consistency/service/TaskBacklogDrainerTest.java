@@ -0,0 +1,288 @@
+package com.zzjj.consistency.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.rocksdb.RocksDBException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.zzjj.consistency.config.ConsistencyConfiguration;
+import com.zzjj.consistency.custom.query.TaskTimeRangeQuery;
+import com.zzjj.consistency.model.ConsistencyTaskInstance;
+import com.zzjj.consistency.storage.H2TaskTables;
+import com.zzjj.consistency.storage.JdbcTaskStorage;
+import com.zzjj.consistency.storage.RocksLocalStorage;
+import com.zzjj.consistency.storage.RocksTestStorages;
+import com.zzjj.consistency.storage.TaskStorage;
+
+import cn.hutool.core.bean.BeanUtil;
+
+/**
+ * RocksDB积压任务迁移的测试 把RocksDB中的任务迁移到H2任务表
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+class TaskBacklogDrainerTest {
+
+    private static DataSource dataSource;
+    private static JdbcTaskStorage taskStorage;
+
+    @TempDir
+    Path dir;
+
+    private RocksLocalStorage rocksLocalStorage;
+    private TaskBacklogDrainer drainer;
+
+    @BeforeAll
+    static void initDataSource() {
+        TaskBacklogDrainerTest.dataSource = H2TaskTables.createDataSource("task_backlog_drainer_test");
+        TaskBacklogDrainerTest.taskStorage = H2TaskTables.createJdbcTaskStorage(TaskBacklogDrainerTest.dataSource);
+    }
+
+    @BeforeEach
+    void open() throws RocksDBException {
+        H2TaskTables.truncate(TaskBacklogDrainerTest.dataSource);
+        this.rocksLocalStorage = RocksTestStorages.open(this.dir);
+    }
+
+    @AfterEach
+    void close() throws Exception {
+        if (this.drainer != null) {
+            this.drainer.destroy();
+        }
+        this.rocksLocalStorage.close();
+    }
+
+    @Test
+    void drainsTheBacklogInBatchesAndDeletesLocalTasks() {
+        final List<ConsistencyTaskInstance> backlog = this.putBacklog(5);
+        this.drainer = this.newDrainer(TaskBacklogDrainerTest.taskStorage);
+
+        this.drain();
+
+        assertTrue(this.rocksLocalStorage.listTasks(10).isEmpty());
+        assertEquals(5, this.countTasks());
+        for (final ConsistencyTaskInstance taskInstance : backlog) {
+            assertNotNull(TaskBacklogDrainerTest.taskStorage
+                .getTaskByIdAndShardKey(this.getRestoreId(taskInstance), taskInstance.getShardKey()));
+        }
+    }
+
+    @Test
+    void skipsTasksRestoredBeforeACrash() {
+        final List<ConsistencyTaskInstance> backlog = this.putBacklog(4);
+        // 上一次迁移写回了前两个任务，删除本地任务前宕机
+        final List<ConsistencyTaskInstance> restored = new ArrayList<>();
+        for (final ConsistencyTaskInstance taskInstance : backlog.subList(0, 2)) {
+            final ConsistencyTaskInstance copy = BeanUtil.toBean(taskInstance, ConsistencyTaskInstance.class);
+            copy.setId(this.getRestoreId(taskInstance));
+            restored.add(copy);
+        }
+        TaskBacklogDrainerTest.taskStorage.batchRestoreTask(restored);
+        this.drainer = this.newDrainer(TaskBacklogDrainerTest.taskStorage);
+
+        this.drain();
+
+        assertTrue(this.rocksLocalStorage.listTasks(10).isEmpty());
+        assertEquals(4, this.countTasks());
+    }
+
+    @Test
+    void onlyDeletesLocalCopiesOfTasksThatAlreadyHaveAnId() {
+        final ConsistencyTaskInstance taskInstance = H2TaskTables.newTask(1000L, 1L);
+        TaskBacklogDrainerTest.taskStorage.batchInitTask(Arrays.asList(taskInstance));
+        this.rocksLocalStorage.put(taskInstance);
+        this.drainer = this.newDrainer(TaskBacklogDrainerTest.taskStorage);
+
+        this.drain();
+
+        assertTrue(this.rocksLocalStorage.listTasks(10).isEmpty());
+        assertEquals(1, this.countTasks());
+    }
+
+    @Test
+    void restoredTasksFromALongOutageFallInsideTheScanWindow() {
+        // 两个小时前到期的任务超出了默认一个小时的扫描范围，一个小时后到期的任务保留原来的执行时间
+        final long now = System.currentTimeMillis();
+        final ConsistencyTaskInstance overdue = H2TaskTables.newTask(now - 7_200_000L, 1L);
+        final ConsistencyTaskInstance future = H2TaskTables.newTask(now + 3_600_000L, 2L);
+        this.rocksLocalStorage.put(overdue);
+        this.rocksLocalStorage.put(future);
+        this.drainer = this.newDrainer(TaskBacklogDrainerTest.taskStorage);
+
+        this.drain();
+
+        final List<ConsistencyTaskInstance> scanned = this.scanDueTasks();
+        assertEquals(1, scanned.size());
+        assertEquals(this.getRestoreId(overdue), scanned.get(0).getId());
+        assertEquals(now + 3_600_000L, TaskBacklogDrainerTest.taskStorage
+            .getTaskByIdAndShardKey(this.getRestoreId(future), 2L).getExecuteTime());
+        assertEquals(1, TaskBacklogDrainerTest.taskStorage.claimTask("peer-a", System.currentTimeMillis() + 60_000L,
+            TaskTimeRangeQuery.defaultGetStartTime().getTime(), System.currentTimeMillis(), 10));
+    }
+
+    @Test
+    void reschedulesStaleRowsOfTasksThatAlreadyHaveAnId() {
+        // 任务表中的记录停留在两个小时前，本地记录了之后的执行失败
+        final long now = System.currentTimeMillis();
+        final ConsistencyTaskInstance taskInstance = H2TaskTables.newTask(now - 7_200_000L, 1L);
+        TaskBacklogDrainerTest.taskStorage.batchInitTask(Arrays.asList(taskInstance));
+        this.rocksLocalStorage.put(taskInstance);
+        this.drainer = this.newDrainer(TaskBacklogDrainerTest.taskStorage);
+
+        this.drain();
+
+        assertTrue(this.rocksLocalStorage.listTasks(10).isEmpty());
+        final List<ConsistencyTaskInstance> scanned = this.scanDueTasks();
+        assertEquals(1, scanned.size());
+        assertEquals(taskInstance.getId(), scanned.get(0).getId());
+    }
+
+    @Test
+    void keepsTheBacklogWhileTheDatabaseIsUnavailable() {
+        this.putBacklog(3);
+        final TaskStorage unavailable = mock(TaskStorage.class);
+        when(unavailable.getTaskByIdAndShardKey(any(), any())).thenThrow(new IllegalStateException("down"));
+        this.drainer = this.newDrainer(unavailable);
+
+        this.drain();
+
+        assertEquals(3, this.rocksLocalStorage.listTasks(10).size());
+        assertTrue(this.drainer.tryStartLocalTask(this.rocksLocalStorage.listTasks(1).get(0)));
+    }
+
+    @Test
+    void restoresUnderTheNextCandidateIdWhenAnotherTaskHoldsTheId() {
+        final ConsistencyTaskInstance taskInstance = this.putBacklog(1).get(0);
+        // 另一个节点的任务占用了第一个候选id
+        final ConsistencyTaskInstance otherTask = H2TaskTables.newTask(1000L, taskInstance.getShardKey());
+        otherTask.setTaskId("otherTask");
+        otherTask.setId(this.getRestoreId(taskInstance));
+        TaskBacklogDrainerTest.taskStorage.batchRestoreTask(Arrays.asList(otherTask));
+        this.drainer = this.newDrainer(TaskBacklogDrainerTest.taskStorage);
+
+        this.drain();
+
+        assertTrue(this.rocksLocalStorage.listTasks(10).isEmpty());
+        assertEquals(2, this.countTasks());
+        assertEquals("otherTask", TaskBacklogDrainerTest.taskStorage
+            .getTaskByIdAndShardKey(otherTask.getId(), otherTask.getShardKey()).getTaskId());
+        final long restoreId =
+            TaskBacklogDrainer.getRestoreId(taskInstance, this.rocksLocalStorage.getStorageId(), 1);
+        assertEquals("testTask", TaskBacklogDrainerTest.taskStorage
+            .getTaskByIdAndShardKey(restoreId, taskInstance.getShardKey()).getTaskId());
+
+        // 写回后、删除本地任务前宕机，再次迁移时认出已经写回的任务，不会重复写入
+        taskInstance.setId(null);
+        this.rocksLocalStorage.put(taskInstance);
+        this.drain();
+        assertTrue(this.rocksLocalStorage.listTasks(10).isEmpty());
+        assertEquals(2, this.countTasks());
+    }
+
+    @Test
+    void keepsTasksWhoseCandidateIdsAreAllTaken() {
+        final ConsistencyTaskInstance taskInstance = this.putBacklog(1).get(0);
+        final List<ConsistencyTaskInstance> otherTasks = new ArrayList<>();
+        for (int candidate = 0; candidate < 3; candidate++) {
+            final ConsistencyTaskInstance otherTask = H2TaskTables.newTask(1000L, taskInstance.getShardKey());
+            otherTask.setTaskId("otherTask");
+            otherTask.setId(
+                TaskBacklogDrainer.getRestoreId(taskInstance, this.rocksLocalStorage.getStorageId(), candidate));
+            otherTasks.add(otherTask);
+        }
+        TaskBacklogDrainerTest.taskStorage.batchRestoreTask(otherTasks);
+        this.drainer = this.newDrainer(TaskBacklogDrainerTest.taskStorage);
+
+        this.drain();
+
+        assertEquals(1, this.rocksLocalStorage.listTasks(10).size());
+        assertEquals(3, this.countTasks());
+    }
+
+    @Test
+    void restoreIdIsStableNegativeAndDependsOnTheStorageAndTheShardKey() {
+        final ConsistencyTaskInstance taskInstance = H2TaskTables.newTask(1000L, 1L);
+        taskInstance.setLocalSeq(12345L);
+        final ConsistencyTaskInstance sameTask = H2TaskTables.newTask(2000L, 1L);
+        sameTask.setLocalSeq(12345L);
+        final ConsistencyTaskInstance otherShard = H2TaskTables.newTask(1000L, 2L);
+        otherShard.setLocalSeq(12345L);
+
+        final long restoreId = TaskBacklogDrainer.getRestoreId(taskInstance, 7L, 0);
+
+        assertTrue(restoreId < 0);
+        assertEquals(restoreId, TaskBacklogDrainer.getRestoreId(sameTask, 7L, 0));
+        assertNotEquals(restoreId, TaskBacklogDrainer.getRestoreId(otherShard, 7L, 0));
+        // 两个节点同时启动时本地存储序号相同，本地存储标识不同
+        assertNotEquals(restoreId, TaskBacklogDrainer.getRestoreId(taskInstance, 8L, 0));
+        assertNotEquals(restoreId, TaskBacklogDrainer.getRestoreId(taskInstance, 7L, 1));
+    }
+
+    /**
+     * 按调度器默认的时间范围扫描未完成的任务
+     */
+    private List<ConsistencyTaskInstance> scanDueTasks() {
+        return TaskBacklogDrainerTest.taskStorage.listByUnFinishTask(TaskTimeRangeQuery.defaultGetStartTime().getTime(),
+            TaskTimeRangeQuery.defaultGetEndTime().getTime(), TaskTimeRangeQuery.defaultLimitTaskCount());
+    }
+
+    /**
+     * 本地任务的第一个候选迁移id
+     */
+    private long getRestoreId(final ConsistencyTaskInstance taskInstance) {
+        return TaskBacklogDrainer.getRestoreId(taskInstance, this.rocksLocalStorage.getStorageId(), 0);
+    }
+
+    private List<ConsistencyTaskInstance> putBacklog(final int count) {
+        final List<ConsistencyTaskInstance> backlog = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final ConsistencyTaskInstance taskInstance = H2TaskTables.newTask(1000L + i, i);
+            this.rocksLocalStorage.put(taskInstance);
+            backlog.add(taskInstance);
+        }
+        return backlog;
+    }
+
+    private TaskBacklogDrainer newDrainer(final TaskStorage taskStorage) {
+        // 迁移间隔足够长，测试中只手动触发迁移
+        final ConsistencyConfiguration consistencyConfiguration = ConsistencyConfiguration.builder()
+            .rocksDrainEnabled(true).rocksDrainBatchSize(2).rocksDrainRatePerSecond(1000)
+            .rocksDrainIntervalSeconds(3600).build();
+        final TaskBacklogDrainer taskBacklogDrainer = new TaskBacklogDrainer();
+        ReflectionTestUtils.setField(taskBacklogDrainer, "taskStorage", taskStorage);
+        ReflectionTestUtils.setField(taskBacklogDrainer, "rocksLocalStorage", this.rocksLocalStorage);
+        ReflectionTestUtils.setField(taskBacklogDrainer, "consistencyConfiguration", consistencyConfiguration);
+        taskBacklogDrainer.init();
+        return taskBacklogDrainer;
+    }
+
+    private void drain() {
+        ReflectionTestUtils.invokeMethod(this.drainer, "drain");
+    }
+
+    private int countTasks() {
+        return new JdbcTemplate(TaskBacklogDrainerTest.dataSource)
+            .queryForObject("SELECT COUNT(*) FROM consistency_task", Integer.class);
+    }
+
+}
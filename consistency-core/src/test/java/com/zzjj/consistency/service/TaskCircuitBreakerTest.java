@@ -0,0 +1,168 @@
+package com.zzjj.consistency.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.zzjj.consistency.config.ConsistencyConfiguration;
+import com.zzjj.consistency.model.ConsistencyTaskInstance;
+
+/**
+ * 按任务方法熔断的测试
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+class TaskCircuitBreakerTest {
+
+    private static final String FAILING_METHOD = "FailingService#call()";
+    private static final String HEALTHY_METHOD = "HealthyService#call()";
+
+    private final TaskStoreService taskStoreService = mock(TaskStoreService.class);
+
+    @Test
+    void disabledBreakerAlwaysAdmitsAndDefersNothing() {
+        final TaskCircuitBreaker breaker = this.newBreaker(false, 1);
+        final ConsistencyTaskInstance taskInstance = this.newTask(TaskCircuitBreakerTest.FAILING_METHOD, 0L);
+        for (int i = 0; i < 10; i++) {
+            breaker.onResult(taskInstance, false);
+        }
+
+        assertTrue(breaker.tryAcquire(taskInstance));
+        final List<ConsistencyTaskInstance> taskInstances = Arrays.asList(taskInstance);
+        assertSame(taskInstances, breaker.deferOpenTasks(taskInstances));
+    }
+
+    @Test
+    void opensOnlyAfterTheWindowIsFullAndTheFailureRatioIsReached() {
+        final TaskCircuitBreaker breaker = this.newBreaker(true, 1);
+        final ConsistencyTaskInstance taskInstance = this.newTask(TaskCircuitBreakerTest.FAILING_METHOD, 0L);
+
+        // 窗口大小为4，失败比例为0.5
+        breaker.onResult(taskInstance, false);
+        breaker.onResult(taskInstance, false);
+        assertTrue(breaker.tryAcquire(taskInstance));
+        breaker.onResult(taskInstance, true);
+        assertTrue(breaker.tryAcquire(taskInstance));
+        breaker.onResult(taskInstance, true);
+
+        assertFalse(breaker.tryAcquire(taskInstance));
+        assertTrue(breaker.tryAcquire(this.newTask(TaskCircuitBreakerTest.HEALTHY_METHOD, 0L)));
+    }
+
+    @Test
+    void defersDueTasksOfAnOpenMethodPastTheOpenPeriod() {
+        final TaskCircuitBreaker breaker = this.newBreaker(true, 60);
+        final long now = System.currentTimeMillis();
+        this.open(breaker);
+        final ConsistencyTaskInstance due = this.newTask(TaskCircuitBreakerTest.FAILING_METHOD, now);
+        final ConsistencyTaskInstance alreadyDeferred =
+            this.newTask(TaskCircuitBreakerTest.FAILING_METHOD, now + 3_600_000L);
+        final ConsistencyTaskInstance healthy = this.newTask(TaskCircuitBreakerTest.HEALTHY_METHOD, now);
+
+        final List<ConsistencyTaskInstance> remaining =
+            breaker.deferOpenTasks(Arrays.asList(due, alreadyDeferred, healthy));
+
+        assertEquals(Arrays.asList(healthy), remaining);
+        @SuppressWarnings("unchecked")
+        final ArgumentCaptor<List<ConsistencyTaskInstance>> deferred = ArgumentCaptor.forClass(List.class);
+        verify(this.taskStoreService).deferTasks(deferred.capture());
+        assertEquals(Arrays.asList(due), deferred.getValue());
+        // 推迟到熔断结束之后，在一个熔断时长内随机分布
+        assertTrue(due.getExecuteTime() >= now + 60_000L);
+        assertTrue(due.getExecuteTime() < System.currentTimeMillis() + 120_000L);
+    }
+
+    @Test
+    void doesNotTouchStorageWhenNothingIsOpen() {
+        final TaskCircuitBreaker breaker = this.newBreaker(true, 60);
+        final ConsistencyTaskInstance taskInstance = this.newTask(TaskCircuitBreakerTest.FAILING_METHOD, 0L);
+        breaker.onResult(taskInstance, true);
+
+        assertEquals(Arrays.asList(taskInstance), breaker.deferOpenTasks(Arrays.asList(taskInstance)));
+        verify(this.taskStoreService, never()).deferTasks(anyList());
+    }
+
+    @Test
+    void halfOpenAdmitsLimitedProbesAndClosesWhenAllSucceed() throws InterruptedException {
+        final TaskCircuitBreaker breaker = this.newBreaker(true, 1);
+        final ConsistencyTaskInstance taskInstance = this.newTask(TaskCircuitBreakerTest.FAILING_METHOD, 0L);
+        this.open(breaker);
+        Thread.sleep(1100L);
+
+        // 半开状态下只允许2个探测任务
+        assertTrue(breaker.tryAcquire(taskInstance));
+        assertTrue(breaker.tryAcquire(taskInstance));
+        assertFalse(breaker.tryAcquire(taskInstance));
+        breaker.onResult(taskInstance, true);
+        breaker.onResult(taskInstance, true);
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(breaker.tryAcquire(taskInstance));
+        }
+    }
+
+    @Test
+    void failedProbeReopensTheBreaker() throws InterruptedException {
+        final TaskCircuitBreaker breaker = this.newBreaker(true, 1);
+        final ConsistencyTaskInstance taskInstance = this.newTask(TaskCircuitBreakerTest.FAILING_METHOD, 0L);
+        this.open(breaker);
+        Thread.sleep(1100L);
+
+        assertTrue(breaker.tryAcquire(taskInstance));
+        breaker.onResult(taskInstance, false);
+
+        assertFalse(breaker.tryAcquire(taskInstance));
+    }
+
+    @Test
+    void releasedProbeFreesAHalfOpenSlot() throws InterruptedException {
+        final TaskCircuitBreaker breaker = this.newBreaker(true, 1);
+        final ConsistencyTaskInstance taskInstance = this.newTask(TaskCircuitBreakerTest.FAILING_METHOD, 0L);
+        this.open(breaker);
+        Thread.sleep(1100L);
+
+        assertTrue(breaker.tryAcquire(taskInstance));
+        assertTrue(breaker.tryAcquire(taskInstance));
+        breaker.release(taskInstance);
+
+        assertTrue(breaker.tryAcquire(taskInstance));
+    }
+
+    private void open(final TaskCircuitBreaker breaker) {
+        final ConsistencyTaskInstance taskInstance = this.newTask(TaskCircuitBreakerTest.FAILING_METHOD, 0L);
+        for (int i = 0; i < 4; i++) {
+            breaker.onResult(taskInstance, false);
+        }
+    }
+
+    private TaskCircuitBreaker newBreaker(final boolean enabled, final int openSeconds) {
+        // 不逐步恢复，关闭熔断后全部放行
+        final ConsistencyConfiguration consistencyConfiguration = ConsistencyConfiguration.builder()
+            .circuitBreakerEnabled(enabled).circuitBreakerWindowSize(4).circuitBreakerFailureRatio(0.5)
+            .circuitBreakerOpenSeconds(openSeconds).circuitBreakerHalfOpenProbes(2).circuitBreakerRampUpSeconds(0)
+            .build();
+        final TaskCircuitBreaker breaker = new TaskCircuitBreaker();
+        ReflectionTestUtils.setField(breaker, "consistencyConfiguration", consistencyConfiguration);
+        ReflectionTestUtils.setField(breaker, "taskStoreService", this.taskStoreService);
+        return breaker;
+    }
+
+    private ConsistencyTaskInstance newTask(final String methodSignName, final long executeTime) {
+        return ConsistencyTaskInstance.builder().id(1L).shardKey(0L).methodSignName(methodSignName)
+            .executeTime(executeTime).build();
+    }
+
+}
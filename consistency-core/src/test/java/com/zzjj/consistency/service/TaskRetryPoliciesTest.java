@@ -0,0 +1,120 @@
+package com.zzjj.consistency.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.zzjj.consistency.annotation.ConsistencyTask;
+import com.zzjj.consistency.enums.RetryPolicyEnum;
+import com.zzjj.consistency.invoker.ConsistencyTaskInvokerRegistry;
+import com.zzjj.consistency.model.ConsistencyTaskInstance;
+
+/**
+ * 按任务方法选择重试策略的测试
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+class TaskRetryPoliciesTest {
+
+    private static final long EXECUTE_TIME = 1_000_000L;
+
+    private ConsistencyTaskInvokerRegistry consistencyTaskInvokerRegistry;
+    private TaskRetryPolicies taskRetryPolicies;
+
+    @BeforeEach
+    void init() {
+        this.consistencyTaskInvokerRegistry = mock(ConsistencyTaskInvokerRegistry.class);
+        this.taskRetryPolicies = new TaskRetryPolicies();
+        ReflectionTestUtils.setField(this.taskRetryPolicies, "consistencyTaskInvokerRegistry",
+            this.consistencyTaskInvokerRegistry);
+    }
+
+    @Test
+    void taskWithoutAnnotationRetriesLinearlyWithoutLimit() {
+        when(this.consistencyTaskInvokerRegistry.findConsistencyTask(any())).thenReturn(null);
+
+        assertEquals(TaskRetryPoliciesTest.EXECUTE_TIME + 3 * 10_000L,
+            this.taskRetryPolicies.getNextExecuteTime(this.newTask(2), new RuntimeException()));
+        assertNotNull(this.taskRetryPolicies.getNextExecuteTime(this.newTask(1000), new RuntimeException()));
+    }
+
+    @Test
+    void fixedPolicyRetriesAfterOneExecuteInterval() {
+        this.givenAnnotation("fixed");
+
+        assertEquals(TaskRetryPoliciesTest.EXECUTE_TIME + 10_000L,
+            this.taskRetryPolicies.getNextExecuteTime(this.newTask(5), new RuntimeException()));
+    }
+
+    @Test
+    void stopsRetryingWhenMaxAttemptsIsReached() {
+        this.givenAnnotation("maxAttempts");
+
+        // 已经执行了1次，本次是第2次执行
+        assertNotNull(this.taskRetryPolicies.getNextExecuteTime(this.newTask(1), new RuntimeException()));
+        // 已经执行了2次，本次是第3次执行
+        assertNull(this.taskRetryPolicies.getNextExecuteTime(this.newTask(2), new RuntimeException()));
+    }
+
+    @Test
+    void stopsRetryingWhenTheCauseChainContainsANoRetryException() {
+        this.givenAnnotation("noRetry");
+
+        assertNull(this.taskRetryPolicies.getNextExecuteTime(this.newTask(0),
+            new RuntimeException(new IllegalArgumentException("bad parameter"))));
+        assertNotNull(this.taskRetryPolicies.getNextExecuteTime(this.newTask(0), new IllegalStateException()));
+    }
+
+    @Test
+    void retrySpecIsResolvedOncePerMethod() {
+        this.givenAnnotation("fixed");
+
+        this.taskRetryPolicies.getNextExecuteTime(this.newTask(0), new RuntimeException());
+        this.taskRetryPolicies.getNextExecuteTime(this.newTask(1), new RuntimeException());
+
+        verify(this.consistencyTaskInvokerRegistry, times(1)).findConsistencyTask(any());
+    }
+
+    private void givenAnnotation(final String methodName) {
+        try {
+            final ConsistencyTask consistencyTask =
+                AnnotatedTasks.class.getDeclaredMethod(methodName).getAnnotation(ConsistencyTask.class);
+            when(this.consistencyTaskInvokerRegistry.findConsistencyTask(any())).thenReturn(consistencyTask);
+        } catch (final NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private ConsistencyTaskInstance newTask(final int executeTimes) {
+        return ConsistencyTaskInstance.builder().id(1L).methodSignName("AnnotatedTasks#test()")
+            .executeIntervalSec(10).executeTimes(executeTimes).executeTime(TaskRetryPoliciesTest.EXECUTE_TIME)
+            .build();
+    }
+
+    /**
+     * 提供各种重试配置的注解
+     */
+    private static class AnnotatedTasks {
+
+        @ConsistencyTask(retryPolicy = RetryPolicyEnum.FIXED)
+        void fixed() {}
+
+        @ConsistencyTask(maxAttempts = 3)
+        void maxAttempts() {}
+
+        @ConsistencyTask(noRetryFor = IllegalArgumentException.class)
+        void noRetry() {}
+
+    }
+
+}
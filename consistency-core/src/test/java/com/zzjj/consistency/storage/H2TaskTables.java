@@ -0,0 +1,76 @@
+package com.zzjj.consistency.storage;
+
+import java.util.Date;
+
+import javax.sql.DataSource;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.zzjj.consistency.enums.ConsistencyTaskStatusEnum;
+import com.zzjj.consistency.model.ConsistencyTaskInstance;
+
+/**
+ * 测试用的H2任务表 以MySQL兼容模式打开内存数据库，使用与内嵌任务存储相同的建表脚本
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+public final class H2TaskTables {
+
+    private H2TaskTables() {}
+
+    /**
+     * 创建内存数据库并建表
+     *
+     * @param name 数据库名称 不同的测试类使用不同的名称，互不影响
+     * @return 数据源
+     */
+    public static DataSource createDataSource(final String name) {
+        final DriverManagerDataSource dataSource =
+            new DriverManagerDataSource("jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        dataSource.setDriverClassName("org.h2.Driver");
+        new ResourceDatabasePopulator(new ClassPathResource("sql/consistency_task_h2.sql")).execute(dataSource);
+        return dataSource;
+    }
+
+    /**
+     * 清空任务表
+     *
+     * @param dataSource 数据源
+     */
+    public static void truncate(final DataSource dataSource) {
+        new JdbcTemplate(dataSource).execute("TRUNCATE TABLE consistency_task");
+    }
+
+    /**
+     * 创建使用给定数据源的JDBC任务持久化实现
+     *
+     * @param dataSource 数据源
+     * @return JDBC任务持久化实现
+     */
+    public static JdbcTaskStorage createJdbcTaskStorage(final DataSource dataSource) {
+        final JdbcTaskStorage taskStorage = new JdbcTaskStorage();
+        ReflectionTestUtils.setField(taskStorage, "dataSource", dataSource);
+        return taskStorage;
+    }
+
+    /**
+     * 创建一个待执行的任务实例
+     *
+     * @param executeTime 执行时间
+     * @param shardKey 分片键
+     * @return 任务实例
+     */
+    public static ConsistencyTaskInstance newTask(final long executeTime, final long shardKey) {
+        return ConsistencyTaskInstance.builder().taskId("testTask")
+            .taskStatus(ConsistencyTaskStatusEnum.INIT.getCode()).executeTimes(0).executeTime(executeTime)
+            .parameterTypes("java.lang.String").methodName("test").methodSignName("TestService#test(String)")
+            .executeIntervalSec(20).delayTime(0).taskParameter("[\"p\"]").executeWay(1).threadWay(1).errorMsg("")
+            .shardKey(shardKey).gmtCreate(new Date()).gmtModified(new Date()).build();
+    }
+
+}
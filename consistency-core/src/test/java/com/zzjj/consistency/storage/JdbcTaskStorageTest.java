@@ -0,0 +1,283 @@
+package com.zzjj.consistency.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.zzjj.consistency.enums.ConsistencyTaskStatusEnum;
+import com.zzjj.consistency.model.ConsistencyTaskInstance;
+import com.zzjj.consistency.model.TaskScanQuery;
+
+/**
+ * 基于H2的JdbcTaskStorage测试
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+class JdbcTaskStorageTest {
+
+    private static DataSource dataSource;
+    private static JdbcTaskStorage taskStorage;
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void initDataSource() {
+        JdbcTaskStorageTest.dataSource = H2TaskTables.createDataSource("jdbc_task_storage_test");
+        JdbcTaskStorageTest.taskStorage = H2TaskTables.createJdbcTaskStorage(JdbcTaskStorageTest.dataSource);
+        JdbcTaskStorageTest.jdbcTemplate = new JdbcTemplate(JdbcTaskStorageTest.dataSource);
+    }
+
+    @BeforeEach
+    void truncate() {
+        H2TaskTables.truncate(JdbcTaskStorageTest.dataSource);
+    }
+
+    @Test
+    void batchInitTaskBackFillsGeneratedIdsInOrder() {
+        // 超过一条INSERT语句的最大行数，分成多条语句写入
+        final List<ConsistencyTaskInstance> taskInstances = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            taskInstances.add(H2TaskTables.newTask(1000L + i, i % 4));
+        }
+
+        assertEquals(250, JdbcTaskStorageTest.taskStorage.batchInitTask(taskInstances));
+
+        for (final ConsistencyTaskInstance taskInstance : taskInstances) {
+            assertNotNull(taskInstance.getId());
+            final ConsistencyTaskInstance stored = JdbcTaskStorageTest.taskStorage
+                .getTaskByIdAndShardKey(taskInstance.getId(), taskInstance.getShardKey());
+            assertEquals(taskInstance.getExecuteTime(), stored.getExecuteTime());
+        }
+    }
+
+    @Test
+    void batchInitTaskWritesShardIndexAndLeaseWhenAnyTaskHasThem() {
+        final ConsistencyTaskInstance plain = H2TaskTables.newTask(1000L, 1L);
+        final ConsistencyTaskInstance sharded = H2TaskTables.newTask(1000L, 2L);
+        sharded.setShardIndex(3L);
+        sharded.setOwnerPeerId("peer-1");
+        sharded.setLeaseUntil(5000L);
+
+        JdbcTaskStorageTest.taskStorage.batchInitTask(Arrays.asList(plain, sharded));
+
+        assertNull(this.queryLong("shard_index", plain));
+        assertEquals(3L, this.queryLong("shard_index", sharded));
+        assertEquals(5000L, this.queryLong("lease_until", sharded));
+    }
+
+    @Test
+    void batchRestoreTaskKeepsGivenIds() {
+        final ConsistencyTaskInstance first = H2TaskTables.newTask(1000L, 1L);
+        first.setId(-11L);
+        final ConsistencyTaskInstance second = H2TaskTables.newTask(2000L, 2L);
+        second.setId(-22L);
+
+        assertEquals(2, JdbcTaskStorageTest.taskStorage.batchRestoreTask(Arrays.asList(first, second)));
+
+        assertNotNull(JdbcTaskStorageTest.taskStorage.getTaskByIdAndShardKey(-11L, 1L));
+        assertNotNull(JdbcTaskStorageTest.taskStorage.getTaskByIdAndShardKey(-22L, 2L));
+    }
+
+    @Test
+    void listUnFinishTaskPageWalksTiedExecuteTimesWithoutGapsOrDuplicates() {
+        // 多个任务的执行时间相同，分页边界落在相同执行时间的任务中间
+        final List<ConsistencyTaskInstance> taskInstances = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            taskInstances.add(H2TaskTables.newTask(1000L + i / 4, 1L));
+        }
+        final ConsistencyTaskInstance finished = H2TaskTables.newTask(1000L, 1L);
+        finished.setTaskStatus(ConsistencyTaskStatusEnum.SUCCESS.getCode());
+        taskInstances.add(finished);
+        taskInstances.add(H2TaskTables.newTask(5000L, 1L));
+        JdbcTaskStorageTest.taskStorage.batchInitTask(taskInstances);
+
+        final TaskScanQuery scanQuery = TaskScanQuery.builder().startTime(0L).endTime(2000L).pageSize(3L).build();
+        final List<Long> scannedIds = new ArrayList<>();
+        while (true) {
+            final List<ConsistencyTaskInstance> page =
+                JdbcTaskStorageTest.taskStorage.listUnFinishTaskPage(scanQuery);
+            page.forEach(e -> scannedIds.add(e.getId()));
+            if (page.size() < scanQuery.getPageSize()) {
+                break;
+            }
+            scanQuery.moveAfter(page.get(page.size() - 1));
+        }
+
+        final List<Long> expectedIds =
+            taskInstances.subList(0, 10).stream().map(ConsistencyTaskInstance::getId).collect(Collectors.toList());
+        assertEquals(expectedIds, scannedIds);
+    }
+
+    @Test
+    void listUnFinishTaskPageFiltersOwnedShardIndexesAndFinishedStatuses() {
+        final List<ConsistencyTaskInstance> taskInstances = new ArrayList<>();
+        for (long shardIndex = 0; shardIndex < 4; shardIndex++) {
+            final ConsistencyTaskInstance taskInstance = H2TaskTables.newTask(1000L, shardIndex);
+            taskInstance.setShardIndex(shardIndex);
+            taskInstances.add(taskInstance);
+        }
+        final ConsistencyTaskInstance exhausted = H2TaskTables.newTask(1000L, 1L);
+        exhausted.setShardIndex(1L);
+        exhausted.setTaskStatus(ConsistencyTaskStatusEnum.EXHAUSTED.getCode());
+        taskInstances.add(exhausted);
+        JdbcTaskStorageTest.taskStorage.batchInitTask(taskInstances);
+
+        final TaskScanQuery scanQuery = TaskScanQuery.builder().startTime(0L).endTime(2000L).pageSize(10L)
+            .shardIndexes(Arrays.asList(1L, 3L)).build();
+        final List<ConsistencyTaskInstance> page = JdbcTaskStorageTest.taskStorage.listUnFinishTaskPage(scanQuery);
+
+        assertEquals(Arrays.asList(1L, 3L),
+            page.stream().map(ConsistencyTaskInstance::getShardIndex).collect(Collectors.toList()));
+    }
+
+    @Test
+    void keyPageReturnsOnlyIndexColumnsAndHydratesUnfinishedTasksByKey() {
+        final List<ConsistencyTaskInstance> taskInstances = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            taskInstances.add(H2TaskTables.newTask(1000L + i, i));
+        }
+        JdbcTaskStorageTest.taskStorage.batchInitTask(taskInstances);
+
+        final TaskScanQuery scanQuery = TaskScanQuery.builder().startTime(0L).endTime(2000L).pageSize(10L).build();
+        final List<ConsistencyTaskInstance> taskKeys =
+            JdbcTaskStorageTest.taskStorage.listUnFinishTaskKeyPage(scanQuery);
+        assertEquals(5, taskKeys.size());
+        assertEquals("TestService#test(String)", taskKeys.get(0).getMethodSignName());
+        assertNull(taskKeys.get(0).getTaskParameter());
+
+        // 扫描和加载之间已经完成的任务不再加载
+        JdbcTaskStorageTest.taskStorage.markSuccess(taskInstances.get(2));
+        final List<ConsistencyTaskInstance> hydrated =
+            JdbcTaskStorageTest.taskStorage.listTaskByIdsAndShardKeys(taskKeys);
+
+        assertEquals(4, hydrated.size());
+        hydrated.forEach(e -> assertEquals("[\"p\"]", e.getTaskParameter()));
+        assertEquals(0, hydrated.stream().filter(e -> e.getId().equals(taskInstances.get(2).getId())).count());
+    }
+
+    @Test
+    void claimTaskLeasesDueTasksToOnePeerUntilTheLeaseExpires() {
+        final List<ConsistencyTaskInstance> taskInstances = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            taskInstances.add(H2TaskTables.newTask(1000L + i, 1L));
+        }
+        taskInstances.add(H2TaskTables.newTask(9000L, 1L));
+        JdbcTaskStorageTest.taskStorage.batchInitTask(taskInstances);
+
+        final long now = 2000L;
+        assertEquals(3, JdbcTaskStorageTest.taskStorage.claimTask("peer-a", 62000L, 0L, now, 3));
+        // 另一个节点只能认领剩下的到期任务
+        assertEquals(2, JdbcTaskStorageTest.taskStorage.claimTask("peer-b", 62000L, 0L, now, 10));
+        assertEquals(0, JdbcTaskStorageTest.taskStorage.claimTask("peer-b", 62000L, 0L, now, 10));
+
+        final List<ConsistencyTaskInstance> claimed = JdbcTaskStorageTest.taskStorage.listClaimedTask("peer-a", 62000L);
+        assertEquals(3, claimed.size());
+        for (final ConsistencyTaskInstance taskInstance : claimed) {
+            assertEquals(ConsistencyTaskStatusEnum.START.getCode(), taskInstance.getTaskStatus());
+            assertEquals(1, taskInstance.getExecuteTimes());
+            assertEquals("peer-a", taskInstance.getOwnerPeerId());
+        }
+
+        // 租约到期后其他节点可以重新认领，这时执行时间为9000的任务也已经到期
+        assertEquals(6, JdbcTaskStorageTest.taskStorage.claimTask("peer-b", 130000L, 0L, 70000L, 10));
+    }
+
+    @Test
+    void markFailReleasesTheLeaseOnlyForTheOwner() {
+        final ConsistencyTaskInstance taskInstance = H2TaskTables.newTask(1000L, 1L);
+        JdbcTaskStorageTest.taskStorage.batchInitTask(Arrays.asList(taskInstance));
+        JdbcTaskStorageTest.taskStorage.claimTask("peer-a", 62000L, 0L, 2000L, 10);
+        taskInstance.setTaskStatus(ConsistencyTaskStatusEnum.FAIL.getCode());
+        taskInstance.setErrorMsg("error");
+        taskInstance.setExecuteTime(3000L);
+
+        taskInstance.setOwnerPeerId("peer-b");
+        assertEquals(0, JdbcTaskStorageTest.taskStorage.markFail(taskInstance));
+        taskInstance.setOwnerPeerId("peer-a");
+        assertEquals(1, JdbcTaskStorageTest.taskStorage.markFail(taskInstance));
+
+        assertNull(this.queryLong("lease_until", taskInstance));
+        assertEquals(1, JdbcTaskStorageTest.taskStorage.claimTask("peer-b", 63000L, 0L, 3000L, 10));
+    }
+
+    @Test
+    void batchTurnOnTaskStartsOnlyRowsThatWereNotChangedSinceTheScan() {
+        final List<ConsistencyTaskInstance> taskInstances = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            taskInstances.add(H2TaskTables.newTask(1000L + i, 1L));
+        }
+        JdbcTaskStorageTest.taskStorage.batchInitTask(taskInstances);
+        // 扫描之后第一个任务被其他节点启动，第二个任务已经完成
+        JdbcTaskStorageTest.taskStorage.claimTask("peer-a", 62000L, 0L, 1000L, 1);
+        JdbcTaskStorageTest.taskStorage.markArchived(taskInstances.get(1));
+
+        final List<ConsistencyTaskInstance> started =
+            JdbcTaskStorageTest.taskStorage.batchTurnOnTask(taskInstances, 2000L);
+
+        assertEquals(1, started.size());
+        assertEquals(taskInstances.get(2).getId(), started.get(0).getId());
+        final ConsistencyTaskInstance stored = JdbcTaskStorageTest.taskStorage
+            .getTaskByIdAndShardKey(started.get(0).getId(), started.get(0).getShardKey());
+        assertEquals(ConsistencyTaskStatusEnum.START.getCode(), stored.getTaskStatus());
+        assertEquals(1, stored.getExecuteTimes());
+        assertEquals(2000L, stored.getExecuteTime());
+    }
+
+    @Test
+    void deferTasksMovesOnlyUnfinishedTasks() {
+        final ConsistencyTaskInstance unfinished = H2TaskTables.newTask(1000L, 1L);
+        final ConsistencyTaskInstance finished = H2TaskTables.newTask(1000L, 2L);
+        JdbcTaskStorageTest.taskStorage.batchInitTask(Arrays.asList(unfinished, finished));
+        JdbcTaskStorageTest.taskStorage.markArchived(finished);
+        unfinished.setExecuteTime(90000L);
+        finished.setExecuteTime(90000L);
+
+        JdbcTaskStorageTest.taskStorage.deferTasks(Arrays.asList(unfinished, finished));
+
+        assertEquals(90000L, this.queryLong("execute_time", unfinished));
+        assertEquals(1000L, this.queryLong("execute_time", finished));
+    }
+
+    @Test
+    void releaseTasksUndoesTheStartOfRejectedTasks() {
+        // 一个任务由SHARD模式启动，一个任务由LEASE模式认领
+        final ConsistencyTaskInstance started = H2TaskTables.newTask(1500L, 1L);
+        final ConsistencyTaskInstance claimed = H2TaskTables.newTask(1000L, 2L);
+        JdbcTaskStorageTest.taskStorage.batchInitTask(Arrays.asList(started, claimed));
+        JdbcTaskStorageTest.taskStorage.claimTask("peer-a", 62000L, 0L, 1200L, 10);
+        JdbcTaskStorageTest.taskStorage.batchTurnOnTask(Arrays.asList(started), 2000L);
+        started.setTaskStatus(ConsistencyTaskStatusEnum.INIT.getCode());
+        claimed.setTaskStatus(ConsistencyTaskStatusEnum.INIT.getCode());
+        claimed.setOwnerPeerId("peer-a");
+
+        JdbcTaskStorageTest.taskStorage.releaseTasks(Arrays.asList(started, claimed));
+
+        for (final ConsistencyTaskInstance taskInstance : Arrays.asList(started, claimed)) {
+            final ConsistencyTaskInstance stored = JdbcTaskStorageTest.taskStorage
+                .getTaskByIdAndShardKey(taskInstance.getId(), taskInstance.getShardKey());
+            assertEquals(ConsistencyTaskStatusEnum.INIT.getCode(), stored.getTaskStatus());
+        }
+        assertEquals(0L, this.queryLong("execute_times", started));
+        assertEquals(0L, this.queryLong("execute_times", claimed));
+        assertNull(this.queryLong("lease_until", claimed));
+    }
+
+    private Long queryLong(final String column, final ConsistencyTaskInstance taskInstance) {
+        return JdbcTaskStorageTest.jdbcTemplate.queryForObject(
+            "SELECT " + column + " FROM consistency_task WHERE id=? AND shard_key=?", Long.class,
+            taskInstance.getId(), taskInstance.getShardKey());
+    }
+
+}
@@ -0,0 +1,163 @@
+package com.zzjj.consistency.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.rocksdb.RocksDBException;
+
+import com.zzjj.consistency.model.ConsistencyTaskInstance;
+
+/**
+ * RocksDB本地存储的测试
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+class RocksLocalStorageTest {
+
+    @TempDir
+    Path dir;
+
+    private RocksLocalStorage rocksLocalStorage;
+
+    @BeforeEach
+    void open() throws RocksDBException {
+        this.rocksLocalStorage = RocksTestStorages.open(this.dir);
+    }
+
+    @AfterEach
+    void close() {
+        this.rocksLocalStorage.close();
+    }
+
+    @Test
+    void iteratesTasksInExecuteTimeOrderAcrossByteBoundaries() {
+        // 127/128和255/256在大端编码中跨越了字节的符号位和进位，按有符号字节比较时顺序会出错
+        final List<Long> executeTimes = Arrays.asList(256L, 1L << 40, 127L, 255L, 128L, 1L, 65536L);
+        for (final Long executeTime : executeTimes) {
+            this.rocksLocalStorage.put(H2TaskTables.newTask(executeTime, 0L));
+        }
+
+        assertEquals(Arrays.asList(1L, 127L, 128L, 255L, 256L, 65536L, 1L << 40),
+            this.executeTimes(this.rocksLocalStorage.listTasks(10)));
+    }
+
+    @Test
+    void tasksWithTheSameExecuteTimeAreOrderedByShardKey() {
+        for (final long shardKey : new long[] {300L, 2L, 1L << 33}) {
+            this.rocksLocalStorage.put(H2TaskTables.newTask(1000L, shardKey));
+        }
+
+        assertEquals(Arrays.asList(2L, 300L, 1L << 33), this.rocksLocalStorage.listTasks(10).stream()
+            .map(ConsistencyTaskInstance::getShardKey).collect(Collectors.toList()));
+    }
+
+    @Test
+    void getTopNStopsAtTheFirstTaskThatIsNotDue() {
+        final long now = System.currentTimeMillis();
+        this.rocksLocalStorage.put(H2TaskTables.newTask(now + 3_600_000L, 0L));
+        this.rocksLocalStorage.put(H2TaskTables.newTask(now - 2000L, 0L));
+        this.rocksLocalStorage.put(H2TaskTables.newTask(now - 1000L, 0L));
+
+        assertEquals(Arrays.asList(now - 2000L, now - 1000L), this.executeTimes(this.rocksLocalStorage.getTopN(10)));
+        assertEquals(Arrays.asList(now - 2000L), this.executeTimes(this.rocksLocalStorage.getTopN(1)));
+        assertEquals(3, this.rocksLocalStorage.listTasks(10).size());
+    }
+
+    @Test
+    void keepsTheOrderAfterReopening() throws RocksDBException {
+        this.rocksLocalStorage.put(H2TaskTables.newTask(2000L, 0L));
+        this.rocksLocalStorage.put(H2TaskTables.newTask(1000L, 0L));
+        this.rocksLocalStorage.close();
+
+        this.rocksLocalStorage = RocksTestStorages.open(this.dir);
+
+        assertEquals(Arrays.asList(1000L, 2000L), this.executeTimes(this.rocksLocalStorage.listTasks(10)));
+    }
+
+    @Test
+    void updateMovesTheTaskToItsNewExecuteTime() {
+        final ConsistencyTaskInstance first = H2TaskTables.newTask(1000L, 0L);
+        final ConsistencyTaskInstance second = H2TaskTables.newTask(2000L, 0L);
+        this.rocksLocalStorage.put(first);
+        this.rocksLocalStorage.put(second);
+
+        first.setExecuteTime(3000L);
+        first.setExecuteTimes(1);
+        assertTrue(this.rocksLocalStorage.update(first));
+
+        final List<ConsistencyTaskInstance> taskInstances = this.rocksLocalStorage.listTasks(10);
+        assertEquals(Arrays.asList(2000L, 3000L), this.executeTimes(taskInstances));
+        assertEquals(first.getLocalSeq(), taskInstances.get(1).getLocalSeq());
+        assertEquals(1, taskInstances.get(1).getExecuteTimes());
+    }
+
+    @Test
+    void updateDoesNotRestoreADeletedTask() {
+        final ConsistencyTaskInstance taskInstance = H2TaskTables.newTask(1000L, 0L);
+        this.rocksLocalStorage.put(taskInstance);
+        assertTrue(this.rocksLocalStorage.contains(taskInstance));
+
+        this.rocksLocalStorage.delete(taskInstance);
+        taskInstance.setExecuteTime(2000L);
+
+        assertFalse(this.rocksLocalStorage.update(taskInstance));
+        assertFalse(this.rocksLocalStorage.contains(taskInstance));
+        assertTrue(this.rocksLocalStorage.listTasks(10).isEmpty());
+    }
+
+    @Test
+    void deleteAllRemovesTasksAndTheirIndexes() {
+        final ConsistencyTaskInstance first = H2TaskTables.newTask(1000L, 0L);
+        final ConsistencyTaskInstance second = H2TaskTables.newTask(2000L, 0L);
+        final ConsistencyTaskInstance kept = H2TaskTables.newTask(3000L, 0L);
+        this.rocksLocalStorage.put(first);
+        this.rocksLocalStorage.put(second);
+        this.rocksLocalStorage.put(kept);
+
+        // 按本地存储序号删除，与任务实例中的执行时间无关
+        first.setExecuteTime(9000L);
+        this.rocksLocalStorage.deleteAll(Arrays.asList(first, second));
+
+        assertFalse(this.rocksLocalStorage.contains(first));
+        assertFalse(this.rocksLocalStorage.contains(second));
+        assertTrue(this.rocksLocalStorage.contains(kept));
+        assertEquals(Arrays.asList(3000L), this.executeTimes(this.rocksLocalStorage.listTasks(10)));
+    }
+
+    @Test
+    void keepsTheStorageIdAfterReopeningAndUsesANewOneForANewStorage() throws RocksDBException, IOException {
+        final long storageId = this.rocksLocalStorage.getStorageId();
+        this.rocksLocalStorage.close();
+
+        this.rocksLocalStorage = RocksTestStorages.open(this.dir);
+        assertEquals(storageId, this.rocksLocalStorage.getStorageId());
+        this.rocksLocalStorage.close();
+
+        this.rocksLocalStorage = RocksTestStorages.open(Files.createDirectory(this.dir.resolve("other")));
+        assertNotEquals(storageId, this.rocksLocalStorage.getStorageId());
+    }
+
+    @Test
+    void containsIsFalseForTasksThatWereNeverStoredLocally() {
+        assertFalse(this.rocksLocalStorage.contains(H2TaskTables.newTask(1000L, 0L)));
+    }
+
+    private List<Long> executeTimes(final List<ConsistencyTaskInstance> taskInstances) {
+        return taskInstances.stream().map(ConsistencyTaskInstance::getExecuteTime).collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,122 @@
+package com.zzjj.consistency.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Date;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+
+import com.zzjj.consistency.exceptions.ConsistencyException;
+import com.zzjj.consistency.model.ConsistencyTaskInstance;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+
+/**
+ * RocksDB任务数据编解码的测试 字典写入一个单独打开的RocksDB的默认列族
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+class RocksTaskCodecTest {
+
+    @TempDir
+    Path dir;
+
+    private Options options;
+    private RocksDB rocksDB;
+    private RocksTaskCodec taskCodec;
+
+    @BeforeEach
+    void open() throws RocksDBException {
+        this.options = new Options().setCreateIfMissing(true);
+        this.rocksDB = RocksDB.open(this.options, this.dir.toString());
+        this.taskCodec = new RocksTaskCodec(this.rocksDB, this.rocksDB.getDefaultColumnFamily());
+    }
+
+    @AfterEach
+    void close() {
+        this.taskCodec.close();
+        this.rocksDB.close();
+        this.options.close();
+    }
+
+    @Test
+    void roundTripsEveryField() throws RocksDBException {
+        final ConsistencyTaskInstance taskInstance = ConsistencyTaskInstance.builder().id(-42L).taskId("task")
+            .methodSignName("TestService#test(String)").methodName("test").parameterTypes("java.lang.String")
+            .taskParameter("[\"参数\"]").taskStatus(2).executeIntervalSec(20).delayTime(5).executeTimes(3)
+            .executeTime(1_700_000_000_000L).errorMsg("error").executeWay(2).threadWay(1)
+            .alertExpression("executeTimes > 1").alertActionBeanName("alerter").fallbackClassName("Fallback")
+            .fallbackErrorMsg("fallback error").shardKey(Long.MAX_VALUE).shardIndex(7L).localSeq(1L << 50)
+            .gmtCreate(new Date(1_600_000_000_000L)).gmtModified(new Date(1_600_000_001_000L)).build();
+
+        assertEquals(taskInstance, this.taskCodec.decode(this.taskCodec.encode(taskInstance)));
+    }
+
+    @Test
+    void leavesNullFieldsNull() throws RocksDBException {
+        final ConsistencyTaskInstance taskInstance =
+            ConsistencyTaskInstance.builder().taskId("task").executeTime(1000L).build();
+
+        final ConsistencyTaskInstance decoded = this.taskCodec.decode(this.taskCodec.encode(taskInstance));
+
+        assertEquals(taskInstance, decoded);
+        assertNull(decoded.getId());
+        assertNull(decoded.getExecuteWay());
+        assertNull(decoded.getShardIndex());
+        assertNull(decoded.getGmtCreate());
+    }
+
+    @Test
+    void compressesLargeParametersAndRoundTripsThem() throws RocksDBException {
+        final ConsistencyTaskInstance taskInstance = H2TaskTables.newTask(1000L, 0L);
+        taskInstance.setTaskParameter("[\"" + StrUtil.repeat("abc", 2000) + "\"]");
+
+        final byte[] value = this.taskCodec.encode(taskInstance);
+
+        assertTrue(value.length < taskInstance.getTaskParameter().length());
+        assertEquals(taskInstance, this.taskCodec.decode(value));
+    }
+
+    @Test
+    void reloadsTheDictionaryWhenReopened() throws RocksDBException {
+        final ConsistencyTaskInstance taskInstance = H2TaskTables.newTask(1000L, 0L);
+        final byte[] value = this.taskCodec.encode(taskInstance);
+        this.taskCodec.close();
+
+        this.taskCodec = new RocksTaskCodec(this.rocksDB, this.rocksDB.getDefaultColumnFamily());
+
+        assertEquals(taskInstance.getMethodSignName(), this.taskCodec.decode(value).getMethodSignName());
+    }
+
+    @Test
+    void decodesLegacyJsonValues() {
+        final ConsistencyTaskInstance taskInstance = H2TaskTables.newTask(1000L, 3L);
+        taskInstance.setId(5L);
+
+        final ConsistencyTaskInstance decoded =
+            this.taskCodec.decode(JSONUtil.toJsonStr(taskInstance).getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(5L, decoded.getId());
+        assertEquals(3L, decoded.getShardKey());
+        assertEquals(taskInstance.getMethodSignName(), decoded.getMethodSignName());
+    }
+
+    @Test
+    void rejectsValuesFromANewerVersion() {
+        assertThrows(ConsistencyException.class, () -> this.taskCodec.decode(new byte[] {2, 0}));
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.zzjj.consistency.storage;
+
+import java.nio.file.Path;
+
+import org.rocksdb.RocksDBException;
+
+import com.zzjj.consistency.config.ConsistencyConfiguration;
+import com.zzjj.consistency.enums.RocksDBProfileEnum;
+
+/**
+ * 测试用的RocksDB本地存储 使用低内存的预设配置，每次预写日志都同步落盘
+ * <p>
+ * RocksLocalStorage在进程内只持有一个RocksDB实例，使用完后需要关闭再打开下一个
+ *
+ * @author zengjin
+ * @date 2026/10/17
+ **/
+public final class RocksTestStorages {
+
+    private RocksTestStorages() {}
+
+    /**
+     * 在给定目录中打开本地存储
+     *
+     * @param dir 已经存在的目录
+     * @return 本地存储
+     */
+    public static RocksLocalStorage open(final Path dir) throws RocksDBException {
+        final RocksDBProfileEnum profile = RocksDBProfileEnum.LOW_MEMORY;
+        return new RocksLocalStorage(ConsistencyConfiguration.builder().rocksPath(dir.toString())
+            .rocksWriteBufferSizeMb(profile.getWriteBufferSizeMb())
+            .rocksMaxWriteBufferNumber(profile.getMaxWriteBufferNumber())
+            .rocksWriteBufferManagerMb(profile.getWriteBufferManagerMb()).rocksBlockCacheMb(profile.getBlockCacheMb())
+            .rocksBloomFilterBitsPerKey(profile.getBloomFilterBitsPerKey())
+            .rocksCompactionStyle(profile.getCompactionStyle()).rocksMaxBackgroundJobs(profile.getMaxBackgroundJobs())
+            .rocksWalSyncMode("SYNC").rocksWalSyncIntervalMillis(profile.getWalSyncIntervalMillis()).build());
+    }
+
+}
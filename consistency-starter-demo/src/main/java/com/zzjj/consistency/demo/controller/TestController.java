@@ -77,4 +77,17 @@ public class TestController {
         return "ok";
     }
 
+    /**
+     * 批量执行 调度任务测试 一次创建多个任务，到期后调度器合并为一批调用批量方法
+     */
+    @GetMapping("/test4")
+    public String sendBatchable() {
+        for (int i = 0; i < 5; i++) {
+            // 模拟插库操作
+            OrderInfoDTO orderInfoDTO = OrderInfoDTO.builder().id("44" + i).build();
+            this.sendMessageComponent.sendBatchable(orderInfoDTO);
+        }
+        return "ok";
+    }
+
 }
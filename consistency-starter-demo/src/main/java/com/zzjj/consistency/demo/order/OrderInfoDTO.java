@@ -1,7 +1,9 @@
 package com.zzjj.consistency.demo.order;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 /**
  * @author zengjin
@@ -9,6 +11,8 @@ import lombok.Data;
  **/
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class OrderInfoDTO {
 
     private String id;
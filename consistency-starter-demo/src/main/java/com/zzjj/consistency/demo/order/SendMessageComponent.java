@@ -1,12 +1,14 @@
 package com.zzjj.consistency.demo.order;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Component;
 
 import com.zzjj.consistency.annotation.ConsistencyTask;
 import com.zzjj.consistency.demo.custom.fallback.SendMessageFallbackHandler;
 import com.zzjj.consistency.enums.ExecuteEnum;
+import com.zzjj.consistency.enums.RetryPolicyEnum;
 import com.zzjj.consistency.enums.ThreadWayEnum;
 
 import cn.hutool.json.JSONUtil;
@@ -44,11 +46,13 @@ public class SendMessageComponent {
      * <p>
      * 验证情况： 1、发送消息时，执行失败 有异常发生的情况，会标记任务状态为失败，同时记录失败的原因 2、当满足 降级条件(executeTimes(执行次数) >
      * TendConsistencyConfig.fallbackThreshold (默认值为0)) 可以触发降级逻辑 调用相关用户实现的自定义降级类的指定方法 3、当满足 默认的
-     * alertExpression(executeTimes > 1 && executeTimes < 5) 告警通知时，会触发消息的推送，并可以调用相关实现类
+     * alertExpression(executeTimes > 1 && executeTimes < 5) 告警通知时，会触发消息的推送，并可以调用相关实现类 4、按指数退避加随机抖动的间隔重试，
+     * 执行5次后标记为重试耗尽，不再重试
      *
      * @param orderInfo 订单
      */
-    @ConsistencyTask(executeWay = ExecuteEnum.EXECUTE_RIGHT_NOW, threadWay = ThreadWayEnum.SYNC)
+    @ConsistencyTask(executeWay = ExecuteEnum.EXECUTE_RIGHT_NOW, threadWay = ThreadWayEnum.SYNC,
+        retryPolicy = RetryPolicyEnum.EXPONENTIAL, maxAttempts = 5)
     public void sendRightNowAsyncMessage(final OrderInfoDTO orderInfo) {
         SendMessageComponent.log.info("[异步调度任务测试] 执行sendRightNowAsyncMessage(OrderInfoDTO)方法 {}", JSONUtil.toJsonStr(orderInfo));
         System.out.println(1 / 0); // 模拟失败
@@ -65,4 +69,30 @@ public class SendMessageComponent {
         SendMessageComponent.log.info("[异步调度任务测试] 执行sendRightNowAsyncMessage2(OrderInfoDTO)方法");
     }
 
+    /**
+     * 批量执行 调度任务测试
+     * <p>
+     * 验证情况： 1、同一时间到期的多个任务，调度器按batchSize合并为一批，只调用一次sendBatch方法 2、sendBatch返回false的任务标记为执行失败，等待重试
+     *
+     * @param orderInfo 订单
+     */
+    @ConsistencyTask(executeIntervalSec = 20, delayTime = 5, executeWay = ExecuteEnum.EXECUTE_SCHEDULE,
+        threadWay = ThreadWayEnum.ASYNC, batchSize = 100, batchMethod = "sendBatch")
+    public void sendBatchable(final OrderInfoDTO orderInfo) {
+        SendMessageComponent.log.info("[批量执行测试] 执行sendBatchable(OrderInfoDTO)方法 {}", JSONUtil.toJsonStr(orderInfo));
+    }
+
+    /**
+     * 批量发送消息 一次调用发送一批订单的消息
+     *
+     * @param orderInfos 订单列表
+     * @return 和订单一一对应的发送结果
+     */
+    public List<Boolean> sendBatch(final List<OrderInfoDTO> orderInfos) {
+        SendMessageComponent.log.info("[批量执行测试] 执行sendBatch(List<OrderInfoDTO>)方法 共 [{}] 个订单 {}", orderInfos.size(),
+            JSONUtil.toJsonStr(orderInfos));
+        // return orderInfos.stream().map(e -> !"bad".equals(e.getId())).collect(Collectors.toList()); // 模拟部分失败
+        return orderInfos.stream().map(e -> true).collect(Collectors.toList());
+    }
+
 }